@@ -0,0 +1,200 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.Card;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing {@link CardBinIndex.Matcher} with the prefix scans and Luhn check that
+ * {@link CardUtils} used before it. Typing every number of a generated corpus is simulated one
+ * character at a time, and the brand and validity are checked after each keystroke, as
+ * {@link com.stripe.android.view.CardNumberEditText} does. Each operation types the whole
+ * corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardBinIndexBenchmark {
+    private static final int CORPUS_SIZE = 200;
+
+    private static final String[][] PREFIXES = {
+            Card.PREFIXES_AMERICAN_EXPRESS,
+            Card.PREFIXES_DISCOVER,
+            Card.PREFIXES_JCB,
+            Card.PREFIXES_DINERS_CLUB,
+            Card.PREFIXES_VISA,
+            Card.PREFIXES_MASTERCARD,
+            Card.PREFIXES_UNIONPAY,
+            // numbers of an unknown brand
+            {"1", "7", "8", "9"}
+    };
+
+    private final StringBuilder mEditable = new StringBuilder();
+    private String[] mCorpus;
+    private CardBinIndex.Matcher mMatcher;
+
+    @Setup
+    public void setup() {
+        mCorpus = createCorpus(new Random(42));
+        mMatcher = CardBinIndex.getInstance().newMatcher();
+
+        // both paths must agree before their timings mean anything
+        if (cardBinIndex() != legacyPrefixScan()) {
+            throw new IllegalStateException("CardBinIndex and the prefix scan disagree");
+        }
+    }
+
+    /**
+     * @return the number of keystrokes after which the number was valid
+     */
+    @Benchmark
+    public int cardBinIndex() {
+        int validCount = 0;
+        for (String number : mCorpus) {
+            mEditable.setLength(0);
+            for (int i = 0; i < number.length(); i++) {
+                mEditable.append(number.charAt(i));
+                mMatcher.update(mEditable);
+                mMatcher.getBrand();
+                if (mMatcher.isValid()) {
+                    validCount++;
+                }
+            }
+        }
+        return validCount;
+    }
+
+    /**
+     * @return the number of keystrokes after which the number was valid
+     */
+    @Benchmark
+    public int legacyPrefixScan() {
+        int validCount = 0;
+        for (String number : mCorpus) {
+            mEditable.setLength(0);
+            for (int i = 0; i < number.length(); i++) {
+                mEditable.append(number.charAt(i));
+                final String text = mEditable.toString();
+                LegacyCardUtils.getPossibleCardType(text);
+                if (LegacyCardUtils.isValidCardNumber(text)) {
+                    validCount++;
+                }
+            }
+        }
+        return validCount;
+    }
+
+    /**
+     * @return formatted card numbers of every brand, most of them valid
+     */
+    @NonNull
+    private static String[] createCorpus(@NonNull Random random) {
+        final String[] corpus = new String[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            final String[] prefixes = PREFIXES[random.nextInt(PREFIXES.length)];
+            final StringBuilder number =
+                    new StringBuilder(prefixes[random.nextInt(prefixes.length)]);
+            final String brand = LegacyCardUtils.getPossibleCardType(number.toString());
+            final int length = Card.CardBrand.AMERICAN_EXPRESS.equals(brand) ? 15 :
+                    Card.CardBrand.DINERS_CLUB.equals(brand) ? 14 : 16;
+            while (number.length() < length - 1) {
+                number.append(random.nextInt(10));
+            }
+            number.append(getCheckDigit(number));
+            if (random.nextInt(10) == 0) {
+                // an invalid check digit
+                final int lastIndex = number.length() - 1;
+                number.setCharAt(lastIndex,
+                        (char) ('0' + (number.charAt(lastIndex) - '0' + 1) % 10));
+            }
+
+            final StringBuilder formattedNumber = new StringBuilder();
+            for (int j = 0; j < number.length(); j++) {
+                if (j > 0 && j % 4 == 0) {
+                    formattedNumber.append(' ');
+                }
+                formattedNumber.append(number.charAt(j));
+            }
+            corpus[i] = formattedNumber.toString();
+        }
+        return corpus;
+    }
+
+    private static int getCheckDigit(@NonNull CharSequence partialNumber) {
+        int sum = 0;
+        for (int i = 0; i < partialNumber.length(); i++) {
+            int digit = partialNumber.charAt(partialNumber.length() - 1 - i) - '0';
+            if (i % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * The brand and validity checks that {@link CardUtils} used before {@link CardBinIndex} was
+     * introduced.
+     */
+    private static final class LegacyCardUtils {
+        @NonNull
+        @Card.CardBrand
+        private static String getPossibleCardType(@Nullable String cardNumber) {
+            if (StripeTextUtils.isBlank(cardNumber)) {
+                return Card.CardBrand.UNKNOWN;
+            }
+
+            final String spacelessCardNumber = StripeTextUtils.removeSpacesAndHyphens(cardNumber);
+            if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber,
+                    Card.PREFIXES_AMERICAN_EXPRESS)) {
+                return Card.CardBrand.AMERICAN_EXPRESS;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber,
+                    Card.PREFIXES_DISCOVER)) {
+                return Card.CardBrand.DISCOVER;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_JCB)) {
+                return Card.CardBrand.JCB;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber,
+                    Card.PREFIXES_DINERS_CLUB)) {
+                return Card.CardBrand.DINERS_CLUB;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_VISA)) {
+                return Card.CardBrand.VISA;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber,
+                    Card.PREFIXES_MASTERCARD)) {
+                return Card.CardBrand.MASTERCARD;
+            } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber,
+                    Card.PREFIXES_UNIONPAY)) {
+                return Card.CardBrand.UNIONPAY;
+            } else {
+                return Card.CardBrand.UNKNOWN;
+            }
+        }
+
+        private static boolean isValidCardNumber(@Nullable String cardNumber) {
+            final String normalizedNumber = StripeTextUtils.removeSpacesAndHyphens(cardNumber);
+            return CardUtils.isValidLuhnNumber(normalizedNumber) &&
+                    CardUtils.isValidCardLength(normalizedNumber,
+                            getPossibleCardType(normalizedNumber));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.stripe.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the card number checks that {@link com.stripe.android.view.CardNumberEditText}
+ * runs on every keystroke, with a number of each brand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardUtilsBenchmark {
+    @Param({
+            "4242424242424242",
+            "378282246310005",
+            "6011000990139424",
+            "5555555555554444",
+            "30569309025904",
+            "3566002020360505",
+            "6200000000000005"
+    })
+    public String cardNumber;
+
+    @Benchmark
+    public boolean isValidCardNumber() {
+        return CardUtils.isValidCardNumber(cardNumber);
+    }
+
+    @Benchmark
+    public String getPossibleCardType() {
+        return CardUtils.getPossibleCardType(cardNumber);
+    }
+}
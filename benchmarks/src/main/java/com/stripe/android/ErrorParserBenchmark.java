@@ -0,0 +1,38 @@
+package com.stripe.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A benchmark of {@link ErrorParser#parseError(String)}, with the error of ErrorParserTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorParserBenchmark {
+    private static final String RAW_ERROR_WITH_ALL_FIELDS = "" +
+            "{\n" +
+            "  \"error\": {\n" +
+            "    \"code\": \"code_value\",\n" +
+            "    \"param\": \"param_value\",\n" +
+            "    \"charge\": \"charge_value\",\n" +
+            "    \"decline_code\": \"card_declined\",\n" +
+            "    \"message\": \"Your card was declined.\",\n" +
+            "    \"type\": \"invalid_request_error\"\n" +
+            "  }\n" +
+            "}";
+
+    @Benchmark
+    public StripeError parseError() {
+        return ErrorParser.parseError(RAW_ERROR_WITH_ALL_FIELDS);
+    }
+}
@@ -0,0 +1,219 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.model.Address;
+import com.stripe.android.model.Card;
+import com.stripe.android.model.ConfirmPaymentIntentParams;
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.SourceParams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link StripeRequest#createQuery()} and of {@link FormEncoder} on the params of
+ * the most common POST requests, compared with the <code>LinkedList</code> and
+ * <code>String.format</code> based flattening that {@link StripeRequest#createQuery()} used
+ * before {@link FormEncoder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormEncoderBenchmark {
+    private static final Card CARD = new Card.Builder("4242424242424242", 8, 2019, "123")
+            .addressCity("San Francisco")
+            .addressLine1("123 Main Street")
+            .addressLine2("906")
+            .addressCountry("US")
+            .addressState("CA")
+            .addressZip("94107")
+            .currency("USD")
+            .name("J Q Public")
+            .build();
+
+    private static final PaymentMethodCreateParams PAYMENT_METHOD_CREATE_PARAMS =
+            PaymentMethodCreateParams.create(
+                    new PaymentMethodCreateParams.Card.Builder()
+                            .setNumber("4242424242424242")
+                            .setExpiryMonth(1)
+                            .setExpiryYear(2024)
+                            .setCvc("111")
+                            .build(),
+                    new PaymentMethod.BillingDetails.Builder()
+                            .setName("Home")
+                            .setEmail("me@example.com")
+                            .setPhone("1-800-555-1234")
+                            .setAddress(new Address.Builder()
+                                    .setLine1("123 Main St")
+                                    .setCity("Los Angeles")
+                                    .setState("CA")
+                                    .setCountry("US")
+                                    .build())
+                            .build());
+
+    @Param({"ConfirmPaymentIntentParams", "SourceParams", "PaymentMethodCreateParams"})
+    public String params;
+
+    private ApiRequest mRequest;
+    private ByteArrayOutputStream mBuffer;
+
+    @Setup
+    public void setup() throws Exception {
+        mRequest = ApiRequest.createPost(ApiRequest.API_HOST, createParams(params),
+                ApiRequest.Options.create("pk_test_123"), null);
+        mBuffer = new ByteArrayOutputStream();
+
+        // both encodings must send the same body before their timings mean anything
+        if (!LegacyEncoder.createQuery(mRequest.params).equals(mRequest.createQuery())) {
+            throw new IllegalStateException("The encodings of " + params + " differ");
+        }
+    }
+
+    @Benchmark
+    public String createQuery() throws Exception {
+        return mRequest.createQuery();
+    }
+
+    @Benchmark
+    public int formEncoder() throws Exception {
+        mBuffer.reset();
+        new FormEncoder(mBuffer).encode(mRequest.params);
+        return mBuffer.size();
+    }
+
+    @Benchmark
+    public byte[] legacyEncoding() throws Exception {
+        return LegacyEncoder.createQuery(mRequest.params).getBytes(StripeRequest.CHARSET);
+    }
+
+    @NonNull
+    private static Map<String, ?> createParams(@NonNull String name) {
+        switch (name) {
+            case "ConfirmPaymentIntentParams":
+                return ConfirmPaymentIntentParams.createWithPaymentMethodCreateParams(
+                        PAYMENT_METHOD_CREATE_PARAMS,
+                        "pi_1ExkUeAWhjPjYwPiXph9ouXa_secret_nGTdfGlzL9Uop59wN55LraiC7",
+                        "stripe://return_url")
+                        .toParamMap();
+            case "SourceParams":
+                return SourceParams.createCardParams(CARD).toParamMap();
+            case "PaymentMethodCreateParams":
+                return PAYMENT_METHOD_CREATE_PARAMS.toParamMap();
+            default:
+                throw new IllegalArgumentException("Unknown params: " + name);
+        }
+    }
+
+    /**
+     * The encoding used by {@link StripeRequest#createQuery()} before {@link FormEncoder} was
+     * introduced.
+     */
+    private static final class LegacyEncoder {
+        @NonNull
+        private static String createQuery(@Nullable Map<String, ?> params)
+                throws InvalidRequestException, UnsupportedEncodingException {
+            final StringBuilder queryStringBuffer = new StringBuilder();
+            for (Parameter flatParam : flattenParamsMap(params, null)) {
+                if (queryStringBuffer.length() > 0) {
+                    queryStringBuffer.append("&");
+                }
+                queryStringBuffer.append(String.format(Locale.ROOT, "%s=%s",
+                        URLEncoder.encode(flatParam.key, StripeRequest.CHARSET),
+                        URLEncoder.encode(flatParam.value, StripeRequest.CHARSET)));
+            }
+            return queryStringBuffer.toString();
+        }
+
+        @NonNull
+        private static List<Parameter> flattenParamsList(@NonNull List<?> params,
+                                                         @NonNull String keyPrefix)
+                throws InvalidRequestException {
+            final List<Parameter> flatParams = new LinkedList<>();
+            if (params.isEmpty()) {
+                flatParams.add(new Parameter(keyPrefix, ""));
+            } else {
+                final String newPrefix = String.format(Locale.ROOT, "%s[]", keyPrefix);
+                for (Object param : params) {
+                    flatParams.addAll(flattenParamsValue(param, newPrefix));
+                }
+            }
+            return flatParams;
+        }
+
+        @NonNull
+        private static List<Parameter> flattenParamsMap(@Nullable Map<String, ?> params,
+                                                        @Nullable String keyPrefix)
+                throws InvalidRequestException {
+            final List<Parameter> flatParams = new LinkedList<>();
+            if (params == null) {
+                return flatParams;
+            }
+
+            for (Map.Entry<String, ?> entry : params.entrySet()) {
+                final String newPrefix;
+                if (keyPrefix != null) {
+                    newPrefix = String.format(Locale.ROOT, "%s[%s]", keyPrefix, entry.getKey());
+                } else {
+                    newPrefix = entry.getKey();
+                }
+                flatParams.addAll(flattenParamsValue(entry.getValue(), newPrefix));
+            }
+            return flatParams;
+        }
+
+        @SuppressWarnings("unchecked")
+        @NonNull
+        private static List<Parameter> flattenParamsValue(@Nullable Object value,
+                                                          @NonNull String keyPrefix)
+                throws InvalidRequestException {
+            final List<Parameter> flatParams;
+            if (value instanceof Map<?, ?>) {
+                flatParams = flattenParamsMap((Map<String, Object>) value, keyPrefix);
+            } else if (value instanceof List<?>) {
+                flatParams = flattenParamsList((List<?>) value, keyPrefix);
+            } else if ("".equals(value)) {
+                throw new InvalidRequestException("Empty string for " + keyPrefix,
+                        keyPrefix, null, 0, null, null, null, null);
+            } else {
+                flatParams = new LinkedList<>();
+                flatParams.add(new Parameter(keyPrefix, value == null ? "" : value.toString()));
+            }
+            return flatParams;
+        }
+
+        private static final class Parameter {
+            @NonNull private final String key;
+            @NonNull private final String value;
+
+            private Parameter(@NonNull String key, @NonNull String value) {
+                this.key = key;
+                this.value = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.stripe.android.model;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing the API objects that are returned by the most common requests. The JSON
+ * of each object is the same as in its unit tests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelParsingBenchmark {
+    private static final String PAYMENT_INTENT_WITH_PAYMENT_METHODS_JSON = "{\n" +
+            "  \"id\": \"pi_Aabcxyz01aDfoo\",\n" +
+            "  \"object\": \"payment_intent\",\n" +
+            "  \"amount\": 750,\n" +
+            "  \"amount_capturable\": 0,\n" +
+            "  \"amount_received\": 750,\n" +
+            "  \"application\": null,\n" +
+            "  \"application_fee_amount\": null,\n" +
+            "  \"canceled_at\": null,\n" +
+            "  \"cancellation_reason\": null,\n" +
+            "  \"capture_method\": \"automatic\",\n" +
+            "  \"charges\": {\n" +
+            "    \"object\": \"list\",\n" +
+            "    \"data\": [],\n" +
+            "    \"has_more\": false,\n" +
+            "    \"total_count\": 0,\n" +
+            "    \"url\": \"/v1/charges?payment_intent=pi_Aabcxyz01aDfoo\"\n" +
+            "  },\n" +
+            "  \"client_secret\": null,\n" +
+            "  \"confirmation_method\": \"publishable\",\n" +
+            "  \"created\": 123456789,\n" +
+            "  \"currency\": \"usd\",\n" +
+            "  \"customer\": null,\n" +
+            "  \"description\": \"PaymentIntent Description\",\n" +
+            "  \"last_payment_error\": null,\n" +
+            "  \"livemode\": false,\n" +
+            "  \"metadata\": {\n" +
+            "    \"order_id\": \"123456789\"\n" +
+            "  },\n" +
+            "  \"next_action\": null,\n" +
+            "  \"on_behalf_of\": null,\n" +
+            "  \"payment_method\": null,\n" +
+            "  \"payment_method_types\": [\n" +
+            "    \"card\"\n" +
+            "  ],\n" +
+            "  \"receipt_email\": \"jenny@example.com\",\n" +
+            "  \"review\": null,\n" +
+            "  \"shipping\": {\n" +
+            "    \"address\": {\n" +
+            "      \"city\": \"Stockholm\",\n" +
+            "      \"country\": \"Sweden\",\n" +
+            "      \"line1\": \"Mega street 5\",\n" +
+            "      \"line2\": \"Mega street 5\",\n" +
+            "      \"postal_code\": \"12233JJHH\",\n" +
+            "      \"state\": \"NYC\"\n" +
+            "    },\n" +
+            "    \"carrier\": null,\n" +
+            "    \"name\": \"Mohit  Name\",\n" +
+            "    \"phone\": null,\n" +
+            "    \"tracking_number\": null\n" +
+            "  },\n" +
+            "  \"source\": \"src_1E884r2eZvKYlo2CTft0qEyY\",\n" +
+            "  \"statement_descriptor\": \"PaymentIntent Statement Descriptor\",\n" +
+            "  \"status\": \"succeeded\",\n" +
+            "  \"transfer_data\": null,\n" +
+            "  \"transfer_group\": null\n" +
+            "}";
+
+    static final String PM_CARD_JSON = "{\n" +
+            "\t\"id\": \"pm_123456789\",\n" +
+            "\t\"created\": 1550757934255,\n" +
+            "\t\"customer\": \"cus_AQsHpvKfKwJDrF\",\n" +
+            "\t\"livemode\": true,\n" +
+            "\t\"metadata\": {\n" +
+            "\t\t\"order_id\": \"123456789\"\n" +
+            "\t}," +
+            "\t\"type\": \"card\",\n" +
+            "\t\"billing_details\": {\n" +
+            "\t\t\"address\": {\n" +
+            "\t\t\t\"city\": \"San Francisco\",\n" +
+            "\t\t\t\"country\": \"USA\",\n" +
+            "\t\t\t\"line1\": \"510 Townsend St\",\n" +
+            "\t\t\t\"postal_code\": \"94103\",\n" +
+            "\t\t\t\"state\": \"CA\"\n" +
+            "\t\t},\n" +
+            "\t\t\"email\": \"patrick@example.com\",\n" +
+            "\t\t\"name\": \"Patrick\",\n" +
+            "\t\t\"phone\": \"123-456-7890\"\n" +
+            "\t},\n" +
+            "\t\"card\": {\n" +
+            "\t\t\"brand\": \"visa\",\n" +
+            "\t\t\"checks\": {\n" +
+            "\t\t\t\"address_line1_check\": \"unchecked\",\n" +
+            "\t\t\t\"cvc_check\": \"unchecked\"\n" +
+            "\t\t},\n" +
+            "\t\t\"country\": \"US\",\n" +
+            "\t\t\"exp_month\": 8,\n" +
+            "\t\t\"exp_year\": 2022,\n" +
+            "\t\t\"funding\": \"credit\",\n" +
+            "\t\t\"last4\": \"4242\",\n" +
+            "\t\t\"three_d_secure_usage\": {\n" +
+            "\t\t\t\"supported\": true\n" +
+            "\t\t}\n" +
+            "\t}\n" +
+            "}";
+
+    private static final String TEST_CUSTOMER_OBJECT =
+            "{\n" +
+            "  \"id\": \"cus_AQsHpvKfKwJDrF\",\n" +
+            "  \"object\": \"customer\",\n" +
+            "  \"default_source\": \"abc123\",\n" +
+            "  \"sources\": {\n" +
+            "    \"object\": \"list\",\n" +
+            "    \"data\": [\n" +
+            "\n" +
+            "    ],\n" +
+            "    \"has_more\": false,\n" +
+            "    \"total_count\": 0,\n" +
+            "    \"url\": \"/v1/customers/cus_AQsHpvKfKwJDrF/sources\"\n" +
+            "  }\n" +
+            "}";
+
+
+    private JSONObject mPaymentMethodJson;
+    private JSONObject mCustomerJson;
+
+    @Setup
+    public void setup() throws Exception {
+        mPaymentMethodJson = new JSONObject(PM_CARD_JSON);
+        mCustomerJson = new JSONObject(TEST_CUSTOMER_OBJECT);
+    }
+
+    @Benchmark
+    public PaymentIntent paymentIntentFromString() {
+        return PaymentIntent.fromString(PAYMENT_INTENT_WITH_PAYMENT_METHODS_JSON);
+    }
+
+    @Benchmark
+    public PaymentMethod paymentMethodFromJson() {
+        return PaymentMethod.fromJson(mPaymentMethodJson);
+    }
+
+    @Benchmark
+    public Customer customerFromJson() {
+        return Customer.fromJson(mCustomerJson);
+    }
+}
@@ -0,0 +1,81 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing {@link PaymentMethodJsonParser} with the {@link JSONObject} based
+ * {@link PaymentMethod#fromJson(JSONObject)} path on a list of PaymentMethods, as returned by
+ * <code>GET /v1/payment_methods</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentMethodJsonParserBenchmark {
+    private static final int PAYMENT_METHOD_COUNT = 100;
+
+    private String mListJson;
+
+    @Setup
+    public void setup() throws JSONException {
+        mListJson = createListJson();
+
+        // both paths must return the same PaymentMethods before their timings mean anything
+        if (!jsonObject().equals(jsonReader())) {
+            throw new IllegalStateException("The parsed PaymentMethods differ");
+        }
+    }
+
+    @Benchmark
+    public List<PaymentMethod> jsonReader() {
+        return PaymentMethodJsonParser.parseList(new StringReader(mListJson));
+    }
+
+    /**
+     * The parsing path used by {@code StripeApiRepository#getPaymentMethods()} before
+     * {@link PaymentMethodJsonParser} was introduced.
+     */
+    @Benchmark
+    public List<PaymentMethod> jsonObject() throws JSONException {
+        final JSONArray data = new JSONObject(mListJson).optJSONArray("data");
+        final List<PaymentMethod> paymentMethods = new ArrayList<>();
+        for (int i = 0; i < data.length(); i++) {
+            paymentMethods.add(PaymentMethod.fromJson(data.optJSONObject(i)));
+        }
+        return paymentMethods;
+    }
+
+    @NonNull
+    private static String createListJson() {
+        final StringBuilder listJson = new StringBuilder("{\"object\": \"list\", \"data\": [");
+        for (int i = 0; i < PAYMENT_METHOD_COUNT; i++) {
+            if (i > 0) {
+                listJson.append(",");
+            }
+            listJson.append(ModelParsingBenchmark.PM_CARD_JSON
+                    .replace("pm_123456789", "pm_" + i));
+        }
+        return listJson.append("], \"has_more\": false}").toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.stripe.android.view;
+
+import com.stripe.android.model.Card;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ViewUtils#separateCardNumberGroups(String, String)}, which
+ * {@link CardNumberEditText} calls on every keystroke.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewUtilsBenchmark {
+
+    @Benchmark
+    public String[] separateCardNumberGroupsVisa() {
+        return ViewUtils.separateCardNumberGroups("4242424242424242", Card.CardBrand.VISA);
+    }
+
+    @Benchmark
+    public String[] separateCardNumberGroupsAmericanExpress() {
+        return ViewUtils.separateCardNumberGroups("378282246310005",
+                Card.CardBrand.AMERICAN_EXPRESS);
+    }
+}
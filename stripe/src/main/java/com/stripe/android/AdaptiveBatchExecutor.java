@@ -0,0 +1,287 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.APIException;
+import com.stripe.android.exception.RateLimitException;
+import com.stripe.android.exception.StripeException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a batch of blocking API operations in parallel and returns their results in input order.
+ *
+ * At most {@link #mMaxConcurrency} operations are in flight at once. When Stripe responds with
+ * a {@link RateLimitException}, the limit is halved and the rate-limited operation is retried
+ * after a backoff, up to {@link #MAX_RATE_LIMIT_RETRIES} times. The limit grows back by one after
+ * a full round of consecutive successes, and the next batch starts with the limit that the
+ * previous one ended with, so one executor should be shared by every batch sent to the same
+ * account. Any other failure is reported for its item and does not affect the rest of the batch.
+ */
+final class AdaptiveBatchExecutor {
+    static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    /**
+     * The most requests made for an operation that keeps being rate limited, counting the
+     * retries of the {@link RetryingApiRequestExecutor} that every run of the operation goes
+     * through.
+     */
+    static final int MAX_RATE_LIMITED_REQUESTS = 6;
+    static final int MAX_RATE_LIMIT_RETRIES =
+            MAX_RATE_LIMITED_REQUESTS / (1 + RetryingApiRequestExecutor.DEFAULT_MAX_RETRIES) - 1;
+
+    /**
+     * The delay before the first retry of a rate-limited operation, which doubles for every
+     * retry after it. It is the longest backoff of {@link RetryingApiRequestExecutor}, whose
+     * retries were already rate limited.
+     */
+    static final long RATE_LIMIT_BACKOFF_MILLIS =
+            RetryingApiRequestExecutor.DEFAULT_MAX_BACKOFF_MILLIS;
+
+    private final int mMaxConcurrency;
+    @NonNull private final ExecutorService mExecutor;
+    @NonNull private final Random mRandom;
+    @NonNull private final RetryingApiRequestExecutor.Sleeper mSleeper;
+    private volatile int mConcurrencyLimit;
+
+    AdaptiveBatchExecutor() {
+        this(DEFAULT_MAX_CONCURRENCY);
+    }
+
+    AdaptiveBatchExecutor(@IntRange(from = 1) int maxConcurrency) {
+        this(maxConcurrency, new Random(), RetryingApiRequestExecutor.THREAD_SLEEPER);
+    }
+
+    @VisibleForTesting
+    AdaptiveBatchExecutor(@IntRange(from = 1) int maxConcurrency,
+                          @NonNull Random random,
+                          @NonNull RetryingApiRequestExecutor.Sleeper sleeper) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "maxConcurrency must be >= 1, was %d", maxConcurrency));
+        }
+        mMaxConcurrency = maxConcurrency;
+        mConcurrencyLimit = maxConcurrency;
+        mRandom = random;
+        mSleeper = sleeper;
+
+        // threads are only started when a batch is executed, and stop once they are idle
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency,
+                maxConcurrency, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new BatchThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        mExecutor = executor;
+    }
+
+    /**
+     * Blocks until every operation has completed.
+     *
+     * @return one {@link BatchResult} per operation, in the same order as {@code operations}
+     */
+    @NonNull
+    <ResultType> List<BatchResult<ResultType>> execute(
+            @NonNull List<? extends Operation<ResultType>> operations) {
+        final int count = operations.size();
+        final List<BatchResult<ResultType>> results =
+                new ArrayList<>(Collections.<BatchResult<ResultType>>nCopies(count, null));
+        if (count == 0) {
+            return results;
+        }
+
+        final CompletionService<Attempt<ResultType>> completionService =
+                new ExecutorCompletionService<>(mExecutor);
+        final Set<Future<Attempt<ResultType>>> inFlight = new HashSet<>();
+        final ArrayDeque<Integer> pending = new ArrayDeque<>(count);
+        for (int i = 0; i < count; i++) {
+            pending.add(i);
+        }
+        final int[] rateLimitRetries = new int[count];
+
+        int limit = mConcurrencyLimit;
+        int successStreak = 0;
+        try {
+            while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                while (inFlight.size() < limit && !pending.isEmpty()) {
+                    final int index = pending.poll();
+                    final int retryCount = rateLimitRetries[index];
+                    inFlight.add(completionService.submit(new AttemptCallable<>(index,
+                            operations.get(index),
+                            retryCount == 0 ? 0 : getBackoffMillis(retryCount), mSleeper)));
+                }
+
+                final Future<Attempt<ResultType>> future = completionService.take();
+                inFlight.remove(future);
+                final Attempt<ResultType> attempt = getAttempt(future);
+
+                if (attempt.mError instanceof RateLimitException) {
+                    limit = Math.max(1, limit / 2);
+                    successStreak = 0;
+                    if (rateLimitRetries[attempt.mIndex]++ < MAX_RATE_LIMIT_RETRIES) {
+                        // retry before any untried item so results are not starved
+                        pending.addFirst(attempt.mIndex);
+                        continue;
+                    }
+                } else if (attempt.mError == null && ++successStreak >= limit) {
+                    limit = Math.min(limit + 1, mMaxConcurrency);
+                    successStreak = 0;
+                }
+
+                results.set(attempt.mIndex, attempt.toBatchResult());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (int i = 0; i < count; i++) {
+                if (results.get(i) == null) {
+                    results.set(i, BatchResult.<ResultType>failure(new APIConnectionException(
+                            "Batch was interrupted before this request completed", e)));
+                }
+            }
+        } finally {
+            mConcurrencyLimit = limit;
+            for (Future<Attempt<ResultType>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the concurrency limit at the end of the most recent batch, which the next batch
+     *         starts with
+     */
+    @VisibleForTesting
+    int getConcurrencyLimit() {
+        return mConcurrencyLimit;
+    }
+
+    /**
+     * @return a delay between half of and the full backoff for this retry, so that operations
+     *         that were rate limited at the same time don't retry at the same time
+     */
+    private long getBackoffMillis(int retryCount) {
+        final long backoffMillis =
+                RATE_LIMIT_BACKOFF_MILLIS * (1L << Math.min(retryCount - 1, 30));
+        final long halfBackoffMillis = backoffMillis / 2;
+        return halfBackoffMillis +
+                (long) (mRandom.nextDouble() * (backoffMillis - halfBackoffMillis));
+    }
+
+    @NonNull
+    private static <ResultType> Attempt<ResultType> getAttempt(
+            @NonNull Future<Attempt<ResultType>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // StripeExceptions are caught by AttemptCallable, so this is a programming error
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A blocking API call, e.g. creating a single {@link com.stripe.android.model.PaymentMethod}.
+     */
+    interface Operation<ResultType> {
+        @Nullable
+        ResultType run() throws StripeException;
+    }
+
+    private static final class AttemptCallable<ResultType>
+            implements Callable<Attempt<ResultType>> {
+        private final int mIndex;
+        @NonNull private final Operation<ResultType> mOperation;
+        private final long mDelayMillis;
+        @NonNull private final RetryingApiRequestExecutor.Sleeper mSleeper;
+
+        /**
+         * @param delayMillis how long to wait before running {@code operation}
+         */
+        private AttemptCallable(int index, @NonNull Operation<ResultType> operation,
+                                long delayMillis,
+                                @NonNull RetryingApiRequestExecutor.Sleeper sleeper) {
+            mIndex = index;
+            mOperation = operation;
+            mDelayMillis = delayMillis;
+            mSleeper = sleeper;
+        }
+
+        @NonNull
+        @Override
+        public Attempt<ResultType> call() throws InterruptedException {
+            if (mDelayMillis > 0) {
+                mSleeper.sleep(mDelayMillis);
+            }
+            try {
+                return new Attempt<>(mIndex, mOperation.run(), null);
+            } catch (StripeException e) {
+                return new Attempt<>(mIndex, null, e);
+            }
+        }
+    }
+
+    private static final class Attempt<ResultType> {
+        private final int mIndex;
+        @Nullable private final ResultType mResult;
+        @Nullable private final StripeException mError;
+
+        private Attempt(int index, @Nullable ResultType result, @Nullable StripeException error) {
+            mIndex = index;
+            mResult = result;
+            mError = error;
+        }
+
+        @NonNull
+        private BatchResult<ResultType> toBatchResult() {
+            if (mError != null) {
+                return BatchResult.failure(mError);
+            } else if (mResult != null) {
+                return BatchResult.success(mResult);
+            } else {
+                return BatchResult.failure(new APIException(
+                        "The API operation returned neither a result or exception",
+                        null, 0, null, null));
+            }
+        }
+    }
+
+    private static final class BatchThreadFactory implements ThreadFactory {
+        @NonNull private final AtomicInteger mCount = new AtomicInteger(1);
+
+        @NonNull
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            final Thread thread =
+                    new Thread(runnable, "AdaptiveBatchExecutor #" + mCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
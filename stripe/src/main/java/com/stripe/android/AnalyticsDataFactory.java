@@ -1,9 +1,7 @@
 package com.stripe.android;
 
 import android.content.Context;
-import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -27,6 +25,10 @@ import java.util.Set;
 /**
  * Util class to create logging items, which are fed as {@link java.util.Map Map} objects in
  * query parameters to our server.
+ *
+ * Each item is an {@link AnalyticsEvent} that only holds the fields of the event, on top of the
+ * {@link AnalyticsEnvelope} that describes the device and the app, which is read once and shared
+ * by every item.
  */
 class AnalyticsDataFactory {
     static final String UNKNOWN = "unknown";
@@ -119,28 +121,33 @@ class AnalyticsDataFactory {
     static final String FIELD_PUBLISHABLE_KEY = "publishable_key";
     static final String FIELD_SOURCE_TYPE = "source_type";
     static final String FIELD_3DS2_UI_TYPE = "3ds2_ui_type";
+    static final String FIELD_3DS2_FINGERPRINT_DURATION = "3ds2_fingerprint_duration_us";
+    static final String FIELD_3DS2_TRANSACTION_DURATION = "3ds2_transaction_duration_us";
     static final String FIELD_TOKEN_TYPE = "token_type";
     static final Set<String> VALID_PARAM_FIELDS = new HashSet<>(Arrays.asList(
             FIELD_ANALYTICS_UA, FIELD_APP_NAME, FIELD_APP_VERSION, FIELD_BINDINGS_VERSION,
             FIELD_DEVICE_TYPE, FIELD_EVENT, FIELD_OS_VERSION, FIELD_OS_NAME, FIELD_OS_RELEASE,
-            FIELD_PRODUCT_USAGE, FIELD_PUBLISHABLE_KEY, FIELD_SOURCE_TYPE, FIELD_TOKEN_TYPE));
+            FIELD_PRODUCT_USAGE, FIELD_PUBLISHABLE_KEY, FIELD_SOURCE_TYPE, FIELD_TOKEN_TYPE,
+            FIELD_3DS2_FINGERPRINT_DURATION, FIELD_3DS2_TRANSACTION_DURATION));
 
     private static final String ANALYTICS_PREFIX = "analytics";
     private static final String ANALYTICS_NAME = "stripe_android";
     private static final String ANALYTICS_VERSION = "1.0";
 
-    @Nullable private final PackageManager mPackageManager;
-    @Nullable private final String mPackageName;
+    @NonNull private final AnalyticsEnvelope mEnvelope;
 
     AnalyticsDataFactory(@NonNull Context context) {
-        this(context.getPackageManager(), context.getPackageName());
+        this(AnalyticsEnvelope.getInstance(context));
     }
 
     @VisibleForTesting
     AnalyticsDataFactory(@Nullable PackageManager packageManager,
                          @Nullable String packageName) {
-        mPackageManager = packageManager;
-        mPackageName = packageName;
+        this(new AnalyticsEnvelope(packageManager, packageName));
+    }
+
+    private AnalyticsDataFactory(@NonNull AnalyticsEnvelope envelope) {
+        mEnvelope = envelope;
     }
 
     @NonNull
@@ -152,6 +159,24 @@ class AnalyticsDataFactory {
         return params;
     }
 
+    /**
+     * @param fingerprintDurationMicros how long creating the fingerprint from the intent's SDK
+     *                                  data took
+     * @param transactionDurationMicros how long creating the 3DS2 transaction and its
+     *                                  authentication request parameters took
+     */
+    @NonNull
+    Map<String, Object> create3ds2FingerprintParams(@NonNull String intentId,
+                                                    long fingerprintDurationMicros,
+                                                    long transactionDurationMicros,
+                                                    @NonNull String publishableKey) {
+        final Map<String, Object> params =
+                createAuthParams(EventName.AUTH_3DS2_FINGERPRINT, intentId, publishableKey);
+        params.put(FIELD_3DS2_FINGERPRINT_DURATION, fingerprintDurationMicros);
+        params.put(FIELD_3DS2_TRANSACTION_DURATION, transactionDurationMicros);
+        return params;
+    }
+
     @NonNull
     Map<String, Object> create3ds2ChallengeParams(@NonNull @EventName String eventName,
                                                   @NonNull String intentId,
@@ -329,17 +354,9 @@ class AnalyticsDataFactory {
             @Nullable @Token.TokenType String tokenType,
             @NonNull String publishableApiKey,
             @NonNull @EventName String eventName) {
-        final Map<String, Object> paramsObject = new HashMap<>();
-        paramsObject.put(FIELD_ANALYTICS_UA, getAnalyticsUa());
+        final Map<String, Object> paramsObject = new AnalyticsEvent(mEnvelope);
         paramsObject.put(FIELD_EVENT, getEventParamName(eventName));
         paramsObject.put(FIELD_PUBLISHABLE_KEY, publishableApiKey);
-        paramsObject.put(FIELD_OS_NAME, Build.VERSION.CODENAME);
-        paramsObject.put(FIELD_OS_RELEASE, Build.VERSION.RELEASE);
-        paramsObject.put(FIELD_OS_VERSION, Build.VERSION.SDK_INT);
-        paramsObject.put(FIELD_DEVICE_TYPE, getDeviceLoggingString());
-        paramsObject.put(FIELD_BINDINGS_VERSION, BuildConfig.VERSION_NAME);
-
-        paramsObject.putAll(createNameAndVersionParams());
 
         if (productUsageTokens != null) {
             paramsObject.put(FIELD_PRODUCT_USAGE, productUsageTokens);
@@ -360,43 +377,10 @@ class AnalyticsDataFactory {
         return paramsObject;
     }
 
+    @VisibleForTesting
     @NonNull
     Map<String, Object> createNameAndVersionParams() {
-        final Map<String, Object> paramsObject = new HashMap<>(2);
-
-        if (mPackageManager != null) {
-            try {
-                final PackageInfo info = mPackageManager.getPackageInfo(mPackageName, 0);
-
-                final String nameString;
-                if (info.applicationInfo != null) {
-                    final CharSequence name = info.applicationInfo.loadLabel(mPackageManager);
-                    nameString = name != null ? name.toString() : null;
-                    paramsObject.put(FIELD_APP_NAME, nameString);
-                } else {
-                    nameString = null;
-                }
-
-                if (StripeTextUtils.isBlank(nameString)) {
-                    paramsObject.put(FIELD_APP_NAME, info.packageName);
-                }
-
-                paramsObject.put(FIELD_APP_VERSION, info.versionCode);
-            } catch (PackageManager.NameNotFoundException nameNotFound) {
-                paramsObject.put(FIELD_APP_NAME, UNKNOWN);
-                paramsObject.put(FIELD_APP_VERSION, UNKNOWN);
-            }
-        } else {
-            paramsObject.put(FIELD_APP_NAME, NO_CONTEXT);
-            paramsObject.put(FIELD_APP_VERSION, NO_CONTEXT);
-        }
-
-        return paramsObject;
-    }
-
-    @NonNull
-    private static String getDeviceLoggingString() {
-        return Build.MANUFACTURER + '_' + Build.BRAND + '_' + Build.MODEL;
+        return mEnvelope.createNameAndVersionParams();
     }
 
     @NonNull
@@ -0,0 +1,157 @@
+package com.stripe.android;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The params that every analytics event has in common, because they describe the device and
+ * the app rather than the event, e.g. the OS version and the app's name.
+ *
+ * They are read the first time that they are needed and kept for the life of the process,
+ * both as a map and already form-encoded, so that creating and sending an
+ * {@link AnalyticsEvent} does not ask {@link PackageManager} for the app's name and version,
+ * which is an IPC, nor encode the same values again.
+ */
+final class AnalyticsEnvelope {
+    @Nullable private static AnalyticsEnvelope sInstance;
+
+    @Nullable private final PackageManager mPackageManager;
+    @Nullable private final String mPackageName;
+
+    @Nullable private volatile Fields mFields;
+
+    /**
+     * @return the envelope of the app, shared by every {@link AnalyticsDataFactory}
+     */
+    @NonNull
+    static synchronized AnalyticsEnvelope getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new AnalyticsEnvelope(context.getPackageManager(),
+                    context.getPackageName());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AnalyticsEnvelope(@Nullable PackageManager packageManager, @Nullable String packageName) {
+        mPackageManager = packageManager;
+        mPackageName = packageName;
+    }
+
+    /**
+     * @return the params of the envelope, which can't be modified
+     */
+    @NonNull
+    Map<String, Object> getParams() {
+        return getFields().params;
+    }
+
+    /**
+     * Write the params of the envelope into {@code encoder}.
+     */
+    void writeTo(@NonNull FormEncoder encoder) {
+        encoder.writeEncodedPairs(getFields().encodedParams);
+    }
+
+    @NonNull
+    private Fields getFields() {
+        final Fields fields = mFields;
+        if (fields != null) {
+            return fields;
+        }
+
+        synchronized (this) {
+            if (mFields == null) {
+                mFields = new Fields(createParams());
+            }
+            return mFields;
+        }
+    }
+
+    @NonNull
+    private Map<String, Object> createParams() {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(AnalyticsDataFactory.FIELD_ANALYTICS_UA, AnalyticsDataFactory.getAnalyticsUa());
+        params.put(AnalyticsDataFactory.FIELD_OS_NAME, Build.VERSION.CODENAME);
+        params.put(AnalyticsDataFactory.FIELD_OS_RELEASE, Build.VERSION.RELEASE);
+        params.put(AnalyticsDataFactory.FIELD_OS_VERSION, Build.VERSION.SDK_INT);
+        params.put(AnalyticsDataFactory.FIELD_DEVICE_TYPE, getDeviceLoggingString());
+        params.put(AnalyticsDataFactory.FIELD_BINDINGS_VERSION, BuildConfig.VERSION_NAME);
+        params.putAll(createNameAndVersionParams());
+        // drop null and empty values, as every request does
+        return StripeRequest.compactParams(params);
+    }
+
+    @NonNull
+    Map<String, Object> createNameAndVersionParams() {
+        final Map<String, Object> paramsObject = new HashMap<>(2);
+
+        if (mPackageManager != null) {
+            try {
+                final PackageInfo info = mPackageManager.getPackageInfo(mPackageName, 0);
+
+                final String nameString;
+                if (info.applicationInfo != null) {
+                    final CharSequence name = info.applicationInfo.loadLabel(mPackageManager);
+                    nameString = name != null ? name.toString() : null;
+                    paramsObject.put(AnalyticsDataFactory.FIELD_APP_NAME, nameString);
+                } else {
+                    nameString = null;
+                }
+
+                if (StripeTextUtils.isBlank(nameString)) {
+                    paramsObject.put(AnalyticsDataFactory.FIELD_APP_NAME, info.packageName);
+                }
+
+                paramsObject.put(AnalyticsDataFactory.FIELD_APP_VERSION, info.versionCode);
+            } catch (PackageManager.NameNotFoundException nameNotFound) {
+                paramsObject.put(AnalyticsDataFactory.FIELD_APP_NAME,
+                        AnalyticsDataFactory.UNKNOWN);
+                paramsObject.put(AnalyticsDataFactory.FIELD_APP_VERSION,
+                        AnalyticsDataFactory.UNKNOWN);
+            }
+        } else {
+            paramsObject.put(AnalyticsDataFactory.FIELD_APP_NAME,
+                    AnalyticsDataFactory.NO_CONTEXT);
+            paramsObject.put(AnalyticsDataFactory.FIELD_APP_VERSION,
+                    AnalyticsDataFactory.NO_CONTEXT);
+        }
+
+        return paramsObject;
+    }
+
+    @NonNull
+    private static String getDeviceLoggingString() {
+        return Build.MANUFACTURER + '_' + Build.BRAND + '_' + Build.MODEL;
+    }
+
+    private static final class Fields {
+        @NonNull private final Map<String, Object> params;
+        @NonNull private final byte[] encodedParams;
+
+        private Fields(@NonNull Map<String, Object> params) {
+            this.params = Collections.unmodifiableMap(params);
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try {
+                new FormEncoder(output).encode(params);
+            } catch (InvalidRequestException e) {
+                // only thrown for empty values, which were removed
+                throw new IllegalStateException(e);
+            }
+            this.encodedParams = output.toByteArray();
+        }
+    }
+}
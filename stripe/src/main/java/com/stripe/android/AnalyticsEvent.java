@@ -0,0 +1,182 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The params of one analytics event, created by {@link AnalyticsDataFactory}: the few fields
+ * of the event itself, e.g. its name, layered onto the {@link AnalyticsEnvelope} that every
+ * event shares.
+ *
+ * Only the fields of the event are stored, in two small arrays, and only they are encoded when
+ * the event is sent; the envelope is copied into the query already encoded. As in the params of
+ * any request, null and empty values are not kept, and nested maps are compacted when they are
+ * put, so an event is never copied by {@link StripeRequest}.
+ */
+final class AnalyticsEvent extends AbstractMap<String, Object> {
+    private static final int DEFAULT_CAPACITY = 4;
+
+    @NonNull private final AnalyticsEnvelope mEnvelope;
+
+    @NonNull private String[] mKeys = new String[DEFAULT_CAPACITY];
+    @NonNull private Object[] mValues = new Object[DEFAULT_CAPACITY];
+    private int mSize;
+
+    AnalyticsEvent(@NonNull AnalyticsEnvelope envelope) {
+        mEnvelope = envelope;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code key} is one of the envelope's params
+     */
+    @Nullable
+    @Override
+    public Object put(@NonNull String key, @Nullable Object value) {
+        if (mEnvelope.getParams().containsKey(key)) {
+            throw new IllegalArgumentException("'" + key + "' is set by the envelope");
+        }
+
+        if (value == null ||
+                (value instanceof CharSequence && StripeTextUtils.isEmpty((CharSequence) value))) {
+            return remove(key);
+        }
+
+        final Object compactValue;
+        if (value instanceof Map) {
+            @SuppressWarnings("unchecked") final Map<String, ?> map = (Map<String, ?>) value;
+            compactValue = StripeRequest.compactParams(map);
+        } else {
+            compactValue = value;
+        }
+
+        final int index = indexOf(key);
+        if (index != -1) {
+            final Object previousValue = mValues[index];
+            mValues[index] = compactValue;
+            return previousValue;
+        }
+
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+        }
+        mKeys[mSize] = key;
+        mValues[mSize] = compactValue;
+        mSize++;
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Object remove(@Nullable Object key) {
+        final int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+
+        final Object previousValue = mValues[index];
+        mSize--;
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index);
+        mKeys[mSize] = null;
+        mValues[mSize] = null;
+        return previousValue;
+    }
+
+    @Nullable
+    @Override
+    public Object get(@Nullable Object key) {
+        final int index = indexOf(key);
+        return index != -1 ? mValues[index] : mEnvelope.getParams().get(key);
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return indexOf(key) != -1 || mEnvelope.getParams().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return mEnvelope.getParams().size() + mSize;
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return AnalyticsEvent.this.size();
+            }
+        };
+    }
+
+    /**
+     * Write the envelope, then the fields of the event, into {@code encoder}.
+     */
+    void encode(@NonNull FormEncoder encoder) throws InvalidRequestException {
+        mEnvelope.writeTo(encoder);
+        for (int i = 0; i < mSize; i++) {
+            encoder.encode(mKeys[i], mValues[i]);
+        }
+    }
+
+    private int indexOf(@Nullable Object key) {
+        for (int i = 0; i < mSize; i++) {
+            if (mKeys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates over the envelope's params, then over the fields of the event.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        @NonNull private final Iterator<Entry<String, Object>> mEnvelopeIterator =
+                mEnvelope.getParams().entrySet().iterator();
+        private int mIndex;
+
+        @Override
+        public boolean hasNext() {
+            return mEnvelopeIterator.hasNext() || mIndex < mSize;
+        }
+
+        @NonNull
+        @Override
+        public Entry<String, Object> next() {
+            if (mEnvelopeIterator.hasNext()) {
+                return mEnvelopeIterator.next();
+            }
+            if (mIndex >= mSize) {
+                throw new NoSuchElementException();
+            }
+            final Entry<String, Object> entry =
+                    new SimpleImmutableEntry<>(mKeys[mIndex], mValues[mIndex]);
+            mIndex++;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
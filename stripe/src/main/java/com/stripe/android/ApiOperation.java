@@ -1,6 +1,5 @@
 package com.stripe.android;
 
-import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -8,16 +7,55 @@ import com.stripe.android.exception.StripeException;
 
 import org.json.JSONException;
 
-abstract class ApiOperation<ResultType>
-        extends AsyncTask<Void, Void, ResultWrapper<ResultType>> {
+import java.util.concurrent.Executor;
+
+/**
+ * An API call that is run on a {@link StripeTaskEngine} worker thread and whose result is
+ * delivered to an {@link ApiResultCallback} on the main thread.
+ */
+abstract class ApiOperation<ResultType> {
+    @NonNull private final StripeTaskEngine.Priority mPriority;
     @NonNull private final ApiResultCallback<ResultType> mCallback;
 
     ApiOperation(@NonNull ApiResultCallback<ResultType> callback) {
+        this(StripeTaskEngine.Priority.NORMAL, callback);
+    }
+
+    ApiOperation(@NonNull StripeTaskEngine.Priority priority,
+                 @NonNull ApiResultCallback<ResultType> callback) {
+        mPriority = priority;
         mCallback = callback;
     }
 
-    @Override
-    protected final ResultWrapper<ResultType> doInBackground(Void... voids) {
+    /**
+     * Run this operation on the shared {@link StripeTaskEngine}.
+     */
+    @NonNull
+    final Cancellable execute() {
+        return execute(StripeTaskEngine.getInstance());
+    }
+
+    @NonNull
+    final Cancellable execute(@NonNull StripeTaskEngine taskEngine) {
+        return taskEngine.execute(this);
+    }
+
+    /**
+     * Run this operation on {@code executor}, or on the shared {@link StripeTaskEngine} if
+     * {@code executor} is {@code null}.
+     */
+    @NonNull
+    final Cancellable executeOnExecutor(@Nullable Executor executor) {
+        return StripeTaskEngine.getInstance().execute(this, executor);
+    }
+
+    @NonNull
+    final StripeTaskEngine.Priority getPriority() {
+        return mPriority;
+    }
+
+    @NonNull
+    final ResultWrapper<ResultType> run() {
         try {
             return new ResultWrapper<>(getResult());
         } catch (StripeException | JSONException e) {
@@ -25,9 +63,7 @@ abstract class ApiOperation<ResultType>
         }
     }
 
-    @Override
-    protected final void onPostExecute(@NonNull ResultWrapper<ResultType> resultWrapper) {
-        super.onPostExecute(resultWrapper);
+    final void deliver(@NonNull ResultWrapper<ResultType> resultWrapper) {
         if (resultWrapper.result != null) {
             mCallback.onSuccess(resultWrapper.result);
         } else if (resultWrapper.error != null) {
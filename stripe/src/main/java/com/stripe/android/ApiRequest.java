@@ -1,18 +1,16 @@
 package com.stripe.android;
 
-import android.os.Build;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.utils.ObjectUtils;
 
-import org.json.JSONObject;
-
-import java.io.UnsupportedEncodingException;
+import java.io.ByteArrayOutputStream;
+import java.net.HttpURLConnection;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * A class representing a Stripe API or Analytics request.
@@ -22,9 +20,14 @@ final class ApiRequest extends StripeRequest {
 
     static final String API_HOST = "https://api.stripe.com";
 
+    static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
     @NonNull final Options options;
     @NonNull private final String mApiVersion;
     @Nullable private final AppInfo mAppInfo;
+    @Nullable private final String mIdempotencyKey;
+    @Nullable private String mIfNoneMatch;
 
     ApiRequest(@NonNull Method method,
                @NonNull String url,
@@ -35,6 +38,8 @@ final class ApiRequest extends StripeRequest {
         this.options = options;
         mApiVersion = ApiVersion.get().code;
         mAppInfo = appInfo;
+        // generated once per request, so that every attempt to send it uses the same key
+        mIdempotencyKey = Method.POST == method ? UUID.randomUUID().toString() : null;
     }
 
     @NonNull
@@ -78,55 +83,75 @@ final class ApiRequest extends StripeRequest {
     @Override
     Map<String, String> createHeaders() {
         final Map<String, String> headers = new HashMap<>();
-        headers.put("Accept-Charset", CHARSET);
-        headers.put("Accept", "application/json");
-        headers.put("X-Stripe-Client-User-Agent", createStripeClientUserAgent());
-        headers.put("Stripe-Version", mApiVersion);
-        headers.put("Authorization",
-                String.format(Locale.ENGLISH, "Bearer %s", options.apiKey));
-        if (options.stripeAccount != null) {
-            headers.put("Stripe-Account", options.stripeAccount);
+        getHeaderTemplate().copyTo(headers);
+        if (mIdempotencyKey != null) {
+            headers.put(HEADER_IDEMPOTENCY_KEY, mIdempotencyKey);
+        }
+        if (mIfNoneMatch != null) {
+            headers.put(HEADER_IF_NONE_MATCH, mIfNoneMatch);
         }
         return headers;
     }
 
-    @NonNull
-    private String createStripeClientUserAgent() {
-        final Map<String, String> propertyMap = new HashMap<>();
-        final String javaVersion = System.getProperty("java.version");
-        if (javaVersion != null) {
-            propertyMap.put("java.version", javaVersion);
+    @Override
+    void applyHeaders(@NonNull HttpURLConnection conn) {
+        getHeaderTemplate().applyTo(conn);
+        if (mIdempotencyKey != null) {
+            conn.setRequestProperty(HEADER_IDEMPOTENCY_KEY, mIdempotencyKey);
         }
-        propertyMap.put("os.name", "android");
-        propertyMap.put("os.version", String.valueOf(Build.VERSION.SDK_INT));
-        propertyMap.put("bindings.version", BuildConfig.VERSION_NAME);
-        propertyMap.put("lang", "Java");
-        propertyMap.put("publisher", "Stripe");
-        if (mAppInfo != null) {
-            propertyMap.putAll(mAppInfo.createClientHeaders());
+        if (mIfNoneMatch != null) {
+            conn.setRequestProperty(HEADER_IF_NONE_MATCH, mIfNoneMatch);
         }
+    }
 
-        return new JSONObject(propertyMap).toString();
+    /**
+     * Make this request conditional, so that the server answers with HTTP 304 and no body if
+     * the resource still has the given entity tag.
+     *
+     * @param entityTag the <code>ETag</code> of a cached response, or {@code null} to make the
+     *                  request unconditional
+     */
+    void setIfNoneMatch(@Nullable String entityTag) {
+        mIfNoneMatch = entityTag;
+    }
+
+    /**
+     * @return the key that lets Stripe recognize a retried POST request and return the result
+     *         of the first attempt, or {@code null} if this is not a POST request
+     */
+    @Nullable
+    String getIdempotencyKey() {
+        return mIdempotencyKey;
     }
 
     @NonNull
     @Override
     String getUserAgent() {
-        final StringBuilder userAgent = new StringBuilder(DEFAULT_USER_AGENT);
-        if (mAppInfo != null) {
-            userAgent
-                    .append(" ")
-                    .append(mAppInfo.toUserAgent());
-        }
-        return userAgent.toString();
+        return getHeaderTemplate().getUserAgent();
     }
 
     @NonNull
+    private HeaderTemplate getHeaderTemplate() {
+        // not kept by the request, so that a template discarded by Stripe#setAppInfo is not
+        // used again by a retry
+        return HeaderTemplate.get(options, mAppInfo, mApiVersion);
+    }
+
+    @NonNull
+    @Override
+    byte[] getOutputBytes() throws InvalidRequestException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeBody(output);
+        return output.toByteArray();
+    }
+
     @Override
-    byte[] getOutputBytes() throws UnsupportedEncodingException, InvalidRequestException {
-        return createQuery().getBytes(CHARSET);
+    void writeBody(@NonNull ByteArrayOutputStream output) throws InvalidRequestException {
+        new FormEncoder(output).encode(params);
     }
 
+    // the idempotency key is unique to each instance and the entity tag is set by the
+    // executor, so neither is compared
     @Override
     public int hashCode() {
         return ObjectUtils.hash(getBaseHashCode(), options, mAppInfo);
@@ -0,0 +1,69 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.StripeException;
+import com.stripe.android.utils.ObjectUtils;
+
+import java.util.List;
+
+/**
+ * The outcome of one item in a batch request, e.g.
+ * {@link Stripe#createPaymentMethodsSynchronous(List)}. Exactly one of {@link #getResult()} and
+ * {@link #getError()} is non-null.
+ */
+public final class BatchResult<ResultType> {
+    @Nullable private final ResultType mResult;
+    @Nullable private final StripeException mError;
+
+    @NonNull
+    static <ResultType> BatchResult<ResultType> success(@NonNull ResultType result) {
+        return new BatchResult<>(result, null);
+    }
+
+    @NonNull
+    static <ResultType> BatchResult<ResultType> failure(@NonNull StripeException error) {
+        return new BatchResult<>(null, error);
+    }
+
+    private BatchResult(@Nullable ResultType result, @Nullable StripeException error) {
+        mResult = result;
+        mError = error;
+    }
+
+    public boolean isSuccessful() {
+        return mError == null;
+    }
+
+    /**
+     * @return the created object, or {@code null} if the request failed
+     */
+    @Nullable
+    public ResultType getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return the reason the request failed, or {@code null} if it succeeded
+     */
+    @Nullable
+    public StripeException getError() {
+        return mError;
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(mResult, mError);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj || (obj instanceof BatchResult && typedEquals((BatchResult) obj));
+    }
+
+    private boolean typedEquals(@NonNull BatchResult batchResult) {
+        return ObjectUtils.equals(mResult, batchResult.mResult) &&
+                ObjectUtils.equals(mError, batchResult.mError);
+    }
+}
@@ -0,0 +1,360 @@
+package com.stripe.android;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link FireAndForgetRequestExecutor} for analytics and fingerprint requests that, instead of
+ * sending each request as soon as it is made, appends it to a {@link TelemetryQueue} on disk
+ * and sends queued requests in batches. This keeps telemetry from competing with the payment
+ * requests of a busy screen for the radio and for connections.
+ *
+ * A batch of up to {@link #mBatchSize} requests is sent when that many requests are queued, or
+ * {@link #mFlushDelayMillis} after the first request is queued, whichever comes first. Requests
+ * in a batch are sent sequentially so that they share a kept-alive connection. If a request
+ * cannot be sent, the batch is retried with exponential backoff. The queue is flushed when the
+ * app's UI is hidden, as the process may not be around for much longer.
+ *
+ * All queue operations run on a single worker thread, including loading the queue from disk.
+ */
+final class BatchingFireAndForgetRequestExecutor implements FireAndForgetRequestExecutor {
+    private static final String QUEUE_FILE_NAME = "stripe_telemetry_queue";
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 100;
+    private static final int DEFAULT_BATCH_SIZE = 10;
+    private static final long DEFAULT_FLUSH_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    @Nullable private static BatchingFireAndForgetRequestExecutor sInstance;
+
+    @NonNull private final Sender mSender;
+    @NonNull private final Handler mHandler;
+    private final int mBatchSize;
+    private final long mFlushDelayMillis;
+
+    @NonNull private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsFlushScheduled = false;
+            mIsBackingOff = false;
+            flushBatch();
+        }
+    };
+
+    // accessed only from the worker thread
+    private TelemetryQueue mQueue;
+    private boolean mIsFlushScheduled;
+    private boolean mIsBackingOff;
+    private int mFailureCount;
+
+    private volatile int mQueueDepth;
+    private volatile long mOverflowCount;
+    @NonNull private final AtomicLong mSentCount = new AtomicLong();
+    @NonNull private final AtomicLong mCoalescedCount = new AtomicLong();
+    @NonNull private final AtomicLong mRejectedCount = new AtomicLong();
+
+    /**
+     * @return the process-wide instance, which persists its queue in the app's files directory
+     * and flushes it when the app's UI is hidden
+     */
+    @NonNull
+    static synchronized BatchingFireAndForgetRequestExecutor getInstance(
+            @NonNull Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            final Supplier<TelemetryQueue> queueSupplier = new Supplier<TelemetryQueue>() {
+                @NonNull
+                @Override
+                public TelemetryQueue get() {
+                    return new TelemetryQueue(new File(appContext.getFilesDir(), QUEUE_FILE_NAME),
+                            DEFAULT_MAX_QUEUE_SIZE);
+                }
+            };
+            final HandlerThread handlerThread = new HandlerThread(
+                    BatchingFireAndForgetRequestExecutor.class.getSimpleName());
+            handlerThread.start();
+
+            sInstance = new BatchingFireAndForgetRequestExecutor(
+                    queueSupplier,
+                    new ConnectionSender(new ConnectionFactory()),
+                    new Handler(handlerThread.getLooper()),
+                    DEFAULT_BATCH_SIZE,
+                    DEFAULT_FLUSH_DELAY_MILLIS
+            );
+            appContext.registerComponentCallbacks(sInstance.createComponentCallbacks());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param queueSupplier creates the queue, which reads the queue's file; it is called on the
+     *                      worker thread before any request is queued or sent
+     */
+    @VisibleForTesting
+    BatchingFireAndForgetRequestExecutor(@NonNull final Supplier<TelemetryQueue> queueSupplier,
+                                         @NonNull Sender sender,
+                                         @NonNull Handler handler,
+                                         int batchSize,
+                                         long flushDelayMillis) {
+        mSender = sender;
+        mHandler = handler;
+        mBatchSize = batchSize;
+        mFlushDelayMillis = flushDelayMillis;
+
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mQueue = queueSupplier.get();
+                onQueueChanged();
+                if (!mQueue.isEmpty()) {
+                    scheduleFlush(mFlushDelayMillis);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void executeAsync(@NonNull final StripeRequest request) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                enqueue(request);
+            }
+        });
+    }
+
+    /**
+     * Send all queued requests now, e.g. because the app is going to the background.
+     */
+    void flush() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mHandler.removeCallbacks(mFlushRunnable);
+                mIsFlushScheduled = false;
+                mIsBackingOff = false;
+                boolean isSuccessful = true;
+                while (isSuccessful && !mQueue.isEmpty()) {
+                    isSuccessful = flushBatch();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of requests that are waiting to be sent
+     */
+    int getQueueDepth() {
+        return mQueueDepth;
+    }
+
+    /**
+     * @return the number of requests that were dropped, either because the queue was full or
+     * because they were rejected by the server
+     */
+    long getDroppedCount() {
+        return mOverflowCount + mRejectedCount.get();
+    }
+
+    /**
+     * @return the number of fingerprint requests that were not queued because an identical
+     * request was already waiting to be sent
+     */
+    long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    /**
+     * @return the number of requests that were sent successfully
+     */
+    long getSentCount() {
+        return mSentCount.get();
+    }
+
+    private void enqueue(@NonNull StripeRequest request) {
+        final QueuedRequest queuedRequest;
+        try {
+            queuedRequest = QueuedRequest.create(request);
+        } catch (UnsupportedEncodingException | InvalidRequestException e) {
+            mRejectedCount.incrementAndGet();
+            return;
+        }
+
+        if (!mQueue.add(queuedRequest)) {
+            mCoalescedCount.incrementAndGet();
+        }
+        onQueueChanged();
+
+        if (mIsBackingOff) {
+            return;
+        }
+
+        if (mQueue.size() >= mBatchSize) {
+            mHandler.removeCallbacks(mFlushRunnable);
+            mIsFlushScheduled = false;
+            flushBatch();
+        } else if (!mIsFlushScheduled) {
+            scheduleFlush(mFlushDelayMillis);
+        }
+    }
+
+    /**
+     * Send up to {@link #mBatchSize} requests from the head of the queue.
+     *
+     * @return true if the batch was sent, false if it failed and a retry was scheduled
+     */
+    private boolean flushBatch() {
+        boolean isSuccessful = true;
+        int sent = 0;
+        while (sent < mBatchSize && !mQueue.isEmpty()) {
+            final QueuedRequest request = mQueue.peek();
+            final int responseCode;
+            try {
+                responseCode = mSender.send(request);
+            } catch (APIConnectionException e) {
+                isSuccessful = false;
+                break;
+            } catch (InvalidRequestException e) {
+                mRejectedCount.incrementAndGet();
+                mQueue.remove();
+                continue;
+            }
+
+            if (responseCode >= HttpURLConnection.HTTP_INTERNAL_ERROR || responseCode == 429) {
+                isSuccessful = false;
+                break;
+            }
+
+            if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                // retrying a request that the server rejected won't help
+                mRejectedCount.incrementAndGet();
+            } else {
+                mSentCount.incrementAndGet();
+            }
+            mQueue.remove();
+            sent++;
+        }
+
+        mQueue.persist();
+        onQueueChanged();
+
+        if (isSuccessful) {
+            mFailureCount = 0;
+            if (!mQueue.isEmpty()) {
+                scheduleFlush(mQueue.size() >= mBatchSize ? 0 : mFlushDelayMillis);
+            }
+        } else {
+            mFailureCount++;
+            mIsBackingOff = true;
+            scheduleFlush(getBackoffMillis(mFailureCount));
+        }
+        return isSuccessful;
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        mHandler.removeCallbacks(mFlushRunnable);
+        mHandler.postDelayed(mFlushRunnable, delayMillis);
+        mIsFlushScheduled = true;
+    }
+
+    private void onQueueChanged() {
+        mQueueDepth = mQueue.size();
+        mOverflowCount = mQueue.getDroppedCount();
+    }
+
+    @VisibleForTesting
+    static long getBackoffMillis(int failureCount) {
+        final int exponent = Math.min(Math.max(failureCount - 1, 0), 30);
+        return Math.min(INITIAL_BACKOFF_MILLIS << exponent, MAX_BACKOFF_MILLIS);
+    }
+
+    @NonNull
+    private ComponentCallbacks2 createComponentCallbacks() {
+        return new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(@NonNull Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+            }
+        };
+    }
+
+    interface Sender {
+        /**
+         * Send {@code request} and ignore the response body.
+         *
+         * @return the response status code
+         */
+        int send(@NonNull StripeRequest request)
+                throws APIConnectionException, InvalidRequestException;
+    }
+
+    /**
+     * A {@link Sender} that reads each response to the end instead of disconnecting, so that
+     * the requests of a batch reuse the same kept-alive connection.
+     */
+    private static final class ConnectionSender implements Sender {
+        @NonNull private final ConnectionFactory mConnectionFactory;
+
+        private ConnectionSender(@NonNull ConnectionFactory connectionFactory) {
+            mConnectionFactory = connectionFactory;
+        }
+
+        @Override
+        public int send(@NonNull StripeRequest request)
+                throws APIConnectionException, InvalidRequestException {
+            final RequestMetrics.Recorder metricsRecorder = request.getMetricsRecorder();
+            StripeResponse response = null;
+            HttpURLConnection conn = null;
+            boolean isReusable = false;
+            try {
+                conn = mConnectionFactory.create(request);
+                final int responseCode = conn.getResponseCode();
+                metricsRecorder.endPhase(RequestMetrics.Phase.TIME_TO_FIRST_BYTE);
+                if (responseCode >= 200 && responseCode < 300) {
+                    StripeApiRequestExecutor.getResponseBody(
+                            metricsRecorder.countBytesReceived(conn.getInputStream()));
+                } else {
+                    StripeApiRequestExecutor.getResponseBody(
+                            metricsRecorder.countBytesReceived(conn.getErrorStream()));
+                }
+                metricsRecorder.endPhase(RequestMetrics.Phase.READ);
+                isReusable = true;
+                response = new StripeResponse(responseCode, null, conn.getHeaderFields());
+                return responseCode;
+            } catch (IOException e) {
+                throw APIConnectionException.create(request.getBaseUrl(), e);
+            } finally {
+                if (conn != null && !isReusable) {
+                    conn.disconnect();
+                }
+                metricsRecorder.report(request, response, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.stripe.android;
+
+/**
+ * A handle to asynchronous work that has been started, such as a request made with
+ * {@link Stripe#createTokenCancellable(com.stripe.android.model.Card, ApiResultCallback)}.
+ *
+ * Cancel it when the result is no longer needed, for example when the {@code Activity} that
+ * started the request is destroyed.
+ */
+public interface Cancellable {
+    /**
+     * Cancel the work. If it has not started yet, it will not be run; if it has, its result
+     * will not be delivered.
+     */
+    void cancel();
+
+    /**
+     * @return whether {@link #cancel()} has been called
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,337 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import com.stripe.android.model.Card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compiled index of card BIN prefixes, used to find the {@link Card.CardBrand} and expected
+ * length of a partial card number in a single pass over its digits.
+ *
+ * The prefixes are stored in a digit trie that is flattened into arrays. A node that completes a
+ * prefix points back to itself for every digit, so once a number has matched a prefix, further
+ * digits keep it on that node. Prefixes of different lengths, such as the 2-series Mastercard
+ * ranges, are supported.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class CardBinIndex {
+    public static final int MAX_CARD_NUMBER_LENGTH = 19;
+
+    private static final int RADIX = 10;
+    private static final int ROOT = 0;
+    private static final int NO_NODE = -1;
+
+    private static final CardBinIndex DEFAULT = new Builder()
+            .addPrefixes(Card.CardBrand.AMERICAN_EXPRESS, Card.MAX_LENGTH_AMERICAN_EXPRESS,
+                    Card.PREFIXES_AMERICAN_EXPRESS)
+            .addPrefixes(Card.CardBrand.DISCOVER, Card.MAX_LENGTH_STANDARD,
+                    Card.PREFIXES_DISCOVER)
+            .addPrefixes(Card.CardBrand.JCB, Card.MAX_LENGTH_STANDARD,
+                    Card.PREFIXES_JCB)
+            .addPrefixes(Card.CardBrand.DINERS_CLUB, Card.MAX_LENGTH_DINERS_CLUB,
+                    Card.PREFIXES_DINERS_CLUB)
+            .addPrefixes(Card.CardBrand.VISA, Card.MAX_LENGTH_STANDARD,
+                    Card.PREFIXES_VISA)
+            .addPrefixes(Card.CardBrand.MASTERCARD, Card.MAX_LENGTH_STANDARD,
+                    Card.PREFIXES_MASTERCARD)
+            .addPrefixes(Card.CardBrand.UNIONPAY, Card.MAX_LENGTH_STANDARD,
+                    Card.PREFIXES_UNIONPAY)
+            .build();
+
+    // the child of node n for digit d is at index n * RADIX + d
+    @NonNull private final int[] mChildren;
+    @NonNull @Card.CardBrand private final String[] mBrands;
+    @NonNull private final int[] mLengths;
+
+    /**
+     * @return the index of the prefixes in {@link Card}
+     */
+    @NonNull
+    public static CardBinIndex getInstance() {
+        return DEFAULT;
+    }
+
+    private CardBinIndex(@NonNull int[] children, @NonNull String[] brands,
+                         @NonNull int[] lengths) {
+        mChildren = children;
+        mBrands = brands;
+        mLengths = lengths;
+    }
+
+    /**
+     * @param cardNumber a card number or partial card number, possibly with groupings separated
+     *                   by spaces or hyphens
+     * @return the {@link Card.CardBrand} of the number, or {@link Card.CardBrand#UNKNOWN} if it
+     *         can't be determined
+     */
+    @NonNull
+    @Card.CardBrand
+    public String getBrand(@Nullable CharSequence cardNumber) {
+        if (cardNumber == null) {
+            return Card.CardBrand.UNKNOWN;
+        }
+
+        int node = ROOT;
+        // stop at the first completed prefix, so that any characters after it are ignored
+        for (int i = 0; i < cardNumber.length() && node != NO_NODE && !isMatch(node); i++) {
+            final char c = cardNumber.charAt(i);
+            if (!isSeparator(c)) {
+                node = getChild(node, c);
+            }
+        }
+        return node != NO_NODE ? mBrands[node] : Card.CardBrand.UNKNOWN;
+    }
+
+    /**
+     * @return a new {@link Matcher} that is backed by this index
+     */
+    @NonNull
+    public Matcher newMatcher() {
+        return new Matcher(this);
+    }
+
+    private boolean isMatch(int node) {
+        return mLengths[node] != 0;
+    }
+
+    private int getChild(int node, char c) {
+        return c >= '0' && c <= '9' ? mChildren[node * RADIX + c - '0'] : NO_NODE;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || Character.isWhitespace(c);
+    }
+
+    /**
+     * Tracks the brand, expected length and Luhn checksum of a card number as it is edited.
+     *
+     * The state after each digit is kept in fixed-size arrays, so {@link #update(CharSequence)}
+     * only recomputes it from the first digit that changed since the previous update, and no
+     * objects are allocated after construction.
+     */
+    public static final class Matcher {
+        @NonNull private final CardBinIndex mIndex;
+        @NonNull private final char[] mDigits = new char[MAX_CARD_NUMBER_LENGTH];
+
+        // the state after the first i digits is at index i
+        @NonNull private final int[] mNodes = new int[MAX_CARD_NUMBER_LENGTH + 1];
+        // the Luhn sums of the first i digits, doubling every digit at an even or odd index,
+        // depending on whether the whole number turns out to have an even or odd length
+        @NonNull private final int[] mEvenLengthSums = new int[MAX_CARD_NUMBER_LENGTH + 1];
+        @NonNull private final int[] mOddLengthSums = new int[MAX_CARD_NUMBER_LENGTH + 1];
+
+        private int mLength;
+        private boolean mHasInvalidCharacters;
+
+        private Matcher(@NonNull CardBinIndex index) {
+            mIndex = index;
+            mNodes[0] = ROOT;
+        }
+
+        /**
+         * Updates the state to match the given card number. Spaces and hyphens are ignored.
+         *
+         * @return {@code true} if the number only contains digits and separators and is no
+         *         longer than {@link #MAX_CARD_NUMBER_LENGTH}
+         */
+        public boolean update(@Nullable CharSequence cardNumber) {
+            int length = 0;
+            boolean hasInvalidCharacters = false;
+            if (cardNumber != null) {
+                for (int i = 0; i < cardNumber.length(); i++) {
+                    final char c = cardNumber.charAt(i);
+                    if (isSeparator(c)) {
+                        continue;
+                    }
+                    if (c < '0' || c > '9' || length == MAX_CARD_NUMBER_LENGTH) {
+                        hasInvalidCharacters = true;
+                        break;
+                    }
+
+                    if (length < mLength && mDigits[length] == c) {
+                        // unchanged since the previous update
+                        length++;
+                    } else {
+                        mLength = length;
+                        append(c);
+                        length = mLength;
+                    }
+                }
+            }
+
+            mLength = length;
+            mHasInvalidCharacters = hasInvalidCharacters;
+            return !hasInvalidCharacters;
+        }
+
+        /**
+         * @return the {@link Card.CardBrand} of the number, or {@link Card.CardBrand#UNKNOWN} if
+         *         it can't be determined
+         */
+        @NonNull
+        @Card.CardBrand
+        public String getBrand() {
+            final int node = mNodes[mLength];
+            return node != NO_NODE ? mIndex.mBrands[node] : Card.CardBrand.UNKNOWN;
+        }
+
+        /**
+         * @return the number of digits that a complete number of this brand has, or {@code 0}
+         *         if the brand can't be determined
+         */
+        public int getExpectedLength() {
+            final int node = mNodes[mLength];
+            return node != NO_NODE ? mIndex.mLengths[node] : 0;
+        }
+
+        /**
+         * @return the number of digits in the number
+         */
+        public int getLength() {
+            return mLength;
+        }
+
+        /**
+         * @return {@code true} if the number is not empty and passes the Luhn check
+         */
+        public boolean isLuhnValid() {
+            if (mLength == 0 || mHasInvalidCharacters) {
+                return false;
+            }
+            final int sum = mLength % 2 == 0 ?
+                    mEvenLengthSums[mLength] : mOddLengthSums[mLength];
+            return sum % 10 == 0;
+        }
+
+        /**
+         * @return {@code true} if the number is of a known brand, is the expected length for
+         *         that brand, and passes the Luhn check
+         */
+        public boolean isValid() {
+            final int expectedLength = getExpectedLength();
+            return expectedLength != 0 && mLength == expectedLength && isLuhnValid();
+        }
+
+        public void reset() {
+            mLength = 0;
+            mHasInvalidCharacters = false;
+        }
+
+        private void append(char digit) {
+            final int index = mLength;
+            final int node = mNodes[index];
+            mDigits[index] = digit;
+            mNodes[index + 1] = node != NO_NODE ? mIndex.getChild(node, digit) : NO_NODE;
+
+            final int value = digit - '0';
+            int doubledValue = value * 2;
+            if (doubledValue > 9) {
+                doubledValue -= 9;
+            }
+            // in a number of even length, the digits at even indices are doubled
+            final boolean isEvenIndex = index % 2 == 0;
+            mEvenLengthSums[index + 1] =
+                    mEvenLengthSums[index] + (isEvenIndex ? doubledValue : value);
+            mOddLengthSums[index + 1] =
+                    mOddLengthSums[index] + (isEvenIndex ? value : doubledValue);
+            mLength = index + 1;
+        }
+    }
+
+    /**
+     * Builds a {@link CardBinIndex}. If a number matches prefixes of more than one brand, the
+     * shortest prefix is used, or the one that was added first if they are the same length.
+     */
+    static final class Builder {
+        @NonNull private final List<int[]> mChildren = new ArrayList<>();
+        @NonNull private final List<String> mBrands = new ArrayList<>();
+        @NonNull private final List<Integer> mLengths = new ArrayList<>();
+
+        Builder() {
+            addNode();
+        }
+
+        /**
+         * @param brand the brand of numbers that start with any of the prefixes
+         * @param length the number of digits in a complete number of this brand
+         * @param prefixes prefixes made up only of digits
+         */
+        @NonNull
+        Builder addPrefixes(@NonNull @Card.CardBrand String brand, int length,
+                            @NonNull String... prefixes) {
+            if (length <= 0) {
+                throw new IllegalArgumentException("A card number length must be positive");
+            }
+            for (String prefix : prefixes) {
+                addPrefix(brand, length, prefix);
+            }
+            return this;
+        }
+
+        @NonNull
+        CardBinIndex build() {
+            final int nodeCount = mChildren.size();
+            final int[] children = new int[nodeCount * RADIX];
+            final String[] brands = new String[nodeCount];
+            final int[] lengths = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                final String brand = mBrands.get(node);
+                if (brand != null) {
+                    // a completed prefix matches every number that starts with it
+                    Arrays.fill(children, node * RADIX, (node + 1) * RADIX, node);
+                    brands[node] = brand;
+                    lengths[node] = mLengths.get(node);
+                } else {
+                    System.arraycopy(mChildren.get(node), 0, children, node * RADIX, RADIX);
+                    brands[node] = Card.CardBrand.UNKNOWN;
+                }
+            }
+            return new CardBinIndex(children, brands, lengths);
+        }
+
+        private void addPrefix(@NonNull @Card.CardBrand String brand, int length,
+                               @NonNull String prefix) {
+            if (prefix.isEmpty()) {
+                throw new IllegalArgumentException("A BIN prefix must not be empty");
+            }
+
+            int node = ROOT;
+            for (int i = 0; i < prefix.length(); i++) {
+                if (mBrands.get(node) != null) {
+                    // a shorter prefix that was added earlier already matches
+                    return;
+                }
+
+                final char c = prefix.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new IllegalArgumentException("Invalid BIN prefix: " + prefix);
+                }
+                final int[] children = mChildren.get(node);
+                if (children[c - '0'] == NO_NODE) {
+                    children[c - '0'] = addNode();
+                }
+                node = children[c - '0'];
+            }
+
+            if (mBrands.get(node) == null) {
+                mBrands.set(node, brand);
+                mLengths.set(node, length);
+            }
+        }
+
+        private int addNode() {
+            final int[] children = new int[RADIX];
+            Arrays.fill(children, NO_NODE);
+            mChildren.add(children);
+            mBrands.add(null);
+            mLengths.add(0);
+            return mChildren.size() - 1;
+        }
+    }
+}
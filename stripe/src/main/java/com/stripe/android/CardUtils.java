@@ -27,7 +27,7 @@ public class CardUtils {
     @NonNull
     @Card.CardBrand
     public static String getPossibleCardType(@Nullable String cardNumber) {
-        return getPossibleCardType(cardNumber, true);
+        return CardBinIndex.getInstance().getBrand(cardNumber);
     }
 
     /**
@@ -38,8 +38,8 @@ public class CardUtils {
      * @return {@code true} if and only if the input value is a valid card number
      */
     public static boolean isValidCardNumber(@Nullable String cardNumber) {
-        String normalizedNumber = StripeTextUtils.removeSpacesAndHyphens(cardNumber);
-        return isValidLuhnNumber(normalizedNumber) && isValidCardLength(normalizedNumber);
+        final CardBinIndex.Matcher matcher = CardBinIndex.getInstance().newMatcher();
+        return matcher.update(cardNumber) && matcher.isValid();
     }
 
     /**
@@ -88,7 +88,7 @@ public class CardUtils {
      */
     static boolean isValidCardLength(@Nullable String cardNumber) {
         return cardNumber != null && isValidCardLength(cardNumber,
-                getPossibleCardType(cardNumber, false));
+                getPossibleCardType(cardNumber));
     }
 
     /**
@@ -116,36 +116,4 @@ public class CardUtils {
                 return length == LENGTH_COMMON_CARD;
         }
     }
-
-    @NonNull
-    @CardBrand
-    private static String getPossibleCardType(@Nullable String cardNumber,
-                                              boolean shouldNormalize) {
-        if (StripeTextUtils.isBlank(cardNumber)) {
-            return Card.CardBrand.UNKNOWN;
-        }
-
-        String spacelessCardNumber = cardNumber;
-        if (shouldNormalize) {
-            spacelessCardNumber = StripeTextUtils.removeSpacesAndHyphens(cardNumber);
-        }
-
-        if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_AMERICAN_EXPRESS)) {
-            return CardBrand.AMERICAN_EXPRESS;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_DISCOVER)) {
-            return Card.CardBrand.DISCOVER;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_JCB)) {
-            return Card.CardBrand.JCB;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_DINERS_CLUB)) {
-            return Card.CardBrand.DINERS_CLUB;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_VISA)) {
-            return CardBrand.VISA;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_MASTERCARD)) {
-            return CardBrand.MASTERCARD;
-        } else if (StripeTextUtils.hasAnyPrefix(spacelessCardNumber, Card.PREFIXES_UNIONPAY)) {
-            return Card.CardBrand.UNIONPAY;
-        } else {
-            return Card.CardBrand.UNKNOWN;
-        }
-    }
 }
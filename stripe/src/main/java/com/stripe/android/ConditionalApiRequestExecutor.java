@@ -0,0 +1,155 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link ApiRequestExecutor} that revalidates GET requests instead of downloading the same
+ * response body again, e.g. when a PaymentIntent is polled for its status.
+ *
+ * The body of a successful response to a GET request that has an <code>ETag</code> header is
+ * kept in a small in-memory {@link Cache}. The next GET request for the same URL and account
+ * is sent with an <code>If-None-Match</code> header, and if the server answers with HTTP 304,
+ * the cached body is returned as a successful response.
+ */
+final class ConditionalApiRequestExecutor implements ApiRequestExecutor {
+    @NonNull private final ApiRequestExecutor mDelegate;
+    @NonNull private final Cache mCache;
+
+    ConditionalApiRequestExecutor(@NonNull ApiRequestExecutor delegate) {
+        this(delegate, Cache.getInstance());
+    }
+
+    @VisibleForTesting
+    ConditionalApiRequestExecutor(@NonNull ApiRequestExecutor delegate, @NonNull Cache cache) {
+        mDelegate = delegate;
+        mCache = cache;
+    }
+
+    @NonNull
+    @Override
+    public StripeResponse execute(@NonNull ApiRequest request)
+            throws APIConnectionException, InvalidRequestException {
+        final String cacheKey = getCacheKey(request);
+        if (cacheKey == null) {
+            return mDelegate.execute(request);
+        }
+
+        final Cache.Entry entry = mCache.get(cacheKey);
+        request.setIfNoneMatch(entry != null ? entry.entityTag : null);
+        final StripeResponse response = mDelegate.execute(request);
+
+        if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+            // the headers of the new response identify this request, e.g. its Request-Id
+            return new StripeResponse(HttpURLConnection.HTTP_OK, entry.body,
+                    response.getResponseHeaders());
+        }
+
+        if (response.isOk()) {
+            final String entityTag = response.getEntityTag();
+            final String body = response.getResponseBody();
+            if (entityTag != null && body != null) {
+                mCache.put(cacheKey, new Cache.Entry(entityTag, body));
+            } else {
+                mCache.remove(cacheKey);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * @return a key that identifies the resource that {@code request} reads and the account it
+     *         reads it as, or {@code null} if the request is not a GET request
+     */
+    @Nullable
+    private static String getCacheKey(@NonNull ApiRequest request)
+            throws InvalidRequestException {
+        if (StripeRequest.Method.GET != request.method) {
+            return null;
+        }
+
+        final String url;
+        try {
+            url = request.getUrl();
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+        return url + '\n' + request.options.apiKey + '\n' + request.options.stripeAccount;
+    }
+
+    /**
+     * The most recently used response bodies, shared by every executor in the process.
+     */
+    static final class Cache {
+        private static final int DEFAULT_MAX_ENTRIES = 16;
+
+        /**
+         * Larger bodies, e.g. long lists of PaymentMethods, are not worth keeping in memory.
+         */
+        private static final int MAX_BODY_LENGTH = 64 * 1024;
+
+        @Nullable private static Cache sInstance;
+
+        @NonNull private final Map<String, Entry> mEntries;
+
+        @NonNull
+        static synchronized Cache getInstance() {
+            if (sInstance == null) {
+                sInstance = new Cache(DEFAULT_MAX_ENTRIES);
+            }
+            return sInstance;
+        }
+
+        @VisibleForTesting
+        Cache(@IntRange(from = 1) final int maxEntries) {
+            mEntries = new LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Nullable
+        synchronized Entry get(@NonNull String key) {
+            return mEntries.get(key);
+        }
+
+        synchronized void put(@NonNull String key, @NonNull Entry entry) {
+            if (entry.body.length() > MAX_BODY_LENGTH) {
+                mEntries.remove(key);
+            } else {
+                mEntries.put(key, entry);
+            }
+        }
+
+        synchronized void remove(@NonNull String key) {
+            mEntries.remove(key);
+        }
+
+        @VisibleForTesting
+        synchronized int size() {
+            return mEntries.size();
+        }
+
+        static final class Entry {
+            @NonNull final String entityTag;
+            @NonNull final String body;
+
+            Entry(@NonNull String entityTag, @NonNull String body) {
+                this.entityTag = entityTag;
+                this.body = body;
+            }
+        }
+    }
+}
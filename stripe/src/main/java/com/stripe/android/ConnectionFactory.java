@@ -1,35 +1,54 @@
 package com.stripe.android;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.stripe.android.exception.InvalidRequestException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
 
 final class ConnectionFactory {
+    static final String CONTENT_ENCODING_GZIP = "gzip";
+    static final int CONNECT_TIMEOUT_MILLIS = 30 * 1000;
+    static final int READ_TIMEOUT_MILLIS = 80 * 1000;
+
     private static final SSLSocketFactory SSL_SOCKET_FACTORY = new StripeSSLSocketFactory();
 
+    /**
+     * Request bodies larger than this are not kept around for reuse by the next request on the
+     * same thread.
+     */
+    private static final int MAX_REUSABLE_BODY_SIZE = 16 * 1024;
+
+    private static final ThreadLocal<ByteArrayOutputStream> BODY_BUFFER =
+            new ThreadLocal<ByteArrayOutputStream>() {
+                @Override
+                protected ByteArrayOutputStream initialValue() {
+                    return new ByteArrayOutputStream(1024);
+                }
+            };
+
     @NonNull
     HttpURLConnection create(@NonNull StripeRequest request)
             throws IOException, InvalidRequestException {
         final URL stripeURL = new URL(request.getUrl());
         final HttpURLConnection conn = (HttpURLConnection) stripeURL.openConnection();
-        conn.setConnectTimeout(30 * 1000);
-        conn.setReadTimeout(80 * 1000);
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        conn.setReadTimeout(READ_TIMEOUT_MILLIS);
         conn.setUseCaches(false);
 
-        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
-            conn.setRequestProperty(header.getKey(), header.getValue());
-        }
+        request.applyHeaders(conn);
 
         if (conn instanceof HttpsURLConnection) {
             ((HttpsURLConnection) conn).setSSLSocketFactory(SSL_SOCKET_FACTORY);
@@ -37,23 +56,82 @@ final class ConnectionFactory {
 
         conn.setRequestMethod(request.method.code);
 
+        final RequestMetrics.Recorder metricsRecorder = request.getMetricsRecorder();
         if (StripeRequest.Method.POST == request.method) {
             conn.setDoOutput(true);
             conn.setRequestProperty("Content-Type", request.getContentType());
 
-            try (OutputStream output = conn.getOutputStream()) {
-                output.write(getRequestOutputBytes(request));
+            final ByteArrayOutputStream body = BODY_BUFFER.get();
+            body.reset();
+            try {
+                writeRequestBody(request, body);
+                conn.setFixedLengthStreamingMode(body.size());
+                connect(conn, metricsRecorder);
+                try (OutputStream output = conn.getOutputStream()) {
+                    body.writeTo(output);
+                }
+                metricsRecorder.addBytesSent(body.size());
+                metricsRecorder.endPhase(RequestMetrics.Phase.WRITE);
+            } finally {
+                if (body.size() > MAX_REUSABLE_BODY_SIZE) {
+                    BODY_BUFFER.remove();
+                }
             }
+        } else {
+            connect(conn, metricsRecorder);
         }
 
         return conn;
     }
 
+    /**
+     * Connect explicitly, rather than on the first read or write, so that the time spent
+     * connecting can be told apart from the time spent sending the request.
+     */
+    private static void connect(@NonNull HttpURLConnection conn,
+                                @NonNull RequestMetrics.Recorder metricsRecorder)
+            throws IOException {
+        metricsRecorder.startAttempt();
+        conn.connect();
+        metricsRecorder.endPhase(RequestMetrics.Phase.CONNECT);
+    }
+
+    /**
+     * @return the body of the response to {@code conn}, or {@code null} if it has none. The
+     *         bytes read from the network are counted by {@code metricsRecorder}, and a gzipped
+     *         body is decompressed as it is read.
+     */
+    @Nullable
+    static InputStream getResponseStream(@NonNull HttpURLConnection conn, int responseCode,
+                                         @NonNull RequestMetrics.Recorder metricsRecorder)
+            throws IOException {
+        // an HTTP 304 response is read from the input stream too, so that its connection can
+        // be reused
+        final InputStream responseStream = metricsRecorder.countBytesReceived(
+                responseCode >= 200 && responseCode < HttpURLConnection.HTTP_BAD_REQUEST ?
+                        conn.getInputStream() : conn.getErrorStream());
+        if (responseStream == null || responseCode == HttpURLConnection.HTTP_NO_CONTENT ||
+                responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // a response without a body has no gzip header to read
+            return responseStream;
+        }
+        return CONTENT_ENCODING_GZIP.equalsIgnoreCase(conn.getContentEncoding()) ?
+                new GZIPInputStream(responseStream) : responseStream;
+    }
+
     @NonNull
     byte[] getRequestOutputBytes(@NonNull StripeRequest request)
             throws InvalidRequestException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeRequestBody(request, body);
+        return body.toByteArray();
+    }
+
+    private static void writeRequestBody(@NonNull StripeRequest request,
+                                         @NonNull ByteArrayOutputStream body)
+            throws InvalidRequestException {
         try {
-            return request.getOutputBytes();
+            request.writeBody(body);
         } catch (UnsupportedEncodingException e) {
             throw new InvalidRequestException("Unable to encode parameters to " +
                     StandardCharsets.UTF_8.name()
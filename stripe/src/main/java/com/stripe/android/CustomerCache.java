@@ -0,0 +1,262 @@
+package com.stripe.android;
+
+import android.os.Build;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.LruCache;
+
+import com.stripe.android.model.Customer;
+import com.stripe.android.model.PaymentMethod;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A two-tier cache of {@link Customer} and {@link PaymentMethod} lists, keyed by customer id.
+ *
+ * Values are kept in an in-memory LRU cache. If a {@link Store} is provided, PaymentMethod lists
+ * are also written to it, so that they can be read back after process death. {@link Customer}
+ * objects are only cached in memory, because sources of every type would need to be serialized.
+ *
+ * A value is fresh until {@link CustomerCacheConfig#maxAgeMillis} has passed, then stale for
+ * another {@link CustomerCacheConfig#staleWhileRevalidateMillis}. Stale values are still
+ * returned; callers are expected to fetch a fresh value in the background.
+ */
+final class CustomerCache {
+    // Parcel's format is only stable for a given SDK and platform version
+    private static final String FORMAT_VERSION = String.format(Locale.ROOT, "%s/%d",
+            BuildConfig.VERSION_NAME, Build.VERSION.SDK_INT);
+
+    @NonNull private final CustomerCacheConfig mConfig;
+    @NonNull private final LruCache<String, Entry<?>> mMemoryCache;
+    @Nullable private final Store mStore;
+    @NonNull private final Supplier<Long> mClock;
+
+    private int mHitCount;
+    private int mStaleHitCount;
+    private int mMissCount;
+
+    CustomerCache(@NonNull CustomerCacheConfig config, @Nullable Store store,
+                  @NonNull Supplier<Long> clock) {
+        mConfig = config;
+        mMemoryCache = new LruCache<>(config.maxMemoryEntries);
+        mStore = store;
+        mClock = clock;
+    }
+
+    @Nullable
+    synchronized Entry<Customer> getCustomer(@NonNull String customerId) {
+        //noinspection unchecked
+        return (Entry<Customer>) recordLookup(getUsableEntry(getCustomerKey(customerId)));
+    }
+
+    synchronized void putCustomer(@NonNull String customerId, @NonNull Customer customer) {
+        mMemoryCache.put(getCustomerKey(customerId), new Entry<>(customer, mClock.get()));
+    }
+
+    synchronized void invalidateCustomer(@NonNull String customerId) {
+        mMemoryCache.remove(getCustomerKey(customerId));
+    }
+
+    /**
+     * Reads from the {@link Store} on a miss in memory, so call this off the main thread.
+     */
+    @Nullable
+    synchronized Entry<List<PaymentMethod>> getPaymentMethods(
+            @NonNull String customerId, @NonNull String paymentMethodType) {
+        final String key = getPaymentMethodsKey(customerId, paymentMethodType);
+        Entry<?> entry = getUsableEntry(key);
+        if (entry == null && mStore != null) {
+            entry = unmarshallPaymentMethods(mStore.read(key));
+            if (entry != null && isUsable(entry)) {
+                mMemoryCache.put(key, entry);
+            } else {
+                entry = null;
+            }
+        }
+
+        //noinspection unchecked
+        return (Entry<List<PaymentMethod>>) recordLookup(entry);
+    }
+
+    /**
+     * Writes to the {@link Store}, so call this off the main thread.
+     */
+    synchronized void putPaymentMethods(@NonNull String customerId,
+                                        @NonNull String paymentMethodType,
+                                        @NonNull List<PaymentMethod> paymentMethods) {
+        final String key = getPaymentMethodsKey(customerId, paymentMethodType);
+        final Entry<List<PaymentMethod>> entry =
+                new Entry<>(Collections.unmodifiableList(paymentMethods), mClock.get());
+        mMemoryCache.put(key, entry);
+        if (mStore != null) {
+            mStore.write(key, marshallPaymentMethods(entry));
+        }
+    }
+
+    /**
+     * Removes the cached lists of every {@link PaymentMethod.Type} for this customer.
+     */
+    synchronized void invalidatePaymentMethods(@NonNull String customerId) {
+        for (PaymentMethod.Type type : PaymentMethod.Type.values()) {
+            final String key = getPaymentMethodsKey(customerId, type.code);
+            mMemoryCache.remove(key);
+            if (mStore != null) {
+                mStore.delete(key);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        mMemoryCache.evictAll();
+        if (mStore != null) {
+            mStore.clear();
+        }
+    }
+
+    boolean isFresh(@NonNull Entry<?> entry) {
+        return getAgeMillis(entry) < mConfig.maxAgeMillis;
+    }
+
+    /**
+     * @return the in-memory entry, regardless of its age, without affecting the stats
+     */
+    @Nullable
+    @VisibleForTesting
+    synchronized Entry<Customer> peekCustomer(@NonNull String customerId) {
+        //noinspection unchecked
+        return (Entry<Customer>) mMemoryCache.get(getCustomerKey(customerId));
+    }
+
+    @NonNull
+    synchronized CustomerCacheStats getStats(@Nullable String customerId) {
+        Long customerAgeMillis = null;
+        final Map<PaymentMethod.Type, Long> paymentMethodsAgeMillis = new HashMap<>();
+        if (customerId != null) {
+            final Entry<?> customerEntry = mMemoryCache.get(getCustomerKey(customerId));
+            if (customerEntry != null) {
+                customerAgeMillis = getAgeMillis(customerEntry);
+            }
+            for (PaymentMethod.Type type : PaymentMethod.Type.values()) {
+                final Entry<?> entry =
+                        mMemoryCache.get(getPaymentMethodsKey(customerId, type.code));
+                if (entry != null) {
+                    paymentMethodsAgeMillis.put(type, getAgeMillis(entry));
+                }
+            }
+        }
+        return new CustomerCacheStats(mHitCount, mStaleHitCount, mMissCount, customerAgeMillis,
+                paymentMethodsAgeMillis);
+    }
+
+    @Nullable
+    private Entry<?> getUsableEntry(@NonNull String key) {
+        final Entry<?> entry = mMemoryCache.get(key);
+        if (entry != null && !isUsable(entry)) {
+            mMemoryCache.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    @Nullable
+    private Entry<?> recordLookup(@Nullable Entry<?> entry) {
+        if (entry == null) {
+            mMissCount++;
+        } else if (isFresh(entry)) {
+            mHitCount++;
+        } else {
+            mStaleHitCount++;
+        }
+        return entry;
+    }
+
+    private boolean isUsable(@NonNull Entry<?> entry) {
+        return getAgeMillis(entry) < mConfig.maxAgeMillis + mConfig.staleWhileRevalidateMillis;
+    }
+
+    private long getAgeMillis(@NonNull Entry<?> entry) {
+        return mClock.get() - entry.savedAt;
+    }
+
+    @NonNull
+    private static byte[] marshallPaymentMethods(@NonNull Entry<List<PaymentMethod>> entry) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeString(FORMAT_VERSION);
+            parcel.writeLong(entry.savedAt);
+            parcel.writeTypedList(entry.value);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private static Entry<List<PaymentMethod>> unmarshallPaymentMethods(@Nullable byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            if (!FORMAT_VERSION.equals(parcel.readString())) {
+                return null;
+            }
+            final long savedAt = parcel.readLong();
+            final List<PaymentMethod> paymentMethods =
+                    parcel.createTypedArrayList(PaymentMethod.CREATOR);
+            return paymentMethods != null ?
+                    new Entry<>(Collections.unmodifiableList(paymentMethods), savedAt) : null;
+        } catch (RuntimeException e) {
+            // a corrupt entry is treated as a miss
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @NonNull
+    private static String getCustomerKey(@NonNull String customerId) {
+        return String.format(Locale.ROOT, "customer[%s]", customerId);
+    }
+
+    @NonNull
+    private static String getPaymentMethodsKey(@NonNull String customerId,
+                                               @NonNull String paymentMethodType) {
+        return String.format(Locale.ROOT, "customer[%s].payment_methods[%s]",
+                customerId, paymentMethodType);
+    }
+
+    static final class Entry<T> {
+        @NonNull final T value;
+        final long savedAt;
+
+        Entry(@NonNull T value, long savedAt) {
+            this.value = value;
+            this.savedAt = savedAt;
+        }
+    }
+
+    /**
+     * Persistent storage for serialized cache entries.
+     */
+    interface Store {
+        @Nullable
+        byte[] read(@NonNull String key);
+
+        void write(@NonNull String key, @NonNull byte[] value);
+
+        void delete(@NonNull String key);
+
+        void clear();
+    }
+}
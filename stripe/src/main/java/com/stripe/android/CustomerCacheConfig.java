@@ -0,0 +1,123 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.utils.ObjectUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for how {@link CustomerSession} caches the current
+ * {@link com.stripe.android.model.Customer} and its
+ * {@link com.stripe.android.model.PaymentMethod} lists.
+ *
+ * See {@link CustomerSession#initCustomerSession(android.content.Context, EphemeralKeyProvider,
+ * String, boolean, CustomerCacheConfig)}
+ */
+public final class CustomerCacheConfig {
+    static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    static final int DEFAULT_MAX_MEMORY_ENTRIES = 10;
+
+    @NonNull static final CustomerCacheConfig DEFAULT = new CustomerCacheConfig.Builder().build();
+
+    final long maxAgeMillis;
+    final long staleWhileRevalidateMillis;
+    final int maxMemoryEntries;
+    final boolean isPersistent;
+
+    private CustomerCacheConfig(@NonNull Builder builder) {
+        maxAgeMillis = checkNonNegative(builder.mMaxAgeMillis, "maxAgeMillis");
+        staleWhileRevalidateMillis = checkNonNegative(builder.mStaleWhileRevalidateMillis,
+                "staleWhileRevalidateMillis");
+        if (builder.mMaxMemoryEntries < 1) {
+            throw new IllegalArgumentException("maxMemoryEntries must be at least 1");
+        }
+        maxMemoryEntries = builder.mMaxMemoryEntries;
+        isPersistent = builder.mIsPersistent;
+    }
+
+    private static long checkNonNegative(long value, @NonNull String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        return value;
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(maxAgeMillis, staleWhileRevalidateMillis, maxMemoryEntries,
+                isPersistent);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj ||
+                (obj instanceof CustomerCacheConfig && typedEquals((CustomerCacheConfig) obj));
+    }
+
+    private boolean typedEquals(@NonNull CustomerCacheConfig config) {
+        return maxAgeMillis == config.maxAgeMillis &&
+                staleWhileRevalidateMillis == config.staleWhileRevalidateMillis &&
+                maxMemoryEntries == config.maxMemoryEntries &&
+                isPersistent == config.isPersistent;
+    }
+
+    public static final class Builder implements ObjectBuilder<CustomerCacheConfig> {
+        private long mMaxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+        private long mStaleWhileRevalidateMillis;
+        private int mMaxMemoryEntries = DEFAULT_MAX_MEMORY_ENTRIES;
+        private boolean mIsPersistent;
+
+        /**
+         * @param maxAgeMillis how long a cached value is returned without contacting Stripe.
+         *                     Defaults to one minute.
+         */
+        @NonNull
+        public Builder setMaxAgeMillis(@IntRange(from = 0) long maxAgeMillis) {
+            this.mMaxAgeMillis = maxAgeMillis;
+            return this;
+        }
+
+        /**
+         * @param staleWhileRevalidateMillis how long after {@link #setMaxAgeMillis(long)} has
+         *                                   passed a cached value is still returned, while a
+         *                                   fresh value is fetched in the background.
+         *                                   Defaults to 0, which disables this behavior.
+         */
+        @NonNull
+        public Builder setStaleWhileRevalidateMillis(
+                @IntRange(from = 0) long staleWhileRevalidateMillis) {
+            this.mStaleWhileRevalidateMillis = staleWhileRevalidateMillis;
+            return this;
+        }
+
+        /**
+         * @param maxMemoryEntries the maximum number of values kept in memory. Defaults to 10.
+         */
+        @NonNull
+        public Builder setMaxMemoryEntries(@IntRange(from = 1) int maxMemoryEntries) {
+            this.mMaxMemoryEntries = maxMemoryEntries;
+            return this;
+        }
+
+        /**
+         * @param isPersistent if {@code true}, PaymentMethod lists are also written to encrypted
+         *                     app-private storage so that they survive process death. Only
+         *                     supported on Android 6.0 (API 23) and above; ignored on older
+         *                     versions. Defaults to {@code false}.
+         */
+        @NonNull
+        public Builder setPersistent(boolean isPersistent) {
+            this.mIsPersistent = isPersistent;
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public CustomerCacheConfig build() {
+            return new CustomerCacheConfig(this);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.utils.ObjectUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A snapshot of {@link CustomerSession}'s cache usage.
+ *
+ * See {@link CustomerSession#getCacheStats()}
+ */
+public final class CustomerCacheStats {
+    private final int mHitCount;
+    private final int mStaleHitCount;
+    private final int mMissCount;
+    @Nullable private final Long mCustomerAgeMillis;
+    @NonNull private final Map<PaymentMethod.Type, Long> mPaymentMethodsAgeMillis;
+
+    CustomerCacheStats(int hitCount, int staleHitCount, int missCount,
+                       @Nullable Long customerAgeMillis,
+                       @NonNull Map<PaymentMethod.Type, Long> paymentMethodsAgeMillis) {
+        mHitCount = hitCount;
+        mStaleHitCount = staleHitCount;
+        mMissCount = missCount;
+        mCustomerAgeMillis = customerAgeMillis;
+        mPaymentMethodsAgeMillis = Collections.unmodifiableMap(paymentMethodsAgeMillis);
+    }
+
+    /**
+     * @return the number of lookups answered with a value that had not reached its max age
+     */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return the number of lookups answered with a stale value while a fresh value was fetched
+     */
+    public int getStaleHitCount() {
+        return mStaleHitCount;
+    }
+
+    /**
+     * @return the number of lookups that required a request to Stripe
+     */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return the fraction of lookups, between 0 and 1, that were answered from the cache,
+     *         including stale values
+     */
+    public double getHitRatio() {
+        final int lookups = mHitCount + mStaleHitCount + mMissCount;
+        return lookups == 0 ? 0 : (double) (mHitCount + mStaleHitCount) / lookups;
+    }
+
+    /**
+     * @return the age of the cached {@link com.stripe.android.model.Customer} in milliseconds,
+     *         or {@code null} if it is not cached
+     */
+    @Nullable
+    public Long getCustomerAgeMillis() {
+        return mCustomerAgeMillis;
+    }
+
+    /**
+     * @return the age of the cached list of {@link PaymentMethod}s of the given type in
+     *         milliseconds, or {@code null} if it is not cached in memory
+     */
+    @Nullable
+    public Long getPaymentMethodsAgeMillis(@NonNull PaymentMethod.Type type) {
+        return mPaymentMethodsAgeMillis.get(type);
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(mHitCount, mStaleHitCount, mMissCount, mCustomerAgeMillis,
+                mPaymentMethodsAgeMillis);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj ||
+                (obj instanceof CustomerCacheStats && typedEquals((CustomerCacheStats) obj));
+    }
+
+    private boolean typedEquals(@NonNull CustomerCacheStats stats) {
+        return mHitCount == stats.mHitCount &&
+                mStaleHitCount == stats.mStaleHitCount &&
+                mMissCount == stats.mMissCount &&
+                ObjectUtils.equals(mCustomerAgeMillis, stats.mCustomerAgeMillis) &&
+                ObjectUtils.equals(mPaymentMethodsAgeMillis, stats.mPaymentMethodsAgeMillis);
+    }
+}
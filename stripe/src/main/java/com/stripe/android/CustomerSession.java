@@ -8,6 +8,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.IntDef;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
@@ -17,6 +18,7 @@ import android.support.v4.content.LocalBroadcastManager;
 import com.stripe.android.exception.StripeException;
 import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.ShippingInformation;
 import com.stripe.android.model.Source;
 import com.stripe.android.view.AddPaymentMethodActivity;
@@ -26,6 +28,7 @@ import com.stripe.android.view.PaymentMethodsActivity;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -35,6 +38,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -57,10 +64,13 @@ public class CustomerSession {
     private static final String ACTION_ATTACH_PAYMENT_METHOD = "attach_payment_method";
     private static final String ACTION_DETACH_PAYMENT_METHOD = "detach_payment_method";
     private static final String ACTION_GET_PAYMENT_METHODS = "get_payment_methods";
+    private static final String ACTION_GET_PAYMENT_METHODS_PAGES = "get_payment_methods_pages";
     private static final String ACTION_SET_DEFAULT_SOURCE = "default_source";
     private static final String ACTION_SET_CUSTOMER_SHIPPING_INFO = "set_shipping_info";
+    private static final String ACTION_REFRESH_CUSTOMER = "refresh_customer";
     private static final String KEY_PAYMENT_METHOD = "payment_method";
     private static final String KEY_PAYMENT_METHOD_TYPE = "payment_method_type";
+    private static final String KEY_PAGE_SIZE = "page_size";
     private static final String KEY_SOURCE = "source";
     private static final String KEY_SOURCE_TYPE = "source_type";
     private static final String KEY_SHIPPING_INFO = "shipping_info";
@@ -81,7 +91,8 @@ public class CustomerSession {
             MessageCode.SOURCE_RETRIEVED,
             MessageCode.PAYMENT_METHOD_RETRIEVED,
             MessageCode.CUSTOMER_SHIPPING_INFO_SAVED,
-            MessageCode.PAYMENT_METHODS_RETRIEVED
+            MessageCode.PAYMENT_METHODS_RETRIEVED,
+            MessageCode.PAYMENT_METHODS_PAGE_RETRIEVED
     })
     @Retention(RetentionPolicy.SOURCE)
     public @interface MessageCode {
@@ -91,6 +102,7 @@ public class CustomerSession {
         int PAYMENT_METHOD_RETRIEVED = 4;
         int CUSTOMER_SHIPPING_INFO_SAVED = 5;
         int PAYMENT_METHODS_RETRIEVED = 6;
+        int PAYMENT_METHODS_PAGE_RETRIEVED = 7;
     }
 
     // The maximum number of active threads we support
@@ -101,14 +113,25 @@ public class CustomerSession {
     private static final TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.SECONDS;
 
     private static final long KEY_REFRESH_BUFFER_IN_SECONDS = 30L;
-    private static final long CUSTOMER_CACHE_DURATION_MILLISECONDS = TimeUnit.MINUTES.toMillis(1);
+    // One attempt of an API request and the backoff before its first retry, rather than the
+    // whole retry budget, so that a listener hears back while its UI is still around. Retries
+    // that are still running when an operation times out are cancelled. Each page of a
+    // PaymentMethods page stream restarts the timeout.
+    private static final long OPERATION_TIMEOUT_MILLIS =
+            RetryingApiRequestExecutor.DEFAULT_FIRST_RETRY_MILLIS;
+    // Stale PaymentMethod lists are refreshed in as few requests as possible
+    private static final int REFRESH_PAGE_SIZE = 100;
 
     private static CustomerSession mInstance;
 
-    @Nullable private Customer mCustomer;
-    private long mCustomerCacheTime;
+    // The id of the Customer that the most recent ephemeral key belongs to
+    @Nullable private volatile String mCustomerId;
+    @NonNull private final CustomerCache mCustomerCache;
     @NonNull private final LocalBroadcastManager mLocalBroadcastManager;
-    @NonNull private final Map<String, RetrievalListener> mCustomerListeners = new HashMap<>();
+    @NonNull private final OperationRegistry<RetrievalListener> mCustomerListeners;
+    // The running or queued task of each operation, so that it can be cancelled on timeout
+    @NonNull private final ConcurrentMap<String, Future<?>> mOperationTasks =
+            new ConcurrentHashMap<>();
 
     @NonNull private final OperationIdFactory mOperationIdFactory;
     @NonNull private final EphemeralKeyManager<CustomerEphemeralKey> mEphemeralKeyManager;
@@ -135,14 +158,29 @@ public class CustomerSession {
      * @param shouldPrefetchEphemeralKey If true, will immediately fetch an ephemeral key using
      *                                   {@param ephemeralKeyProvider}. Otherwise, will only fetch
      *                                   an ephemeral key when needed.
+     * @param cacheConfig How the Customer and its PaymentMethods are cached.
+     *                    See {@link CustomerCacheConfig}.
      */
     public static void initCustomerSession(@NonNull Context context,
                                            @NonNull EphemeralKeyProvider ephemeralKeyProvider,
                                            @Nullable String stripeAccountId,
-                                           boolean shouldPrefetchEphemeralKey) {
+                                           boolean shouldPrefetchEphemeralKey,
+                                           @NonNull CustomerCacheConfig cacheConfig) {
         setInstance(new CustomerSession(context, ephemeralKeyProvider, Stripe.getAppInfo(),
                 PaymentConfiguration.getInstance().getPublishableKey(),
-                stripeAccountId, shouldPrefetchEphemeralKey));
+                stripeAccountId, shouldPrefetchEphemeralKey, cacheConfig));
+    }
+
+    /**
+     * See {@link #initCustomerSession(Context, EphemeralKeyProvider, String, boolean,
+     * CustomerCacheConfig)}
+     */
+    public static void initCustomerSession(@NonNull Context context,
+                                           @NonNull EphemeralKeyProvider ephemeralKeyProvider,
+                                           @Nullable String stripeAccountId,
+                                           boolean shouldPrefetchEphemeralKey) {
+        initCustomerSession(context, ephemeralKeyProvider, stripeAccountId,
+                shouldPrefetchEphemeralKey, CustomerCacheConfig.DEFAULT);
     }
 
     /**
@@ -196,22 +234,29 @@ public class CustomerSession {
      * Calls to {@link CustomerSession#getInstance()} will throw an {@link IllegalStateException}
      * after this call, until the user calls
      * {@link CustomerSession#initCustomerSession(Context, EphemeralKeyProvider)} again.
+     *
+     * Anything cached for the Customer, in memory or on disk, is removed.
      */
     public static void endCustomerSession() {
+        if (mInstance != null) {
+            mInstance.mCustomerCache.clear();
+        }
         clearInstance();
     }
 
     @VisibleForTesting
     static void clearInstance() {
         if (mInstance != null) {
-            mInstance.mCustomerListeners.clear();
+            mInstance.mCustomerListeners.cancelAll();
+            mInstance.mEphemeralKeyManager.cancel();
+            mInstance.mThreadPoolExecutor.shutdownNow();
         }
-        cancelCallbacks();
         setInstance(null);
     }
 
     /**
-     * End any async calls in process and will not invoke callback listeners.
+     * Stop invoking the callback listeners of any async calls in process. Calls that have
+     * already been sent to Stripe still complete, but their results are discarded.
      * It will not clear the singleton instance of a {@link CustomerSession} so it can be
      * safely used when a view is being removed/destroyed to avoid null pointer exceptions
      * due to async operation delay.
@@ -223,15 +268,17 @@ public class CustomerSession {
         if (mInstance == null) {
             return;
         }
-        mInstance.mThreadPoolExecutor.shutdownNow();
+        mInstance.mCustomerListeners.cancelAll();
     }
 
     private CustomerSession(@NonNull Context context, @NonNull EphemeralKeyProvider keyProvider,
                             @Nullable AppInfo appInfo, @NonNull String publishableKey,
-                            @Nullable String stripeAccountId, boolean shouldPrefetchEphemeralKey) {
+                            @Nullable String stripeAccountId, boolean shouldPrefetchEphemeralKey,
+                            @NonNull CustomerCacheConfig cacheConfig) {
         this(context, keyProvider, null, createThreadPoolExecutor(),
-                new StripeApiRepository(context, appInfo), publishableKey, stripeAccountId,
-                shouldPrefetchEphemeralKey);
+                StripeClientCore.getInstance(context).getStripeRepository(appInfo),
+                publishableKey, stripeAccountId, shouldPrefetchEphemeralKey, cacheConfig,
+                cacheConfig.isPersistent ? EncryptedCacheStore.create(context) : null);
     }
 
     @VisibleForTesting
@@ -244,6 +291,23 @@ public class CustomerSession {
             @NonNull String publishableKey,
             @Nullable String stripeAccountId,
             boolean shouldPrefetchEphemeralKey) {
+        this(context, keyProvider, proxyNowCalendar, threadPoolExecutor, stripeRepository,
+                publishableKey, stripeAccountId, shouldPrefetchEphemeralKey,
+                CustomerCacheConfig.DEFAULT, null);
+    }
+
+    @VisibleForTesting
+    CustomerSession(
+            @NonNull Context context,
+            @NonNull EphemeralKeyProvider keyProvider,
+            @Nullable Calendar proxyNowCalendar,
+            @NonNull ThreadPoolExecutor threadPoolExecutor,
+            @NonNull StripeRepository stripeRepository,
+            @NonNull String publishableKey,
+            @Nullable String stripeAccountId,
+            boolean shouldPrefetchEphemeralKey,
+            @NonNull CustomerCacheConfig cacheConfig,
+            @Nullable CustomerCache.Store cacheStore) {
         mOperationIdFactory = new OperationIdFactory();
         mLocalBroadcastManager = LocalBroadcastManager.getInstance(context);
         mThreadPoolExecutor = threadPoolExecutor;
@@ -252,13 +316,17 @@ public class CustomerSession {
         mStripeRepository = stripeRepository;
         mStripeAccountId = stripeAccountId;
         mPublishableKey = publishableKey;
+        mCustomerCache = new CustomerCache(cacheConfig, cacheStore, new Supplier<Long>() {
+            @NonNull
+            @Override
+            public Long get() {
+                return getCalendarInstance().getTimeInMillis();
+            }
+        });
         mUiThreadHandler = new CustomerSessionHandler(new CustomerSessionHandler.Listener() {
             @Override
             public void onCustomerRetrieved(@Nullable Customer customer,
                                             @NonNull String operationId) {
-                mCustomer = customer;
-                mCustomerCacheTime = getCalendarInstance().getTimeInMillis();
-
                 final CustomerRetrievalListener listener =
                         getCustomerRetrievalListener(operationId);
                 if (listener != null && customer != null) {
@@ -295,9 +363,22 @@ public class CustomerSession {
                 }
             }
 
+            @Override
+            public void onPaymentMethodsPageRetrieved(@NonNull PaymentMethodsPage page,
+                                                      @NonNull String operationId) {
+                // keep the listener registered until the last page is delivered
+                final RetrievalListener retrievalListener = page.hasMore ?
+                        mCustomerListeners.get(operationId) :
+                        mCustomerListeners.remove(operationId);
+                final PaymentMethodsPageRetrievalListener listener =
+                        (PaymentMethodsPageRetrievalListener) retrievalListener;
+                if (listener != null) {
+                    listener.onPaymentMethodsPageRetrieved(page.paymentMethods, page.hasMore);
+                }
+            }
+
             @Override
             public void onCustomerShippingInfoSaved(@Nullable Customer customer) {
-                mCustomer = customer;
                 mLocalBroadcastManager
                         .sendBroadcast(new Intent(EVENT_SHIPPING_INFO_SAVED));
             }
@@ -307,6 +388,19 @@ public class CustomerSession {
                 handleRetrievalError(operationId, exception);
             }
         });
+        mCustomerListeners = new OperationRegistry<>(mUiThreadHandler, OPERATION_TIMEOUT_MILLIS,
+                new OperationRegistry.TimeoutListener<RetrievalListener>() {
+                    @Override
+                    public void onTimeout(@NonNull String operationId,
+                                          @NonNull RetrievalListener listener) {
+                        // an operation that still waits for a key is not started, and one
+                        // that is running stops before its next retry
+                        mEphemeralKeyManager.cancelOperation(operationId);
+                        cancelOperationTask(operationId);
+                        listener.onError(HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+                                "The operation timed out", null);
+                    }
+                });
         mEphemeralKeyManager = new EphemeralKeyManager<>(
                 keyProvider,
                 createKeyListener(),
@@ -314,7 +408,8 @@ public class CustomerSession {
                 proxyNowCalendar,
                 mOperationIdFactory,
                 new CustomerEphemeralKey.Factory(),
-                shouldPrefetchEphemeralKey
+                shouldPrefetchEphemeralKey,
+                mUiThreadHandler
         );
     }
 
@@ -326,22 +421,28 @@ public class CustomerSession {
     }
 
     /**
-     * Retrieve the current {@link Customer}. If the cached value at {@link #mCustomer} is not
-     * stale, this returns immediately with the cache. If not, it fetches a new value and returns
-     * that to the listener.
+     * Retrieve the current {@link Customer}. If the cached value has not expired, this returns
+     * immediately with the cache. If it is stale but within
+     * {@link CustomerCacheConfig.Builder#setStaleWhileRevalidateMillis(long)}, this returns
+     * immediately with the cache and refreshes it in the background. If not, it fetches a new
+     * value and returns that to the listener.
      *
      * @param listener a {@link CustomerRetrievalListener} to invoke with the result of getting the
      *                 customer, either from the cache or from the server
      */
     public void retrieveCurrentCustomer(@NonNull CustomerRetrievalListener listener) {
-        final Customer cachedCustomer = getCachedCustomer();
-        if (cachedCustomer != null) {
-            listener.onCustomerRetrieved(cachedCustomer);
+        final String customerId = mCustomerId;
+        final CustomerCache.Entry<Customer> cachedEntry =
+                customerId != null ? mCustomerCache.getCustomer(customerId) : null;
+        if (cachedEntry != null) {
+            listener.onCustomerRetrieved(cachedEntry.value);
+            if (!mCustomerCache.isFresh(cachedEntry)) {
+                mEphemeralKeyManager.retrieveEphemeralKey(mOperationIdFactory.create(),
+                        ACTION_REFRESH_CUSTOMER, new HashMap<String, Object>());
+            }
         } else {
-            mCustomer = null;
-
             final String operationId = mOperationIdFactory.create();
-            mCustomerListeners.put(operationId, listener);
+            mCustomerListeners.register(operationId, listener);
             mEphemeralKeyManager.retrieveEphemeralKey(operationId, null, null);
         }
     }
@@ -353,26 +454,33 @@ public class CustomerSession {
      *                 the customer from the server
      */
     public void updateCurrentCustomer(@NonNull CustomerRetrievalListener listener) {
-        mCustomer = null;
-
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, null, null);
     }
 
     /**
      * Gets a cached customer, or {@code null} if the current customer has expired.
      *
-     * @return the current value of {@link #mCustomer}, or {@code null} if the customer object is
+     * @return the cached {@link Customer}, or {@code null} if the customer object is
      *         expired.
      */
     @Nullable
     public Customer getCachedCustomer() {
-        if (canUseCachedCustomer()) {
-            return mCustomer;
-        } else {
-            return null;
-        }
+        final String customerId = mCustomerId;
+        final CustomerCache.Entry<Customer> cachedEntry =
+                customerId != null ? mCustomerCache.getCustomer(customerId) : null;
+        return cachedEntry != null && mCustomerCache.isFresh(cachedEntry) ?
+                cachedEntry.value : null;
+    }
+
+    /**
+     * @return a snapshot of how often the cache has been used, and how old the cached values
+     *         for the current customer are
+     */
+    @NonNull
+    public CustomerCacheStats getCacheStats() {
+        return mCustomerCache.getStats(mCustomerId);
     }
 
     /**
@@ -391,7 +499,7 @@ public class CustomerSession {
         arguments.put(KEY_SOURCE_TYPE, sourceType);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, ACTION_ADD_SOURCE, arguments);
     }
 
@@ -409,7 +517,7 @@ public class CustomerSession {
         arguments.put(KEY_SOURCE, sourceId);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, ACTION_DELETE_SOURCE, arguments);
     }
 
@@ -427,7 +535,7 @@ public class CustomerSession {
         arguments.put(KEY_PAYMENT_METHOD, paymentMethodId);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager
                 .retrieveEphemeralKey(operationId, ACTION_ATTACH_PAYMENT_METHOD, arguments);
     }
@@ -446,7 +554,7 @@ public class CustomerSession {
         arguments.put(KEY_PAYMENT_METHOD, paymentMethodId);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager
                 .retrieveEphemeralKey(operationId, ACTION_DETACH_PAYMENT_METHOD, arguments);
     }
@@ -455,6 +563,9 @@ public class CustomerSession {
      * Retrieves all of the customer's PaymentMethod objects,
      * filtered by a {@link PaymentMethod.Type}.
      *
+     * If a list cached by {@link #getPaymentMethods(PaymentMethod.Type, int,
+     * PaymentMethodsPageRetrievalListener)} is available, it is returned instead.
+     *
      * @param paymentMethodType the {@link PaymentMethod.Type} to filter by
      * @param listener          a {@link PaymentMethodRetrievalListener} called when the API call
      *                          completes with a list of {@link PaymentMethod} objects
@@ -465,11 +576,38 @@ public class CustomerSession {
         arguments.put(KEY_PAYMENT_METHOD_TYPE, paymentMethodType.code);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager
                 .retrieveEphemeralKey(operationId, ACTION_GET_PAYMENT_METHODS, arguments);
     }
 
+    /**
+     * Retrieves all of the customer's PaymentMethod objects, filtered by a
+     * {@link PaymentMethod.Type}, one page at a time. Each page is delivered to {@code listener}
+     * as soon as it is received, so the first page can be shown while the rest are loading.
+     *
+     * Once every page has been received, the complete list is cached. A cached list is
+     * delivered as a single page.
+     *
+     * @param paymentMethodType the {@link PaymentMethod.Type} to filter by
+     * @param pageSize          the maximum number of {@link PaymentMethod} objects per page,
+     *                          between 1 and 100
+     * @param listener          a {@link PaymentMethodsPageRetrievalListener} called once for each
+     *                          page, in order
+     */
+    public void getPaymentMethods(@NonNull PaymentMethod.Type paymentMethodType,
+                                  @IntRange(from = 1, to = 100) int pageSize,
+                                  @NonNull PaymentMethodsPageRetrievalListener listener) {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put(KEY_PAYMENT_METHOD_TYPE, paymentMethodType.code);
+        arguments.put(KEY_PAGE_SIZE, pageSize);
+
+        final String operationId = mOperationIdFactory.create();
+        mCustomerListeners.register(operationId, listener);
+        mEphemeralKeyManager
+                .retrieveEphemeralKey(operationId, ACTION_GET_PAYMENT_METHODS_PAGES, arguments);
+    }
+
     /**
      * Set the shipping information on the current customer.
      *
@@ -499,7 +637,7 @@ public class CustomerSession {
         arguments.put(KEY_SOURCE_TYPE, sourceType);
 
         final String operationId = mOperationIdFactory.create();
-        mCustomerListeners.put(operationId, listener);
+        mCustomerListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, ACTION_SET_DEFAULT_SOURCE,
                 arguments);
     }
@@ -511,12 +649,20 @@ public class CustomerSession {
     @Nullable
     @VisibleForTesting
     Customer getCustomer() {
-        return mCustomer;
+        final CustomerCache.Entry<Customer> cachedEntry = peekCustomerEntry();
+        return cachedEntry != null ? cachedEntry.value : null;
     }
 
     @VisibleForTesting
     long getCustomerCacheTime() {
-        return mCustomerCacheTime;
+        final CustomerCache.Entry<Customer> cachedEntry = peekCustomerEntry();
+        return cachedEntry != null ? cachedEntry.savedAt : 0L;
+    }
+
+    @Nullable
+    private CustomerCache.Entry<Customer> peekCustomerEntry() {
+        final String customerId = mCustomerId;
+        return customerId != null ? mCustomerCache.peekCustomer(customerId) : null;
     }
 
     @VisibleForTesting
@@ -524,12 +670,6 @@ public class CustomerSession {
         return mProductUsageTokens;
     }
 
-    private boolean canUseCachedCustomer() {
-        final long currentTime = getCalendarInstance().getTimeInMillis();
-        return mCustomer != null &&
-                currentTime - mCustomerCacheTime < CUSTOMER_CACHE_DURATION_MILLISECONDS;
-    }
-
     @NonNull
     private Runnable createAddCustomerSourceRunnable(
             @NonNull final CustomerEphemeralKey key,
@@ -601,11 +741,55 @@ public class CustomerSession {
             @NonNull
             @Override
             public List<PaymentMethod> createMessageObject() throws StripeException {
+                final CustomerCache.Entry<List<PaymentMethod>> cachedEntry =
+                        getCachedPaymentMethods(key, paymentMethodType);
+                if (cachedEntry != null) {
+                    return cachedEntry.value;
+                }
                 return getCustomerPaymentMethodsWithKey(key, paymentMethodType);
             }
         };
     }
 
+    @NonNull
+    private Runnable createGetPaymentMethodsPagesRunnable(
+            @NonNull final CustomerEphemeralKey key,
+            @NonNull final String paymentMethodType,
+            final int pageSize,
+            @NonNull final String operationId) {
+        return new CustomerSessionRunnable<PaymentMethodsPage>(mUiThreadHandler,
+                mLocalBroadcastManager, MessageCode.PAYMENT_METHODS_PAGE_RETRIEVED, operationId) {
+            @NonNull
+            @Override
+            public PaymentMethodsPage createMessageObject() throws StripeException {
+                final CustomerCache.Entry<List<PaymentMethod>> cachedEntry =
+                        getCachedPaymentMethods(key, paymentMethodType);
+                if (cachedEntry != null) {
+                    return new PaymentMethodsPage(cachedEntry.value, false);
+                }
+
+                final List<PaymentMethod> paymentMethods = new ArrayList<>();
+                PaymentMethodsPage page = getCustomerPaymentMethodsPageWithKey(key,
+                        paymentMethodType, pageSize, null);
+                paymentMethods.addAll(page.paymentMethods);
+                // deliver every page but the last as soon as it arrives; the last page is
+                // delivered by CustomerSessionRunnable#run()
+                while (page.hasMore && !Thread.currentThread().isInterrupted()) {
+                    sendMessage(page);
+                    page = getCustomerPaymentMethodsPageWithKey(key, paymentMethodType,
+                            pageSize, page.getLastId());
+                    paymentMethods.addAll(page.paymentMethods);
+                }
+
+                if (!page.hasMore) {
+                    mCustomerCache.putPaymentMethods(key.getCustomerId(), paymentMethodType,
+                            paymentMethods);
+                }
+                return page;
+            }
+        };
+    }
+
     @NonNull
     private Runnable createSetCustomerSourceDefaultRunnable(
             @NonNull final CustomerEphemeralKey key,
@@ -650,10 +834,102 @@ public class CustomerSession {
         };
     }
 
+    /**
+     * Refreshes the cached {@link Customer} without notifying any listener. Failures are
+     * ignored; the stale value is used until it expires.
+     */
+    @NonNull
+    private Runnable createRefreshCustomerRunnable(@NonNull final CustomerEphemeralKey key) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    retrieveCustomerWithKey(key);
+                } catch (StripeException ignored) {
+                }
+            }
+        };
+    }
+
+    /**
+     * Refreshes a cached list of {@link PaymentMethod}s without notifying any listener.
+     * Failures are ignored; the stale value is used until it expires.
+     */
+    @NonNull
+    private Runnable createRefreshPaymentMethodsRunnable(
+            @NonNull final CustomerEphemeralKey key,
+            @NonNull final String paymentMethodType) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                final List<PaymentMethod> paymentMethods = new ArrayList<>();
+                String startingAfter = null;
+                try {
+                    PaymentMethodsPage page;
+                    do {
+                        page = getCustomerPaymentMethodsPageWithKey(key, paymentMethodType,
+                                REFRESH_PAGE_SIZE, startingAfter);
+                        paymentMethods.addAll(page.paymentMethods);
+                        startingAfter = page.getLastId();
+                    } while (page.hasMore && !Thread.currentThread().isInterrupted());
+
+                    if (!page.hasMore) {
+                        mCustomerCache.putPaymentMethods(key.getCustomerId(), paymentMethodType,
+                                paymentMethods);
+                    }
+                } catch (StripeException ignored) {
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the cached list of {@link PaymentMethod}s, or {@code null} if there is none. If the
+     *         list is stale, it is refreshed in the background.
+     */
+    @Nullable
+    private CustomerCache.Entry<List<PaymentMethod>> getCachedPaymentMethods(
+            @NonNull CustomerEphemeralKey key,
+            @NonNull String paymentMethodType) {
+        final CustomerCache.Entry<List<PaymentMethod>> cachedEntry =
+                mCustomerCache.getPaymentMethods(key.getCustomerId(), paymentMethodType);
+        if (cachedEntry != null && !mCustomerCache.isFresh(cachedEntry)) {
+            executeRunnable(createRefreshPaymentMethodsRunnable(key, paymentMethodType));
+        }
+        return cachedEntry;
+    }
+
     private void executeRunnable(@NonNull Runnable runnable) {
         mThreadPoolExecutor.execute(runnable);
     }
 
+    /**
+     * Execute the task of an operation, so that {@link #cancelOperationTask(String)} can cancel
+     * it until it completes.
+     */
+    private void executeOperationRunnable(@NonNull final String operationId,
+                                          @NonNull Runnable runnable) {
+        final FutureTask<Void> task = new FutureTask<Void>(runnable, null) {
+            @Override
+            protected void done() {
+                mOperationTasks.remove(operationId, this);
+            }
+        };
+        mOperationTasks.put(operationId, task);
+        executeRunnable(task);
+    }
+
+    /**
+     * Cancel the task of an operation. A queued task never runs, and a running one is
+     * interrupted, which stops {@link RetryingApiRequestExecutor} from retrying its request.
+     */
+    private void cancelOperationTask(@NonNull String operationId) {
+        final Future<?> task = mOperationTasks.remove(operationId);
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+
     @NonNull
     private EphemeralKeyManager.KeyManagerListener<CustomerEphemeralKey> createKeyListener() {
         return new EphemeralKeyManager.KeyManagerListener<CustomerEphemeralKey>() {
@@ -663,8 +939,14 @@ public class CustomerSession {
                     @NonNull String operationId,
                     @Nullable String actionString,
                     @Nullable Map<String, Object> arguments) {
+                mCustomerId = ephemeralKey.getCustomerId();
+
                 if (actionString == null) {
-                    executeRunnable(createUpdateCustomerRunnable(ephemeralKey, operationId));
+                    executeOperationRunnable(operationId,
+                            createUpdateCustomerRunnable(ephemeralKey, operationId));
+                    return;
+                } else if (ACTION_REFRESH_CUSTOMER.equals(actionString)) {
+                    executeRunnable(createRefreshCustomerRunnable(ephemeralKey));
                     return;
                 }
 
@@ -705,6 +987,12 @@ public class CustomerSession {
                             ephemeralKey,
                             (String) Objects.requireNonNull(arguments.get(KEY_PAYMENT_METHOD_TYPE)),
                             operationId);
+                } else if (ACTION_GET_PAYMENT_METHODS_PAGES.equals(actionString)) {
+                    runnable = createGetPaymentMethodsPagesRunnable(
+                            ephemeralKey,
+                            (String) Objects.requireNonNull(arguments.get(KEY_PAYMENT_METHOD_TYPE)),
+                            (Integer) Objects.requireNonNull(arguments.get(KEY_PAGE_SIZE)),
+                            operationId);
                 } else if (ACTION_SET_DEFAULT_SOURCE.equals(actionString) &&
                         arguments.containsKey(KEY_SOURCE) &&
                         arguments.containsKey(KEY_SOURCE_TYPE)) {
@@ -725,7 +1013,7 @@ public class CustomerSession {
                 }
 
                 if (runnable != null) {
-                    executeRunnable(runnable);
+                    executeOperationRunnable(operationId, runnable);
                     resetUsageTokens();
                 }
             }
@@ -774,7 +1062,7 @@ public class CustomerSession {
             @NonNull CustomerEphemeralKey key,
             @NonNull String sourceId,
             @NonNull @Source.SourceType String sourceType) throws StripeException {
-        return mStripeRepository.addCustomerSource(
+        final Source source = mStripeRepository.addCustomerSource(
                 key.getCustomerId(),
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
@@ -782,44 +1070,52 @@ public class CustomerSession {
                 sourceType,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
         );
+        mCustomerCache.invalidateCustomer(key.getCustomerId());
+        return source;
     }
 
     @Nullable
     private Source deleteCustomerSourceWithKey(
             @NonNull CustomerEphemeralKey key,
             @NonNull String sourceId) throws StripeException {
-        return mStripeRepository.deleteCustomerSource(
+        final Source source = mStripeRepository.deleteCustomerSource(
                 key.getCustomerId(),
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
                 sourceId,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
         );
+        mCustomerCache.invalidateCustomer(key.getCustomerId());
+        return source;
     }
 
     @Nullable
     private PaymentMethod attachCustomerPaymentMethodWithKey(
             @NonNull CustomerEphemeralKey key,
             @NonNull String paymentMethodId) throws StripeException {
-        return mStripeRepository.attachPaymentMethod(
+        final PaymentMethod paymentMethod = mStripeRepository.attachPaymentMethod(
                 key.getCustomerId(),
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
                 paymentMethodId,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
         );
+        mCustomerCache.invalidatePaymentMethods(key.getCustomerId());
+        return paymentMethod;
     }
 
     @Nullable
     private PaymentMethod detachCustomerPaymentMethodWithKey(
             @NonNull CustomerEphemeralKey key,
             @NonNull String paymentMethodId) throws StripeException {
-        return mStripeRepository.detachPaymentMethod(
+        final PaymentMethod paymentMethod = mStripeRepository.detachPaymentMethod(
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
                 paymentMethodId,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
         );
+        mCustomerCache.invalidatePaymentMethods(key.getCustomerId());
+        return paymentMethod;
     }
 
     @NonNull
@@ -835,17 +1131,34 @@ public class CustomerSession {
         );
     }
 
+    @NonNull
+    private PaymentMethodsPage getCustomerPaymentMethodsPageWithKey(
+            @NonNull CustomerEphemeralKey key,
+            @NonNull String paymentMethodType,
+            int pageSize,
+            @Nullable String startingAfter) throws StripeException {
+        return mStripeRepository.getPaymentMethodsPage(
+                key.getCustomerId(),
+                paymentMethodType,
+                pageSize,
+                startingAfter,
+                mPublishableKey,
+                new ArrayList<>(mProductUsageTokens),
+                ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
+        );
+    }
+
     @Nullable
     private Customer setCustomerShippingInfoWithKey(
             @NonNull CustomerEphemeralKey key,
             @NonNull ShippingInformation shippingInformation) throws StripeException {
-        return mStripeRepository.setCustomerShippingInfo(
+        return cacheCustomer(key, mStripeRepository.setCustomerShippingInfo(
                 key.getCustomerId(),
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
                 shippingInformation,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
-        );
+        ));
     }
 
     @Nullable
@@ -853,14 +1166,14 @@ public class CustomerSession {
             @NonNull CustomerEphemeralKey key,
             @NonNull String sourceId,
             @NonNull @Source.SourceType String sourceType) throws StripeException {
-        return mStripeRepository.setDefaultCustomerSource(
+        return cacheCustomer(key, mStripeRepository.setDefaultCustomerSource(
                 key.getCustomerId(),
                 mPublishableKey,
                 new ArrayList<>(mProductUsageTokens),
                 sourceId,
                 sourceType,
                 ApiRequest.Options.create(key.getSecret(), mStripeAccountId)
-        );
+        ));
     }
 
     /**
@@ -875,8 +1188,22 @@ public class CustomerSession {
     @Nullable
     private Customer retrieveCustomerWithKey(@NonNull CustomerEphemeralKey key)
             throws StripeException {
-        return mStripeRepository.retrieveCustomer(key.getCustomerId(),
-                ApiRequest.Options.create(key.getSecret(), mStripeAccountId));
+        return cacheCustomer(key, mStripeRepository.retrieveCustomer(key.getCustomerId(),
+                ApiRequest.Options.create(key.getSecret(), mStripeAccountId)));
+    }
+
+    /**
+     * Replaces the cached {@link Customer} with the latest value returned by the API.
+     */
+    @Nullable
+    private Customer cacheCustomer(@NonNull CustomerEphemeralKey key,
+                                   @Nullable Customer customer) {
+        if (customer != null) {
+            mCustomerCache.putCustomer(key.getCustomerId(), customer);
+        } else {
+            mCustomerCache.invalidateCustomer(key.getCustomerId());
+        }
+        return customer;
     }
 
     @Nullable
@@ -932,6 +1259,15 @@ public class CustomerSession {
         void onPaymentMethodsRetrieved(@NonNull List<PaymentMethod> paymentMethods);
     }
 
+    public interface PaymentMethodsPageRetrievalListener extends RetrievalListener {
+        /**
+         * @param paymentMethods the {@link PaymentMethod} objects in the page
+         * @param hasMore        {@code true} if another page will be delivered
+         */
+        void onPaymentMethodsPageRetrieved(@NonNull List<PaymentMethod> paymentMethods,
+                                           boolean hasMore);
+    }
+
     interface RetrievalListener {
         void onError(int errorCode, @NonNull String errorMessage,
                      @Nullable StripeError stripeError);
@@ -955,6 +1291,24 @@ public class CustomerSession {
         }
     }
 
+    /**
+     * Abstract implementation of {@link PaymentMethodsPageRetrievalListener} that holds a
+     * {@link WeakReference} to an <code>Activity</code> object.
+     */
+    public abstract static class ActivityPaymentMethodsPageRetrievalListener<A extends Activity>
+            implements PaymentMethodsPageRetrievalListener {
+        @NonNull private final WeakReference<A> mActivityRef;
+
+        public ActivityPaymentMethodsPageRetrievalListener(@NonNull A activity) {
+            this.mActivityRef = new WeakReference<>(activity);
+        }
+
+        @Nullable
+        protected A getActivity() {
+            return mActivityRef.get();
+        }
+    }
+
     /**
      * Abstract implementation of {@link SourceRetrievalListener} that holds a
      * {@link WeakReference} to an <code>Activity</code> object.
@@ -1018,12 +1372,16 @@ public class CustomerSession {
             try {
                 sendMessage(createMessageObject());
             } catch (StripeException stripeEx) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // the operation was cancelled, and its listener already notified
+                    return;
+                }
                 sendErrorMessage(stripeEx);
                 sendErrorIntent(stripeEx);
             }
         }
 
-        private void sendMessage(@Nullable T messageObject) {
+        final void sendMessage(@Nullable T messageObject) {
             mUiThreadHandler.sendMessage(mUiThreadHandler.obtainMessage(mMessageCode,
                     new MessageData<>(mOperationId, messageObject)));
         }
@@ -1093,6 +1451,11 @@ public class CustomerSession {
                             Objects.requireNonNull((List<PaymentMethod>) obj), operationId);
                     break;
                 }
+                case MessageCode.PAYMENT_METHODS_PAGE_RETRIEVED: {
+                    mListener.onPaymentMethodsPageRetrieved(
+                            Objects.requireNonNull((PaymentMethodsPage) obj), operationId);
+                    break;
+                }
                 case MessageCode.ERROR: {
                     if (obj instanceof StripeException) {
                         mListener.onError((StripeException) obj, operationId);
@@ -1116,6 +1479,9 @@ public class CustomerSession {
             void onPaymentMethodsRetrieved(@NonNull List<PaymentMethod> paymentMethods,
                                            @NonNull String operationId);
 
+            void onPaymentMethodsPageRetrieved(@NonNull PaymentMethodsPage page,
+                                               @NonNull String operationId);
+
             void onCustomerShippingInfoSaved(@Nullable Customer customer);
 
             void onError(@NonNull StripeException exception, @NonNull String operationId);
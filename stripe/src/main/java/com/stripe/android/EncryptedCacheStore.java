@@ -0,0 +1,131 @@
+package com.stripe.android;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Base64;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * A {@link CustomerCache.Store} backed by {@link SharedPreferences}. Values are encrypted with
+ * AES-GCM using a key that is generated in, and never leaves, the Android Keystore.
+ *
+ * The store is best-effort: a value that cannot be encrypted is not written, and a value that
+ * cannot be decrypted is deleted and treated as missing.
+ */
+@TargetApi(Build.VERSION_CODES.M)
+final class EncryptedCacheStore implements CustomerCache.Store {
+    private static final String PREF_FILE = "StripeCustomerCache";
+    private static final String KEYSTORE_PROVIDER = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "com.stripe.android.CustomerCache";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+
+    @NonNull private final SharedPreferences mPrefs;
+
+    /**
+     * @return an {@link EncryptedCacheStore}, or {@code null} if the device does not support
+     *         Android Keystore-backed AES keys
+     */
+    @Nullable
+    static CustomerCache.Store create(@NonNull Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return null;
+        }
+        return new EncryptedCacheStore(
+                context.getApplicationContext().getSharedPreferences(PREF_FILE,
+                        Context.MODE_PRIVATE));
+    }
+
+    private EncryptedCacheStore(@NonNull SharedPreferences prefs) {
+        mPrefs = prefs;
+    }
+
+    @Nullable
+    @Override
+    public byte[] read(@NonNull String key) {
+        final String encodedValue = mPrefs.getString(key, null);
+        if (encodedValue == null) {
+            return null;
+        }
+
+        try {
+            final byte[] encryptedValue = Base64.decode(encodedValue, Base64.NO_WRAP);
+            if (encryptedValue.length <= IV_LENGTH) {
+                delete(key);
+                return null;
+            }
+
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, getOrCreateKey(),
+                    new GCMParameterSpec(TAG_LENGTH_BITS, encryptedValue, 0, IV_LENGTH));
+            return cipher.doFinal(encryptedValue, IV_LENGTH, encryptedValue.length - IV_LENGTH);
+        } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+            delete(key);
+            return null;
+        }
+    }
+
+    @Override
+    public void write(@NonNull String key, @NonNull byte[] value) {
+        try {
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, getOrCreateKey());
+            final byte[] iv = cipher.getIV();
+            final byte[] ciphertext = cipher.doFinal(value);
+
+            final byte[] encryptedValue = new byte[iv.length + ciphertext.length];
+            System.arraycopy(iv, 0, encryptedValue, 0, iv.length);
+            System.arraycopy(ciphertext, 0, encryptedValue, iv.length, ciphertext.length);
+            mPrefs.edit()
+                    .putString(key, Base64.encodeToString(encryptedValue, Base64.NO_WRAP))
+                    .apply();
+        } catch (GeneralSecurityException | IOException e) {
+            // don't leave a previous value behind that is now out of date
+            delete(key);
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        mPrefs.edit().remove(key).apply();
+    }
+
+    @Override
+    public void clear() {
+        mPrefs.edit().clear().apply();
+    }
+
+    @NonNull
+    private static Key getOrCreateKey() throws GeneralSecurityException, IOException {
+        final KeyStore keyStore = KeyStore.getInstance(KEYSTORE_PROVIDER);
+        keyStore.load(null);
+        final Key key = keyStore.getKey(KEY_ALIAS, null);
+        if (key != null) {
+            return key;
+        }
+
+        final KeyGenerator keyGenerator =
+                KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE_PROVIDER);
+        keyGenerator.init(new KeyGenParameterSpec.Builder(KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .build());
+        return keyGenerator.generateKey();
+    }
+}
@@ -1,5 +1,6 @@
 package com.stripe.android;
 
+import android.os.Handler;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -7,11 +8,27 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Provides a valid {@link EphemeralKey} to operations, requesting a new key from the
+ * {@link EphemeralKeyProvider} when the current key is missing or about to expire.
+ *
+ * At most one key request is outstanding at a time. Operations that need a key while a request
+ * is in flight wait for that request and are all resumed when it completes. If a
+ * renewal {@link Handler} is provided, a key that has been used is also renewed in the
+ * background shortly before it needs to be refreshed, so that operations don't wait on the
+ * {@link EphemeralKeyProvider} round trip.
+ */
 class EphemeralKeyManager<TEphemeralKey extends EphemeralKey> {
+    // A key request that hasn't completed within this time is assumed to be lost, and the next
+    // operation that needs a key starts a new one
+    static final long KEY_REQUEST_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
 
     @NonNull private final EphemeralKeyProvider mEphemeralKeyProvider;
     @Nullable private final Calendar mOverrideCalendar;
@@ -19,8 +36,20 @@ class EphemeralKeyManager<TEphemeralKey extends EphemeralKey> {
     private final long mTimeBufferInSeconds;
     @NonNull private final EphemeralKey.Factory<TEphemeralKey> mFactory;
     @NonNull private final String mApiVersion;
+    @Nullable private final Handler mRenewalHandler;
+    @NonNull private final Runnable mRenewalRunnable = new Runnable() {
+        @Override
+        public void run() {
+            renewKey();
+        }
+    };
 
     @Nullable private TEphemeralKey mEphemeralKey;
+    @Nullable private KeyRequest mKeyRequest;
+    @NonNull private final List<PendingOperation> mPendingOperations = new ArrayList<>();
+    // Whether an operation has used the current key. Unused keys are not renewed in the
+    // background, so that an idle session doesn't keep calling the EphemeralKeyProvider.
+    private boolean mIsKeyUsed;
 
     EphemeralKeyManager(
             @NonNull EphemeralKeyProvider ephemeralKeyProvider,
@@ -30,70 +59,226 @@ class EphemeralKeyManager<TEphemeralKey extends EphemeralKey> {
             @NonNull OperationIdFactory operationIdFactory,
             @NonNull EphemeralKey.Factory<TEphemeralKey> factory,
             boolean shouldPrefetchEphemeralKey) {
+        this(ephemeralKeyProvider, keyManagerListener, timeBufferInSeconds, overrideCalendar,
+                operationIdFactory, factory, shouldPrefetchEphemeralKey, null);
+    }
+
+    /**
+     * @param renewalHandler the {@link Handler} that background key renewals are scheduled on,
+     *                       or {@code null} to only request keys when an operation needs one
+     */
+    EphemeralKeyManager(
+            @NonNull EphemeralKeyProvider ephemeralKeyProvider,
+            @NonNull KeyManagerListener<TEphemeralKey> keyManagerListener,
+            long timeBufferInSeconds,
+            @Nullable Calendar overrideCalendar,
+            @NonNull OperationIdFactory operationIdFactory,
+            @NonNull EphemeralKey.Factory<TEphemeralKey> factory,
+            boolean shouldPrefetchEphemeralKey,
+            @Nullable Handler renewalHandler) {
         mFactory = factory;
         mEphemeralKeyProvider = ephemeralKeyProvider;
         mListener = keyManagerListener;
         mTimeBufferInSeconds = timeBufferInSeconds;
         mOverrideCalendar = overrideCalendar;
         mApiVersion = ApiVersion.get().code;
+        mRenewalHandler = renewalHandler;
 
         if (shouldPrefetchEphemeralKey) {
-            retrieveEphemeralKey(operationIdFactory.create(), null, null);
+            retrieveEphemeralKey(operationIdFactory.create(), null, null, false);
         }
     }
 
     void retrieveEphemeralKey(@NonNull String operationId,
                               @Nullable String actionString,
                               @Nullable Map<String, Object> arguments) {
-        if (shouldRefreshKey(
-                mEphemeralKey,
-                mTimeBufferInSeconds,
-                mOverrideCalendar)) {
-            mEphemeralKeyProvider.createEphemeralKey(mApiVersion,
-                    new ClientKeyUpdateListener(this, operationId, actionString, arguments));
-        } else {
-            mListener.onKeyUpdate(mEphemeralKey, operationId, actionString, arguments);
+        retrieveEphemeralKey(operationId, actionString, arguments, true);
+    }
+
+    /**
+     * @param isKeyUse {@code false} if the key is only being prefetched, in which case it
+     *                 doesn't qualify for background renewal
+     */
+    private void retrieveEphemeralKey(@NonNull String operationId,
+                                      @Nullable String actionString,
+                                      @Nullable Map<String, Object> arguments,
+                                      boolean isKeyUse) {
+        final TEphemeralKey ephemeralKey;
+        final KeyRequest keyRequest;
+        synchronized (this) {
+            if (shouldRefreshKey(mEphemeralKey, mTimeBufferInSeconds, mOverrideCalendar)) {
+                ephemeralKey = null;
+                mPendingOperations.add(
+                        new PendingOperation(operationId, actionString, arguments, isKeyUse));
+                keyRequest = startKeyRequest();
+            } else {
+                ephemeralKey = mEphemeralKey;
+                mIsKeyUsed |= isKeyUse;
+                keyRequest = null;
+            }
+        }
+
+        if (ephemeralKey != null) {
+            mListener.onKeyUpdate(ephemeralKey, operationId, actionString, arguments);
+        } else if (keyRequest != null) {
+            mEphemeralKeyProvider.createEphemeralKey(mApiVersion, keyRequest);
         }
     }
 
+    /**
+     * @return a new {@link KeyRequest} to send to the {@link EphemeralKeyProvider}, or
+     *         {@code null} if one is already in flight
+     */
+    @Nullable
+    private KeyRequest startKeyRequest() {
+        final long now = getNow().getTimeInMillis();
+        if (mKeyRequest != null && now - mKeyRequest.mStartTime < KEY_REQUEST_TIMEOUT_MILLIS) {
+            return null;
+        }
+
+        // a lost request is superseded, and its callback ignored if it ever arrives
+        mKeyRequest = new KeyRequest(this, now);
+        return mKeyRequest;
+    }
+
+    private void renewKey() {
+        final KeyRequest keyRequest;
+        synchronized (this) {
+            if (!mIsKeyUsed) {
+                return;
+            }
+            keyRequest = startKeyRequest();
+        }
+
+        if (keyRequest != null) {
+            mEphemeralKeyProvider.createEphemeralKey(mApiVersion, keyRequest);
+        }
+    }
+
+    /**
+     * Forget an operation that waits for a key, so that it isn't run when the key arrives,
+     * e.g. because it has timed out.
+     */
+    synchronized void cancelOperation(@NonNull String operationId) {
+        final Iterator<PendingOperation> iterator = mPendingOperations.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mOperationId.equals(operationId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Stop renewing the key in the background and forget the operations that wait for a key,
+     * whose listeners are not invoked. A key request in flight is ignored when it completes.
+     */
+    synchronized void cancel() {
+        if (mRenewalHandler != null) {
+            mRenewalHandler.removeCallbacks(mRenewalRunnable);
+        }
+        mKeyRequest = null;
+        mPendingOperations.clear();
+        mIsKeyUsed = false;
+    }
+
     @SuppressWarnings("checkstyle:IllegalCatch")
-    private void updateKey(
-            @NonNull String operationId,
-            @NonNull String key,
-            @Nullable String actionString,
-            @Nullable Map<String, Object> arguments) {
+    private void updateKey(@NonNull KeyRequest keyRequest, @Nullable String key) {
         // Key is coming from the user, so even if it's @NonNull annotated we
         // want to double check it
         if (key == null) {
-            mListener.onKeyError(operationId,
-                    HttpURLConnection.HTTP_INTERNAL_ERROR,
+            updateKeyError(keyRequest, HttpURLConnection.HTTP_INTERNAL_ERROR,
                     "EphemeralKeyUpdateListener.onKeyUpdate was called with a null value");
             return;
         }
+
+        final TEphemeralKey ephemeralKey;
         try {
-            mEphemeralKey = EphemeralKey.fromJson(new JSONObject(key), mFactory);
-            mListener.onKeyUpdate(mEphemeralKey, operationId, actionString, arguments);
+            ephemeralKey = EphemeralKey.fromJson(new JSONObject(key), mFactory);
         } catch (JSONException e) {
-            mListener.onKeyError(operationId,
-                    HttpURLConnection.HTTP_INTERNAL_ERROR,
+            updateKeyError(keyRequest, HttpURLConnection.HTTP_INTERNAL_ERROR,
                     "EphemeralKeyUpdateListener.onKeyUpdate was passed " +
                             "a value that could not be JSON parsed: ["
                             + e.getLocalizedMessage() + "]. The raw body from Stripe's response" +
                             " should be passed.");
+            return;
         } catch (Exception e) {
-            mListener.onKeyError(operationId,
-                    HttpURLConnection.HTTP_INTERNAL_ERROR,
+            updateKeyError(keyRequest, HttpURLConnection.HTTP_INTERNAL_ERROR,
                     "EphemeralKeyUpdateListener.onKeyUpdate was passed " +
                             "a JSON String that was invalid: ["
                             + e.getLocalizedMessage() + "]. The raw body from Stripe's response" +
                             " should be passed.");
+            return;
+        }
+
+        final List<PendingOperation> pendingOperations;
+        synchronized (this) {
+            if (keyRequest != mKeyRequest) {
+                return;
+            }
+            mKeyRequest = null;
+            mEphemeralKey = ephemeralKey;
+            pendingOperations = drainPendingOperations();
+            mIsKeyUsed = false;
+            for (PendingOperation operation : pendingOperations) {
+                mIsKeyUsed |= operation.mIsKeyUse;
+            }
+            scheduleRenewal(ephemeralKey);
+        }
+
+        for (PendingOperation operation : pendingOperations) {
+            mListener.onKeyUpdate(ephemeralKey, operation.mOperationId, operation.mActionString,
+                    operation.mArguments);
         }
     }
 
-    private void updateKeyError(@NonNull String operationId, int errorCode,
+    private void updateKeyError(@NonNull KeyRequest keyRequest, int errorCode,
                                 @NonNull String errorMessage) {
-        mEphemeralKey = null;
-        mListener.onKeyError(operationId, errorCode, errorMessage);
+        final List<PendingOperation> pendingOperations;
+        synchronized (this) {
+            if (keyRequest != mKeyRequest) {
+                return;
+            }
+            mKeyRequest = null;
+            // a failed background renewal doesn't affect a key that is still valid
+            if (shouldRefreshKey(mEphemeralKey, mTimeBufferInSeconds, mOverrideCalendar)) {
+                mEphemeralKey = null;
+            }
+            pendingOperations = drainPendingOperations();
+        }
+
+        for (PendingOperation operation : pendingOperations) {
+            mListener.onKeyError(operation.mOperationId, errorCode, errorMessage);
+        }
+    }
+
+    @NonNull
+    private List<PendingOperation> drainPendingOperations() {
+        final List<PendingOperation> pendingOperations = new ArrayList<>(mPendingOperations);
+        mPendingOperations.clear();
+        return pendingOperations;
+    }
+
+    /**
+     * Schedule a background renewal one buffer period before the key would have to be
+     * refreshed by {@link #retrieveEphemeralKey(String, String, Map)}.
+     */
+    private void scheduleRenewal(@NonNull TEphemeralKey ephemeralKey) {
+        if (mRenewalHandler == null) {
+            return;
+        }
+
+        mRenewalHandler.removeCallbacks(mRenewalRunnable);
+        final long renewalTimeInMillis = TimeUnit.SECONDS.toMillis(
+                ephemeralKey.getExpires() - 2 * mTimeBufferInSeconds);
+        final long delayInMillis = renewalTimeInMillis - getNow().getTimeInMillis();
+        if (delayInMillis > 0) {
+            mRenewalHandler.postDelayed(mRenewalRunnable, delayInMillis);
+        }
+    }
+
+    @NonNull
+    private Calendar getNow() {
+        return mOverrideCalendar == null ? Calendar.getInstance() : mOverrideCalendar;
     }
 
     static boolean shouldRefreshKey(
@@ -117,32 +302,45 @@ class EphemeralKeyManager<TEphemeralKey extends EphemeralKey> {
         void onKeyError(@NonNull String operationId, int errorCode, @NonNull String errorMessage);
     }
 
-    private static class ClientKeyUpdateListener implements EphemeralKeyUpdateListener {
-
-        @NonNull private final EphemeralKeyManager mEphemeralKeyManager;
+    private static final class PendingOperation {
         @NonNull private final String mOperationId;
         @Nullable private final String mActionString;
         @Nullable private final Map<String, Object> mArguments;
+        private final boolean mIsKeyUse;
 
-        ClientKeyUpdateListener(
-                @NonNull EphemeralKeyManager ephemeralKeyManager,
-                @NonNull String operationId,
-                @Nullable String actionString,
-                @Nullable Map<String, Object> arguments) {
-            mEphemeralKeyManager = ephemeralKeyManager;
+        private PendingOperation(@NonNull String operationId,
+                                 @Nullable String actionString,
+                                 @Nullable Map<String, Object> arguments,
+                                 boolean isKeyUse) {
             mOperationId = operationId;
             mActionString = actionString;
             mArguments = arguments;
+            mIsKeyUse = isKeyUse;
+        }
+    }
+
+    /**
+     * A single call to {@link EphemeralKeyProvider#createEphemeralKey(String,
+     * EphemeralKeyUpdateListener)}, shared by every operation waiting on it.
+     */
+    private static final class KeyRequest implements EphemeralKeyUpdateListener {
+        @NonNull private final EphemeralKeyManager<?> mEphemeralKeyManager;
+        private final long mStartTime;
+
+        private KeyRequest(@NonNull EphemeralKeyManager<?> ephemeralKeyManager,
+                           long startTime) {
+            mEphemeralKeyManager = ephemeralKeyManager;
+            mStartTime = startTime;
         }
 
         @Override
         public void onKeyUpdate(@NonNull String rawKey) {
-            mEphemeralKeyManager.updateKey(mOperationId, rawKey, mActionString, mArguments);
+            mEphemeralKeyManager.updateKey(this, rawKey);
         }
 
         @Override
         public void onKeyUpdateFailure(int responseCode, @NonNull String message) {
-            mEphemeralKeyManager.updateKeyError(mOperationId, responseCode, message);
+            mEphemeralKeyManager.updateKeyError(this, responseCode, message);
         }
     }
 }
@@ -2,11 +2,20 @@ package com.stripe.android;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Creates {@link FingerprintRequest}s. The telemetry payload only describes the device and app,
+ * so it is computed on first use and shared by all requests created by this factory.
+ */
 final class FingerprintRequestFactory implements Factory0<FingerprintRequest> {
 
     @NonNull private final TelemetryClientUtil mTelemetryClientUtil;
+    @Nullable private Map<String, Object> mTelemetryMap;
 
     FingerprintRequestFactory(@NonNull Context context) {
         this(new TelemetryClientUtil(context));
@@ -21,8 +30,17 @@ final class FingerprintRequestFactory implements Factory0<FingerprintRequest> {
     @Override
     public FingerprintRequest create() {
         return new FingerprintRequest(
-                mTelemetryClientUtil.createTelemetryMap(),
+                getTelemetryMap(),
                 mTelemetryClientUtil.getHashedId()
         );
     }
+
+    @NonNull
+    private synchronized Map<String, Object> getTelemetryMap() {
+        if (mTelemetryMap == null) {
+            mTelemetryMap = Collections.unmodifiableMap(
+                    mTelemetryClientUtil.createTelemetryMap());
+        }
+        return mTelemetryMap;
+    }
 }
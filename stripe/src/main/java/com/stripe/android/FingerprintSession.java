@@ -0,0 +1,95 @@
+package com.stripe.android;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits fingerprint requests to at most one per {@link #mWindowMillis}. The fingerprint
+ * describes the device rather than an event, so sending it at the start of every API call
+ * (e.g. confirming and then retrieving a PaymentIntent) only repeats the same payload.
+ */
+final class FingerprintSession {
+    static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    @Nullable private static FingerprintSession sInstance;
+
+    @NonNull private final Factory0<FingerprintRequest> mFingerprintRequestFactory;
+    @NonNull private final Supplier<Long> mClock;
+    private final long mWindowMillis;
+
+    @Nullable private Long mLastRequestTime;
+    private long mSuppressedCount;
+
+    /**
+     * @return the process-wide instance
+     */
+    @NonNull
+    static synchronized FingerprintSession getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new FingerprintSession(
+                    new FingerprintRequestFactory(context.getApplicationContext()));
+        }
+        return sInstance;
+    }
+
+    FingerprintSession(@NonNull Factory0<FingerprintRequest> fingerprintRequestFactory) {
+        this(fingerprintRequestFactory, DEFAULT_WINDOW_MILLIS);
+    }
+
+    FingerprintSession(@NonNull Factory0<FingerprintRequest> fingerprintRequestFactory,
+                       long windowMillis) {
+        this(
+                fingerprintRequestFactory,
+                new Supplier<Long>() {
+                    @NonNull
+                    @Override
+                    public Long get() {
+                        return System.currentTimeMillis();
+                    }
+                },
+                windowMillis
+        );
+    }
+
+    @VisibleForTesting
+    FingerprintSession(@NonNull Factory0<FingerprintRequest> fingerprintRequestFactory,
+                       @NonNull Supplier<Long> clock,
+                       long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "windowMillis must be >= 0, was %d", windowMillis));
+        }
+        mFingerprintRequestFactory = fingerprintRequestFactory;
+        mClock = clock;
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * @return a {@link FingerprintRequest} to send, or {@code null} if one was already created
+     * within the current window
+     */
+    @Nullable
+    synchronized FingerprintRequest createIfDue() {
+        final long now = mClock.get();
+        if (mLastRequestTime != null && now - mLastRequestTime < mWindowMillis) {
+            mSuppressedCount++;
+            return null;
+        }
+
+        mLastRequestTime = now;
+        return mFingerprintRequestFactory.create();
+    }
+
+    /**
+     * @return the number of fingerprint requests that were suppressed because one had already
+     * been sent within the window
+     */
+    synchronized long getSuppressedCount() {
+        return mSuppressedCount;
+    }
+}
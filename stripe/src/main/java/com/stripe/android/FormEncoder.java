@@ -0,0 +1,174 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes request params as <code>application/x-www-form-urlencoded</code> in a single pass
+ * over the param tree, writing percent-encoded bytes straight into a
+ * {@link ByteArrayOutputStream}.
+ *
+ * Nested maps and lists are flattened using the bracket notation expected by the Stripe API
+ * (e.g. <code>card[number]=4242</code> and <code>expand[]=customer</code>), and keys and
+ * values are encoded the same way as {@link java.net.URLEncoder} does with UTF-8. The key of
+ * the pair being written is kept in a single {@link StringBuilder} that grows and shrinks as
+ * the tree is walked, so no intermediate key or pair strings are created.
+ */
+final class FormEncoder {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    @NonNull private final ByteArrayOutputStream mOutput;
+    @NonNull private final StringBuilder mKey = new StringBuilder(64);
+    private boolean mHasPairs;
+
+    FormEncoder(@NonNull ByteArrayOutputStream output) {
+        mOutput = output;
+    }
+
+    void encode(@Nullable Map<String, ?> params) throws InvalidRequestException {
+        if (params != null) {
+            encodeMap(params, true);
+        }
+    }
+
+    /**
+     * Write a single pair, e.g. one field of an {@link AnalyticsEvent}, flattening {@code value}
+     * if it is a map or a list.
+     */
+    void encode(@NonNull String key, @Nullable Object value) throws InvalidRequestException {
+        mKey.setLength(0);
+        mKey.append(key);
+        encodeValue(value);
+        mKey.setLength(0);
+    }
+
+    /**
+     * Write pairs that were already encoded by another {@link FormEncoder}, e.g. the params of
+     * the {@link AnalyticsEnvelope}.
+     */
+    void writeEncodedPairs(@NonNull byte[] encodedPairs) {
+        if (encodedPairs.length == 0) {
+            return;
+        }
+
+        if (mHasPairs) {
+            mOutput.write('&');
+        }
+        mHasPairs = true;
+        mOutput.write(encodedPairs, 0, encodedPairs.length);
+    }
+
+    private void encodeMap(@NonNull Map<?, ?> params, boolean isRoot)
+            throws InvalidRequestException {
+        for (Map.Entry<?, ?> entry : params.entrySet()) {
+            final int keyLength = mKey.length();
+            if (isRoot) {
+                mKey.append(entry.getKey());
+            } else {
+                mKey.append('[').append(entry.getKey()).append(']');
+            }
+
+            encodeValue(entry.getValue());
+            mKey.setLength(keyLength);
+        }
+    }
+
+    private void encodeList(@NonNull List<?> params) throws InvalidRequestException {
+        // Because application/x-www-form-urlencoded cannot represent an empty
+        // list, convention is to take the list parameter and just set it to an
+        // empty string. (e.g. A regular list might look like `a[]=1&b[]=2`.
+        // Emptying it would look like `a=`.)
+        if (params.isEmpty()) {
+            writePair("");
+            return;
+        }
+
+        final int keyLength = mKey.length();
+        mKey.append("[]");
+        for (Object param : params) {
+            encodeValue(param);
+        }
+        mKey.setLength(keyLength);
+    }
+
+    private void encodeValue(@Nullable Object value) throws InvalidRequestException {
+        if (value instanceof Map<?, ?>) {
+            encodeMap((Map<?, ?>) value, false);
+        } else if (value instanceof List<?>) {
+            encodeList((List<?>) value);
+        } else if ("".equals(value)) {
+            final String key = mKey.toString();
+            throw new InvalidRequestException("You cannot set '" + key + "' to an empty "
+                    + "string. " + "We interpret empty strings as null in requests. "
+                    + "You may set '" + key + "' to null to delete the property.",
+                    key, null, 0, null, null, null, null);
+        } else if (value == null) {
+            writePair("");
+        } else {
+            writePair(value.toString());
+        }
+    }
+
+    private void writePair(@NonNull String value) {
+        if (mHasPairs) {
+            mOutput.write('&');
+        }
+        mHasPairs = true;
+
+        writeEncoded(mKey);
+        mOutput.write('=');
+        writeEncoded(value);
+    }
+
+    /**
+     * Percent-encode {@code value} as UTF-8, matching {@link java.net.URLEncoder}: letters,
+     * digits, <code>.-*_</code> are written as-is, a space becomes <code>+</code>, and any
+     * other byte becomes <code>%XY</code>. An unpaired surrogate is encoded as <code>?</code>.
+     */
+    private void writeEncoded(@NonNull CharSequence value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                mOutput.write(c);
+            } else if (c == ' ') {
+                mOutput.write('+');
+            } else if (c < 0x80) {
+                writePercentEncoded(c);
+            } else if (c < 0x800) {
+                writePercentEncoded(0xC0 | (c >> 6));
+                writePercentEncoded(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writePercentEncoded(0xF0 | (codePoint >> 18));
+                writePercentEncoded(0x80 | ((codePoint >> 12) & 0x3F));
+                writePercentEncoded(0x80 | ((codePoint >> 6) & 0x3F));
+                writePercentEncoded(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writePercentEncoded('?');
+            } else {
+                writePercentEncoded(0xE0 | (c >> 12));
+                writePercentEncoded(0x80 | ((c >> 6) & 0x3F));
+                writePercentEncoded(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writePercentEncoded(int b) {
+        mOutput.write('%');
+        mOutput.write(HEX_DIGITS[(b >> 4) & 0xF]);
+        mOutput.write(HEX_DIGITS[b & 0xF]);
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '.' || c == '-' || c == '*' || c == '_';
+    }
+}
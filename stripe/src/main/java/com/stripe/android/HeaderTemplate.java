@@ -0,0 +1,231 @@
+package com.stripe.android;
+
+import android.os.Build;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.utils.ObjectUtils;
+
+import org.json.JSONObject;
+
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The headers that every {@link ApiRequest} with the same {@link ApiRequest.Options},
+ * {@link AppInfo} and API version has in common, e.g. <code>Authorization</code> and
+ * <code>X-Stripe-Client-User-Agent</code>.
+ *
+ * A template is built the first time that it is needed and shared through a small
+ * {@link Cache}, so a request does not serialize the client user agent to JSON nor format the
+ * other headers again. The client user agent only depends on the {@link AppInfo}, so it is
+ * also reused by the templates of a platform that makes requests for many connected accounts.
+ */
+final class HeaderTemplate {
+    static final String HEADER_CLIENT_USER_AGENT = "X-Stripe-Client-User-Agent";
+    static final String HEADER_AUTHORIZATION = "Authorization";
+    static final String HEADER_STRIPE_ACCOUNT = "Stripe-Account";
+
+    // kept in the order in which they are set on a connection
+    @NonNull private final String[] mNames;
+    @NonNull private final String[] mValues;
+    @NonNull private final String mUserAgent;
+
+    private HeaderTemplate(@NonNull Map<String, String> headers, @NonNull String userAgent) {
+        mNames = headers.keySet().toArray(new String[0]);
+        mValues = headers.values().toArray(new String[0]);
+        mUserAgent = userAgent;
+    }
+
+    /**
+     * @return the template for {@code options}, {@code appInfo} and {@code apiVersion}, from
+     *         the shared cache
+     */
+    @NonNull
+    static HeaderTemplate get(@NonNull ApiRequest.Options options, @Nullable AppInfo appInfo,
+                              @NonNull String apiVersion) {
+        return Cache.getInstance().get(options, appInfo, apiVersion);
+    }
+
+    /**
+     * Discard every cached template, e.g. because the {@link AppInfo} of the app changed.
+     */
+    static void clearCache() {
+        Cache.getInstance().clear();
+    }
+
+    @NonNull
+    String getUserAgent() {
+        return mUserAgent;
+    }
+
+    /**
+     * Add the headers of the template, including <code>User-Agent</code>, to {@code headers}.
+     */
+    void copyTo(@NonNull Map<String, String> headers) {
+        for (int i = 0; i < mNames.length; i++) {
+            headers.put(mNames[i], mValues[i]);
+        }
+        headers.put(StripeRequest.HEADER_USER_AGENT, mUserAgent);
+    }
+
+    /**
+     * Set the headers of the template, including <code>User-Agent</code>, on {@code conn}.
+     */
+    void applyTo(@NonNull HttpURLConnection conn) {
+        for (int i = 0; i < mNames.length; i++) {
+            conn.setRequestProperty(mNames[i], mValues[i]);
+        }
+        conn.setRequestProperty(StripeRequest.HEADER_USER_AGENT, mUserAgent);
+    }
+
+    @NonNull
+    private static HeaderTemplate create(@NonNull ApiRequest.Options options,
+                                         @NonNull String clientUserAgent,
+                                         @Nullable AppInfo appInfo,
+                                         @NonNull String apiVersion) {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept-Charset", StripeRequest.CHARSET);
+        headers.put("Accept", "application/json");
+        headers.put("Accept-Encoding", ConnectionFactory.CONTENT_ENCODING_GZIP);
+        headers.put(HEADER_CLIENT_USER_AGENT, clientUserAgent);
+        headers.put("Stripe-Version", apiVersion);
+        headers.put(HEADER_AUTHORIZATION,
+                String.format(Locale.ENGLISH, "Bearer %s", options.apiKey));
+        if (options.stripeAccount != null) {
+            headers.put(HEADER_STRIPE_ACCOUNT, options.stripeAccount);
+        }
+        return new HeaderTemplate(headers, createUserAgent(appInfo));
+    }
+
+    @NonNull
+    private static String createClientUserAgent(@Nullable AppInfo appInfo) {
+        final Map<String, String> propertyMap = new HashMap<>();
+        final String javaVersion = System.getProperty("java.version");
+        if (javaVersion != null) {
+            propertyMap.put("java.version", javaVersion);
+        }
+        propertyMap.put("os.name", "android");
+        propertyMap.put("os.version", String.valueOf(Build.VERSION.SDK_INT));
+        propertyMap.put("bindings.version", BuildConfig.VERSION_NAME);
+        propertyMap.put("lang", "Java");
+        propertyMap.put("publisher", "Stripe");
+        if (appInfo != null) {
+            propertyMap.putAll(appInfo.createClientHeaders());
+        }
+
+        return new JSONObject(propertyMap).toString();
+    }
+
+    @NonNull
+    private static String createUserAgent(@Nullable AppInfo appInfo) {
+        final StringBuilder userAgent = new StringBuilder(StripeRequest.DEFAULT_USER_AGENT);
+        if (appInfo != null) {
+            userAgent
+                    .append(" ")
+                    .append(appInfo.toUserAgent());
+        }
+        return userAgent.toString();
+    }
+
+    /**
+     * The most recently used templates, shared by every request in the process.
+     */
+    static final class Cache {
+        private static final int DEFAULT_MAX_ENTRIES = 32;
+
+        @Nullable private static Cache sInstance;
+
+        @NonNull private final Map<Key, HeaderTemplate> mTemplates;
+
+        // the client user agent of the last AppInfo, which rarely changes
+        @Nullable private AppInfo mClientUserAgentAppInfo;
+        @Nullable private String mClientUserAgent;
+
+        @NonNull
+        static synchronized Cache getInstance() {
+            if (sInstance == null) {
+                sInstance = new Cache(DEFAULT_MAX_ENTRIES);
+            }
+            return sInstance;
+        }
+
+        @VisibleForTesting
+        Cache(@IntRange(from = 1) final int maxEntries) {
+            mTemplates = new LinkedHashMap<Key, HeaderTemplate>(maxEntries, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, HeaderTemplate> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @NonNull
+        synchronized HeaderTemplate get(@NonNull ApiRequest.Options options,
+                                        @Nullable AppInfo appInfo,
+                                        @NonNull String apiVersion) {
+            final Key key = new Key(options, appInfo, apiVersion);
+            HeaderTemplate template = mTemplates.get(key);
+            if (template == null) {
+                template = create(options, getClientUserAgent(appInfo), appInfo, apiVersion);
+                mTemplates.put(key, template);
+            }
+            return template;
+        }
+
+        synchronized void clear() {
+            mTemplates.clear();
+            mClientUserAgentAppInfo = null;
+            mClientUserAgent = null;
+        }
+
+        @VisibleForTesting
+        synchronized int size() {
+            return mTemplates.size();
+        }
+
+        @NonNull
+        private String getClientUserAgent(@Nullable AppInfo appInfo) {
+            if (mClientUserAgent == null ||
+                    !ObjectUtils.equals(appInfo, mClientUserAgentAppInfo)) {
+                mClientUserAgentAppInfo = appInfo;
+                mClientUserAgent = createClientUserAgent(appInfo);
+            }
+            return mClientUserAgent;
+        }
+    }
+
+    private static final class Key {
+        @NonNull private final ApiRequest.Options mOptions;
+        @Nullable private final AppInfo mAppInfo;
+        @NonNull private final String mApiVersion;
+
+        private Key(@NonNull ApiRequest.Options options, @Nullable AppInfo appInfo,
+                    @NonNull String apiVersion) {
+            mOptions = options;
+            mAppInfo = appInfo;
+            mApiVersion = apiVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return ObjectUtils.hash(mOptions, mAppInfo, mApiVersion);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return this == obj || (obj instanceof Key && typedEquals((Key) obj));
+        }
+
+        private boolean typedEquals(@NonNull Key key) {
+            return ObjectUtils.equals(mOptions, key.mOptions) &&
+                    ObjectUtils.equals(mAppInfo, key.mAppInfo) &&
+                    ObjectUtils.equals(mApiVersion, key.mApiVersion);
+        }
+    }
+}
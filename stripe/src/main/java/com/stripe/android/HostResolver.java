@@ -0,0 +1,132 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the Stripe hosts ({@link ApiRequest#API_HOST} and {@link AnalyticsRequest#HOST}) in
+ * the background, so that the lookup made by the connection of the first API request is
+ * answered by the resolver cache of the platform instead of the network, and the process-wide
+ * <code>networkaddress.cache.ttl</code> security property never needs to be touched.
+ *
+ * <code>HttpURLConnection</code> resolves the host itself and can't be given addresses, so the
+ * resolved addresses are not kept. The hosts are only prefetched once per process; later
+ * lookups are left to the platform. If a lookup fails, e.g. because the device is offline, the
+ * next call to {@link #prefetch()} tries again.
+ */
+final class HostResolver {
+    @Nullable private static HostResolver sInstance;
+
+    @NonNull private final Lookup mLookup;
+    @NonNull private final Executor mExecutor;
+
+    // guarded by this
+    private boolean mIsPrefetchStarted;
+
+    @NonNull
+    static synchronized HostResolver getInstance() {
+        if (sInstance == null) {
+            sInstance = new HostResolver(
+                    new Lookup() {
+                        @Override
+                        public void lookup(@NonNull String host) throws UnknownHostException {
+                            InetAddress.getAllByName(host);
+                        }
+                    },
+                    createExecutor()
+            );
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    HostResolver(@NonNull Lookup lookup, @NonNull Executor executor) {
+        mLookup = lookup;
+        mExecutor = executor;
+    }
+
+    /**
+     * Resolve the Stripe hosts in the background so that the first API request finds them in
+     * the cache of the platform resolver, unless they have already been, or are being, resolved.
+     */
+    void prefetch() {
+        synchronized (this) {
+            if (mIsPrefetchStarted) {
+                return;
+            }
+            mIsPrefetchStarted = true;
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean isSuccessful = lookup(ApiRequest.API_HOST);
+                isSuccessful = lookup(AnalyticsRequest.HOST) && isSuccessful;
+                if (!isSuccessful) {
+                    synchronized (HostResolver.this) {
+                        mIsPrefetchStarted = false;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return false if the host of {@code url} could not be resolved
+     */
+    private boolean lookup(@NonNull String url) {
+        final String host = getHost(url);
+        if (host == null) {
+            return true;
+        }
+
+        try {
+            mLookup.lookup(host);
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    private static String getHost(@NonNull String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    @NonNull
+    private static Executor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @NonNull
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        final Thread thread = new Thread(runnable,
+                                HostResolver.class.getSimpleName());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    interface Lookup {
+        void lookup(@NonNull String host) throws UnknownHostException;
+    }
+}
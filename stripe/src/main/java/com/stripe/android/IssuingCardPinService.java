@@ -1,6 +1,8 @@
 package com.stripe.android;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -27,6 +29,11 @@ public class IssuingCardPinService
 
     private static final String TAG = IssuingCardPinService.class.getName();
     private static final long KEY_REFRESH_BUFFER_IN_SECONDS = 30L;
+    // Longer than a key request followed by an API request that uses up all of its retries
+    private static final long OPERATION_TIMEOUT_MILLIS =
+            EphemeralKeyManager.KEY_REQUEST_TIMEOUT_MILLIS +
+                    RetryingApiRequestExecutor.DEFAULT_MAX_EXECUTION_MILLIS;
+    private static final String OPERATION_TIMEOUT_MESSAGE = "The operation timed out";
     private static final String PIN_RETRIEVE = "PIN_RETRIEVE";
     private static final String PIN_UPDATE = "PIN_UPDATE";
     private static final String ARGUMENT_CARD_ID = "cardId";
@@ -41,11 +48,9 @@ public class IssuingCardPinService
     @NonNull
     private final OperationIdFactory mOperationIdFactory;
     @NonNull
-    private final Map<String, IssuingCardPinRetrievalListener> mRetrievalListeners =
-            new HashMap<>();
+    private final OperationRegistry<IssuingCardPinRetrievalListener> mRetrievalListeners;
     @NonNull
-    private final Map<String, IssuingCardPinUpdateListener> mUpdateListeners =
-            new HashMap<>();
+    private final OperationRegistry<IssuingCardPinUpdateListener> mUpdateListeners;
 
     /**
      * Create a IssuingCardPinService with the provided {@link EphemeralKeyProvider}.
@@ -64,7 +69,8 @@ public class IssuingCardPinService
             @NonNull Context context,
             @NonNull EphemeralKeyProvider keyProvider,
             @Nullable AppInfo appInfo) {
-        this(keyProvider, new StripeApiRepository(context, appInfo), new OperationIdFactory());
+        this(keyProvider, StripeClientCore.getInstance(context).getStripeRepository(appInfo),
+                new OperationIdFactory());
     }
 
     @VisibleForTesting
@@ -72,8 +78,29 @@ public class IssuingCardPinService
             @NonNull EphemeralKeyProvider keyProvider,
             @NonNull StripeRepository stripeRepository,
             @NonNull OperationIdFactory operationIdFactory) {
+        final Handler handler = new Handler(Looper.getMainLooper());
         mOperationIdFactory = operationIdFactory;
         mStripeRepository = stripeRepository;
+        mRetrievalListeners = new OperationRegistry<>(handler, OPERATION_TIMEOUT_MILLIS,
+                new OperationRegistry.TimeoutListener<IssuingCardPinRetrievalListener>() {
+                    @Override
+                    public void onTimeout(@NonNull String operationId,
+                                          @NonNull IssuingCardPinRetrievalListener listener) {
+                        mEphemeralKeyManager.cancelOperation(operationId);
+                        listener.onError(CardPinActionError.UNKNOWN_ERROR,
+                                OPERATION_TIMEOUT_MESSAGE, null);
+                    }
+                });
+        mUpdateListeners = new OperationRegistry<>(handler, OPERATION_TIMEOUT_MILLIS,
+                new OperationRegistry.TimeoutListener<IssuingCardPinUpdateListener>() {
+                    @Override
+                    public void onTimeout(@NonNull String operationId,
+                                          @NonNull IssuingCardPinUpdateListener listener) {
+                        mEphemeralKeyManager.cancelOperation(operationId);
+                        listener.onError(CardPinActionError.UNKNOWN_ERROR,
+                                OPERATION_TIMEOUT_MESSAGE, null);
+                    }
+                });
         mEphemeralKeyManager = new EphemeralKeyManager<>(
                 keyProvider,
                 this,
@@ -81,7 +108,8 @@ public class IssuingCardPinService
                 null,
                 operationIdFactory,
                 new IssuingCardEphemeralKey.Factory(),
-                true
+                true,
+                handler
         );
     }
 
@@ -105,7 +133,7 @@ public class IssuingCardPinService
         arguments.put(ARGUMENT_ONE_TIME_CODE, userOneTimeCode);
 
         final String operationId = mOperationIdFactory.create();
-        mRetrievalListeners.put(operationId, listener);
+        mRetrievalListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, PIN_RETRIEVE, arguments);
     }
 
@@ -132,10 +160,22 @@ public class IssuingCardPinService
         arguments.put(ARGUMENT_ONE_TIME_CODE, userOneTimeCode);
 
         final String operationId = mOperationIdFactory.create();
-        mUpdateListeners.put(operationId, listener);
+        mUpdateListeners.register(operationId, listener);
         mEphemeralKeyManager.retrieveEphemeralKey(operationId, PIN_UPDATE, arguments);
     }
 
+    /**
+     * Stop renewing the ephemeral key in the background and stop invoking the listeners of
+     * the operations in progress. Call this when the service is no longer needed, e.g. when the
+     * screen that uses it is destroyed, so that the {@link EphemeralKeyProvider} is not called
+     * again.
+     */
+    public void cancel() {
+        mRetrievalListeners.cancelAll();
+        mUpdateListeners.cancelAll();
+        mEphemeralKeyManager.cancel();
+    }
+
     @Override
     public void onKeyUpdate(@NonNull IssuingCardEphemeralKey ephemeralKey,
                             @Nullable String operationId,
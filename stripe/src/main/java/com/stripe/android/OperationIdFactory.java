@@ -2,11 +2,17 @@ package com.stripe.android;
 
 import android.support.annotation.NonNull;
 
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Creates ids for {@link OperationRegistry} operations. Ids are only compared within the
+ * process, so a counter is enough to keep them unique.
+ */
 class OperationIdFactory {
+    @NonNull private static final AtomicLong NEXT_ID = new AtomicLong();
+
     @NonNull
     String create() {
-        return UUID.randomUUID().toString();
+        return String.valueOf(NEXT_ID.incrementAndGet());
     }
 }
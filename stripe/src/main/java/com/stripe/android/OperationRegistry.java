@@ -0,0 +1,130 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks the listeners of pending operations by operation id, so that they can be safely
+ * registered, completed, timed out and cancelled from the calling thread, the ephemeral key
+ * provider's callback thread, worker threads and the UI thread.
+ *
+ * Each operation ends exactly once: whichever of {@link #remove(String)}, its timeout or
+ * {@link #cancelAll()} happens first removes it, and later attempts see no listener. An
+ * operation that doesn't complete within the timeout is removed and reported to the
+ * {@link TimeoutListener}, so that its listener isn't leaked if a result never arrives.
+ *
+ * @param <TListener> the type of listener to notify when an operation completes
+ */
+final class OperationRegistry<TListener> {
+    @NonNull private final ConcurrentMap<String, Operation<TListener>> mOperations =
+            new ConcurrentHashMap<>();
+    @NonNull private final Handler mTimeoutHandler;
+    private final long mTimeoutMillis;
+    @NonNull private final TimeoutListener<TListener> mTimeoutListener;
+
+    /**
+     * @param timeoutHandler the {@link Handler} that timeouts are scheduled on, and so the
+     *                       thread that the {@link TimeoutListener} is called on
+     */
+    OperationRegistry(@NonNull Handler timeoutHandler, long timeoutMillis,
+                      @NonNull TimeoutListener<TListener> timeoutListener) {
+        mTimeoutHandler = timeoutHandler;
+        mTimeoutMillis = timeoutMillis;
+        mTimeoutListener = timeoutListener;
+    }
+
+    void register(@NonNull String operationId, @NonNull TListener listener) {
+        final Operation<TListener> operation = new Operation<>(this, operationId, listener);
+        final Operation<TListener> previousOperation = mOperations.put(operationId, operation);
+        if (previousOperation != null) {
+            mTimeoutHandler.removeCallbacks(previousOperation);
+        }
+        mTimeoutHandler.postDelayed(operation, mTimeoutMillis);
+    }
+
+    /**
+     * Get the listener of an operation that has made progress but not completed, and restart
+     * its timeout.
+     *
+     * @return the listener, or {@code null} if the operation has already ended
+     */
+    @Nullable
+    TListener get(@NonNull String operationId) {
+        final Operation<TListener> operation = mOperations.get(operationId);
+        if (operation == null) {
+            return null;
+        }
+
+        mTimeoutHandler.removeCallbacks(operation);
+        if (mOperations.get(operationId) == operation) {
+            mTimeoutHandler.postDelayed(operation, mTimeoutMillis);
+        }
+        return operation.mListener;
+    }
+
+    /**
+     * End an operation that has completed.
+     *
+     * @return the listener to notify, or {@code null} if the operation has already ended
+     */
+    @Nullable
+    TListener remove(@Nullable String operationId) {
+        final Operation<TListener> operation =
+                operationId != null ? mOperations.remove(operationId) : null;
+        if (operation == null) {
+            return null;
+        }
+
+        mTimeoutHandler.removeCallbacks(operation);
+        return operation.mListener;
+    }
+
+    /**
+     * End every pending operation without notifying its listener.
+     */
+    void cancelAll() {
+        for (Operation<TListener> operation : mOperations.values()) {
+            if (mOperations.remove(operation.mOperationId, operation)) {
+                mTimeoutHandler.removeCallbacks(operation);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        return mOperations.size();
+    }
+
+    private void timeOut(@NonNull Operation<TListener> operation) {
+        if (mOperations.remove(operation.mOperationId, operation)) {
+            mTimeoutListener.onTimeout(operation.mOperationId, operation.mListener);
+        }
+    }
+
+    interface TimeoutListener<TListener> {
+        void onTimeout(@NonNull String operationId, @NonNull TListener listener);
+    }
+
+    private static final class Operation<TListener> implements Runnable {
+        @NonNull private final OperationRegistry<TListener> mRegistry;
+        @NonNull private final String mOperationId;
+        @NonNull private final TListener mListener;
+
+        private Operation(@NonNull OperationRegistry<TListener> registry,
+                          @NonNull String operationId, @NonNull TListener listener) {
+            mRegistry = registry;
+            mOperationId = operationId;
+            mListener = listener;
+        }
+
+        @Override
+        public void run() {
+            mRegistry.timeOut(this);
+        }
+    }
+}
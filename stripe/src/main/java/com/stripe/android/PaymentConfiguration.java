@@ -48,9 +48,18 @@ public final class PaymentConfiguration implements Parcelable {
     /**
      * A publishable key from the Dashboard's
      * <a href="https://dashboard.stripe.com/apikeys">API keys</a> page.
+     *
+     * <p>Also starts resolving the Stripe API hosts in the background, so that the first API
+     * request finds them in the DNS cache of the platform.</p>
      */
     public static void init(@NonNull String publishableKey) {
+        init(publishableKey, HostResolver.getInstance());
+    }
+
+    @VisibleForTesting
+    static void init(@NonNull String publishableKey, @NonNull HostResolver hostResolver) {
         mInstance = new PaymentConfiguration(publishableKey);
+        hostResolver.prefetch();
     }
 
     @NonNull
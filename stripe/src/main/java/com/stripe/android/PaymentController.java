@@ -54,6 +54,7 @@ class PaymentController {
     @NonNull private final FireAndForgetRequestExecutor mAnalyticsRequestExecutor;
     @NonNull private final AnalyticsDataFactory mAnalyticsDataFactory;
     @NonNull private final ChallengeFlowStarter mChallengeFlowStarter;
+    @NonNull private final StripeTaskEngine mTaskEngine;
 
     PaymentController(@NonNull Context context,
                       @NonNull StripeRepository stripeRepository) {
@@ -62,9 +63,10 @@ class PaymentController {
                 stripeRepository,
                 new MessageVersionRegistry(),
                 PaymentAuthConfig.get(),
-                new StripeFireAndForgetRequestExecutor(),
+                BatchingFireAndForgetRequestExecutor.getInstance(context),
                 new AnalyticsDataFactory(context.getApplicationContext()),
-                new ChallengeFlowStarterImpl());
+                new ChallengeFlowStarterImpl(),
+                StripeTaskEngine.getInstance());
     }
 
     @VisibleForTesting
@@ -75,7 +77,8 @@ class PaymentController {
                       @NonNull PaymentAuthConfig config,
                       @NonNull FireAndForgetRequestExecutor analyticsRequestExecutor,
                       @NonNull AnalyticsDataFactory analyticsDataFactory,
-                      @NonNull ChallengeFlowStarter challengeFlowStarter) {
+                      @NonNull ChallengeFlowStarter challengeFlowStarter,
+                      @NonNull StripeTaskEngine taskEngine) {
         mConfig = config;
         mThreeDs2Service = threeDs2Service;
         mThreeDs2Service.initialize(context, new StripeConfigParameters(), null,
@@ -85,6 +88,11 @@ class PaymentController {
         mAnalyticsRequestExecutor = analyticsRequestExecutor;
         mAnalyticsDataFactory = analyticsDataFactory;
         mChallengeFlowStarter = challengeFlowStarter;
+        mTaskEngine = taskEngine;
+
+        // parse the first 3DS2 fingerprint's certificates without also loading the
+        // CertificateFactory on the main thread
+        mTaskEngine.executeInBackground(new WarmUpCertificateCacheTask());
     }
 
     /**
@@ -94,9 +102,9 @@ class PaymentController {
                              @NonNull ConfirmStripeIntentParams confirmStripeIntentParams,
                              @NonNull ApiRequest.Options requestOptions) {
         new ConfirmStripeIntentTask(mStripeRepository, confirmStripeIntentParams, requestOptions,
-                new ConfirmStripeIntentCallback(host, requestOptions, this,
+                this, new ConfirmStripeIntentCallback(host, requestOptions, this,
                         getRequestCode(confirmStripeIntentParams)))
-                .execute();
+                .execute(mTaskEngine);
     }
 
     void startAuth(@NonNull final AuthActivityStarter.Host host,
@@ -105,10 +113,12 @@ class PaymentController {
         new RetrieveIntentTask(mStripeRepository,
                 clientSecret,
                 requestOptions,
-                new ApiResultCallback<StripeIntent>() {
+                this,
+                new ApiResultCallback<PreparedStripeIntent>() {
                     @Override
-                    public void onSuccess(@NonNull StripeIntent stripeIntent) {
-                        handleNextAction(host, stripeIntent, requestOptions);
+                    public void onSuccess(@NonNull PreparedStripeIntent preparedStripeIntent) {
+                        handleNextAction(host, preparedStripeIntent.stripeIntent,
+                                preparedStripeIntent.stripe3ds2Preparation, requestOptions);
                     }
 
                     @Override
@@ -116,7 +126,7 @@ class PaymentController {
                         handleError(host, PAYMENT_REQUEST_CODE, e);
                     }
                 })
-                .execute();
+                .execute(mTaskEngine);
     }
 
     /**
@@ -157,10 +167,11 @@ class PaymentController {
         @StripeIntentResult.Outcome final int flowOutcome =
                 data.getIntExtra(StripeIntentResultExtras.FLOW_OUTCOME,
                         StripeIntentResult.Outcome.UNKNOWN);
-        new RetrieveIntentTask(mStripeRepository, getClientSecret(data), requestOptions,
-                new ApiResultCallback<StripeIntent>() {
+        new RetrieveIntentTask(mStripeRepository, getClientSecret(data), requestOptions, null,
+                new ApiResultCallback<PreparedStripeIntent>() {
                     @Override
-                    public void onSuccess(@NonNull StripeIntent stripeIntent) {
+                    public void onSuccess(@NonNull PreparedStripeIntent preparedStripeIntent) {
+                        final StripeIntent stripeIntent = preparedStripeIntent.stripeIntent;
                         if (stripeIntent instanceof PaymentIntent) {
                             callback.onSuccess(new PaymentIntentResult.Builder()
                                     .setPaymentIntent((PaymentIntent) stripeIntent)
@@ -174,7 +185,7 @@ class PaymentController {
                         callback.onError(e);
                     }
                 })
-                .execute();
+                .execute(mTaskEngine);
     }
 
     /**
@@ -200,10 +211,11 @@ class PaymentController {
                 data.getIntExtra(StripeIntentResultExtras.FLOW_OUTCOME,
                         StripeIntentResult.Outcome.UNKNOWN);
 
-        new RetrieveIntentTask(mStripeRepository, getClientSecret(data), requestOptions,
-                new ApiResultCallback<StripeIntent>() {
+        new RetrieveIntentTask(mStripeRepository, getClientSecret(data), requestOptions, null,
+                new ApiResultCallback<PreparedStripeIntent>() {
                     @Override
-                    public void onSuccess(@NonNull StripeIntent stripeIntent) {
+                    public void onSuccess(@NonNull PreparedStripeIntent preparedStripeIntent) {
+                        final StripeIntent stripeIntent = preparedStripeIntent.stripeIntent;
                         if (stripeIntent instanceof SetupIntent) {
                             callback.onSuccess(new SetupIntentResult.Builder()
                                     .setSetupIntent((SetupIntent) stripeIntent)
@@ -217,7 +229,7 @@ class PaymentController {
                         callback.onError(e);
                     }
                 })
-                .execute();
+                .execute(mTaskEngine);
     }
 
     @VisibleForTesting
@@ -234,28 +246,44 @@ class PaymentController {
     void handleNextAction(@NonNull AuthActivityStarter.Host host,
                           @NonNull StripeIntent stripeIntent,
                           @NonNull ApiRequest.Options requestOptions) {
+        handleNextAction(host, stripeIntent, null, requestOptions);
+    }
+
+    /**
+     * @param stripe3ds2Preparation the 3DS2 transaction prepared by
+     *                              {@link #prepare3ds2Auth(StripeIntent)} on a worker thread,
+     *                              or {@code null} to prepare it now
+     */
+    private void handleNextAction(@NonNull AuthActivityStarter.Host host,
+                                  @NonNull StripeIntent stripeIntent,
+                                  @Nullable Stripe3ds2Preparation stripe3ds2Preparation,
+                                  @NonNull ApiRequest.Options requestOptions) {
         if (stripeIntent.requiresAction()) {
             final StripeIntent.NextActionType nextActionType = stripeIntent.getNextActionType();
             if (StripeIntent.NextActionType.UseStripeSdk == nextActionType) {
                 final StripeIntent.SdkData sdkData =
                         Objects.requireNonNull(stripeIntent.getStripeSdkData());
                 if (sdkData.is3ds2()) {
+                    final Stripe3ds2Preparation preparation = stripe3ds2Preparation != null ?
+                            stripe3ds2Preparation :
+                            Objects.requireNonNull(prepare3ds2Auth(stripeIntent));
+
                     mAnalyticsRequestExecutor.executeAsync(
                             AnalyticsRequest.create(
-                                    mAnalyticsDataFactory.createAuthParams(
-                                            AnalyticsDataFactory.EventName.AUTH_3DS2_FINGERPRINT,
+                                    mAnalyticsDataFactory.create3ds2FingerprintParams(
                                             StripeTextUtils.emptyIfNull(stripeIntent.getId()),
+                                            preparation.fingerprintDurationMicros,
+                                            preparation.transactionDurationMicros,
                                             requestOptions.apiKey
                                     ),
                                     requestOptions
                             )
                     );
-                    try {
-                        begin3ds2Auth(host, stripeIntent,
-                                Stripe3ds2Fingerprint.create(sdkData),
-                                requestOptions);
-                    } catch (CertificateException e) {
-                        handleError(host, getRequestCode(stripeIntent), e);
+                    if (preparation.certificateException == null) {
+                        begin3ds2Auth(host, stripeIntent, preparation, requestOptions);
+                    } else {
+                        handleError(host, getRequestCode(stripeIntent),
+                                preparation.certificateException);
                     }
                 } else if (sdkData.is3ds1()) {
                     beginWebAuth(host, getRequestCode(stripeIntent),
@@ -324,15 +352,33 @@ class PaymentController {
                 .start(new PaymentRelayStarter.Data(stripeIntent));
     }
 
-    private void begin3ds2Auth(@NonNull AuthActivityStarter.Host host,
-                               @NonNull StripeIntent stripeIntent,
-                               @NonNull Stripe3ds2Fingerprint stripe3ds2Fingerprint,
-                               @NonNull ApiRequest.Options requestOptions) {
-        final Activity activity = host.getActivity();
-        if (activity == null) {
-            return;
+    /**
+     * Create the 3DS2 transaction for an intent whose next action is a 3DS2 fingerprint. This
+     * generates the SDK's ephemeral key pair and collects and encrypts device data, so call it
+     * from a worker thread where possible.
+     *
+     * @return the prepared transaction, or {@code null} if the intent's next action is not a
+     *         3DS2 fingerprint
+     */
+    @Nullable
+    Stripe3ds2Preparation prepare3ds2Auth(@NonNull StripeIntent stripeIntent) {
+        final StripeIntent.SdkData sdkData = stripeIntent.getStripeSdkData();
+        if (!stripeIntent.requiresAction() ||
+                StripeIntent.NextActionType.UseStripeSdk != stripeIntent.getNextActionType() ||
+                sdkData == null || !sdkData.is3ds2()) {
+            return null;
         }
 
+        final long fingerprintStartNanos = System.nanoTime();
+        final Stripe3ds2Fingerprint stripe3ds2Fingerprint;
+        try {
+            stripe3ds2Fingerprint = Stripe3ds2Fingerprint.create(sdkData);
+        } catch (CertificateException e) {
+            return new Stripe3ds2Preparation(e, getMicrosSince(fingerprintStartNanos));
+        }
+        final long fingerprintDurationMicros = getMicrosSince(fingerprintStartNanos);
+
+        final long transactionStartNanos = System.nanoTime();
         final Transaction transaction =
                 mThreeDs2Service.createTransaction(stripe3ds2Fingerprint.directoryServer.id,
                         mMessageVersionRegistry.getCurrent(), stripeIntent.isLiveMode(),
@@ -340,14 +386,37 @@ class PaymentController {
                         stripe3ds2Fingerprint.directoryServerEncryption.rootCerts,
                         stripe3ds2Fingerprint.directoryServerEncryption.directoryServerPublicKey,
                         stripe3ds2Fingerprint.directoryServerEncryption.keyId);
+        final AuthenticationRequestParameters areqParams =
+                transaction.getAuthenticationRequestParameters();
+        return new Stripe3ds2Preparation(stripe3ds2Fingerprint, transaction, areqParams,
+                fingerprintDurationMicros, getMicrosSince(transactionStartNanos));
+    }
+
+    private static long getMicrosSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+
+    private void begin3ds2Auth(@NonNull AuthActivityStarter.Host host,
+                               @NonNull StripeIntent stripeIntent,
+                               @NonNull Stripe3ds2Preparation preparation,
+                               @NonNull ApiRequest.Options requestOptions) {
+        final Transaction transaction = Objects.requireNonNull(preparation.transaction);
+        final Activity activity = host.getActivity();
+        if (activity == null) {
+            transaction.close();
+            return;
+        }
+
+        final Stripe3ds2Fingerprint stripe3ds2Fingerprint =
+                Objects.requireNonNull(preparation.fingerprint);
+        final AuthenticationRequestParameters areqParams =
+                Objects.requireNonNull(preparation.areqParams);
 
         ChallengeProgressDialogActivity.show(activity, stripe3ds2Fingerprint.directoryServer.name);
 
         final StripeIntent.RedirectData redirectData = stripeIntent.getRedirectData();
         final String returnUrl = redirectData != null ? redirectData.returnUrl : null;
 
-        final AuthenticationRequestParameters areqParams =
-                transaction.getAuthenticationRequestParameters();
         final int timeout = mConfig.stripe3ds2Config.timeout;
         final Stripe3ds2AuthParams authParams = new Stripe3ds2AuthParams(
                 stripe3ds2Fingerprint.source,
@@ -392,45 +461,73 @@ class PaymentController {
                 .start(new PaymentRelayStarter.Data(exception));
     }
 
-    private static final class RetrieveIntentTask extends ApiOperation<StripeIntent> {
+    private static final class WarmUpCertificateCacheTask implements Runnable {
+        @Override
+        public void run() {
+            try {
+                Stripe3ds2Fingerprint.warmUp();
+            } catch (CertificateException ignored) {
+                // the error is reported if a fingerprint is created
+            }
+        }
+    }
+
+    private static final class RetrieveIntentTask extends ApiOperation<PreparedStripeIntent> {
         @NonNull private final StripeRepository mStripeRepository;
         @NonNull private final String mClientSecret;
         @NonNull private final ApiRequest.Options mRequestOptions;
+        @Nullable private final PaymentController mPaymentController;
 
+        /**
+         * @param paymentController the controller to prepare the intent's 3DS2 transaction
+         *                          with, or {@code null} if the intent's next action won't be
+         *                          handled
+         */
         private RetrieveIntentTask(@NonNull StripeRepository stripeRepository,
                                    @NonNull String clientSecret,
                                    @NonNull ApiRequest.Options requestOptions,
-                                   @NonNull ApiResultCallback<StripeIntent> callback) {
-            super(callback);
+                                   @Nullable PaymentController paymentController,
+                                   @NonNull ApiResultCallback<PreparedStripeIntent> callback) {
+            super(StripeTaskEngine.Priority.NORMAL, callback);
             mStripeRepository = stripeRepository;
             mClientSecret = clientSecret;
             mRequestOptions = requestOptions;
+            mPaymentController = paymentController;
         }
 
         @Nullable
         @Override
-        StripeIntent getResult() throws StripeException {
+        PreparedStripeIntent getResult() throws StripeException {
+            final StripeIntent stripeIntent;
             if (mClientSecret.startsWith("pi_")) {
-                return mStripeRepository.retrievePaymentIntent(mClientSecret, mRequestOptions);
+                stripeIntent =
+                        mStripeRepository.retrievePaymentIntent(mClientSecret, mRequestOptions);
             } else if (mClientSecret.startsWith("seti_")) {
-                return mStripeRepository.retrieveSetupIntent(mClientSecret, mRequestOptions);
+                stripeIntent =
+                        mStripeRepository.retrieveSetupIntent(mClientSecret, mRequestOptions);
+            } else {
+                stripeIntent = null;
             }
-            return null;
+            return PreparedStripeIntent.create(mPaymentController, stripeIntent);
         }
     }
 
-    private static final class ConfirmStripeIntentTask extends ApiOperation<StripeIntent> {
+    private static final class ConfirmStripeIntentTask
+            extends ApiOperation<PreparedStripeIntent> {
         @NonNull private final StripeRepository mStripeRepository;
         @NonNull private final ConfirmStripeIntentParams mParams;
         @NonNull private final ApiRequest.Options mRequestOptions;
+        @NonNull private final PaymentController mPaymentController;
 
         private ConfirmStripeIntentTask(@NonNull StripeRepository stripeRepository,
                                         @NonNull ConfirmStripeIntentParams params,
                                         @NonNull ApiRequest.Options requestOptions,
-                                        @NonNull ApiResultCallback<StripeIntent> callback) {
-            super(callback);
+                                        @NonNull PaymentController paymentController,
+                                        @NonNull ApiResultCallback<PreparedStripeIntent> callback) {
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeRepository = stripeRepository;
             mRequestOptions = requestOptions;
+            mPaymentController = paymentController;
 
             // mark this request as `use_stripe_sdk=true`
             mParams = params.withShouldUseStripeSdk(true);
@@ -438,24 +535,89 @@ class PaymentController {
 
         @Nullable
         @Override
-        StripeIntent getResult() throws StripeException {
+        PreparedStripeIntent getResult() throws StripeException {
+            final StripeIntent stripeIntent;
             if (mParams instanceof ConfirmPaymentIntentParams) {
-                return mStripeRepository.confirmPaymentIntent(
+                stripeIntent = mStripeRepository.confirmPaymentIntent(
                         (ConfirmPaymentIntentParams) mParams,
                         mRequestOptions
                 );
             } else if (mParams instanceof ConfirmSetupIntentParams) {
-                return mStripeRepository.confirmSetupIntent(
+                stripeIntent = mStripeRepository.confirmSetupIntent(
                         (ConfirmSetupIntentParams) mParams,
                         mRequestOptions
                 );
+            } else {
+                stripeIntent = null;
             }
-            return null;
+            return PreparedStripeIntent.create(mPaymentController, stripeIntent);
+        }
+    }
+
+    /**
+     * A {@link StripeIntent} retrieved on a worker thread, along with the 3DS2 transaction for
+     * its next action if it has one, so that the main thread only has to start the challenge
+     * flow.
+     */
+    static final class PreparedStripeIntent {
+        @NonNull final StripeIntent stripeIntent;
+        @Nullable final Stripe3ds2Preparation stripe3ds2Preparation;
+
+        private PreparedStripeIntent(@NonNull StripeIntent stripeIntent,
+                                     @Nullable Stripe3ds2Preparation stripe3ds2Preparation) {
+            this.stripeIntent = stripeIntent;
+            this.stripe3ds2Preparation = stripe3ds2Preparation;
+        }
+
+        @Nullable
+        private static PreparedStripeIntent create(@Nullable PaymentController paymentController,
+                                                   @Nullable StripeIntent stripeIntent) {
+            if (stripeIntent == null) {
+                return null;
+            }
+            return new PreparedStripeIntent(stripeIntent, paymentController != null ?
+                    paymentController.prepare3ds2Auth(stripeIntent) : null);
+        }
+    }
+
+    /**
+     * The result of {@link #prepare3ds2Auth(StripeIntent)}: either a 3DS2 transaction with its
+     * authentication request parameters, or the error that prevented creating it.
+     */
+    static final class Stripe3ds2Preparation {
+        @Nullable final Stripe3ds2Fingerprint fingerprint;
+        @Nullable final Transaction transaction;
+        @Nullable final AuthenticationRequestParameters areqParams;
+        @Nullable final CertificateException certificateException;
+        final long fingerprintDurationMicros;
+        final long transactionDurationMicros;
+
+        private Stripe3ds2Preparation(@NonNull Stripe3ds2Fingerprint fingerprint,
+                                      @NonNull Transaction transaction,
+                                      @NonNull AuthenticationRequestParameters areqParams,
+                                      long fingerprintDurationMicros,
+                                      long transactionDurationMicros) {
+            this.fingerprint = fingerprint;
+            this.transaction = transaction;
+            this.areqParams = areqParams;
+            this.certificateException = null;
+            this.fingerprintDurationMicros = fingerprintDurationMicros;
+            this.transactionDurationMicros = transactionDurationMicros;
+        }
+
+        private Stripe3ds2Preparation(@NonNull CertificateException certificateException,
+                                      long fingerprintDurationMicros) {
+            this.fingerprint = null;
+            this.transaction = null;
+            this.areqParams = null;
+            this.certificateException = certificateException;
+            this.fingerprintDurationMicros = fingerprintDurationMicros;
+            this.transactionDurationMicros = 0;
         }
     }
 
     private static final class ConfirmStripeIntentCallback
-            implements ApiResultCallback<StripeIntent> {
+            implements ApiResultCallback<PreparedStripeIntent> {
         @NonNull private final AuthActivityStarter.Host mHost;
         @NonNull private final ApiRequest.Options mRequestOptions;
         @NonNull private final PaymentController mPaymentController;
@@ -473,8 +635,9 @@ class PaymentController {
         }
 
         @Override
-        public void onSuccess(@NonNull StripeIntent stripeIntent) {
-            mPaymentController.handleNextAction(mHost, stripeIntent, mRequestOptions);
+        public void onSuccess(@NonNull PreparedStripeIntent preparedStripeIntent) {
+            mPaymentController.handleNextAction(mHost, preparedStripeIntent.stripeIntent,
+                    preparedStripeIntent.stripe3ds2Preparation, mRequestOptions);
         }
 
         @Override
@@ -574,6 +737,7 @@ class PaymentController {
 
         @Override
         public void onError(@NonNull Exception e) {
+            mTransaction.close();
             mPaymentRelayStarter.start(new PaymentRelayStarter.Data(e));
         }
 
@@ -602,6 +766,7 @@ class PaymentController {
                 public void run() {
                     final Activity activity = mHost.getActivity();
                     if (activity == null) {
+                        mTransaction.close();
                         return;
                     }
                     mTransaction.doChallenge(activity,
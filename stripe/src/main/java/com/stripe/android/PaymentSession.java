@@ -12,12 +12,14 @@ import android.support.v4.app.Fragment;
 import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.view.ActivityStarter;
+import com.stripe.android.view.CountryIndex;
 import com.stripe.android.view.PaymentFlowActivity;
 import com.stripe.android.view.PaymentFlowActivityStarter;
 import com.stripe.android.view.PaymentMethodsActivity;
 import com.stripe.android.view.PaymentMethodsActivityStarter;
 
 import java.lang.ref.WeakReference;
+import java.util.Locale;
 
 /**
  * Represents a single start-to-finish payment operation.
@@ -212,6 +214,11 @@ public class PaymentSession {
             }
         }
         mPaymentSessionConfig = paymentSessionConfig;
+        if (paymentSessionConfig.isShippingInfoRequired()) {
+            // build the country names for the shipping address form before it is shown
+            StripeTaskEngine.getInstance()
+                    .executeInBackground(new WarmUpCountryIndexTask(Locale.getDefault()));
+        }
         fetchCustomer();
         return true;
     }
@@ -361,6 +368,19 @@ public class PaymentSession {
                 });
     }
 
+    private static final class WarmUpCountryIndexTask implements Runnable {
+        @NonNull private final Locale mDisplayLocale;
+
+        private WarmUpCountryIndexTask(@NonNull Locale displayLocale) {
+            mDisplayLocale = displayLocale;
+        }
+
+        @Override
+        public void run() {
+            CountryIndex.getInstance(mDisplayLocale);
+        }
+    }
+
     /**
      * Represents a listener for PaymentSession actions, used to update the host activity
      * when necessary.
@@ -0,0 +1,72 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * An {@link ApiRequestExecutor} that keeps connections alive between requests, so that the
+ * sequential API calls of a flow (e.g. confirming a PaymentIntent and then authenticating it
+ * with 3DS2) reuse a warm connection instead of performing a new TCP and TLS handshake each.
+ *
+ * Unlike {@link StripeApiRequestExecutor}, a connection is not torn down with
+ * {@link HttpURLConnection#disconnect()} after a successful exchange. Instead, the response
+ * body is fully consumed and closed, which hands the socket back to the platform's
+ * keep-alive pool (keyed by scheme, host and port). Only the platform knows which sockets are
+ * idle in that pool, so it alone decides how many are kept and for how long, see the
+ * <code>http.maxConnections</code> and <code>http.keepAliveDuration</code> system properties.
+ * A connection whose response could not be read to the end is disconnected, as its socket
+ * can't be reused.
+ *
+ * All connections share the {@link StripeSSLSocketFactory} held by {@link ConnectionFactory},
+ * so when a new handshake is needed it can resume a cached TLS session.
+ */
+final class PooledApiRequestExecutor implements ApiRequestExecutor {
+    @NonNull private final ConnectionFactory mConnectionFactory;
+
+    PooledApiRequestExecutor() {
+        this(new ConnectionFactory());
+    }
+
+    @VisibleForTesting
+    PooledApiRequestExecutor(@NonNull ConnectionFactory connectionFactory) {
+        mConnectionFactory = connectionFactory;
+    }
+
+    /**
+     * Make the request and return the response as a {@link StripeResponse}
+     */
+    @NonNull
+    @Override
+    public StripeResponse execute(@NonNull ApiRequest request)
+            throws APIConnectionException, InvalidRequestException {
+        // HttpURLConnection verifies SSL cert by default
+        HttpURLConnection conn = null;
+        boolean isReusable = false;
+        try {
+            conn = mConnectionFactory.create(request);
+            // trigger the request
+            final int responseCode = conn.getResponseCode();
+            final RequestMetrics.Recorder metricsRecorder = request.getMetricsRecorder();
+            metricsRecorder.endPhase(RequestMetrics.Phase.TIME_TO_FIRST_BYTE);
+            final String responseBody = StripeApiRequestExecutor.getResponseBody(
+                    ConnectionFactory.getResponseStream(conn, responseCode, metricsRecorder));
+            metricsRecorder.endPhase(RequestMetrics.Phase.READ);
+
+            // the body was read to the end and closed, so the connection can be reused
+            isReusable = true;
+            return new StripeResponse(responseCode, responseBody, conn.getHeaderFields());
+        } catch (IOException e) {
+            throw APIConnectionException.create(request.getBaseUrl(), e);
+        } finally {
+            if (conn != null && !isReusable) {
+                conn.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.utils.ObjectUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of a fire-and-forget {@link StripeRequest}, with its URL, headers and body already
+ * encoded, so that it can be written to disk by {@link TelemetryQueue} and sent later, possibly
+ * by another process.
+ *
+ * The credentials of the request, i.e. its {@link #CREDENTIAL_HEADERS}, are dropped so that they
+ * are never written to disk. Analytics requests don't need them, as their params include the
+ * publishable key, and fingerprint requests don't have any.
+ */
+final class QueuedRequest extends StripeRequest {
+    private static final String FIELD_METHOD = "method";
+    private static final String FIELD_URL = "url";
+    private static final String FIELD_MIME_TYPE = "mime_type";
+    private static final String FIELD_HEADERS = "headers";
+    private static final String FIELD_BODY = "body";
+    private static final String FIELD_IS_COALESCABLE = "is_coalescable";
+
+    private static final List<String> CREDENTIAL_HEADERS = Arrays.asList(
+            HeaderTemplate.HEADER_AUTHORIZATION, HeaderTemplate.HEADER_STRIPE_ACCOUNT);
+
+    @NonNull private final Map<String, String> mHeaders;
+    @NonNull private final String mUserAgent;
+    @NonNull private final String mBody;
+    private final boolean mIsCoalescable;
+
+    private QueuedRequest(@NonNull Method method,
+                          @NonNull String url,
+                          @NonNull String mimeType,
+                          @NonNull Map<String, String> headers,
+                          @NonNull String body,
+                          boolean isCoalescable) {
+        super(method, url, null, mimeType);
+        mHeaders = new HashMap<>(headers);
+        mHeaders.keySet().removeAll(CREDENTIAL_HEADERS);
+        final String userAgent = mHeaders.remove(HEADER_USER_AGENT);
+        mUserAgent = userAgent != null ? userAgent : DEFAULT_USER_AGENT;
+        mBody = body;
+        mIsCoalescable = isCoalescable;
+    }
+
+    @NonNull
+    static QueuedRequest create(@NonNull StripeRequest request)
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final String body = Method.POST == request.method ?
+                new String(request.getOutputBytes(), CHARSET) : "";
+        return new QueuedRequest(request.method, request.getUrl(), request.getMimeType(),
+                request.getHeaders(), body, request instanceof FingerprintRequest);
+    }
+
+    @Nullable
+    static QueuedRequest fromJson(@NonNull String json) {
+        try {
+            final JSONObject jsonObject = new JSONObject(json);
+            final JSONObject headersJson = jsonObject.getJSONObject(FIELD_HEADERS);
+            final Map<String, String> headers = new HashMap<>();
+            final Iterator<String> keys = headersJson.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                headers.put(key, headersJson.getString(key));
+            }
+
+            return new QueuedRequest(
+                    Method.valueOf(jsonObject.getString(FIELD_METHOD)),
+                    jsonObject.getString(FIELD_URL),
+                    jsonObject.getString(FIELD_MIME_TYPE),
+                    headers,
+                    jsonObject.getString(FIELD_BODY),
+                    jsonObject.optBoolean(FIELD_IS_COALESCABLE)
+            );
+        } catch (JSONException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @NonNull
+    String toJson() {
+        try {
+            return new JSONObject()
+                    .put(FIELD_METHOD, method.name())
+                    .put(FIELD_URL, getBaseUrl())
+                    .put(FIELD_MIME_TYPE, getMimeType())
+                    .put(FIELD_HEADERS, new JSONObject(getHeaders()))
+                    .put(FIELD_BODY, mBody)
+                    .put(FIELD_IS_COALESCABLE, mIsCoalescable)
+                    .toString();
+        } catch (JSONException e) {
+            // none of the values can be non-finite numbers
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return true if this request describes the state of the device rather than an event
+     * (i.e. it is a fingerprint request), so that sending one of several identical copies is
+     * enough
+     */
+    boolean isCoalescable() {
+        return mIsCoalescable;
+    }
+
+    @NonNull
+    @Override
+    Map<String, String> createHeaders() {
+        return new HashMap<>(mHeaders);
+    }
+
+    @NonNull
+    @Override
+    String getUserAgent() {
+        return mUserAgent;
+    }
+
+    @NonNull
+    @Override
+    byte[] getOutputBytes() throws UnsupportedEncodingException {
+        return mBody.getBytes(CHARSET);
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(getBaseHashCode(), mHeaders, mUserAgent, mBody, mIsCoalescable);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return super.equals(obj) || (obj instanceof QueuedRequest &&
+                typedEquals((QueuedRequest) obj));
+    }
+
+    private boolean typedEquals(@NonNull QueuedRequest obj) {
+        return super.typedEquals(obj) &&
+                ObjectUtils.equals(mHeaders, obj.mHeaders) &&
+                ObjectUtils.equals(mUserAgent, obj.mUserAgent) &&
+                ObjectUtils.equals(mBody, obj.mBody) &&
+                mIsCoalescable == obj.mIsCoalescable;
+    }
+}
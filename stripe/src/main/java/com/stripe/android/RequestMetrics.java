@@ -0,0 +1,328 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency and payload size of one request made by the SDK, reported to the
+ * {@link RequestMetricsListener} set with {@link Stripe#setRequestMetricsListener}.
+ *
+ * The time spent in each {@link Phase} is measured for the last attempt of the request. The
+ * total duration covers every attempt, including any time spent waiting before a retry.
+ */
+public final class RequestMetrics {
+    @NonNull private final String mEndpoint;
+    @NonNull private final String mMethod;
+    @NonNull private final Outcome mOutcome;
+    private final int mResponseCode;
+    @Nullable private final String mRequestId;
+    private final int mRetryCount;
+    private final long mRetryDelayMillis;
+    private final boolean mIsFireAndForget;
+    private final long mTotalNanos;
+    @NonNull private final long[] mPhaseNanos;
+    private final long mBytesSent;
+    private final long mBytesReceived;
+
+    RequestMetrics(@NonNull String endpoint, @NonNull String method,
+                   @NonNull Outcome outcome, int responseCode,
+                   @Nullable String requestId, int retryCount, long retryDelayMillis,
+                   boolean isFireAndForget, long totalNanos, @NonNull long[] phaseNanos,
+                   long bytesSent, long bytesReceived) {
+        mEndpoint = endpoint;
+        mMethod = method;
+        mOutcome = outcome;
+        mResponseCode = responseCode;
+        mRequestId = requestId;
+        mRetryCount = retryCount;
+        mRetryDelayMillis = retryDelayMillis;
+        mIsFireAndForget = isFireAndForget;
+        mTotalNanos = totalNanos;
+        mPhaseNanos = phaseNanos;
+        mBytesSent = bytesSent;
+        mBytesReceived = bytesReceived;
+    }
+
+    /**
+     * @return the URL of the request, without its query string
+     */
+    @NonNull
+    public String getEndpoint() {
+        return mEndpoint;
+    }
+
+    /**
+     * @return the HTTP method of the request, e.g. <code>POST</code>
+     */
+    @NonNull
+    public String getMethod() {
+        return mMethod;
+    }
+
+    @NonNull
+    public Outcome getOutcome() {
+        return mOutcome;
+    }
+
+    /**
+     * @return the HTTP status code of the response, or 0 if no response was received
+     */
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * @return the value of the <code>Request-Id</code> response header, if any
+     */
+    @Nullable
+    public String getRequestId() {
+        return mRequestId;
+    }
+
+    /**
+     * @return the number of attempts made after the first
+     */
+    public int getRetryCount() {
+        return mRetryCount;
+    }
+
+    /**
+     * @return the total time spent waiting between attempts, in milliseconds, which is part of
+     *         {@link #getTotalNanos()}
+     */
+    public long getRetryDelayMillis() {
+        return mRetryDelayMillis;
+    }
+
+    /**
+     * @return true if the request was an analytics or fingerprinting request sent in the
+     *         background, false if it was an API request whose result was returned to the app
+     */
+    public boolean isFireAndForget() {
+        return mIsFireAndForget;
+    }
+
+    /**
+     * @return the time from the start of the request until its outcome was known, in
+     *         nanoseconds
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    /**
+     * @return the time spent in {@code phase} during the last attempt, in nanoseconds, or 0 if
+     *         the request did not reach that phase
+     */
+    public long getPhaseNanos(@NonNull Phase phase) {
+        return mPhaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the size of the request body sent in the last attempt, in bytes
+     */
+    public long getBytesSent() {
+        return mBytesSent;
+    }
+
+    /**
+     * @return the size of the response body received, in bytes
+     */
+    public long getBytesReceived() {
+        return mBytesReceived;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s %s: %s (%d, %s) in %d ms after %d retries (%d ms of backoff), " +
+                        "%d B sent, %d B received",
+                mMethod, mEndpoint, mOutcome, mResponseCode, mRequestId,
+                TimeUnit.NANOSECONDS.toMillis(mTotalNanos), mRetryCount, mRetryDelayMillis,
+                mBytesSent, mBytesReceived);
+    }
+
+    public enum Outcome {
+        /**
+         * A response with a 2xx status code was received.
+         */
+        SUCCESS,
+
+        /**
+         * A response with an error status code was received.
+         */
+        HTTP_ERROR,
+
+        /**
+         * No response was received, e.g. because the connection failed.
+         */
+        NETWORK_ERROR
+    }
+
+    /**
+     * The steps of an HTTP exchange. <code>HttpURLConnection</code> resolves the host,
+     * establishes the TCP connection and performs the TLS handshake in a single call, so all
+     * three are measured as {@link #CONNECT}. A connection reused from the keep-alive pool
+     * connects almost instantly.
+     */
+    public enum Phase {
+        /**
+         * Opening the connection, including the DNS lookup and the TLS handshake.
+         */
+        CONNECT,
+
+        /**
+         * Writing the request body.
+         */
+        WRITE,
+
+        /**
+         * Waiting for the status line of the response after the request was sent.
+         */
+        TIME_TO_FIRST_BYTE,
+
+        /**
+         * Reading the response body.
+         */
+        READ
+    }
+
+    /**
+     * Collects the timings of a {@link StripeRequest} while it is being made. A request is
+     * only made by one thread at a time, so a recorder is not thread-safe.
+     */
+    static final class Recorder {
+        @NonNull private final long[] mPhaseNanos = new long[Phase.values().length];
+        private boolean mIsStarted;
+        private long mStartNanos;
+        private long mMarkNanos;
+        private int mAttemptCount;
+        private long mRetryDelayMillis;
+        private long mBytesSent;
+        private long mBytesReceived;
+
+        /**
+         * Start timing a phase, and the request as a whole if this is its first phase.
+         */
+        void mark() {
+            mMarkNanos = System.nanoTime();
+            if (!mIsStarted) {
+                mIsStarted = true;
+                mStartNanos = mMarkNanos;
+            }
+        }
+
+        /**
+         * Record the time since the last call to {@link #mark()} or {@link #endPhase(Phase)}
+         * as {@code phase}, and start timing the next phase.
+         */
+        void endPhase(@NonNull Phase phase) {
+            final long nowNanos = System.nanoTime();
+            mPhaseNanos[phase.ordinal()] = nowNanos - mMarkNanos;
+            mMarkNanos = nowNanos;
+        }
+
+        /**
+         * Start timing a new attempt at the request, forgetting the phases of the previous
+         * attempt.
+         */
+        void startAttempt() {
+            mAttemptCount++;
+            Arrays.fill(mPhaseNanos, 0);
+            mBytesSent = 0;
+            mBytesReceived = 0;
+            mark();
+        }
+
+        /**
+         * Record the total time that the request waited between attempts.
+         */
+        void setRetryDelayMillis(long retryDelayMillis) {
+            mRetryDelayMillis = retryDelayMillis;
+        }
+
+        void addBytesSent(long byteCount) {
+            mBytesSent += byteCount;
+        }
+
+        /**
+         * @return a stream that counts the bytes read from {@code responseStream} as received
+         */
+        @Nullable
+        InputStream countBytesReceived(@Nullable InputStream responseStream) {
+            if (responseStream == null) {
+                return null;
+            }
+            return new FilterInputStream(responseStream) {
+                @Override
+                public int read() throws IOException {
+                    final int value = super.read();
+                    if (value != -1) {
+                        mBytesReceived++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(@NonNull byte[] buffer, int offset, int length)
+                        throws IOException {
+                    final int byteCount = super.read(buffer, offset, length);
+                    if (byteCount > 0) {
+                        mBytesReceived += byteCount;
+                    }
+                    return byteCount;
+                }
+            };
+        }
+
+        /**
+         * @param response the response to the last attempt, or {@code null} if none was received
+         */
+        @NonNull
+        RequestMetrics build(@NonNull StripeRequest request, @Nullable StripeResponse response,
+                             boolean isFireAndForget) {
+            final Outcome outcome;
+            if (response == null) {
+                outcome = Outcome.NETWORK_ERROR;
+            } else if (response.hasErrorCode()) {
+                outcome = Outcome.HTTP_ERROR;
+            } else {
+                outcome = Outcome.SUCCESS;
+            }
+            return new RequestMetrics(request.getBaseUrl(), request.method.code, outcome,
+                    response != null ? response.getResponseCode() : 0,
+                    response != null ? response.getRequestId() : null,
+                    Math.max(mAttemptCount - 1, 0), mRetryDelayMillis, isFireAndForget,
+                    mIsStarted ? System.nanoTime() - mStartNanos : 0,
+                    Arrays.copyOf(mPhaseNanos, mPhaseNanos.length), mBytesSent,
+                    mBytesReceived);
+        }
+
+        /**
+         * Send the metrics of {@code request} to the listener set with
+         * {@link Stripe#setRequestMetricsListener}, if any. An exception thrown by the listener
+         * is ignored, so that it can't fail the request.
+         */
+        @SuppressWarnings("checkstyle:IllegalCatch")
+        void report(@NonNull StripeRequest request, @Nullable StripeResponse response,
+                    boolean isFireAndForget) {
+            final RequestMetricsListener listener = Stripe.getRequestMetricsListener();
+            if (listener == null) {
+                return;
+            }
+
+            try {
+                listener.onRequestCompleted(build(request, response, isFireAndForget));
+            } catch (RuntimeException ignore) {
+            }
+        }
+    }
+}
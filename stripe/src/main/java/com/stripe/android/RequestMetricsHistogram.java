@@ -0,0 +1,242 @@
+package com.stripe.android;
+
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link RequestMetricsListener} that aggregates {@link RequestMetrics} in memory, per
+ * endpoint, into a histogram of latencies and totals that can be read at any time, e.g. to log
+ * them or to show them in a debug screen.
+ *
+ * Endpoints are identified by HTTP method and path, with object IDs replaced by
+ * <code>{id}</code>, e.g. <code>POST /v1/payment_intents/{id}/confirm</code>, so that the
+ * number of endpoints stays small.
+ *
+ * <pre>
+ * final RequestMetricsHistogram histogram = new RequestMetricsHistogram();
+ * Stripe.setRequestMetricsListener(histogram);
+ * ...
+ * for (String endpoint : histogram.getEndpoints()) {
+ *     final RequestMetricsHistogram.Summary summary = histogram.getSummary(endpoint);
+ *     Log.d(TAG, endpoint + " p90: " + summary.getLatencyPercentileMillis(0.9));
+ * }
+ * </pre>
+ */
+public final class RequestMetricsHistogram implements RequestMetricsListener {
+    /**
+     * The upper bounds of the latency buckets, in milliseconds. Latencies above the last bound
+     * are counted in an overflow bucket.
+     */
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000
+    };
+
+    // e.g. "pi_1EZnUZ2eZvKYlo2CvS8AUoGa" or "cus_123", but not "payment_intents"
+    private static final Pattern OBJECT_ID =
+            Pattern.compile("[a-z]+_[a-zA-Z0-9_]*[A-Z0-9][a-zA-Z0-9_]*");
+
+    @NonNull private final Map<String, Stats> mStats = new HashMap<>();
+
+    @Override
+    public synchronized void onRequestCompleted(@NonNull RequestMetrics metrics) {
+        final String endpoint = getEndpointKey(metrics.getMethod(), metrics.getEndpoint());
+        Stats stats = mStats.get(endpoint);
+        if (stats == null) {
+            stats = new Stats();
+            mStats.put(endpoint, stats);
+        }
+        stats.add(metrics);
+    }
+
+    /**
+     * @return the endpoints for which metrics were received, sorted
+     */
+    @NonNull
+    public synchronized Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(new TreeSet<>(mStats.keySet()));
+    }
+
+    /**
+     * @return a snapshot of the metrics received for {@code endpoint}, or {@code null} if none
+     *         were received
+     */
+    @Nullable
+    public synchronized Summary getSummary(@NonNull String endpoint) {
+        final Stats stats = mStats.get(endpoint);
+        return stats != null ? stats.toSummary() : null;
+    }
+
+    /**
+     * Discard every metric received so far.
+     */
+    public synchronized void clear() {
+        mStats.clear();
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static String getEndpointKey(@NonNull String method, @NonNull String url) {
+        final int schemeEnd = url.indexOf("://");
+        final int pathStart = schemeEnd != -1 ? url.indexOf('/', schemeEnd + 3) : -1;
+        final String path = pathStart != -1 ? url.substring(pathStart) : "/";
+
+        final StringBuilder key = new StringBuilder(method).append(' ');
+        final String[] segments = path.split("/", -1);
+        for (int i = 1; i < segments.length; i++) {
+            key.append('/');
+            key.append(OBJECT_ID.matcher(segments[i]).matches() ? "{id}" : segments[i]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * A snapshot of the metrics of one endpoint.
+     */
+    public static final class Summary {
+        private final int mCount;
+        @NonNull private final int[] mOutcomeCounts;
+        private final int mRetryCount;
+        private final long mBytesSent;
+        private final long mBytesReceived;
+        @NonNull private final long[] mPhaseNanos;
+        @NonNull private final int[] mBucketCounts;
+        private final long mMaxLatencyMillis;
+
+        private Summary(int count, @NonNull int[] outcomeCounts, int retryCount,
+                        long bytesSent, long bytesReceived, @NonNull long[] phaseNanos,
+                        @NonNull int[] bucketCounts, long maxLatencyMillis) {
+            mCount = count;
+            mOutcomeCounts = outcomeCounts;
+            mRetryCount = retryCount;
+            mBytesSent = bytesSent;
+            mBytesReceived = bytesReceived;
+            mPhaseNanos = phaseNanos;
+            mBucketCounts = bucketCounts;
+            mMaxLatencyMillis = maxLatencyMillis;
+        }
+
+        /**
+         * @return the number of requests
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * @return the number of requests with the given outcome
+         */
+        public int getCount(@NonNull RequestMetrics.Outcome outcome) {
+            return mOutcomeCounts[outcome.ordinal()];
+        }
+
+        /**
+         * @return the total number of retries of every request
+         */
+        public int getRetryCount() {
+            return mRetryCount;
+        }
+
+        /**
+         * @return the total number of request body bytes sent
+         */
+        public long getBytesSent() {
+            return mBytesSent;
+        }
+
+        /**
+         * @return the total number of response body bytes received
+         */
+        public long getBytesReceived() {
+            return mBytesReceived;
+        }
+
+        /**
+         * @return the average time spent in {@code phase} per request, in nanoseconds
+         */
+        public long getMeanPhaseNanos(@NonNull RequestMetrics.Phase phase) {
+            return mCount == 0 ? 0 : mPhaseNanos[phase.ordinal()] / mCount;
+        }
+
+        /**
+         * @return the longest total latency, in milliseconds
+         */
+        public long getMaxLatencyMillis() {
+            return mMaxLatencyMillis;
+        }
+
+        /**
+         * @param percentile e.g. 0.5 for the median or 0.99 for the 99th percentile
+         * @return an upper bound of the total latency of that fraction of requests, in
+         *         milliseconds, which is the upper bound of the histogram bucket that the
+         *         percentile falls in, but no more than {@link #getMaxLatencyMillis()}
+         */
+        public long getLatencyPercentileMillis(
+                @FloatRange(from = 0.0, to = 1.0) double percentile) {
+            if (percentile < 0 || percentile > 1) {
+                throw new IllegalArgumentException("percentile must be between 0 and 1");
+            }
+
+            final long rank = Math.max(1, (long) Math.ceil(percentile * mCount));
+            long cumulativeCount = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulativeCount += mBucketCounts[i];
+                if (cumulativeCount >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MILLIS[i], mMaxLatencyMillis);
+                }
+            }
+            return mMaxLatencyMillis;
+        }
+    }
+
+    private static final class Stats {
+        private int mCount;
+        @NonNull private final int[] mOutcomeCounts =
+                new int[RequestMetrics.Outcome.values().length];
+        private int mRetryCount;
+        private long mBytesSent;
+        private long mBytesReceived;
+        @NonNull private final long[] mPhaseNanos =
+                new long[RequestMetrics.Phase.values().length];
+        // one more bucket than there are bounds, for the overflow
+        @NonNull private final int[] mBucketCounts = new int[BUCKET_BOUNDS_MILLIS.length + 1];
+        private long mMaxLatencyMillis;
+
+        private void add(@NonNull RequestMetrics metrics) {
+            mCount++;
+            mOutcomeCounts[metrics.getOutcome().ordinal()]++;
+            mRetryCount += metrics.getRetryCount();
+            mBytesSent += metrics.getBytesSent();
+            mBytesReceived += metrics.getBytesReceived();
+            for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+                mPhaseNanos[phase.ordinal()] += metrics.getPhaseNanos(phase);
+            }
+
+            final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(metrics.getTotalNanos());
+            mMaxLatencyMillis = Math.max(mMaxLatencyMillis, latencyMillis);
+            int bucket = Arrays.binarySearch(BUCKET_BOUNDS_MILLIS, latencyMillis);
+            if (bucket < 0) {
+                // the index of the first bound greater than the latency
+                bucket = -bucket - 1;
+            }
+            mBucketCounts[bucket]++;
+        }
+
+        @NonNull
+        private Summary toSummary() {
+            return new Summary(mCount, mOutcomeCounts.clone(), mRetryCount, mBytesSent,
+                    mBytesReceived, mPhaseNanos.clone(), mBucketCounts.clone(),
+                    mMaxLatencyMillis);
+        }
+    }
+}
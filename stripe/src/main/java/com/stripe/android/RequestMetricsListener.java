@@ -0,0 +1,21 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Represents a listener for the {@link RequestMetrics} of the requests made by the SDK.
+ *
+ * See {@link Stripe#setRequestMetricsListener(RequestMetricsListener)} and
+ * {@link RequestMetricsHistogram}
+ */
+public interface RequestMetricsListener {
+
+    /**
+     * Called on the thread that made the request, once its outcome is known. This must return
+     * quickly, because the caller of an API request is waiting for its result.
+     *
+     * An API request is reported once, after any retries. A fire-and-forget request that is
+     * queued and sent again in a later batch is reported after every attempt.
+     */
+    void onRequestCompleted(@NonNull RequestMetrics metrics);
+}
@@ -0,0 +1,227 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ApiRequestExecutor} that retries requests that failed to connect or were rate
+ * limited, waiting between attempts with exponential backoff and jitter.
+ *
+ * A rate limited (HTTP 429) request was not processed, so it is always retried. A request that
+ * failed with an {@link APIConnectionException} may have been processed, so it is only retried
+ * if it is a GET, or a POST with an {@link ApiRequest#getIdempotencyKey() idempotency key}. Every
+ * attempt sends the same {@link ApiRequest}, and so the same key, which lets Stripe return the
+ * result of the first attempt instead of repeating it.
+ *
+ * If a rate limited response has a <code>Retry-After</code> header, the next attempt waits at
+ * least that long. If it asks for longer than {@link #mMaxBackoffMillis}, the response is
+ * returned without retrying.
+ */
+final class RetryingApiRequestExecutor implements ApiRequestExecutor {
+    static final int DEFAULT_MAX_RETRIES = 2;
+    static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 500L;
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * The longest that a request takes with the default retries if every attempt uses up the
+     * connect timeout and then the read timeout of {@link ConnectionFactory}.
+     */
+    static final long DEFAULT_MAX_EXECUTION_MILLIS = (DEFAULT_MAX_RETRIES + 1) *
+            (ConnectionFactory.CONNECT_TIMEOUT_MILLIS + ConnectionFactory.READ_TIMEOUT_MILLIS) +
+            DEFAULT_MAX_RETRIES * DEFAULT_MAX_BACKOFF_MILLIS;
+
+    /**
+     * The longest that a request takes with the default retries before its first retry starts,
+     * if its first attempt uses up both timeouts of {@link ConnectionFactory}.
+     */
+    static final long DEFAULT_FIRST_RETRY_MILLIS = ConnectionFactory.CONNECT_TIMEOUT_MILLIS +
+            ConnectionFactory.READ_TIMEOUT_MILLIS + DEFAULT_INITIAL_BACKOFF_MILLIS;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long NO_RETRY = -1L;
+
+    static final Sleeper THREAD_SLEEPER = new Sleeper() {
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    /**
+     * Adds the time that each request waited between attempts to its {@link RequestMetrics},
+     * next to the retry count that its {@link RequestMetrics.Recorder} counts from its attempts.
+     */
+    static final RetryListener METRICS_RETRY_LISTENER = new RetryListener() {
+        @Override
+        public void onRequestCompleted(@NonNull ApiRequest request, int retryCount,
+                                       long retryDelayMillis) {
+            request.getMetricsRecorder().setRetryDelayMillis(retryDelayMillis);
+        }
+    };
+
+    @NonNull private final ApiRequestExecutor mDelegate;
+    private final int mMaxRetries;
+    private final long mInitialBackoffMillis;
+    private final long mMaxBackoffMillis;
+    @NonNull private final Random mRandom;
+    @NonNull private final Sleeper mSleeper;
+    @Nullable private final RetryListener mRetryListener;
+
+    RetryingApiRequestExecutor(@NonNull ApiRequestExecutor delegate) {
+        this(delegate, DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF_MILLIS,
+                DEFAULT_MAX_BACKOFF_MILLIS, new Random(), THREAD_SLEEPER,
+                METRICS_RETRY_LISTENER);
+    }
+
+    /**
+     * @param maxRetries the maximum number of times to retry a request after the first attempt
+     * @param initialBackoffMillis the delay before the first retry, which doubles for every
+     *                             retry after it
+     * @param maxBackoffMillis the longest delay before a retry
+     * @param retryListener notified when each request completes
+     */
+    @VisibleForTesting
+    RetryingApiRequestExecutor(@NonNull ApiRequestExecutor delegate,
+                               @IntRange(from = 0) int maxRetries,
+                               long initialBackoffMillis,
+                               long maxBackoffMillis,
+                               @NonNull Random random,
+                               @NonNull Sleeper sleeper,
+                               @Nullable RetryListener retryListener) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "maxRetries must be >= 0, was %d", maxRetries));
+        }
+        if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "Invalid backoff: initial %d ms, max %d ms",
+                    initialBackoffMillis, maxBackoffMillis));
+        }
+        mDelegate = delegate;
+        mMaxRetries = maxRetries;
+        mInitialBackoffMillis = initialBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+        mRandom = random;
+        mSleeper = sleeper;
+        mRetryListener = retryListener;
+    }
+
+    @NonNull
+    @Override
+    public StripeResponse execute(@NonNull ApiRequest request)
+            throws APIConnectionException, InvalidRequestException {
+        int retryCount = 0;
+        long retryDelayMillis = 0;
+        try {
+            while (true) {
+                StripeResponse response = null;
+                APIConnectionException connectionException = null;
+                try {
+                    response = mDelegate.execute(request);
+                } catch (APIConnectionException e) {
+                    connectionException = e;
+                }
+
+                final long delayMillis = getRetryDelayMillis(request, response, retryCount);
+                if (delayMillis == NO_RETRY || !sleep(delayMillis)) {
+                    if (connectionException != null) {
+                        throw connectionException;
+                    }
+                    return Objects.requireNonNull(response);
+                }
+
+                retryCount++;
+                retryDelayMillis += delayMillis;
+            }
+        } finally {
+            if (mRetryListener != null) {
+                mRetryListener.onRequestCompleted(request, retryCount, retryDelayMillis);
+            }
+        }
+    }
+
+    /**
+     * @param response the response to the last attempt, or {@code null} if it failed to connect
+     * @return the delay before the next attempt, or {@link #NO_RETRY}
+     */
+    private long getRetryDelayMillis(@NonNull ApiRequest request,
+                                     @Nullable StripeResponse response,
+                                     int retryCount) {
+        if (retryCount >= mMaxRetries) {
+            return NO_RETRY;
+        }
+
+        if (response == null) {
+            return isSafeToRepeat(request) ? getBackoffMillis(retryCount) : NO_RETRY;
+        } else if (response.getResponseCode() == HTTP_TOO_MANY_REQUESTS) {
+            final Long retryAfterMillis = response.getRetryAfterMillis();
+            if (retryAfterMillis == null) {
+                return getBackoffMillis(retryCount);
+            } else if (retryAfterMillis > mMaxBackoffMillis) {
+                return NO_RETRY;
+            } else {
+                return Math.max(retryAfterMillis, getBackoffMillis(retryCount));
+            }
+        } else {
+            return NO_RETRY;
+        }
+    }
+
+    /**
+     * @return a delay between half of and the full exponential backoff for this retry, so that
+     *         clients that failed at the same time don't retry at the same time
+     */
+    private long getBackoffMillis(int retryCount) {
+        final long backoffMillis = Math.min(mMaxBackoffMillis,
+                mInitialBackoffMillis * (1L << Math.min(retryCount, 30)));
+        final long halfBackoffMillis = backoffMillis / 2;
+        return halfBackoffMillis +
+                (long) (mRandom.nextDouble() * (backoffMillis - halfBackoffMillis));
+    }
+
+    private static boolean isSafeToRepeat(@NonNull ApiRequest request) {
+        return StripeRequest.Method.GET == request.method || request.getIdempotencyKey() != null;
+    }
+
+    /**
+     * @return {@code false} if the thread was interrupted, in which case the request should not
+     *         be retried
+     */
+    private boolean sleep(long millis) {
+        try {
+            mSleeper.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * Reports how often requests are retried and how much latency the retries add.
+     */
+    interface RetryListener {
+        /**
+         * Called once for every request, whether or not it eventually succeeded.
+         *
+         * @param retryCount the number of attempts after the first
+         * @param retryDelayMillis the total time spent waiting between attempts
+         */
+        void onRequestCompleted(@NonNull ApiRequest request, int retryCount,
+                                long retryDelayMillis);
+    }
+}
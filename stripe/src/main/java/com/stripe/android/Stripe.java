@@ -3,7 +3,6 @@ package com.stripe.android;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.Size;
@@ -32,6 +31,8 @@ import com.stripe.android.model.SourceParams;
 import com.stripe.android.model.Token;
 import com.stripe.android.view.AuthActivityStarter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -51,10 +52,12 @@ public class Stripe {
             String.format(Locale.ROOT, "AndroidBindings/%s", BuildConfig.VERSION_NAME);
 
     @Nullable private static AppInfo sAppInfo;
+    @Nullable private static volatile RequestMetricsListener sRequestMetricsListener;
 
     @NonNull private final StripeRepository mStripeRepository;
     @NonNull private final StripeNetworkUtils mStripeNetworkUtils;
     @NonNull private final PaymentController mPaymentController;
+    @NonNull private final AdaptiveBatchExecutor mBatchExecutor;
     @NonNull private final TokenCreator mTokenCreator;
     @NonNull private final ApiKeyValidator mApiKeyValidator;
     private String mDefaultPublishableKey;
@@ -69,8 +72,7 @@ public class Stripe {
      */
     @Deprecated
     public Stripe(@NonNull Context context) {
-        this(context, new StripeApiRepository(context, sAppInfo), new StripeNetworkUtils(context),
-                null, null);
+        this(StripeClientCore.getInstance(context), null, null);
     }
 
     /**
@@ -80,7 +82,7 @@ public class Stripe {
      * @param publishableKey the client's publishable key
      */
     public Stripe(@NonNull Context context, @NonNull String publishableKey) {
-        this(context, new StripeApiRepository(context, sAppInfo), new StripeNetworkUtils(context),
+        this(StripeClientCore.getInstance(context),
                 ApiKeyValidator.get().requireValid(publishableKey), null);
     }
 
@@ -96,14 +98,37 @@ public class Stripe {
                   @NonNull String publishableKey,
                   @NonNull String stripeAccountId) {
         this(
-                context,
-                new StripeApiRepository(context, sAppInfo),
-                new StripeNetworkUtils(context),
+                StripeClientCore.getInstance(context),
                 ApiKeyValidator.get().requireValid(publishableKey),
                 stripeAccountId
         );
     }
 
+    /**
+     * Create an instance that uses the {@link StripeRepository}, {@link PaymentController} and
+     * {@link AdaptiveBatchExecutor} of {@code core}, so that it only holds its publishable key
+     * and account.
+     */
+    private Stripe(@NonNull StripeClientCore core,
+                   @Nullable String publishableKey,
+                   @Nullable String stripeAccountId) {
+        this(core.getComponents(sAppInfo), publishableKey, stripeAccountId);
+    }
+
+    private Stripe(@NonNull StripeClientCore.Components components,
+                   @Nullable String publishableKey,
+                   @Nullable String stripeAccountId) {
+        this(
+                components.stripeRepository,
+                components.networkUtils,
+                components.paymentController,
+                components.batchExecutor,
+                publishableKey,
+                stripeAccountId,
+                createTokenCreator(components.stripeRepository)
+        );
+    }
+
     Stripe(@NonNull Context context,
            @NonNull final StripeRepository stripeRepository,
            @NonNull StripeNetworkUtils stripeNetworkUtils,
@@ -129,19 +154,7 @@ public class Stripe {
                 paymentController,
                 publishableKey,
                 stripeAccountId,
-                new TokenCreator() {
-                    @Override
-                    public void create(
-                            @NonNull final Map<String, Object> tokenParams,
-                            @NonNull final ApiRequest.Options options,
-                            @NonNull @Token.TokenType final String tokenType,
-                            @Nullable final Executor executor,
-                            @NonNull final ApiResultCallback<Token> callback) {
-                        executeTask(executor,
-                                new CreateTokenTask(stripeRepository, tokenParams, options,
-                                        tokenType, callback));
-                    }
-                }
+                createTokenCreator(stripeRepository)
         );
     }
 
@@ -152,10 +165,29 @@ public class Stripe {
            @Nullable String publishableKey,
            @Nullable String stripeAccountId,
            @NonNull TokenCreator tokenCreator) {
+        this(
+                stripeRepository,
+                stripeNetworkUtils,
+                paymentController,
+                new AdaptiveBatchExecutor(),
+                publishableKey,
+                stripeAccountId,
+                tokenCreator
+        );
+    }
+
+    private Stripe(@NonNull StripeRepository stripeRepository,
+                   @NonNull StripeNetworkUtils stripeNetworkUtils,
+                   @NonNull PaymentController paymentController,
+                   @NonNull AdaptiveBatchExecutor batchExecutor,
+                   @Nullable String publishableKey,
+                   @Nullable String stripeAccountId,
+                   @NonNull TokenCreator tokenCreator) {
         mApiKeyValidator = new ApiKeyValidator();
         mStripeRepository = stripeRepository;
         mStripeNetworkUtils = stripeNetworkUtils;
         mPaymentController = paymentController;
+        mBatchExecutor = batchExecutor;
         mTokenCreator = tokenCreator;
         mStripeAccountId = stripeAccountId;
         mDefaultPublishableKey = publishableKey != null ?
@@ -170,6 +202,7 @@ public class Stripe {
      */
     public static void setAppInfo(@Nullable AppInfo appInfo) {
         sAppInfo = appInfo;
+        HeaderTemplate.clearCache();
     }
 
     @Nullable
@@ -177,6 +210,24 @@ public class Stripe {
         return sAppInfo;
     }
 
+    /**
+     * Set a listener that receives the latency, payload size and outcome of every request made
+     * by the SDK, including analytics requests. The listener applies to every {@link Stripe}
+     * instance in the process.
+     *
+     * See {@link RequestMetricsHistogram} for a listener that aggregates the metrics in memory.
+     *
+     * @param listener the listener, or {@code null} to stop collecting metrics
+     */
+    public static void setRequestMetricsListener(@Nullable RequestMetricsListener listener) {
+        sRequestMetricsListener = listener;
+    }
+
+    @Nullable
+    static RequestMetricsListener getRequestMetricsListener() {
+        return sRequestMetricsListener;
+    }
+
     /**
      * Confirm and, if necessary, authenticate a {@link SetupIntent}.
      *
@@ -453,6 +504,20 @@ public class Stripe {
         createBankAccountToken(bankAccount, mDefaultPublishableKey, null, callback);
     }
 
+    /**
+     * Same as {@link #createBankAccountToken(BankAccount, ApiResultCallback)}, but returns a
+     * handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createBankAccountTokenCancellable(
+            @NonNull final BankAccount bankAccount,
+            @NonNull final ApiResultCallback<Token> callback) {
+        return createBankAccountTokenCancellable(bankAccount, mDefaultPublishableKey, null,
+                callback);
+    }
+
     /**
      * Call to create a {@link Token} for a {@link BankAccount} with the publishable key and
      * {@link Executor} specified.
@@ -468,9 +533,24 @@ public class Stripe {
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final ApiResultCallback<Token> callback) {
+        createBankAccountTokenCancellable(bankAccount, publishableKey, executor, callback);
+    }
+
+    /**
+     * Same as {@link #createBankAccountToken(BankAccount, String, Executor, ApiResultCallback)},
+     * but returns a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createBankAccountTokenCancellable(
+            @NonNull final BankAccount bankAccount,
+            @NonNull @Size(min = 1) final String publishableKey,
+            @Nullable final Executor executor,
+            @NonNull final ApiResultCallback<Token> callback) {
         final Map<String, Object> params = bankAccount.toParamMap();
         params.putAll(mStripeNetworkUtils.createUidParams());
-        createTokenFromParams(
+        return createTokenFromParams(
                 params,
                 publishableKey,
                 Token.TokenType.BANK_ACCOUNT,
@@ -492,6 +572,19 @@ public class Stripe {
         createPiiToken(personalId, mDefaultPublishableKey, null, callback);
     }
 
+    /**
+     * Same as {@link #createPiiToken(String, ApiResultCallback)}, but returns a handle to the
+     * request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createPiiTokenCancellable(
+            @NonNull final String personalId,
+            @NonNull final ApiResultCallback<Token> callback) {
+        return createPiiTokenCancellable(personalId, mDefaultPublishableKey, null, callback);
+    }
+
     /**
      * Call to create a {@link Token} for PII with the publishable key and
      * {@link Executor} specified.
@@ -507,7 +600,22 @@ public class Stripe {
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final ApiResultCallback<Token> callback) {
-        createTokenFromParams(
+        createPiiTokenCancellable(personalId, publishableKey, executor, callback);
+    }
+
+    /**
+     * Same as {@link #createPiiToken(String, String, Executor, ApiResultCallback)}, but returns
+     * a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createPiiTokenCancellable(
+            @NonNull final String personalId,
+            @NonNull @Size(min = 1) final String publishableKey,
+            @Nullable final Executor executor,
+            @NonNull final ApiResultCallback<Token> callback) {
+        return createTokenFromParams(
                 new PiiTokenParams(personalId).toParamMap(),
                 publishableKey,
                 Token.TokenType.PII,
@@ -585,6 +693,19 @@ public class Stripe {
         createCvcUpdateToken(cvc, mDefaultPublishableKey, null, callback);
     }
 
+    /**
+     * Same as {@link #createCvcUpdateToken(String, ApiResultCallback)}, but returns a handle to
+     * the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createCvcUpdateTokenCancellable(
+            @NonNull @Size(min = 3, max = 4) final String cvc,
+            @NonNull final ApiResultCallback<Token> callback) {
+        return createCvcUpdateTokenCancellable(cvc, mDefaultPublishableKey, null, callback);
+    }
+
     /**
      * Call to create a {@link Token} for CVC with the publishable key and
      * {@link Executor} specified.
@@ -600,7 +721,22 @@ public class Stripe {
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final ApiResultCallback<Token> callback) {
-        createTokenFromParams(
+        createCvcUpdateTokenCancellable(cvc, publishableKey, executor, callback);
+    }
+
+    /**
+     * Same as {@link #createCvcUpdateToken(String, String, Executor, ApiResultCallback)}, but
+     * returns a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createCvcUpdateTokenCancellable(
+            @NonNull @Size(min = 3, max = 4) final String cvc,
+            @NonNull @Size(min = 1) final String publishableKey,
+            @Nullable final Executor executor,
+            @NonNull final ApiResultCallback<Token> callback) {
+        return createTokenFromParams(
                 new CvcTokenParams(cvc).toParamMap(),
                 publishableKey,
                 Token.TokenType.CVC_UPDATE,
@@ -609,7 +745,7 @@ public class Stripe {
     }
 
     /**
-     * Create a {@link Source} using an {@link AsyncTask} on the default {@link Executor} with a
+     * Create a {@link Source} on a background thread with a
      * publishable api key that has already been set on this {@link Stripe} instance.
      *
      * @param sourceParams the {@link SourceParams} to be used
@@ -621,7 +757,19 @@ public class Stripe {
     }
 
     /**
-     * Create a {@link Source} using an {@link AsyncTask}.
+     * Same as {@link #createSource(SourceParams, ApiResultCallback)}, but returns a handle to
+     * the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createSourceCancellable(@NonNull SourceParams sourceParams,
+                                               @NonNull ApiResultCallback<Source> callback) {
+        return createSourceCancellable(sourceParams, callback, mDefaultPublishableKey, null);
+    }
+
+    /**
+     * Create a {@link Source} on a background thread.
      *
      * @param sourceParams the {@link SourceParams} to be used
      * @param callback a {@link ApiResultCallback} to receive a result or an error message
@@ -634,13 +782,28 @@ public class Stripe {
             @NonNull ApiResultCallback<Source> callback,
             @NonNull String publishableKey,
             @Nullable Executor executor) {
-        executeTask(executor,
+        createSourceCancellable(sourceParams, callback, publishableKey, executor);
+    }
+
+    /**
+     * Same as {@link #createSource(SourceParams, ApiResultCallback, String, Executor)}, but
+     * returns a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createSourceCancellable(
+            @NonNull SourceParams sourceParams,
+            @NonNull ApiResultCallback<Source> callback,
+            @NonNull String publishableKey,
+            @Nullable Executor executor) {
+        return executeTask(executor,
                 new CreateSourceTask(mStripeRepository, sourceParams, publishableKey,
                         mStripeAccountId, callback));
     }
 
     /**
-     * Create a {@link PaymentMethod} using an {@link AsyncTask} on the default {@link Executor}
+     * Create a {@link PaymentMethod} on a background thread
      * with a publishable api key that has already been set on this {@link Stripe} instance.
      *
      * @param paymentMethodCreateParams the {@link PaymentMethodCreateParams} to be used
@@ -653,7 +816,21 @@ public class Stripe {
     }
 
     /**
-     * Create a {@link PaymentMethod} using an {@link AsyncTask}.
+     * Same as {@link #createPaymentMethod(PaymentMethodCreateParams, ApiResultCallback)}, but
+     * returns a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createPaymentMethodCancellable(
+            @NonNull PaymentMethodCreateParams paymentMethodCreateParams,
+            @NonNull ApiResultCallback<PaymentMethod> callback) {
+        return createPaymentMethodCancellable(paymentMethodCreateParams, callback,
+                mDefaultPublishableKey, null);
+    }
+
+    /**
+     * Create a {@link PaymentMethod} on a background thread.
      *
      * @param paymentMethodCreateParams the {@link PaymentMethodCreateParams} to be used
      * @param callback a {@link ApiResultCallback} to receive a result or an error message
@@ -666,7 +843,24 @@ public class Stripe {
             @NonNull ApiResultCallback<PaymentMethod> callback,
             @NonNull String publishableKey,
             @Nullable Executor executor) {
-        executeTask(executor, new CreatePaymentMethodTask(mStripeRepository,
+        createPaymentMethodCancellable(paymentMethodCreateParams, callback, publishableKey,
+                executor);
+    }
+
+    /**
+     * Same as
+     * {@link #createPaymentMethod(PaymentMethodCreateParams, ApiResultCallback, String, Executor)},
+     * but returns a handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createPaymentMethodCancellable(
+            @NonNull PaymentMethodCreateParams paymentMethodCreateParams,
+            @NonNull ApiResultCallback<PaymentMethod> callback,
+            @NonNull String publishableKey,
+            @Nullable Executor executor) {
+        return executeTask(executor, new CreatePaymentMethodTask(mStripeRepository,
                 paymentMethodCreateParams, publishableKey, mStripeAccountId, callback));
     }
 
@@ -683,6 +877,18 @@ public class Stripe {
         createToken(card, mDefaultPublishableKey, callback);
     }
 
+    /**
+     * Same as {@link #createToken(Card, ApiResultCallback)}, but returns a handle to the
+     * request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createTokenCancellable(@NonNull final Card card,
+                                              @NonNull final ApiResultCallback<Token> callback) {
+        return createTokenCancellable(card, mDefaultPublishableKey, null, callback);
+    }
+
     /**
      * Call to create a {@link Token} with a specific public key.
      *
@@ -726,10 +932,25 @@ public class Stripe {
             @NonNull @Size(min = 1) final String publishableKey,
             @Nullable final Executor executor,
             @NonNull final ApiResultCallback<Token> callback) {
+        createTokenCancellable(card, publishableKey, executor, callback);
+    }
+
+    /**
+     * Same as {@link #createToken(Card, String, Executor, ApiResultCallback)}, but returns a
+     * handle to the request.
+     *
+     * @return a {@link Cancellable} that stops the request and the callback
+     */
+    @NonNull
+    public Cancellable createTokenCancellable(
+            @NonNull final Card card,
+            @NonNull @Size(min = 1) final String publishableKey,
+            @Nullable final Executor executor,
+            @NonNull final ApiResultCallback<Token> callback) {
         Objects.requireNonNull(card,
                 "Required Parameter: 'card' is required to create a token");
 
-        createTokenFromParams(
+        return createTokenFromParams(
                 mStripeNetworkUtils.createCardTokenParams(card),
                 publishableKey,
                 Token.TokenType.CARD,
@@ -816,6 +1037,31 @@ public class Stripe {
         return retrievePaymentIntentSynchronous(clientSecret, mDefaultPublishableKey);
     }
 
+    /**
+     * Create a {@link StripeIntentPoller} that watches PaymentIntents and SetupIntents with this
+     * instance's publishable key, e.g. to wait for an asynchronous payment method to finish
+     * processing instead of calling {@link #retrievePaymentIntentSynchronous(String)} in a loop.
+     *
+     * Retrievals of the same intent are only shared by the listeners of one poller, so create
+     * one poller per screen and cancel it with {@link StripeIntentPoller#cancelAll()} when the
+     * screen is destroyed.
+     */
+    @NonNull
+    public StripeIntentPoller createIntentPoller(@NonNull StripeIntentPollerConfig config) {
+        return new StripeIntentPoller(mStripeRepository,
+                ApiRequest.Options.create(Objects.requireNonNull(mDefaultPublishableKey),
+                        mStripeAccountId),
+                config);
+    }
+
+    /**
+     * See {@link #createIntentPoller(StripeIntentPollerConfig)}
+     */
+    @NonNull
+    public StripeIntentPoller createIntentPoller() {
+        return createIntentPoller(StripeIntentPollerConfig.DEFAULT);
+    }
+
     /**
      * Blocking method to confirm a {@link PaymentIntent} object.
      * Do not call this on the UI thread or your app will crash.
@@ -929,6 +1175,47 @@ public class Stripe {
         return createPaymentMethodSynchronous(paymentMethodCreateParams, mDefaultPublishableKey);
     }
 
+    /**
+     * Blocking method to create many {@link PaymentMethod} objects. Requests are sent in
+     * parallel, with fewer in flight if Stripe responds with a rate limit error. A failed
+     * request does not stop the rest of the batch.
+     * Do not call this on the UI thread or your app will crash.
+     *
+     * @param paymentMethodCreateParamsList params with which to create each PaymentMethod
+     * @param publishableKey a publishable API key to use
+     * @return a {@link BatchResult} for each item in {@code paymentMethodCreateParamsList},
+     *         in the same order
+     */
+    @NonNull
+    public List<BatchResult<PaymentMethod>> createPaymentMethodsSynchronous(
+            @NonNull List<PaymentMethodCreateParams> paymentMethodCreateParamsList,
+            @NonNull String publishableKey) {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(publishableKey, mStripeAccountId);
+        final List<AdaptiveBatchExecutor.Operation<PaymentMethod>> operations =
+                new ArrayList<>(paymentMethodCreateParamsList.size());
+        for (final PaymentMethodCreateParams params : paymentMethodCreateParamsList) {
+            operations.add(new AdaptiveBatchExecutor.Operation<PaymentMethod>() {
+                @Nullable
+                @Override
+                public PaymentMethod run() throws StripeException {
+                    return mStripeRepository.createPaymentMethod(params, options);
+                }
+            });
+        }
+        return mBatchExecutor.execute(operations);
+    }
+
+    /**
+     * See {@link #createPaymentMethodsSynchronous(List, String)}
+     */
+    @NonNull
+    public List<BatchResult<PaymentMethod>> createPaymentMethodsSynchronous(
+            @NonNull List<PaymentMethodCreateParams> paymentMethodCreateParamsList) {
+        return createPaymentMethodsSynchronous(paymentMethodCreateParamsList,
+                mDefaultPublishableKey);
+    }
+
     /**
      * Blocking method to create a {@link Token}. Do not call this on the UI thread or your app
      * will crash. This method uses the default publishable key for this {@link Stripe} instance.
@@ -979,6 +1266,47 @@ public class Stripe {
         );
     }
 
+    /**
+     * Blocking method to create a {@link Token} for each of many {@link Card}s. Requests are
+     * sent in parallel, with fewer in flight if Stripe responds with a rate limit error.
+     * A failed request does not stop the rest of the batch.
+     * Do not call this on the UI thread or your app will crash.
+     *
+     * @param cards the {@link Card}s to create tokens for
+     * @param publishableKey the publishable key to use with these requests
+     * @return a {@link BatchResult} for each item in {@code cards}, in the same order
+     */
+    @NonNull
+    public List<BatchResult<Token>> createTokensSynchronous(@NonNull List<Card> cards,
+                                                           @NonNull String publishableKey) {
+        final ApiRequest.Options options =
+                ApiRequest.Options.create(publishableKey, mStripeAccountId);
+        final List<AdaptiveBatchExecutor.Operation<Token>> operations =
+                new ArrayList<>(cards.size());
+        for (final Card card : cards) {
+            operations.add(new AdaptiveBatchExecutor.Operation<Token>() {
+                @Nullable
+                @Override
+                public Token run() throws StripeException {
+                    return mStripeRepository.createToken(
+                            mStripeNetworkUtils.createCardTokenParams(card),
+                            options,
+                            Token.TokenType.CARD
+                    );
+                }
+            });
+        }
+        return mBatchExecutor.execute(operations);
+    }
+
+    /**
+     * See {@link #createTokensSynchronous(List, String)}
+     */
+    @NonNull
+    public List<BatchResult<Token>> createTokensSynchronous(@NonNull List<Card> cards) {
+        return createTokensSynchronous(cards, mDefaultPublishableKey);
+    }
+
     /**
      * Blocking method to create a {@link Token} for PII. Do not call this on the UI thread
      * or your app will crash. The method uses the currently set {@link #mDefaultPublishableKey}.
@@ -1216,7 +1544,8 @@ public class Stripe {
         mStripeAccountId = stripeAccountId;
     }
 
-    private void createTokenFromParams(
+    @NonNull
+    private Cancellable createTokenFromParams(
             @NonNull final Map<String, Object> tokenParams,
             @NonNull @Size(min = 1) final String publishableKey,
             @NonNull @Token.TokenType final String tokenType,
@@ -1225,29 +1554,46 @@ public class Stripe {
         Objects.requireNonNull(callback,
                     "Required Parameter: 'callback' is required to use the created " +
                             "token and handle errors");
-        mTokenCreator.create(
+        return mTokenCreator.create(
                 tokenParams,
                 ApiRequest.Options.create(publishableKey, mStripeAccountId),
                 tokenType,
                 executor, callback);
     }
 
-    private static void executeTask(@Nullable Executor executor,
-                             @NonNull AsyncTask<Void, Void, ?> task) {
-        if (executor != null) {
-            task.executeOnExecutor(executor);
-        } else {
-            task.execute();
-        }
+    @NonNull
+    private static TokenCreator createTokenCreator(
+            @NonNull final StripeRepository stripeRepository) {
+        return new TokenCreator() {
+            @NonNull
+            @Override
+            public Cancellable create(
+                    @NonNull final Map<String, Object> tokenParams,
+                    @NonNull final ApiRequest.Options options,
+                    @NonNull @Token.TokenType final String tokenType,
+                    @Nullable final Executor executor,
+                    @NonNull final ApiResultCallback<Token> callback) {
+                return executeTask(executor,
+                        new CreateTokenTask(stripeRepository, tokenParams, options,
+                                tokenType, callback));
+            }
+        };
+    }
+
+    @NonNull
+    private static Cancellable executeTask(@Nullable Executor executor,
+                                           @NonNull ApiOperation<?> task) {
+        return task.executeOnExecutor(executor);
     }
 
     @VisibleForTesting
     interface TokenCreator {
-        void create(@NonNull Map<String, Object> params,
-                    @NonNull ApiRequest.Options options,
-                    @NonNull @Token.TokenType String tokenType,
-                    @Nullable Executor executor,
-                    @NonNull ApiResultCallback<Token> callback);
+        @NonNull
+        Cancellable create(@NonNull Map<String, Object> params,
+                           @NonNull ApiRequest.Options options,
+                           @NonNull @Token.TokenType String tokenType,
+                           @Nullable Executor executor,
+                           @NonNull ApiResultCallback<Token> callback);
     }
 
     private static class CreateSourceTask extends ApiOperation<Source> {
@@ -1260,7 +1606,7 @@ public class Stripe {
                          @NonNull String publishableKey,
                          @Nullable String stripeAccount,
                          @NonNull ApiResultCallback<Source> callback) {
-            super(callback);
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeRepository = stripeRepository;
             mSourceParams = sourceParams;
             mOptions = ApiRequest.Options.create(publishableKey, stripeAccount);
@@ -1283,7 +1629,7 @@ public class Stripe {
                                 @NonNull String publishableKey,
                                 @Nullable String stripeAccount,
                                 @NonNull ApiResultCallback<PaymentMethod> callback) {
-            super(callback);
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeRepository = stripeRepository;
             mPaymentMethodCreateParams = paymentMethodCreateParams;
             mOptions = ApiRequest.Options.create(publishableKey, stripeAccount);
@@ -1308,7 +1654,7 @@ public class Stripe {
                 @NonNull final ApiRequest.Options options,
                 @NonNull @Token.TokenType final String tokenType,
                 @NonNull final ApiResultCallback<Token> callback) {
-            super(callback);
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeRepository = stripeRepository;
             mTokenParams = tokenParams;
             mTokenType = tokenType;
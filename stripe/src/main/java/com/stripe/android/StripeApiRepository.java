@@ -1,10 +1,10 @@
 package com.stripe.android;
 
 import android.content.Context;
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
-import android.util.Pair;
 
 import com.stripe.android.exception.APIConnectionException;
 import com.stripe.android.exception.APIException;
@@ -20,20 +20,21 @@ import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentIntent;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.PaymentMethodJsonParser;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.SetupIntent;
 import com.stripe.android.model.ShippingInformation;
 import com.stripe.android.model.Source;
 import com.stripe.android.model.SourceParams;
 import com.stripe.android.model.Stripe3ds2AuthResult;
 import com.stripe.android.model.Token;
-import com.stripe.android.utils.ObjectUtils;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.StringReader;
 import java.net.HttpURLConnection;
-import java.security.Security;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -46,18 +47,18 @@ import java.util.Objects;
  */
 final class StripeApiRepository implements StripeRepository {
 
-    private static final String DNS_CACHE_TTL_PROPERTY_NAME = "networkaddress.cache.ttl";
-
     @NonNull private final AnalyticsDataFactory mAnalyticsDataFactory;
-    @NonNull private final FingerprintRequestFactory mFingerprintRequestFactory;
+    @NonNull private final FingerprintSession mFingerprintSession;
     @NonNull private final StripeNetworkUtils mNetworkUtils;
     @NonNull private final ApiRequestExecutor mStripeApiRequestExecutor;
     @NonNull private final FireAndForgetRequestExecutor mFireAndForgetRequestExecutor;
     @Nullable private final AppInfo mAppInfo;
 
     StripeApiRepository(@NonNull Context context, @Nullable AppInfo appInfo) {
-        this(context.getApplicationContext(), new StripeApiRequestExecutor(),
-                new StripeFireAndForgetRequestExecutor(), appInfo);
+        this(context.getApplicationContext(),
+                StripeClientCore.getInstance(context).getApiRequestExecutor(),
+                BatchingFireAndForgetRequestExecutor.getInstance(context), appInfo,
+                FingerprintSession.getInstance(context));
     }
 
     @VisibleForTesting
@@ -75,10 +76,19 @@ final class StripeApiRepository implements StripeRepository {
                         @NonNull FireAndForgetRequestExecutor fireAndForgetRequestExecutor,
                         @Nullable AppInfo appInfo,
                         @NonNull FingerprintRequestFactory fingerprintRequestFactory) {
+        this(context, stripeApiRequestExecutor, fireAndForgetRequestExecutor, appInfo,
+                new FingerprintSession(fingerprintRequestFactory));
+    }
+
+    StripeApiRepository(@NonNull Context context,
+                        @NonNull ApiRequestExecutor stripeApiRequestExecutor,
+                        @NonNull FireAndForgetRequestExecutor fireAndForgetRequestExecutor,
+                        @Nullable AppInfo appInfo,
+                        @NonNull FingerprintSession fingerprintSession) {
         mStripeApiRequestExecutor = stripeApiRequestExecutor;
         mFireAndForgetRequestExecutor = fireAndForgetRequestExecutor;
         mAnalyticsDataFactory = new AnalyticsDataFactory(context);
-        mFingerprintRequestFactory = fingerprintRequestFactory;
+        mFingerprintSession = fingerprintSession;
         mNetworkUtils = new StripeNetworkUtils(context);
         mAppInfo = appInfo;
     }
@@ -330,8 +340,7 @@ final class StripeApiRepository implements StripeRepository {
         try {
             final StripeResponse response = makeApiRequest(
                     ApiRequest.createPost(getPaymentMethodsUrl(), params, options, mAppInfo));
-            final PaymentMethod paymentMethod =
-                    PaymentMethod.fromString(response.getResponseBody());
+            final PaymentMethod paymentMethod = parsePaymentMethod(response);
 
             fireAnalyticsRequest(
                     mAnalyticsDataFactory.createPaymentMethodCreationParams(
@@ -488,7 +497,7 @@ final class StripeApiRepository implements StripeRepository {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return PaymentMethod.fromString(response.getResponseBody());
+        return parsePaymentMethod(response);
     }
 
     @Nullable
@@ -517,7 +526,7 @@ final class StripeApiRepository implements StripeRepository {
         );
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
-        return PaymentMethod.fromString(response.getResponseBody());
+        return parsePaymentMethod(response);
     }
 
     /**
@@ -540,12 +549,57 @@ final class StripeApiRepository implements StripeRepository {
         queryParams.put("customer", customerId);
         queryParams.put("type", paymentMethodType);
 
-        fireAnalyticsRequest(
-                mAnalyticsDataFactory
-                        .getDetachPaymentMethodParams(productUsageTokens, publishableKey),
-                // We use the public key to log, so we need different Options.
-                publishableKey
-        );
+        return requestPaymentMethodsPage(queryParams, publishableKey, productUsageTokens,
+                requestOptions).paymentMethods;
+    }
+
+    @NonNull
+    @Override
+    public PaymentMethodsPage getPaymentMethodsPage(
+            @NonNull String customerId,
+            @NonNull String paymentMethodType,
+            @IntRange(from = 1, to = 100) int limit,
+            @Nullable String startingAfter,
+            @NonNull String publishableKey,
+            @NonNull List<String> productUsageTokens,
+            @NonNull ApiRequest.Options requestOptions)
+            throws InvalidRequestException,
+            APIConnectionException,
+            APIException,
+            AuthenticationException,
+            CardException {
+        final Map<String, String> queryParams = new HashMap<>(4);
+        queryParams.put("customer", customerId);
+        queryParams.put("type", paymentMethodType);
+        queryParams.put("limit", String.valueOf(limit));
+        if (startingAfter != null) {
+            queryParams.put("starting_after", startingAfter);
+        }
+
+        return requestPaymentMethodsPage(queryParams, publishableKey, productUsageTokens,
+                requestOptions);
+    }
+
+    @NonNull
+    private PaymentMethodsPage requestPaymentMethodsPage(
+            @NonNull Map<String, String> queryParams,
+            @NonNull String publishableKey,
+            @NonNull List<String> productUsageTokens,
+            @NonNull ApiRequest.Options requestOptions)
+            throws InvalidRequestException,
+            APIConnectionException,
+            APIException,
+            AuthenticationException,
+            CardException {
+        // only log the first page of a listing
+        if (!queryParams.containsKey("starting_after")) {
+            fireAnalyticsRequest(
+                    mAnalyticsDataFactory
+                            .getDetachPaymentMethodParams(productUsageTokens, publishableKey),
+                    // We use the public key to log, so we need different Options.
+                    publishableKey
+            );
+        }
 
         final StripeResponse response = fireStripeApiRequest(
                 ApiRequest.createGet(
@@ -556,18 +610,11 @@ final class StripeApiRepository implements StripeRepository {
         // Method throws if errors are found, so no return value occurs.
         convertErrorsToExceptionsAndThrowIfNecessary(response);
 
-        final JSONArray data;
-        try {
-            data = new JSONObject(response.getResponseBody()).optJSONArray("data");
-        } catch (JSONException e) {
-            return new ArrayList<>();
-        }
-
-        final List<PaymentMethod> paymentMethods = new ArrayList<>();
-        for (int i = 0; i < data.length(); i++) {
-            paymentMethods.add(PaymentMethod.fromJson(data.optJSONObject(i)));
+        final String responseBody = response.getResponseBody();
+        if (responseBody == null) {
+            return new PaymentMethodsPage(new ArrayList<PaymentMethod>(), false);
         }
-        return paymentMethods;
+        return PaymentMethodJsonParser.parsePage(new StringReader(responseBody));
     }
 
     @Nullable
@@ -1021,7 +1068,16 @@ final class StripeApiRepository implements StripeRepository {
     @NonNull
     private StripeResponse fireStripeApiRequest(@NonNull ApiRequest apiRequest)
             throws InvalidRequestException, APIConnectionException {
-        return mStripeApiRequestExecutor.execute(apiRequest);
+        final RequestMetrics.Recorder metricsRecorder = apiRequest.getMetricsRecorder();
+        metricsRecorder.mark();
+
+        StripeResponse response = null;
+        try {
+            response = mStripeApiRequestExecutor.execute(apiRequest);
+            return response;
+        } finally {
+            metricsRecorder.report(apiRequest, response, false);
+        }
     }
 
     private void handleAPIError(@Nullable String responseBody, int responseCode,
@@ -1074,16 +1130,12 @@ final class StripeApiRepository implements StripeRepository {
     StripeResponse makeApiRequest(@NonNull ApiRequest request)
             throws AuthenticationException, InvalidRequestException,
             APIConnectionException, CardException, APIException {
-        final Pair<Boolean, String> dnsCacheData = disableDnsCache();
-
         final StripeResponse response = fireStripeApiRequest(request);
         if (response.hasErrorCode()) {
             handleAPIError(response.getResponseBody(), response.getResponseCode(),
                     response.getRequestId());
         }
 
-        resetDnsCacheTtl(dnsCacheData);
-
         return response;
     }
 
@@ -1091,31 +1143,6 @@ final class StripeApiRepository implements StripeRepository {
         mFireAndForgetRequestExecutor.executeAsync(request);
     }
 
-    @NonNull
-    private Pair<Boolean, String> disableDnsCache() {
-        try {
-            final String originalDNSCacheTtl = Security.getProperty(DNS_CACHE_TTL_PROPERTY_NAME);
-            // disable DNS cache
-            Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME, "0");
-            return Pair.create(true, originalDNSCacheTtl);
-        } catch (SecurityException se) {
-            return Pair.create(false, null);
-        }
-    }
-
-    /**
-     * @param dnsCacheData first object - flag to reset {@link #DNS_CACHE_TTL_PROPERTY_NAME}
-     *                     second object - the original DNS cache TTL value
-     */
-    private void resetDnsCacheTtl(@NonNull Pair<Boolean, String> dnsCacheData) {
-        if (dnsCacheData.first) {
-            // value unspecified by implementation
-            // DNS_CACHE_TTL_PROPERTY_NAME of -1 = cache forever
-            Security.setProperty(DNS_CACHE_TTL_PROPERTY_NAME,
-                    ObjectUtils.getOrDefault(dnsCacheData.second, "-1"));
-        }
-    }
-
     @Nullable
     private Token requestToken(
             @NonNull String url,
@@ -1129,7 +1156,10 @@ final class StripeApiRepository implements StripeRepository {
     }
 
     private void fireFingerprintRequest() {
-        makeFireAndForgetRequest(mFingerprintRequestFactory.create());
+        final FingerprintRequest fingerprintRequest = mFingerprintSession.createIfDue();
+        if (fingerprintRequest != null) {
+            makeFireAndForgetRequest(fingerprintRequest);
+        }
     }
 
     @VisibleForTesting
@@ -1144,6 +1174,15 @@ final class StripeApiRepository implements StripeRepository {
         );
     }
 
+    @Nullable
+    private static PaymentMethod parsePaymentMethod(@NonNull StripeResponse response) {
+        final String responseBody = response.getResponseBody();
+        if (responseBody == null) {
+            return null;
+        }
+        return PaymentMethodJsonParser.parse(new StringReader(responseBody));
+    }
+
     @NonNull
     private Map<String, String> createClientSecretParam(@NonNull String clientSecret) {
         final Map<String, String> paramMap = new HashMap<>();
@@ -1162,7 +1201,7 @@ final class StripeApiRepository implements StripeRepository {
                                   @NonNull String stripeIntentId,
                                   @NonNull ApiRequest.Options requestOptions,
                                   @NonNull ApiResultCallback<Stripe3ds2AuthResult> callback) {
-            super(callback);
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeApiRepository = stripeApiRepository;
             mParams = params;
             mStripeIntentId = stripeIntentId;
@@ -1185,7 +1224,7 @@ final class StripeApiRepository implements StripeRepository {
                                      @NonNull String sourceId,
                                      @NonNull ApiRequest.Options requestOptions,
                                      @NonNull ApiResultCallback<Boolean> callback) {
-            super(callback);
+            super(StripeTaskEngine.Priority.HIGH, callback);
             mStripeApiRepository = stripeApiRepository;
             mSourceId = sourceId;
             mRequestOptions = requestOptions;
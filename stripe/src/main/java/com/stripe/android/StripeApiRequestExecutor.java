@@ -37,12 +37,11 @@ final class StripeApiRequestExecutor implements ApiRequestExecutor {
             conn = mConnectionFactory.create(request);
             // trigger the request
             final int responseCode = conn.getResponseCode();
-            final String responseBody;
-            if (responseCode >= 200 && responseCode < 300) {
-                responseBody = getResponseBody(conn.getInputStream());
-            } else {
-                responseBody = getResponseBody(conn.getErrorStream());
-            }
+            final RequestMetrics.Recorder metricsRecorder = request.getMetricsRecorder();
+            metricsRecorder.endPhase(RequestMetrics.Phase.TIME_TO_FIRST_BYTE);
+            final String responseBody = getResponseBody(
+                    ConnectionFactory.getResponseStream(conn, responseCode, metricsRecorder));
+            metricsRecorder.endPhase(RequestMetrics.Phase.READ);
             return new StripeResponse(responseCode, responseBody, conn.getHeaderFields());
         } catch (IOException e) {
             throw APIConnectionException.create(request.getBaseUrl(), e);
@@ -53,8 +52,11 @@ final class StripeApiRequestExecutor implements ApiRequestExecutor {
         }
     }
 
+    /**
+     * Read {@code responseStream} to the end and close it.
+     */
     @Nullable
-    private String getResponseBody(@Nullable InputStream responseStream)
+    static String getResponseBody(@Nullable InputStream responseStream)
             throws IOException {
         if (responseStream == null) {
             return null;
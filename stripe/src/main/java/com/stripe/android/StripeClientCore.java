@@ -0,0 +1,119 @@
+package com.stripe.android;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of the SDK that don't depend on the publishable key nor on the Stripe Connect
+ * account of a request, shared by every {@link Stripe}, {@link CustomerSession} and
+ * {@link IssuingCardPinService} in the process.
+ *
+ * A {@link Stripe} instance only holds its publishable key and account, and uses the
+ * {@link StripeRepository} and {@link PaymentController} of the core, which in turn share one
+ * {@link ApiRequestExecutor} with its pool of connections, one telemetry executor and one
+ * {@link FingerprintSession}. Batches of requests also share one {@link AdaptiveBatchExecutor},
+ * so that a batch starts with the concurrency that the rate limits of the previous one allowed.
+ * Creating an instance for another Connect account is therefore cheap and does not start any
+ * thread.
+ *
+ * There is one repository and one controller for each {@link AppInfo} that they are requested
+ * with, see {@link Stripe#setAppInfo(AppInfo)}. Instances with different {@link AppInfo}s, e.g.
+ * a {@link CustomerSession} and a {@link Stripe}, therefore don't replace each other's
+ * {@link PaymentController} and the authentication state that it holds. An app only uses a
+ * handful of {@link AppInfo}s, so they are kept for the life of the process.
+ */
+final class StripeClientCore {
+    @Nullable private static StripeClientCore sInstance;
+
+    @NonNull private final Context mContext;
+    @NonNull private final ApiRequestExecutor mApiRequestExecutor;
+    @NonNull private final StripeNetworkUtils mNetworkUtils;
+    @NonNull private final AdaptiveBatchExecutor mBatchExecutor = new AdaptiveBatchExecutor();
+
+    // keyed by AppInfo, which may be null
+    @NonNull private final Map<AppInfo, StripeRepository> mStripeRepositories = new HashMap<>();
+    @NonNull private final Map<AppInfo, PaymentController> mPaymentControllers =
+            new HashMap<>();
+
+    @NonNull
+    static synchronized StripeClientCore getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new StripeClientCore(context.getApplicationContext(),
+                    new RetryingApiRequestExecutor(
+                            new ConditionalApiRequestExecutor(new PooledApiRequestExecutor())));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    StripeClientCore(@NonNull Context context, @NonNull ApiRequestExecutor apiRequestExecutor) {
+        mContext = context;
+        mApiRequestExecutor = apiRequestExecutor;
+        mNetworkUtils = new StripeNetworkUtils(context);
+    }
+
+    /**
+     * @return the executor of every request to the Stripe API, which keeps the pool of
+     *         connections
+     */
+    @NonNull
+    ApiRequestExecutor getApiRequestExecutor() {
+        return mApiRequestExecutor;
+    }
+
+    @NonNull
+    synchronized StripeRepository getStripeRepository(@Nullable AppInfo appInfo) {
+        StripeRepository stripeRepository = mStripeRepositories.get(appInfo);
+        if (stripeRepository == null) {
+            stripeRepository = new StripeApiRepository(mContext, mApiRequestExecutor,
+                    BatchingFireAndForgetRequestExecutor.getInstance(mContext), appInfo,
+                    FingerprintSession.getInstance(mContext));
+            mStripeRepositories.put(appInfo, stripeRepository);
+        }
+        return stripeRepository;
+    }
+
+    @NonNull
+    synchronized PaymentController getPaymentController(@Nullable AppInfo appInfo) {
+        PaymentController paymentController = mPaymentControllers.get(appInfo);
+        if (paymentController == null) {
+            paymentController = new PaymentController(mContext, getStripeRepository(appInfo));
+            mPaymentControllers.put(appInfo, paymentController);
+        }
+        return paymentController;
+    }
+
+    /**
+     * @return the repository and the controller for {@code appInfo}
+     */
+    @NonNull
+    synchronized Components getComponents(@Nullable AppInfo appInfo) {
+        return new Components(getStripeRepository(appInfo), getPaymentController(appInfo),
+                mNetworkUtils, mBatchExecutor);
+    }
+
+    /**
+     * What a {@link Stripe} instance uses from the core.
+     */
+    static final class Components {
+        @NonNull final StripeRepository stripeRepository;
+        @NonNull final PaymentController paymentController;
+        @NonNull final StripeNetworkUtils networkUtils;
+        @NonNull final AdaptiveBatchExecutor batchExecutor;
+
+        private Components(@NonNull StripeRepository stripeRepository,
+                           @NonNull PaymentController paymentController,
+                           @NonNull StripeNetworkUtils networkUtils,
+                           @NonNull AdaptiveBatchExecutor batchExecutor) {
+            this.stripeRepository = stripeRepository;
+            this.paymentController = paymentController;
+            this.networkUtils = networkUtils;
+            this.batchExecutor = batchExecutor;
+        }
+    }
+}
@@ -35,6 +35,9 @@ final class StripeFireAndForgetRequestExecutor implements FireAndForgetRequestEx
     @VisibleForTesting
     int execute(@NonNull StripeRequest request)
             throws APIConnectionException, InvalidRequestException {
+        final RequestMetrics.Recorder metricsRecorder = request.getMetricsRecorder();
+        StripeResponse response = null;
+
         // HttpURLConnection verifies SSL cert by default
         HttpURLConnection conn = null;
         try {
@@ -42,8 +45,11 @@ final class StripeFireAndForgetRequestExecutor implements FireAndForgetRequestEx
 
             // required to trigger the request
             final int responseCode = conn.getResponseCode();
+            metricsRecorder.endPhase(RequestMetrics.Phase.TIME_TO_FIRST_BYTE);
 
             closeConnection(conn, responseCode);
+            metricsRecorder.endPhase(RequestMetrics.Phase.READ);
+            response = new StripeResponse(responseCode, null, conn.getHeaderFields());
             return responseCode;
         } catch (IOException e) {
             throw APIConnectionException.create(request.getBaseUrl(), e);
@@ -51,6 +57,7 @@ final class StripeFireAndForgetRequestExecutor implements FireAndForgetRequestEx
             if (conn != null) {
                 conn.disconnect();
             }
+            metricsRecorder.report(request, response, true);
         }
     }
 
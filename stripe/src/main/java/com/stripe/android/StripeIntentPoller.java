@@ -0,0 +1,368 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.APIException;
+import com.stripe.android.exception.RateLimitException;
+import com.stripe.android.exception.StripeException;
+import com.stripe.android.model.StripeIntent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Watches {@link com.stripe.android.model.PaymentIntent}s and
+ * {@link com.stripe.android.model.SetupIntent}s until they reach a final status, e.g. while an
+ * asynchronous payment method is <code>processing</code> after a redirect.
+ *
+ * An intent is retrieved at {@link StripeIntentPollerConfig#initialIntervalMillis} at first,
+ * and less often while its status stays the same, up to
+ * {@link StripeIntentPollerConfig#maxIntervalMillis}. Failed retrievals that may succeed later,
+ * e.g. because the device is offline, are retried on the same schedule.
+ *
+ * Any number of listeners can watch the same client secret; they share a single retrieval
+ * schedule, so an intent is never retrieved twice at the same time by the same poller. An
+ * intent is watched until its status is neither {@link StripeIntent.Status#Processing} nor
+ * {@link StripeIntent.Status#RequiresAction}.
+ *
+ * All methods must be called, and all listener methods are called, on the main thread.
+ *
+ * See {@link Stripe#createIntentPoller(StripeIntentPollerConfig)}
+ */
+public final class StripeIntentPoller {
+    @NonNull private final StripeRepository mStripeRepository;
+    @NonNull private final ApiRequest.Options mRequestOptions;
+    @NonNull private final StripeIntentPollerConfig mConfig;
+    @NonNull private final StripeTaskEngine mTaskEngine;
+    @NonNull private final Handler mHandler;
+    @NonNull private final Supplier<Long> mClock;
+
+    // by client secret
+    @NonNull private final Map<String, Watch> mWatches = new HashMap<>();
+
+    StripeIntentPoller(@NonNull StripeRepository stripeRepository,
+                       @NonNull ApiRequest.Options requestOptions,
+                       @NonNull StripeIntentPollerConfig config) {
+        this(stripeRepository, requestOptions, config, StripeTaskEngine.getInstance(),
+                new Handler(Looper.getMainLooper()),
+                new Supplier<Long>() {
+                    @NonNull
+                    @Override
+                    public Long get() {
+                        return SystemClock.uptimeMillis();
+                    }
+                });
+    }
+
+    @VisibleForTesting
+    StripeIntentPoller(@NonNull StripeRepository stripeRepository,
+                       @NonNull ApiRequest.Options requestOptions,
+                       @NonNull StripeIntentPollerConfig config,
+                       @NonNull StripeTaskEngine taskEngine,
+                       @NonNull Handler handler,
+                       @NonNull Supplier<Long> clock) {
+        mStripeRepository = stripeRepository;
+        mRequestOptions = requestOptions;
+        mConfig = config;
+        mTaskEngine = taskEngine;
+        mHandler = handler;
+        mClock = clock;
+    }
+
+    /**
+     * Start watching the intent with the given client secret. If it is already being watched,
+     * {@code listener} is told its last known status, if any, and then follows the same
+     * schedule.
+     *
+     * @param clientSecret the client secret of a PaymentIntent or SetupIntent
+     * @return a subscription that stops {@code listener} from being called when cancelled
+     */
+    @MainThread
+    @NonNull
+    public Subscription watch(@NonNull String clientSecret, @NonNull Listener listener) {
+        if (!clientSecret.startsWith("pi_") && !clientSecret.startsWith("seti_")) {
+            throw new IllegalArgumentException(
+                    "clientSecret must be the client secret of a PaymentIntent or SetupIntent");
+        }
+
+        final Subscription subscription = new Subscription(clientSecret, listener,
+                mClock.get() + mConfig.timeoutMillis);
+        Watch watch = mWatches.get(clientSecret);
+        if (watch == null) {
+            watch = new Watch(clientSecret);
+            mWatches.put(clientSecret, watch);
+            watch.mSubscriptions.add(subscription);
+            watch.retrieve();
+        } else {
+            watch.mSubscriptions.add(subscription);
+            final StripeIntent lastIntent = watch.mLastIntent;
+            if (lastIntent != null) {
+                listener.onStatusChanged(lastIntent);
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Stop watching every intent, without calling any listener.
+     */
+    @MainThread
+    public void cancelAll() {
+        for (Watch watch : new ArrayList<>(mWatches.values())) {
+            watch.stop();
+        }
+    }
+
+    /**
+     * @return the number of intents being watched. Used for testing purposes.
+     */
+    @VisibleForTesting
+    int getWatchCount() {
+        return mWatches.size();
+    }
+
+    /**
+     * @return false if a status means that the intent is still changing without any action
+     *         from the app
+     */
+    @VisibleForTesting
+    static boolean isFinal(@Nullable StripeIntent.Status status) {
+        return status != null && status != StripeIntent.Status.Processing &&
+                status != StripeIntent.Status.RequiresAction;
+    }
+
+    /**
+     * @return true if retrieving the intent again later may succeed
+     */
+    private static boolean isRetryable(@NonNull Exception e) {
+        return e instanceof APIConnectionException || e instanceof RateLimitException ||
+                e instanceof APIException;
+    }
+
+    public interface Listener {
+        /**
+         * Called when the intent is first retrieved and whenever its status changes.
+         */
+        void onStatusChanged(@NonNull StripeIntent intent);
+
+        /**
+         * Called when the intent has reached a final status, after
+         * {@link #onStatusChanged(StripeIntent)}. The listener is not called again.
+         */
+        void onCompleted(@NonNull StripeIntent intent);
+
+        /**
+         * Called when the intent did not reach a final status in
+         * {@link StripeIntentPollerConfig#timeoutMillis}. The listener is not called again.
+         *
+         * @param lastIntent the last retrieved intent, or {@code null} if none was retrieved
+         */
+        void onTimeout(@Nullable StripeIntent lastIntent);
+
+        /**
+         * Called when the intent can't be retrieved, e.g. because the client secret is
+         * invalid. The listener is not called again.
+         */
+        void onError(@NonNull Exception e);
+    }
+
+    /**
+     * A listener's interest in an intent.
+     */
+    public final class Subscription {
+        @NonNull private final String mClientSecret;
+        @NonNull private final Listener mListener;
+        private final long mDeadline;
+
+        private Subscription(@NonNull String clientSecret, @NonNull Listener listener,
+                             long deadline) {
+            mClientSecret = clientSecret;
+            mListener = listener;
+            mDeadline = deadline;
+        }
+
+        /**
+         * Stop calling the listener. The intent is no longer retrieved once no listener is
+         * watching it.
+         */
+        @MainThread
+        public void cancel() {
+            final Watch watch = mWatches.get(mClientSecret);
+            if (watch != null && watch.mSubscriptions.remove(this) &&
+                    watch.mSubscriptions.isEmpty()) {
+                watch.stop();
+            }
+        }
+    }
+
+    /**
+     * The retrieval schedule of one intent, shared by all of its subscriptions.
+     */
+    private final class Watch implements Runnable, ApiResultCallback<StripeIntent> {
+        @NonNull private final String mClientSecret;
+        @NonNull private final List<Subscription> mSubscriptions = new ArrayList<>();
+        private long mIntervalMillis = mConfig.initialIntervalMillis;
+        @Nullable private StripeIntent mLastIntent;
+        private boolean mIsRetrieving;
+        @Nullable private Cancellable mRetrieval;
+
+        private Watch(@NonNull String clientSecret) {
+            mClientSecret = clientSecret;
+        }
+
+        /**
+         * Called when the next retrieval is due.
+         */
+        @Override
+        public void run() {
+            if (expireSubscriptions()) {
+                retrieve();
+            }
+        }
+
+        private void retrieve() {
+            if (mIsRetrieving) {
+                return;
+            }
+
+            mIsRetrieving = true;
+            final Cancellable retrieval = new RetrieveIntentOperation(mStripeRepository,
+                    mClientSecret, mRequestOptions, this).execute(mTaskEngine);
+            // the result may already have been delivered
+            if (mIsRetrieving) {
+                mRetrieval = retrieval;
+            }
+        }
+
+        @Override
+        public void onSuccess(@NonNull StripeIntent intent) {
+            onRetrievalFinished();
+            final StripeIntent.Status status = intent.getStatus();
+            if (mLastIntent == null || mLastIntent.getStatus() != status) {
+                mLastIntent = intent;
+                mIntervalMillis = mConfig.initialIntervalMillis;
+                for (Subscription subscription : new ArrayList<>(mSubscriptions)) {
+                    subscription.mListener.onStatusChanged(intent);
+                }
+            } else {
+                mLastIntent = intent;
+            }
+
+            if (isFinal(status)) {
+                final List<Subscription> subscriptions = new ArrayList<>(mSubscriptions);
+                stop();
+                for (Subscription subscription : subscriptions) {
+                    subscription.mListener.onCompleted(intent);
+                }
+            } else {
+                scheduleNextRetrieval();
+            }
+        }
+
+        @Override
+        public void onError(@NonNull Exception e) {
+            onRetrievalFinished();
+            if (isRetryable(e)) {
+                scheduleNextRetrieval();
+            } else {
+                final List<Subscription> subscriptions = new ArrayList<>(mSubscriptions);
+                stop();
+                for (Subscription subscription : subscriptions) {
+                    subscription.mListener.onError(e);
+                }
+            }
+        }
+
+        private void onRetrievalFinished() {
+            mIsRetrieving = false;
+            mRetrieval = null;
+        }
+
+        private void scheduleNextRetrieval() {
+            if (!expireSubscriptions()) {
+                return;
+            }
+
+            // wake up early if a subscription will expire before the next retrieval
+            long delayMillis = mIntervalMillis;
+            final long now = mClock.get();
+            for (Subscription subscription : mSubscriptions) {
+                delayMillis = Math.min(delayMillis, subscription.mDeadline - now);
+            }
+            mHandler.postDelayed(this, Math.max(delayMillis, 0));
+            mIntervalMillis = Math.min(mConfig.maxIntervalMillis,
+                    (long) (mIntervalMillis * mConfig.backoffMultiplier));
+        }
+
+        /**
+         * Notify the subscriptions whose deadline has passed, and stop if none are left.
+         *
+         * @return true if the intent is still being watched
+         */
+        private boolean expireSubscriptions() {
+            final long now = mClock.get();
+            final List<Subscription> expiredSubscriptions = new ArrayList<>();
+            for (Subscription subscription : mSubscriptions) {
+                if (subscription.mDeadline <= now) {
+                    expiredSubscriptions.add(subscription);
+                }
+            }
+            mSubscriptions.removeAll(expiredSubscriptions);
+            if (mSubscriptions.isEmpty()) {
+                stop();
+            }
+
+            for (Subscription subscription : expiredSubscriptions) {
+                subscription.mListener.onTimeout(mLastIntent);
+            }
+            return !mSubscriptions.isEmpty();
+        }
+
+        private void stop() {
+            mSubscriptions.clear();
+            mHandler.removeCallbacks(this);
+            if (mRetrieval != null) {
+                mRetrieval.cancel();
+            }
+            onRetrievalFinished();
+            if (mWatches.get(mClientSecret) == this) {
+                mWatches.remove(mClientSecret);
+            }
+        }
+    }
+
+    private static final class RetrieveIntentOperation extends ApiOperation<StripeIntent> {
+        @NonNull private final StripeRepository mStripeRepository;
+        @NonNull private final String mClientSecret;
+        @NonNull private final ApiRequest.Options mRequestOptions;
+
+        private RetrieveIntentOperation(@NonNull StripeRepository stripeRepository,
+                                        @NonNull String clientSecret,
+                                        @NonNull ApiRequest.Options requestOptions,
+                                        @NonNull ApiResultCallback<StripeIntent> callback) {
+            super(StripeTaskEngine.Priority.NORMAL, callback);
+            mStripeRepository = stripeRepository;
+            mClientSecret = clientSecret;
+            mRequestOptions = requestOptions;
+        }
+
+        @Nullable
+        @Override
+        StripeIntent getResult() throws StripeException {
+            if (mClientSecret.startsWith("pi_")) {
+                return mStripeRepository.retrievePaymentIntent(mClientSecret, mRequestOptions);
+            } else {
+                return mStripeRepository.retrieveSetupIntent(mClientSecret, mRequestOptions);
+            }
+        }
+    }
+}
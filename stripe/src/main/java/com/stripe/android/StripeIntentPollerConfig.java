@@ -0,0 +1,122 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.utils.ObjectUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for how often {@link StripeIntentPoller} retrieves an intent and how long it
+ * waits for the intent to reach a final status.
+ *
+ * See {@link Stripe#createIntentPoller(StripeIntentPollerConfig)}
+ */
+public final class StripeIntentPollerConfig {
+    static final long DEFAULT_INITIAL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+
+    @NonNull static final StripeIntentPollerConfig DEFAULT =
+            new StripeIntentPollerConfig.Builder().build();
+
+    final long initialIntervalMillis;
+    final long maxIntervalMillis;
+    final long timeoutMillis;
+    final double backoffMultiplier;
+
+    private StripeIntentPollerConfig(@NonNull Builder builder) {
+        if (builder.mInitialIntervalMillis < 1) {
+            throw new IllegalArgumentException("initialIntervalMillis must be at least 1");
+        }
+        if (builder.mMaxIntervalMillis < builder.mInitialIntervalMillis) {
+            throw new IllegalArgumentException(
+                    "maxIntervalMillis must not be less than initialIntervalMillis");
+        }
+        if (builder.mTimeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis must not be negative");
+        }
+        if (builder.mBackoffMultiplier < 1) {
+            throw new IllegalArgumentException("backoffMultiplier must be at least 1");
+        }
+        initialIntervalMillis = builder.mInitialIntervalMillis;
+        maxIntervalMillis = builder.mMaxIntervalMillis;
+        timeoutMillis = builder.mTimeoutMillis;
+        backoffMultiplier = builder.mBackoffMultiplier;
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(initialIntervalMillis, maxIntervalMillis, timeoutMillis,
+                backoffMultiplier);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj || (obj instanceof StripeIntentPollerConfig &&
+                typedEquals((StripeIntentPollerConfig) obj));
+    }
+
+    private boolean typedEquals(@NonNull StripeIntentPollerConfig config) {
+        return initialIntervalMillis == config.initialIntervalMillis &&
+                maxIntervalMillis == config.maxIntervalMillis &&
+                timeoutMillis == config.timeoutMillis &&
+                Double.compare(backoffMultiplier, config.backoffMultiplier) == 0;
+    }
+
+    public static final class Builder implements ObjectBuilder<StripeIntentPollerConfig> {
+        private long mInitialIntervalMillis = DEFAULT_INITIAL_INTERVAL_MILLIS;
+        private long mMaxIntervalMillis = DEFAULT_MAX_INTERVAL_MILLIS;
+        private long mTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        private double mBackoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+
+        /**
+         * @param initialIntervalMillis the delay between the first retrievals of an intent,
+         *                              and after its status changes. Defaults to one second.
+         */
+        @NonNull
+        public Builder setInitialIntervalMillis(@IntRange(from = 1) long initialIntervalMillis) {
+            this.mInitialIntervalMillis = initialIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @param maxIntervalMillis the longest delay between two retrievals of an intent.
+         *                          Defaults to 15 seconds.
+         */
+        @NonNull
+        public Builder setMaxIntervalMillis(@IntRange(from = 1) long maxIntervalMillis) {
+            this.mMaxIntervalMillis = maxIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @param timeoutMillis how long to wait for an intent to reach a final status before
+         *                      giving up. Defaults to five minutes.
+         */
+        @NonNull
+        public Builder setTimeoutMillis(@IntRange(from = 0) long timeoutMillis) {
+            this.mTimeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * @param backoffMultiplier how much the delay grows after each retrieval that found
+         *                          the status unchanged. Defaults to 1.5.
+         */
+        @NonNull
+        public Builder setBackoffMultiplier(double backoffMultiplier) {
+            this.mBackoffMultiplier = backoffMultiplier;
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public StripeIntentPollerConfig build() {
+            return new StripeIntentPollerConfig(this);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.stripe.android;
 
+import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -14,6 +15,7 @@ import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentIntent;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.SetupIntent;
 import com.stripe.android.model.ShippingInformation;
 import com.stripe.android.model.Source;
@@ -139,6 +141,24 @@ interface StripeRepository {
             throws AuthenticationException, InvalidRequestException, APIConnectionException,
             APIException, CardException;
 
+    /**
+     * @param limit the maximum number of {@link PaymentMethod} objects to return, between 1
+     *              and 100
+     * @param startingAfter the id of the last {@link PaymentMethod} of the previous page, or
+     *                      {@code null} to request the first page
+     */
+    @NonNull
+    PaymentMethodsPage getPaymentMethodsPage(
+            @NonNull String customerId,
+            @NonNull String paymentMethodType,
+            @IntRange(from = 1, to = 100) int limit,
+            @Nullable String startingAfter,
+            @NonNull String publishableKey,
+            @NonNull List<String> productUsageTokens,
+            @NonNull ApiRequest.Options requestOptions)
+            throws AuthenticationException, InvalidRequestException, APIConnectionException,
+            APIException, CardException;
+
     @Nullable
     Customer setDefaultCustomerSource(
             @NonNull String customerId,
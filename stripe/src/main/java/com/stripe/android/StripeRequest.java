@@ -6,12 +6,11 @@ import android.support.annotation.Nullable;
 import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.utils.ObjectUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.net.HttpURLConnection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -32,13 +31,22 @@ abstract class StripeRequest {
     @NonNull private final String mUrl;
     @NonNull private final String mMimeType;
 
+    // not part of the request's identity
+    @NonNull private final RequestMetrics.Recorder mMetricsRecorder =
+            new RequestMetrics.Recorder();
+
     StripeRequest(@NonNull Method method,
                   @NonNull String url,
                   @Nullable Map<String, ?> params,
                   @NonNull String mimeType) {
         this.method = method;
         this.mUrl = url;
-        this.params = params != null ? compactParams(params) : null;
+        if (params instanceof AnalyticsEvent) {
+            // an event is compacted as it is built
+            this.params = params;
+        } else {
+            this.params = params != null ? compactParams(params) : null;
+        }
         mMimeType = mimeType;
     }
 
@@ -57,6 +65,16 @@ abstract class StripeRequest {
         return mUrl;
     }
 
+    @NonNull
+    String getMimeType() {
+        return mMimeType;
+    }
+
+    @NonNull
+    RequestMetrics.Recorder getMetricsRecorder() {
+        return mMetricsRecorder;
+    }
+
     @NonNull
     String getContentType() {
         return String.format(Locale.ROOT, "%s; charset=%s", mMimeType, CHARSET);
@@ -72,23 +90,42 @@ abstract class StripeRequest {
     @NonNull
     abstract Map<String, String> createHeaders();
 
+    /**
+     * Set the headers of the request on {@code conn}. By default, this sets
+     * {@link #getHeaders()}.
+     */
+    void applyHeaders(@NonNull HttpURLConnection conn) {
+        for (Map.Entry<String, String> header : getHeaders().entrySet()) {
+            conn.setRequestProperty(header.getKey(), header.getValue());
+        }
+    }
+
     @NonNull
     abstract String getUserAgent();
 
     @NonNull
     abstract byte[] getOutputBytes() throws UnsupportedEncodingException, InvalidRequestException;
 
+    /**
+     * Write the request body into {@code output}. By default, this writes
+     * {@link #getOutputBytes()}.
+     */
+    void writeBody(@NonNull ByteArrayOutputStream output)
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final byte[] outputBytes = getOutputBytes();
+        output.write(outputBytes, 0, outputBytes.length);
+    }
+
     @NonNull
     String createQuery() throws InvalidRequestException, UnsupportedEncodingException {
-        final StringBuilder queryStringBuffer = new StringBuilder();
-        for (Parameter flatParam : flattenParams(params)) {
-            if (queryStringBuffer.length() > 0) {
-                queryStringBuffer.append("&");
-            }
-            queryStringBuffer.append(urlEncodePair(flatParam.key, flatParam.value));
+        final ByteArrayOutputStream query = new ByteArrayOutputStream();
+        final FormEncoder encoder = new FormEncoder(query);
+        if (params instanceof AnalyticsEvent) {
+            ((AnalyticsEvent) params).encode(encoder);
+        } else {
+            encoder.encode(params);
         }
-
-        return queryStringBuffer.toString();
+        return query.toString(CHARSET);
     }
 
     @NonNull
@@ -105,85 +142,6 @@ abstract class StripeRequest {
         }
     }
 
-    @NonNull
-    private List<Parameter> flattenParams(@Nullable Map<String, ?> params)
-            throws InvalidRequestException {
-        return flattenParamsMap(params, null);
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsList(@NonNull List<?> params,
-                                              @NonNull String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams = new LinkedList<>();
-
-        // Because application/x-www-form-urlencoded cannot represent an empty
-        // list, convention is to take the list parameter and just set it to an
-        // empty string. (e.g. A regular list might look like `a[]=1&b[]=2`.
-        // Emptying it would look like `a=`.)
-        if (params.isEmpty()) {
-            flatParams.add(new Parameter(keyPrefix, ""));
-        } else {
-            final String newPrefix = String.format(Locale.ROOT, "%s[]", keyPrefix);
-            for (Object param : params) {
-                flatParams.addAll(flattenParamsValue(param, newPrefix));
-            }
-        }
-
-        return flatParams;
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsMap(@Nullable Map<String, ?> params,
-                                             @Nullable String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams = new LinkedList<>();
-        if (params == null) {
-            return flatParams;
-        }
-
-        for (Map.Entry<String, ?> entry : params.entrySet()) {
-            final String key = entry.getKey();
-            final Object value = entry.getValue();
-            final String newPrefix;
-            if (keyPrefix != null) {
-                newPrefix = String.format(Locale.ROOT, "%s[%s]", keyPrefix, key);
-            } else {
-                newPrefix = key;
-            }
-
-            flatParams.addAll(flattenParamsValue(value, newPrefix));
-        }
-
-        return flatParams;
-    }
-
-    @NonNull
-    private List<Parameter> flattenParamsValue(@Nullable Object value,
-                                               @NonNull String keyPrefix)
-            throws InvalidRequestException {
-        final List<Parameter> flatParams;
-        if (value instanceof Map<?, ?>) {
-            //noinspection unchecked
-            flatParams = flattenParamsMap((Map<String, Object>) value, keyPrefix);
-        } else if (value instanceof List<?>) {
-            flatParams = flattenParamsList((List<?>) value, keyPrefix);
-        } else if ("".equals(value)) {
-            throw new InvalidRequestException("You cannot set '" + keyPrefix + "' to an empty "
-                    + "string. " + "We interpret empty strings as null in requests. "
-                    + "You may set '" + keyPrefix + "' to null to delete the property.",
-                    keyPrefix, null, 0, null, null, null, null);
-        } else if (value == null) {
-            flatParams = new LinkedList<>();
-            flatParams.add(new Parameter(keyPrefix, ""));
-        } else {
-            flatParams = new LinkedList<>();
-            flatParams.add(new Parameter(keyPrefix, value.toString()));
-        }
-
-        return flatParams;
-    }
-
     /**
      * Copy the {@param params} map and recursively remove null and empty values. The Stripe API
      * requires that parameters with null values are removed from requests.
@@ -192,7 +150,7 @@ abstract class StripeRequest {
      */
     @SuppressWarnings("unchecked")
     @NonNull
-    private static Map<String, Object> compactParams(@NonNull final Map<String, ?> params) {
+    static Map<String, Object> compactParams(@NonNull final Map<String, ?> params) {
         final Map<String, Object> compactParams = new HashMap<>(params);
 
         // Remove all null values; they cause validation errors
@@ -221,23 +179,6 @@ abstract class StripeRequest {
         return compactParams;
     }
 
-    @NonNull
-    private String urlEncodePair(@NonNull String k, @NonNull String v)
-            throws UnsupportedEncodingException {
-        return String.format(Locale.ROOT, "%s=%s", urlEncode(k), urlEncode(v));
-    }
-
-    @Nullable
-    private String urlEncode(@Nullable String str) throws UnsupportedEncodingException {
-        // Preserve original behavior that passing null for an object id will lead
-        // to us actually making a request to /v1/foo/null
-        if (str == null) {
-            return null;
-        } else {
-            return URLEncoder.encode(str, CHARSET);
-        }
-    }
-
     int getBaseHashCode() {
         return ObjectUtils.hash(method, mUrl, params);
     }
@@ -259,14 +200,4 @@ abstract class StripeRequest {
             this.code = code;
         }
     }
-
-    private static final class Parameter {
-        @NonNull private final String key;
-        @NonNull private final String value;
-
-        Parameter(@NonNull String key, @NonNull String value) {
-            this.key = key;
-            this.value = value;
-        }
-    }
 }
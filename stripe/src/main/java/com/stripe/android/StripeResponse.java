@@ -1,10 +1,12 @@
 package com.stripe.android;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a response from the Stripe servers.
@@ -75,4 +77,49 @@ class StripeResponse {
 
         return requestId;
     }
+
+    /**
+     * @return the delay requested by the <code>Retry-After</code> header, or {@code null} if the
+     *         header is missing or is not a number of seconds
+     */
+    @Nullable
+    Long getRetryAfterMillis() {
+        final String retryAfter = getHeaderValue("Retry-After");
+        if (retryAfter == null) {
+            return null;
+        }
+
+        try {
+            final long retryAfterSeconds = Long.parseLong(retryAfter.trim());
+            return retryAfterSeconds >= 0 ? TimeUnit.SECONDS.toMillis(retryAfterSeconds) : null;
+        } catch (NumberFormatException e) {
+            // an HTTP date is not supported
+            return null;
+        }
+    }
+
+    /**
+     * @return the value of the <code>ETag</code> header, which identifies this version of the
+     *         response body
+     */
+    @Nullable
+    String getEntityTag() {
+        return getHeaderValue("ETag");
+    }
+
+    @Nullable
+    private String getHeaderValue(@NonNull String name) {
+        if (mResponseHeaders == null) {
+            return null;
+        }
+
+        for (Map.Entry<String, List<String>> header : mResponseHeaders.entrySet()) {
+            // HTTP header names are case-insensitive
+            if (name.equalsIgnoreCase(header.getKey()) &&
+                    header.getValue() != null && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
 }
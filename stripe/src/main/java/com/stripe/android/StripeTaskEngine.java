@@ -0,0 +1,238 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link ApiOperation}s on a small pool of SDK-owned worker threads and delivers their
+ * results on the main thread.
+ *
+ * Unlike <code>AsyncTask</code>'s default serial executor, which is shared with the host app,
+ * operations only wait behind other Stripe operations. When all workers are busy, queued
+ * operations run in {@link Priority} order, and in submission order within a priority.
+ * Background work that has no result, such as warming up a cache, is run with
+ * {@link #executeInBackground(Runnable)} instead, so that nothing is posted to the main thread.
+ */
+final class StripeTaskEngine {
+    private static final int MAX_POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    @Nullable private static StripeTaskEngine sInstance;
+
+    @NonNull private final Executor mWorkerExecutor;
+    @NonNull private final Executor mMainThreadExecutor;
+    @NonNull private final AtomicLong mSequence = new AtomicLong();
+
+    @NonNull
+    static synchronized StripeTaskEngine getInstance() {
+        if (sInstance == null) {
+            final int poolSize = Math.max(2,
+                    Math.min(Runtime.getRuntime().availableProcessors(), MAX_POOL_SIZE));
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sInstance = new StripeTaskEngine(poolSize, new Executor() {
+                @Override
+                public void execute(@NonNull Runnable runnable) {
+                    mainHandler.post(runnable);
+                }
+            });
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param poolSize the maximum number of operations to run concurrently
+     * @param mainThreadExecutor the {@link Executor} that results are delivered on
+     */
+    @VisibleForTesting
+    StripeTaskEngine(@IntRange(from = 1) int poolSize, @NonNull Executor mainThreadExecutor) {
+        this(createWorkerExecutor(poolSize), mainThreadExecutor);
+    }
+
+    @VisibleForTesting
+    StripeTaskEngine(@NonNull Executor workerExecutor, @NonNull Executor mainThreadExecutor) {
+        mWorkerExecutor = workerExecutor;
+        mMainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * Run {@code operation} on a worker thread.
+     *
+     * @return a handle that can be used to cancel the operation
+     */
+    @NonNull
+    <ResultType> Cancellable execute(@NonNull ApiOperation<ResultType> operation) {
+        return execute(operation, null);
+    }
+
+    /**
+     * Run {@code operation} on {@code executor}, or on a worker thread if {@code executor} is
+     * {@code null}. Either way, the result is delivered on the main thread.
+     *
+     * @return a handle that can be used to cancel the operation
+     */
+    @NonNull
+    <ResultType> Cancellable execute(@NonNull ApiOperation<ResultType> operation,
+                                     @Nullable Executor executor) {
+        final Task<ResultType> task = new Task<>(operation, mSequence.getAndIncrement(),
+                executor != null ? executor : mWorkerExecutor, mMainThreadExecutor);
+        task.mExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Run {@code runnable} on a worker thread at {@link Priority#LOW}, for background work that
+     * has no result to deliver, e.g. warming up a cache.
+     */
+    void executeInBackground(@NonNull Runnable runnable) {
+        mWorkerExecutor.execute(new BackgroundTask(runnable, mSequence.getAndIncrement()));
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor createWorkerExecutor(int poolSize) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "poolSize must be >= 1, was %d", poolSize));
+        }
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @NonNull private final AtomicInteger mCount = new AtomicInteger(1);
+
+                    @NonNull
+                    @Override
+                    public Thread newThread(@NonNull final Runnable runnable) {
+                        final Thread thread = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, "StripeTaskEngine #" + mCount.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    enum Priority {
+        /**
+         * Operations that the customer is waiting on to complete a payment, e.g. confirming an
+         * intent or creating a payment method
+         */
+        HIGH,
+
+        /**
+         * Operations that refresh state, e.g. retrieving an intent after authentication
+         */
+        NORMAL,
+
+        /**
+         * Background work that nothing is waiting on, e.g. analytics
+         */
+        LOW
+    }
+
+    /**
+     * A unit of work that is queued on the worker pool in {@link Priority} order, and in
+     * submission order within a priority.
+     */
+    private abstract static class PrioritizedTask
+            implements Runnable, Comparable<PrioritizedTask> {
+        @NonNull private final Priority mPriority;
+        private final long mSequence;
+
+        private PrioritizedTask(@NonNull Priority priority, long sequence) {
+            mPriority = priority;
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(@NonNull PrioritizedTask other) {
+            final int priorityComparison = mPriority.compareTo(other.mPriority);
+            if (priorityComparison != 0) {
+                return priorityComparison;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    private static final class Task<ResultType> extends PrioritizedTask implements Cancellable {
+        @NonNull private final ApiOperation<ResultType> mOperation;
+        @NonNull private final Executor mExecutor;
+        @NonNull private final Executor mMainThreadExecutor;
+        @NonNull private final AtomicBoolean mIsCancelled = new AtomicBoolean();
+
+        private Task(@NonNull ApiOperation<ResultType> operation,
+                     long sequence,
+                     @NonNull Executor executor,
+                     @NonNull Executor mainThreadExecutor) {
+            super(operation.getPriority(), sequence);
+            mOperation = operation;
+            mExecutor = executor;
+            mMainThreadExecutor = mainThreadExecutor;
+        }
+
+        @Override
+        public void run() {
+            if (mIsCancelled.get()) {
+                return;
+            }
+
+            final ResultWrapper<ResultType> resultWrapper = mOperation.run();
+            mMainThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mIsCancelled.get()) {
+                        mOperation.deliver(resultWrapper);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            if (mIsCancelled.compareAndSet(false, true) &&
+                    mExecutor instanceof ThreadPoolExecutor) {
+                ((ThreadPoolExecutor) mExecutor).remove(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mIsCancelled.get();
+        }
+    }
+
+    private static final class BackgroundTask extends PrioritizedTask {
+        @NonNull private final Runnable mRunnable;
+
+        private BackgroundTask(@NonNull Runnable runnable, long sequence) {
+            super(Priority.LOW, sequence);
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            mRunnable.run();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import java.math.BigDecimal;
 import java.math.MathContext;
@@ -19,6 +20,9 @@ class TelemetryClientUtil {
     @NonNull private final Context mContext;
     @NonNull private final Supplier<StripeUid> mUidSupplier;
 
+    @Nullable private String mHashedId;
+    @Nullable private String mHashedMuid;
+
     TelemetryClientUtil(@NonNull Context context) {
         this(context, new UidSupplier(context));
     }
@@ -113,8 +117,20 @@ class TelemetryClientUtil {
                 Build.VERSION.SDK_INT;
     }
 
+    /**
+     * @return the SHA-1 hash of the device's {@link StripeUid}. The hash is computed on first
+     * use and cached.
+     */
+    @NonNull
+    synchronized String getHashedId() {
+        if (mHashedId == null) {
+            mHashedId = createHashedId();
+        }
+        return mHashedId;
+    }
+
     @NonNull
-    String getHashedId() {
+    private String createHashedId() {
         final String id = mUidSupplier.get().value;
         if (StripeTextUtils.isBlank(id)) {
             return "";
@@ -125,9 +141,12 @@ class TelemetryClientUtil {
     }
 
     @NonNull
-    private String getHashedMuid() {
-        final String hashed = StripeTextUtils.shaHashInput(getPackageName() + getHashedId());
-        return hashed == null ? "" : hashed;
+    private synchronized String getHashedMuid() {
+        if (mHashedMuid == null) {
+            final String hashed = StripeTextUtils.shaHashInput(getPackageName() + getHashedId());
+            mHashedMuid = hashed == null ? "" : hashed;
+        }
+        return mHashedMuid;
     }
 
     @NonNull
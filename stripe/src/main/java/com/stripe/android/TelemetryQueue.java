@@ -0,0 +1,178 @@
+package com.stripe.android;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A bounded FIFO queue of {@link QueuedRequest}s that is mirrored to a file, one JSON object per
+ * line, so that telemetry that has not been sent yet survives the process being killed.
+ *
+ * A {@link QueuedRequest#isCoalescable() coalescable} request that is identical to one that is
+ * already queued is coalesced into it. When the queue is full, the oldest request is dropped to
+ * make room.
+ *
+ * This class is not thread-safe; {@link BatchingFireAndForgetRequestExecutor} only creates and
+ * accesses it on its worker thread, as creating it reads the file.
+ */
+final class TelemetryQueue {
+    @NonNull private final File mFile;
+    private final int mMaxSize;
+
+    @NonNull private final Deque<QueuedRequest> mRequests = new ArrayDeque<>();
+    @NonNull private final Set<QueuedRequest> mCoalescableRequests = new HashSet<>();
+    private long mDroppedCount;
+
+    /**
+     * @param file the file that the queue is persisted to; requests in it are loaded eagerly
+     * @param maxSize the maximum number of requests to keep
+     */
+    TelemetryQueue(@NonNull File file, @IntRange(from = 1) int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException(String.format(Locale.ENGLISH,
+                    "maxSize must be >= 1, was %d", maxSize));
+        }
+        mFile = file;
+        mMaxSize = maxSize;
+        load();
+    }
+
+    /**
+     * @return true if {@code request} was added, false if it was coalesced into an identical
+     * request that is already queued
+     */
+    boolean add(@NonNull QueuedRequest request) {
+        if (request.isCoalescable() && mCoalescableRequests.contains(request)) {
+            return false;
+        }
+
+        final boolean isFull = mRequests.size() >= mMaxSize;
+        if (isFull) {
+            mCoalescableRequests.remove(mRequests.removeFirst());
+            mDroppedCount++;
+        }
+        addLast(request);
+
+        if (isFull) {
+            persist();
+        } else {
+            append(request);
+        }
+        return true;
+    }
+
+    @Nullable
+    QueuedRequest peek() {
+        return mRequests.peekFirst();
+    }
+
+    /**
+     * Remove the request at the head of the queue. Call {@link #persist()} once done removing
+     * requests to update the file.
+     */
+    void remove() {
+        final QueuedRequest request = mRequests.pollFirst();
+        if (request != null) {
+            mCoalescableRequests.remove(request);
+        }
+    }
+
+    int size() {
+        return mRequests.size();
+    }
+
+    boolean isEmpty() {
+        return mRequests.isEmpty();
+    }
+
+    /**
+     * @return the number of requests that were dropped because the queue was full
+     */
+    long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Rewrite the file to match the contents of the queue.
+     */
+    void persist() {
+        if (mRequests.isEmpty()) {
+            if (mFile.exists() && !mFile.delete()) {
+                write(new ArrayList<QueuedRequest>(), false);
+            }
+            return;
+        }
+        write(mRequests, false);
+    }
+
+    private void addLast(@NonNull QueuedRequest request) {
+        mRequests.addLast(request);
+        if (request.isCoalescable()) {
+            mCoalescableRequests.add(request);
+        }
+    }
+
+    private void append(@NonNull QueuedRequest request) {
+        final List<QueuedRequest> requests = new ArrayList<>(1);
+        requests.add(request);
+        write(requests, true);
+    }
+
+    private void write(@NonNull Iterable<QueuedRequest> requests, boolean append) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(mFile, append),
+                StandardCharsets.UTF_8)) {
+            for (QueuedRequest request : requests) {
+                writer.write(request.toJson());
+                writer.write('\n');
+            }
+        } catch (IOException ignore) {
+            // the queue is still held in memory, so telemetry is only lost if the process dies
+        }
+    }
+
+    private void load() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(mFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final QueuedRequest request = QueuedRequest.fromJson(line);
+                if (request != null) {
+                    addLast(request);
+                }
+            }
+        } catch (IOException ignore) {
+            // keep whatever could be read
+        }
+
+        boolean isTrimmed = false;
+        while (mRequests.size() > mMaxSize) {
+            mCoalescableRequests.remove(mRequests.removeFirst());
+            mDroppedCount++;
+            isTrimmed = true;
+        }
+        if (isTrimmed) {
+            persist();
+        }
+    }
+}
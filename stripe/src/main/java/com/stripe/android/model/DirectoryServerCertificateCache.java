@@ -0,0 +1,81 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.LruCache;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+/**
+ * A process-wide cache of parsed directory server and root CA certificates, keyed by their PEM
+ * data, so that consecutive 3DS2 authentications with the same directory server don't parse
+ * the same certificates again. A single {@link CertificateFactory} is shared by all parsing.
+ */
+final class DirectoryServerCertificateCache {
+    // A few certificates per directory server
+    private static final int MAX_ENTRIES = 20;
+
+    @NonNull private static final DirectoryServerCertificateCache INSTANCE =
+            new DirectoryServerCertificateCache();
+
+    @NonNull private final LruCache<String, X509Certificate> mCertificates =
+            new LruCache<>(MAX_ENTRIES);
+    private CertificateFactory mCertificateFactory;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    @NonNull
+    static DirectoryServerCertificateCache getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    DirectoryServerCertificateCache() {
+    }
+
+    @NonNull
+    synchronized X509Certificate get(@NonNull String certificateData)
+            throws CertificateException {
+        final X509Certificate cachedCertificate = mCertificates.get(certificateData);
+        if (cachedCertificate != null) {
+            mHitCount++;
+            return cachedCertificate;
+        }
+
+        mMissCount++;
+        final X509Certificate certificate = (X509Certificate) getCertificateFactory()
+                .generateCertificate(new ByteArrayInputStream(certificateData.getBytes()));
+        mCertificates.put(certificateData, certificate);
+        return certificate;
+    }
+
+    /**
+     * Load the X.509 {@link CertificateFactory}, which is most of the cost of parsing the first
+     * certificate in the process.
+     */
+    synchronized void warmUp() throws CertificateException {
+        getCertificateFactory();
+    }
+
+    @VisibleForTesting
+    synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    @VisibleForTesting
+    synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    @NonNull
+    private CertificateFactory getCertificateFactory() throws CertificateException {
+        if (mCertificateFactory == null) {
+            mCertificateFactory = CertificateFactory.getInstance("X.509");
+        }
+        return mCertificateFactory;
+    }
+}
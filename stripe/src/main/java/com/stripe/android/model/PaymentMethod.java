@@ -35,19 +35,19 @@ import static com.stripe.android.model.StripeJsonUtils.optString;
  */
 @SuppressWarnings("WeakerAccess")
 public final class PaymentMethod extends StripeModel implements Parcelable {
-    private static final String FIELD_ID = "id";
-    private static final String FIELD_BILLING_DETAILS = "billing_details";
-    private static final String FIELD_CREATED = "created";
-    private static final String FIELD_CUSTOMER = "customer";
-    private static final String FIELD_LIVEMODE = "livemode";
-    private static final String FIELD_METADATA = "metadata";
+    static final String FIELD_ID = "id";
+    static final String FIELD_BILLING_DETAILS = "billing_details";
+    static final String FIELD_CREATED = "created";
+    static final String FIELD_CUSTOMER = "customer";
+    static final String FIELD_LIVEMODE = "livemode";
+    static final String FIELD_METADATA = "metadata";
 
     // types
-    private static final String FIELD_TYPE = "type";
-    private static final String FIELD_CARD = "card";
-    private static final String FIELD_CARD_PRESENT = "card_present";
-    private static final String FIELD_FPX = "fpx";
-    private static final String FIELD_IDEAL = "ideal";
+    static final String FIELD_TYPE = "type";
+    static final String FIELD_CARD = "card";
+    static final String FIELD_CARD_PRESENT = "card_present";
+    static final String FIELD_FPX = "fpx";
+    static final String FIELD_IDEAL = "ideal";
 
     @Nullable public final String id;
     @Nullable public final Long created;
@@ -471,15 +471,15 @@ public final class PaymentMethod extends StripeModel implements Parcelable {
     }
 
     public static final class Card extends PaymentMethodTypeImpl {
-        private static final String FIELD_BRAND = "brand";
-        private static final String FIELD_CHECKS = "checks";
-        private static final String FIELD_COUNTRY = "country";
-        private static final String FIELD_EXP_MONTH = "exp_month";
-        private static final String FIELD_EXP_YEAR = "exp_year";
-        private static final String FIELD_FUNDING = "funding";
-        private static final String FIELD_LAST4 = "last4";
-        private static final String FIELD_THREE_D_SECURE_USAGE = "three_d_secure_usage";
-        private static final String FIELD_WALLET = "wallet";
+        static final String FIELD_BRAND = "brand";
+        static final String FIELD_CHECKS = "checks";
+        static final String FIELD_COUNTRY = "country";
+        static final String FIELD_EXP_MONTH = "exp_month";
+        static final String FIELD_EXP_YEAR = "exp_year";
+        static final String FIELD_FUNDING = "funding";
+        static final String FIELD_LAST4 = "last4";
+        static final String FIELD_THREE_D_SECURE_USAGE = "three_d_secure_usage";
+        static final String FIELD_WALLET = "wallet";
 
         @Retention(RetentionPolicy.SOURCE)
         @StringDef({
@@ -695,10 +695,10 @@ public final class PaymentMethod extends StripeModel implements Parcelable {
         }
 
         public static final class Checks extends StripeModel implements Parcelable {
-            private static final String FIELD_ADDRESS_LINE1_CHECK = "address_line1_check";
-            private static final String FIELD_ADDRESS_POSTAL_CODE_CHECK =
+            static final String FIELD_ADDRESS_LINE1_CHECK = "address_line1_check";
+            static final String FIELD_ADDRESS_POSTAL_CODE_CHECK =
                     "address_postal_code_check";
-            private static final String FIELD_CVC_CHECK = "cvc_check";
+            static final String FIELD_CVC_CHECK = "cvc_check";
 
             @Nullable public final String addressLine1Check;
             @Nullable public final String addressPostalCodeCheck;
@@ -802,7 +802,7 @@ public final class PaymentMethod extends StripeModel implements Parcelable {
         }
 
         public static final class ThreeDSecureUsage extends StripeModel implements Parcelable {
-            private static final String FIELD_IS_SUPPORTED = "supported";
+            static final String FIELD_IS_SUPPORTED = "supported";
 
             public final boolean isSupported;
 
@@ -921,8 +921,8 @@ public final class PaymentMethod extends StripeModel implements Parcelable {
     }
 
     public static final class Ideal extends PaymentMethodTypeImpl {
-        private static final String FIELD_BANK = "bank";
-        private static final String FIELD_BIC = "bic";
+        static final String FIELD_BANK = "bank";
+        static final String FIELD_BIC = "bic";
 
         @Nullable public final String bank;
         @Nullable public final String bankIdentifierCode;
@@ -1009,8 +1009,8 @@ public final class PaymentMethod extends StripeModel implements Parcelable {
     }
 
     public static final class Fpx extends PaymentMethodTypeImpl {
-        private static final String FIELD_ACCOUNT_HOLDER_TYPE = "account_holder_type";
-        private static final String FIELD_BANK = "bank";
+        static final String FIELD_ACCOUNT_HOLDER_TYPE = "account_holder_type";
+        static final String FIELD_BANK = "bank";
 
         @Nullable public final String bank;
         @Nullable public final String accountHolderType;
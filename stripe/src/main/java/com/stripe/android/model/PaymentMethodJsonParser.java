@@ -0,0 +1,524 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.stripe.android.model.wallets.WalletFactory;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses {@link PaymentMethod} objects with a {@link JsonReader}, populating the model
+ * builders as the JSON is read instead of first building a {@link JSONObject} tree.
+ *
+ * The SDK reads responses into a String before parsing them, because
+ * <code>ApiRequestExecutor</code> returns the body as text, which is what revalidated GET
+ * requests are cached as and what errors are parsed from. This parser therefore saves the
+ * {@link JSONObject} tree, not the String.
+ *
+ * The result is the same as that of {@link PaymentMethod#fromJson(JSONObject)}, which remains
+ * available as the compatibility path. PaymentIntent, Source and Customer responses are still
+ * parsed into a {@link JSONObject}.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class PaymentMethodJsonParser {
+    private static final String FIELD_DATA = "data";
+    private static final String FIELD_HAS_MORE = "has_more";
+
+    private PaymentMethodJsonParser() {
+    }
+
+    /**
+     * @param reader a reader over a PaymentMethod JSON object
+     * @return the parsed {@link PaymentMethod}, or {@code null} if the JSON is malformed
+     */
+    @Nullable
+    public static PaymentMethod parse(@NonNull Reader reader) {
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            return readPaymentMethod(jsonReader);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param reader a reader over a list object, e.g. the response of
+     *               <a href="https://stripe.com/docs/api/payment_methods/list">List a Customer's
+     *               PaymentMethods</a>
+     * @return the {@link PaymentMethod} objects in the list's <code>data</code> field, or an
+     * empty list if the JSON is malformed
+     */
+    @NonNull
+    public static List<PaymentMethod> parseList(@NonNull Reader reader) {
+        return parsePage(reader).paymentMethods;
+    }
+
+    /**
+     * @param reader a reader over a list object, e.g. the response of
+     *               <a href="https://stripe.com/docs/api/payment_methods/list">List a Customer's
+     *               PaymentMethods</a>
+     * @return the {@link PaymentMethod} objects in the list's <code>data</code> field and its
+     * <code>has_more</code> flag, or an empty last page if the JSON is malformed
+     */
+    @NonNull
+    public static PaymentMethodsPage parsePage(@NonNull Reader reader) {
+        final List<PaymentMethod> paymentMethods = new ArrayList<>();
+        boolean hasMore = false;
+        try (JsonReader jsonReader = new JsonReader(reader)) {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                final String name = jsonReader.nextName();
+                if (FIELD_DATA.equals(name) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        final PaymentMethod paymentMethod = readPaymentMethod(jsonReader);
+                        if (paymentMethod != null) {
+                            paymentMethods.add(paymentMethod);
+                        }
+                    }
+                    jsonReader.endArray();
+                } else if (FIELD_HAS_MORE.equals(name)) {
+                    hasMore = nextBoolean(jsonReader);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            return new PaymentMethodsPage(paymentMethods, hasMore);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return new PaymentMethodsPage(new ArrayList<PaymentMethod>(), false);
+        }
+    }
+
+    @Nullable
+    private static PaymentMethod readPaymentMethod(@NonNull JsonReader reader)
+            throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Builder builder = new PaymentMethod.Builder();
+        String type = null;
+        PaymentMethod.Card card = null;
+        PaymentMethod.Ideal ideal = null;
+        PaymentMethod.Fpx fpx = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.FIELD_ID: {
+                    builder.setId(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.FIELD_TYPE: {
+                    type = nextString(reader);
+                    break;
+                }
+                case PaymentMethod.FIELD_CREATED: {
+                    builder.setCreated(nextLong(reader));
+                    break;
+                }
+                case PaymentMethod.FIELD_BILLING_DETAILS: {
+                    builder.setBillingDetails(readBillingDetails(reader));
+                    break;
+                }
+                case PaymentMethod.FIELD_CUSTOMER: {
+                    builder.setCustomerId(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.FIELD_LIVEMODE: {
+                    builder.setLiveMode(nextBoolean(reader));
+                    break;
+                }
+                case PaymentMethod.FIELD_METADATA: {
+                    builder.setMetadata(StripeJsonUtils.jsonObjectToStringMap(
+                            readJsonObject(reader)));
+                    break;
+                }
+                case PaymentMethod.FIELD_CARD: {
+                    card = readCard(reader);
+                    break;
+                }
+                case PaymentMethod.FIELD_IDEAL: {
+                    ideal = readIdeal(reader);
+                    break;
+                }
+                case PaymentMethod.FIELD_FPX: {
+                    fpx = readFpx(reader);
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+
+        // the type-specific object can appear before the "type" field, so it is only
+        // attached once the whole object has been read
+        builder.setType(type);
+        if (PaymentMethod.FIELD_CARD.equals(type)) {
+            builder.setCard(card);
+        } else if (PaymentMethod.FIELD_CARD_PRESENT.equals(type)) {
+            builder.setCardPresent(PaymentMethod.CardPresent.EMPTY);
+        } else if (PaymentMethod.FIELD_IDEAL.equals(type)) {
+            builder.setIdeal(ideal);
+        } else if (PaymentMethod.FIELD_FPX.equals(type)) {
+            builder.setFpx(fpx);
+        }
+
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.BillingDetails readBillingDetails(@NonNull JsonReader reader)
+            throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.BillingDetails.Builder builder =
+                new PaymentMethod.BillingDetails.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.BillingDetails.FIELD_ADDRESS: {
+                    builder.setAddress(Address.fromJson(readJsonObject(reader)));
+                    break;
+                }
+                case PaymentMethod.BillingDetails.FIELD_EMAIL: {
+                    builder.setEmail(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.BillingDetails.FIELD_NAME: {
+                    builder.setName(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.BillingDetails.FIELD_PHONE: {
+                    builder.setPhone(nextString(reader));
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.Card readCard(@NonNull JsonReader reader) throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Card.Builder builder = new PaymentMethod.Card.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.Card.FIELD_BRAND: {
+                    builder.setBrand(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_CHECKS: {
+                    builder.setChecks(readChecks(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_COUNTRY: {
+                    builder.setCountry(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_EXP_MONTH: {
+                    builder.setExpiryMonth((int) nextLong(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_EXP_YEAR: {
+                    builder.setExpiryYear((int) nextLong(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_FUNDING: {
+                    builder.setFunding(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_LAST4: {
+                    builder.setLast4(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_THREE_D_SECURE_USAGE: {
+                    builder.setThreeDSecureUsage(readThreeDSecureUsage(reader));
+                    break;
+                }
+                case PaymentMethod.Card.FIELD_WALLET: {
+                    builder.setWallet(new WalletFactory().create(readJsonObject(reader)));
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.Card.Checks readChecks(@NonNull JsonReader reader)
+            throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Card.Checks.Builder builder = new PaymentMethod.Card.Checks.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.Card.Checks.FIELD_ADDRESS_LINE1_CHECK: {
+                    builder.setAddressLine1Check(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.Checks.FIELD_ADDRESS_POSTAL_CODE_CHECK: {
+                    builder.setAddressPostalCodeCheck(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Card.Checks.FIELD_CVC_CHECK: {
+                    builder.setCvcCheck(nextString(reader));
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.Card.ThreeDSecureUsage readThreeDSecureUsage(
+            @NonNull JsonReader reader) throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Card.ThreeDSecureUsage.Builder builder =
+                new PaymentMethod.Card.ThreeDSecureUsage.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (PaymentMethod.Card.ThreeDSecureUsage.FIELD_IS_SUPPORTED
+                    .equals(reader.nextName())) {
+                builder.setSupported(nextBoolean(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.Ideal readIdeal(@NonNull JsonReader reader) throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Ideal.Builder builder = new PaymentMethod.Ideal.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.Ideal.FIELD_BANK: {
+                    builder.setBank(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Ideal.FIELD_BIC: {
+                    builder.setBankIdentifierCode(nextString(reader));
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    @Nullable
+    private static PaymentMethod.Fpx readFpx(@NonNull JsonReader reader) throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+
+        final PaymentMethod.Fpx.Builder builder = new PaymentMethod.Fpx.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PaymentMethod.Fpx.FIELD_BANK: {
+                    builder.setBank(nextString(reader));
+                    break;
+                }
+                case PaymentMethod.Fpx.FIELD_ACCOUNT_HOLDER_TYPE: {
+                    builder.setAccountHolderType(nextString(reader));
+                    break;
+                }
+                default: {
+                    reader.skipValue();
+                    break;
+                }
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    /**
+     * Skip the next value if it is not an object, mirroring
+     * {@link JSONObject#optJSONObject(String)} returning {@code null}.
+     *
+     * @return true if the value was skipped
+     */
+    private static boolean skipIfNotObject(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.skipValue();
+        return true;
+    }
+
+    /**
+     * Equivalent of {@link StripeJsonUtils#optString(JSONObject, String)}
+     */
+    @Nullable
+    private static String nextString(@NonNull JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL: {
+                reader.nextNull();
+                return null;
+            }
+            case BOOLEAN: {
+                return String.valueOf(reader.nextBoolean());
+            }
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY: {
+                return StripeJsonUtils.nullIfNullOrEmpty(String.valueOf(readJsonValue(reader)));
+            }
+            default: {
+                return StripeJsonUtils.nullIfNullOrEmpty(reader.nextString());
+            }
+        }
+    }
+
+    /**
+     * Equivalent of {@link JSONObject#optLong(String)}, which falls back to {@code 0}
+     */
+    private static long nextLong(@NonNull JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return 0L;
+        }
+
+        final String value = reader.nextString();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * Equivalent of {@link JSONObject#optBoolean(String)}, which falls back to {@code false}
+     */
+    private static boolean nextBoolean(@NonNull JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN: {
+                return reader.nextBoolean();
+            }
+            case STRING: {
+                return "true".equalsIgnoreCase(reader.nextString());
+            }
+            default: {
+                reader.skipValue();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Read a small nested object whose model only has a {@link JSONObject} based factory.
+     */
+    @Nullable
+    private static JSONObject readJsonObject(@NonNull JsonReader reader) throws IOException {
+        if (skipIfNotObject(reader)) {
+            return null;
+        }
+        return (JSONObject) readJsonValue(reader);
+    }
+
+    @NonNull
+    private static Object readJsonValue(@NonNull JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT: {
+                final JSONObject jsonObject = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    final String name = reader.nextName();
+                    final Object value = readJsonValue(reader);
+                    try {
+                        jsonObject.put(name, value);
+                    } catch (JSONException ignored) {
+                        // Simply skip this value
+                    }
+                }
+                reader.endObject();
+                return jsonObject;
+            }
+            case BEGIN_ARRAY: {
+                final JSONArray jsonArray = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    jsonArray.put(readJsonValue(reader));
+                }
+                reader.endArray();
+                return jsonArray;
+            }
+            case BOOLEAN: {
+                return reader.nextBoolean();
+            }
+            case NUMBER: {
+                final String value = reader.nextString();
+                try {
+                    return Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(value);
+                }
+            }
+            case NULL: {
+                reader.nextNull();
+                return JSONObject.NULL;
+            }
+            default: {
+                return reader.nextString();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.stripe.android.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import com.stripe.android.utils.ObjectUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a
+ * <a href="https://stripe.com/docs/api/payment_methods/list">List a Customer's PaymentMethods</a>
+ * response.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class PaymentMethodsPage {
+    @NonNull public final List<PaymentMethod> paymentMethods;
+
+    /**
+     * {@code true} if another page can be requested with {@link #getLastId()} as the
+     * <code>starting_after</code> cursor
+     */
+    public final boolean hasMore;
+
+    public PaymentMethodsPage(@NonNull List<PaymentMethod> paymentMethods, boolean hasMore) {
+        this.paymentMethods = Collections.unmodifiableList(paymentMethods);
+        // without a cursor there is no way to request the next page
+        this.hasMore = hasMore && getLastId() != null;
+    }
+
+    /**
+     * @return the id of the last {@link PaymentMethod} in this page, to be used as the
+     * <code>starting_after</code> cursor for the next page
+     */
+    @Nullable
+    public String getLastId() {
+        return paymentMethods.isEmpty() ? null : paymentMethods.get(paymentMethods.size() - 1).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return ObjectUtils.hash(paymentMethods, hasMore);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj ||
+                (obj instanceof PaymentMethodsPage && typedEquals((PaymentMethodsPage) obj));
+    }
+
+    private boolean typedEquals(@NonNull PaymentMethodsPage page) {
+        return ObjectUtils.equals(paymentMethods, page.paymentMethods) && hasMore == page.hasMore;
+    }
+}
@@ -2,12 +2,11 @@ package com.stripe.android.model;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
 import android.support.annotation.VisibleForTesting;
 
-import java.io.ByteArrayInputStream;
 import java.security.PublicKey;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -43,6 +42,15 @@ public final class Stripe3ds2Fingerprint {
         );
     }
 
+    /**
+     * Prepare certificate parsing ahead of the first {@link #create(StripeIntent.SdkData)}.
+     * Call this off the main thread.
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY)
+    public static void warmUp() throws CertificateException {
+        DirectoryServerCertificateCache.getInstance().warmUp();
+    }
+
     private Stripe3ds2Fingerprint(@NonNull String source,
                                   @NonNull DirectoryServer directoryServer,
                                   @NonNull String serverTransactionId,
@@ -70,9 +78,12 @@ public final class Stripe3ds2Fingerprint {
                                   @NonNull List<String> rootCertsData,
                                   @Nullable String keyId) throws CertificateException {
             this.directoryServerId = directoryServerId;
-            this.directoryServerPublicKey = generateCertificate(dsCertificateData).getPublicKey();
+            final DirectoryServerCertificateCache certificateCache =
+                    DirectoryServerCertificateCache.getInstance();
+            this.directoryServerPublicKey =
+                    certificateCache.get(dsCertificateData).getPublicKey();
             this.keyId = keyId;
-            this.rootCerts = generateCertificates(rootCertsData);
+            this.rootCerts = getCertificates(certificateCache, rootCertsData);
         }
 
         @NonNull
@@ -92,22 +103,15 @@ public final class Stripe3ds2Fingerprint {
         }
 
         @NonNull
-        private List<X509Certificate> generateCertificates(@NonNull List<String> certificatesData)
-                throws CertificateException {
+        private static List<X509Certificate> getCertificates(
+                @NonNull DirectoryServerCertificateCache certificateCache,
+                @NonNull List<String> certificatesData) throws CertificateException {
             final List<X509Certificate> certs = new ArrayList<>(certificatesData.size());
             for (final String certData : certificatesData) {
-                certs.add(generateCertificate(certData));
+                certs.add(certificateCache.get(certData));
             }
             return certs;
         }
-
-        @NonNull
-        private X509Certificate generateCertificate(@NonNull String certificate)
-                throws CertificateException {
-            final CertificateFactory factory = CertificateFactory.getInstance("X.509");
-            return (X509Certificate)
-                    factory.generateCertificate(new ByteArrayInputStream(certificate.getBytes()));
-        }
     }
 
     public enum DirectoryServer {
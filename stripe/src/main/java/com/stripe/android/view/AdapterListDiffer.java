@@ -0,0 +1,189 @@
+package com.stripe.android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.recyclerview.extensions.AsyncDifferConfig;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the items of a {@link RecyclerView.Adapter} and replaces them with a new list by
+ * computing the difference between the two lists on a background thread, so that only the rows
+ * that were inserted, removed, moved or changed are bound again.
+ *
+ * Like {@link android.support.v7.recyclerview.extensions.AsyncListDiffer}, the adapter keeps
+ * showing the current list until the difference is known, and a list that replaces an empty list,
+ * or that is empty, is shown right away since there is nothing to compare. Unlike it, items
+ * appended while no difference is being computed are also shown right away, because the rows
+ * that they add are already known.
+ *
+ * @param <T> the type of the items
+ */
+final class AdapterListDiffer<T> {
+    /**
+     * The payload that an adapter notifies for a row whose selection state changed, so that the
+     * row is bound without binding its item again.
+     */
+    static final Object PAYLOAD_SELECTION = new Object();
+
+    @NonNull private final RecyclerView.Adapter<?> mAdapter;
+    @NonNull private final DiffUtil.ItemCallback<T> mItemCallback;
+    @NonNull private final Executor mBackgroundExecutor;
+    @NonNull private final Executor mMainThreadExecutor;
+
+    @NonNull private List<T> mCurrentList = Collections.emptyList();
+    @NonNull private List<T> mLatestList = Collections.emptyList();
+    private int mGeneration;
+
+    AdapterListDiffer(@NonNull RecyclerView.Adapter<?> adapter,
+                      @NonNull DiffUtil.ItemCallback<T> itemCallback) {
+        this(adapter, new AsyncDifferConfig.Builder<>(itemCallback).build(),
+                new Executor() {
+                    @NonNull private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        mHandler.post(runnable);
+                    }
+                });
+    }
+
+    /**
+     * @param config the item callback and the background executor, which by default is shared
+     *               with every other <code>AsyncListDiffer</code> in the app
+     * @param mainThreadExecutor the {@link Executor} that applies a difference to the adapter
+     */
+    @VisibleForTesting
+    AdapterListDiffer(@NonNull RecyclerView.Adapter<?> adapter,
+                      @NonNull AsyncDifferConfig<T> config,
+                      @NonNull Executor mainThreadExecutor) {
+        mAdapter = adapter;
+        mItemCallback = config.getDiffCallback();
+        mBackgroundExecutor = config.getBackgroundThreadExecutor();
+        mMainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * @return the items that the adapter shows, which can't be modified
+     */
+    @NonNull
+    List<T> getCurrentList() {
+        return mCurrentList;
+    }
+
+    /**
+     * @return the items that were last submitted, which are shown once their difference with
+     *         {@link #getCurrentList()} is applied
+     */
+    @NonNull
+    List<T> getLatestList() {
+        return mLatestList;
+    }
+
+    /**
+     * Replace the items with {@code items}, which are copied.
+     */
+    void submitList(@NonNull List<T> items) {
+        final List<T> oldList = mCurrentList;
+        final List<T> newList = Collections.unmodifiableList(new ArrayList<>(items));
+        final int generation = ++mGeneration;
+        mLatestList = newList;
+
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            mCurrentList = newList;
+            mAdapter.notifyDataSetChanged();
+            return;
+        }
+
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new ListCallback<>(oldList, newList, mItemCallback));
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // a list that was submitted later replaces this one
+                        if (generation == mGeneration) {
+                            mCurrentList = newList;
+                            result.dispatchUpdatesTo(mAdapter);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Append {@code items} to the latest list. If no difference is being computed, only the new
+     * rows are inserted.
+     */
+    void addAll(@NonNull List<T> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        final List<T> newList = new ArrayList<>(mLatestList.size() + items.size());
+        newList.addAll(mLatestList);
+        newList.addAll(items);
+
+        if (mLatestList != mCurrentList || mCurrentList.isEmpty()) {
+            submitList(newList);
+            return;
+        }
+
+        final int positionStart = mCurrentList.size();
+        ++mGeneration;
+        mCurrentList = Collections.unmodifiableList(newList);
+        mLatestList = mCurrentList;
+        mAdapter.notifyItemRangeInserted(positionStart, items.size());
+    }
+
+    private static final class ListCallback<T> extends DiffUtil.Callback {
+        @NonNull private final List<T> mOldList;
+        @NonNull private final List<T> mNewList;
+        @NonNull private final DiffUtil.ItemCallback<T> mItemCallback;
+
+        private ListCallback(@NonNull List<T> oldList, @NonNull List<T> newList,
+                             @NonNull DiffUtil.ItemCallback<T> itemCallback) {
+            mOldList = oldList;
+            mNewList = newList;
+            mItemCallback = itemCallback;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mItemCallback.areItemsTheSame(mOldList.get(oldItemPosition),
+                    mNewList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mItemCallback.areContentsTheSame(mOldList.get(oldItemPosition),
+                    mNewList.get(newItemPosition));
+        }
+
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            return mItemCallback.getChangePayload(mOldList.get(oldItemPosition),
+                    mNewList.get(newItemPosition));
+        }
+    }
+}
@@ -11,7 +11,7 @@ import android.util.AttributeSet;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.widget.EditText;
 
-import com.stripe.android.CardUtils;
+import com.stripe.android.CardBinIndex;
 import com.stripe.android.R;
 import com.stripe.android.StripeTextUtils;
 import com.stripe.android.model.Card;
@@ -45,6 +45,8 @@ public class CardNumberEditText extends StripeEditText {
     private int mLengthMax = 19;
     private boolean mIgnoreChanges = false;
     private boolean mIsCardNumberValid = false;
+    @NonNull private final CardBinIndex.Matcher mCardNumberMatcher =
+            CardBinIndex.getInstance().newMatcher();
 
     public CardNumberEditText(Context context) {
         super(context);
@@ -177,8 +179,9 @@ public class CardNumberEditText extends StripeEditText {
                     return;
                 }
 
+                mCardNumberMatcher.update(s);
                 if (start < 4) {
-                    updateCardBrandFromNumber(s.toString());
+                    updateCardBrand(mCardNumberMatcher.getBrand());
                 }
 
                 if (start > 16) {
@@ -219,16 +222,17 @@ public class CardNumberEditText extends StripeEditText {
 
             @Override
             public void afterTextChanged(Editable s) {
+                // the matcher only reprocesses digits that changed since onTextChanged()
+                mCardNumberMatcher.update(getText());
                 if (s.length() == mLengthMax) {
                     boolean before = mIsCardNumberValid;
-                    mIsCardNumberValid = CardUtils.isValidCardNumber(s.toString());
+                    mIsCardNumberValid = mCardNumberMatcher.isValid();
                     setShouldShowError(!mIsCardNumberValid);
                     if (!before && mIsCardNumberValid && mCardNumberCompleteListener != null) {
                         mCardNumberCompleteListener.onCardNumberComplete();
                     }
                 } else {
-                    mIsCardNumberValid = getText() != null
-                            && CardUtils.isValidCardNumber(getText().toString());
+                    mIsCardNumberValid = mCardNumberMatcher.isValid();
                     // Don't show errors if we aren't full-length.
                     setShouldShowError(false);
                 }
@@ -256,10 +260,6 @@ public class CardNumberEditText extends StripeEditText {
         updateLengthFilter();
     }
 
-    private void updateCardBrandFromNumber(String partialNumber) {
-        updateCardBrand(CardUtils.getPossibleCardType(partialNumber));
-    }
-
     private static int getLengthForBrand(@Card.CardBrand String cardBrand) {
         if (Card.CardBrand.AMERICAN_EXPRESS.equals(cardBrand) ||
                 Card.CardBrand.DINERS_CLUB.equals(cardBrand)) {
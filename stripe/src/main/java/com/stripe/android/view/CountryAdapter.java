@@ -14,8 +14,6 @@ import android.widget.TextView;
 import com.stripe.android.R;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 
@@ -24,32 +22,32 @@ import java.util.Locale;
  */
 class CountryAdapter extends ArrayAdapter {
     @NonNull private final Context mContext;
+    @NonNull private final CountryIndex mCountryIndex;
     @NonNull private final List<String> mCountries;
     @NonNull private final Filter mFilter;
 
     private List<String> mSuggestions;
 
-    CountryAdapter(@NonNull Context context, @NonNull List<String> countries) {
+    CountryAdapter(@NonNull Context context, @NonNull CountryIndex countryIndex) {
         super(context, R.layout.menu_text_view);
         mContext = context;
-        mCountries = getOrderedCountries(countries);
+        mCountryIndex = countryIndex;
+        mCountries = getOrderedCountries(countryIndex.getNames());
         mSuggestions = mCountries;
         mFilter = new Filter() {
             @NonNull
             @Override
             protected FilterResults performFiltering(CharSequence charSequence) {
                 final FilterResults filterResults = new FilterResults();
-                final List<String> suggestedCountries = new ArrayList<>();
                 if (charSequence == null) {
                     filterResults.values = mCountries;
                     return filterResults;
                 }
-                final String charSequenceLowercase = charSequence.toString()
-                        .toLowerCase(Locale.ROOT);
-                for (String country : mCountries) {
-                    if (country.toLowerCase(Locale.ROOT).startsWith(charSequenceLowercase)) {
-                        suggestedCountries.add(country);
-                    }
+                final List<String> suggestedCountries =
+                        mCountryIndex.findByPrefix(charSequence);
+                final String currentCountry = getCurrentLocale().getDisplayCountry();
+                if (suggestedCountries.remove(currentCountry)) {
+                    suggestedCountries.add(0, currentCountry);
                 }
                 if (suggestedCountries.size() == 0 || (suggestedCountries.size() == 1 &&
                         suggestedCountries.get(0).equals(charSequence.toString()))) {
@@ -105,15 +103,9 @@ class CountryAdapter extends ArrayAdapter {
     }
 
     @NonNull
-    private List<String> getOrderedCountries(@NonNull List<String> countries) {
+    private List<String> getOrderedCountries(@NonNull List<String> sortedCountries) {
         // Show user's current locale first, followed by countries alphabetized by display name
-        Collections.sort(countries, new Comparator<String>() {
-            @Override
-            public int compare(String country1, String country2) {
-                return country1.toLowerCase(Locale.ROOT)
-                        .compareTo(country2.toLowerCase(Locale.ROOT));
-            }
-        });
+        final List<String> countries = new ArrayList<>(sortedCountries);
         countries.remove(getCurrentLocale().getDisplayCountry());
         countries.add(0, getCurrentLocale().getDisplayCountry());
         return countries;
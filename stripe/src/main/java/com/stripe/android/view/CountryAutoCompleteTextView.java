@@ -14,15 +14,13 @@ import android.widget.FrameLayout;
 
 import com.stripe.android.R;
 
-import java.util.ArrayList;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY)
 public class CountryAutoCompleteTextView extends FrameLayout {
     @NonNull private final AutoCompleteTextView mCountryAutocomplete;
-    @NonNull private final Map<String, String> mCountryNameToCode;
+    @NonNull private final CountryIndex mCountryIndex;
 
     @VisibleForTesting String mCountrySelected;
     @Nullable private CountryChangeListener mCountryChangeListener;
@@ -40,9 +38,9 @@ public class CountryAutoCompleteTextView extends FrameLayout {
 
         inflate(getContext(), R.layout.country_autocomplete_textview, this);
         mCountryAutocomplete = findViewById(R.id.autocomplete_country_cat);
-        mCountryNameToCode = CountryUtils.getCountryNameToCodeMap();
-        final ArrayAdapter countryAdapter = new CountryAdapter(getContext(),
-                new ArrayList<>(mCountryNameToCode.keySet()));
+        // normally already built on a worker thread, see PaymentSession#init()
+        mCountryIndex = CountryIndex.getInstance(Locale.getDefault());
+        final ArrayAdapter countryAdapter = new CountryAdapter(getContext(), mCountryIndex);
         mCountryAutocomplete.setThreshold(0);
         mCountryAutocomplete.setAdapter(countryAdapter);
         mCountryAutocomplete.setOnItemClickListener(new AdapterView.OnItemClickListener() {
@@ -94,7 +92,7 @@ public class CountryAutoCompleteTextView extends FrameLayout {
 
     @VisibleForTesting
     void updateUiForCountryEntered(@NonNull String displayCountryEntered) {
-        final String countryCodeEntered = mCountryNameToCode.get(displayCountryEntered);
+        final String countryCodeEntered = mCountryIndex.getCode(displayCountryEntered);
         if (countryCodeEntered != null) {
             if (mCountrySelected == null || !mCountrySelected.equals(countryCodeEntered)) {
                 mCountrySelected = countryCodeEntered;
@@ -110,8 +108,10 @@ public class CountryAutoCompleteTextView extends FrameLayout {
     }
 
     @NonNull
-    private static String getDisplayCountry(@NonNull String countryCode) {
-        return new Locale("", countryCode).getDisplayCountry();
+    private String getDisplayCountry(@NonNull String countryCode) {
+        final String displayCountry = mCountryIndex.getName(countryCode);
+        return displayCountry != null ?
+                displayCountry : new Locale("", countryCode).getDisplayCountry();
     }
 
     interface CountryChangeListener {
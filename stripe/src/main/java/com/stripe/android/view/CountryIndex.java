@@ -0,0 +1,172 @@
+package com.stripe.android.view;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+import android.support.annotation.VisibleForTesting;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * The display names of every ISO country in one display {@link Locale}, with maps between names
+ * and country codes and an index for finding the names that start with a prefix.
+ *
+ * Looking up the display name of every country takes long enough to delay inflating a layout,
+ * so an index is built once per display locale and shared by every view in the process. Call
+ * {@link #getInstance(Locale)} on a worker thread ahead of time to build it off the main thread.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class CountryIndex {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+
+    @NonNull private static final ConcurrentMap<Locale, CountryIndex> INSTANCES =
+            new ConcurrentHashMap<>();
+
+    // sorted case-insensitively, for display
+    @NonNull private final List<String> mNames;
+    @NonNull private final Map<String, String> mNameToCode;
+    @NonNull private final Map<String, String> mCodeToName;
+
+    // the normalized names, sorted, and the position in mNames of each
+    @NonNull private final String[] mSortedNormalizedNames;
+    @NonNull private final int[] mNamePositions;
+
+    /**
+     * @return the shared index of country names in {@code displayLocale}, which is built if
+     *         needed
+     */
+    @NonNull
+    public static CountryIndex getInstance(@NonNull Locale displayLocale) {
+        final CountryIndex countryIndex = INSTANCES.get(displayLocale);
+        if (countryIndex != null) {
+            return countryIndex;
+        }
+
+        // if two threads build the same index, the first one to finish is kept
+        final CountryIndex newCountryIndex = new CountryIndex(displayLocale);
+        final CountryIndex existingCountryIndex =
+                INSTANCES.putIfAbsent(displayLocale, newCountryIndex);
+        return existingCountryIndex != null ? existingCountryIndex : newCountryIndex;
+    }
+
+    @VisibleForTesting
+    CountryIndex(@NonNull Locale displayLocale) {
+        final String[] countryCodes = Locale.getISOCountries();
+        final Map<String, String> nameToCode = new HashMap<>(countryCodes.length);
+        final Map<String, String> codeToName = new HashMap<>(countryCodes.length);
+        for (String countryCode : countryCodes) {
+            final String name = new Locale("", countryCode).getDisplayCountry(displayLocale);
+            nameToCode.put(name, countryCode);
+            codeToName.put(countryCode, name);
+        }
+
+        final List<String> names = new ArrayList<>(nameToCode.keySet());
+        Collections.sort(names, new Comparator<String>() {
+            @Override
+            public int compare(String name1, String name2) {
+                return name1.toLowerCase(Locale.ROOT).compareTo(name2.toLowerCase(Locale.ROOT));
+            }
+        });
+
+        final int count = names.size();
+        final String[] normalizedNames = new String[count];
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            normalizedNames[i] = normalize(names.get(i));
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer position1, Integer position2) {
+                return normalizedNames[position1].compareTo(normalizedNames[position2]);
+            }
+        });
+
+        mSortedNormalizedNames = new String[count];
+        mNamePositions = new int[count];
+        for (int i = 0; i < count; i++) {
+            mSortedNormalizedNames[i] = normalizedNames[order[i]];
+            mNamePositions[i] = order[i];
+        }
+
+        mNames = Collections.unmodifiableList(names);
+        mNameToCode = Collections.unmodifiableMap(nameToCode);
+        mCodeToName = Collections.unmodifiableMap(codeToName);
+    }
+
+    /**
+     * @return every country name, sorted case-insensitively
+     */
+    @NonNull
+    List<String> getNames() {
+        return mNames;
+    }
+
+    @Nullable
+    String getCode(@NonNull String name) {
+        return mNameToCode.get(name);
+    }
+
+    @Nullable
+    String getName(@NonNull String countryCode) {
+        return mCodeToName.get(countryCode);
+    }
+
+    /**
+     * Find the names that start with {@code prefix}, ignoring case and accents. This takes
+     * O(log n + k) time for k matches.
+     *
+     * @return the matching names, in the order of {@link #getNames()}
+     */
+    @NonNull
+    List<String> findByPrefix(@NonNull CharSequence prefix) {
+        final String normalizedPrefix = normalize(prefix);
+
+        // the names that start with the prefix are adjacent, starting at the first name that
+        // is not less than the prefix
+        int low = 0;
+        int high = mSortedNormalizedNames.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mSortedNormalizedNames[mid].compareTo(normalizedPrefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int end = low;
+        while (end < mSortedNormalizedNames.length &&
+                mSortedNormalizedNames[end].startsWith(normalizedPrefix)) {
+            end++;
+        }
+
+        final int[] positions = Arrays.copyOfRange(mNamePositions, low, end);
+        Arrays.sort(positions);
+        final List<String> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            matches.add(mNames.get(position));
+        }
+        return matches;
+    }
+
+    /**
+     * @return {@code value} in lower case, without accents
+     */
+    @NonNull
+    private static String normalize(@NonNull CharSequence value) {
+        final String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
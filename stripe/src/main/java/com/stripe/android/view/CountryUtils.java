@@ -3,10 +3,7 @@ package com.stripe.android.view;
 import android.support.annotation.NonNull;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 final class CountryUtils {
@@ -25,14 +22,4 @@ final class CountryUtils {
         return !NO_POSTAL_CODE_COUNTRIES_SET.contains(countryCode);
     }
 
-    @NonNull
-    static Map<String, String> getCountryNameToCodeMap() {
-        final Map<String, String> displayNameToCountryCode = new HashMap<>();
-        for (String countryCode : Locale.getISOCountries()) {
-            final Locale locale = new Locale("", countryCode);
-            displayNameToCountryCode.put(locale.getDisplayCountry(), countryCode);
-        }
-        return displayNameToCountryCode;
-    }
-
 }
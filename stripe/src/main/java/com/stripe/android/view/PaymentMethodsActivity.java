@@ -41,11 +41,14 @@ public class PaymentMethodsActivity extends AppCompatActivity {
     public static final String TOKEN_PAYMENT_METHODS_ACTIVITY = "PaymentMethodsActivity";
 
     static final int REQUEST_CODE_ADD_CARD = 700;
+    static final int PAGE_SIZE = 20;
+
     private boolean mCommunicating;
     private PaymentMethodsAdapter mAdapter;
     private ProgressBar mProgressBar;
     private boolean mStartedFromPaymentSession;
     private CustomerSession mCustomerSession;
+    @Nullable private PaymentMethodsPageRetrievalListener mPaymentMethodsListener;
 
     /**
      * @deprecated use {@link PaymentMethodsActivityStarter#newIntent()}
@@ -167,16 +170,34 @@ public class PaymentMethodsActivity extends AppCompatActivity {
 
     private void getCustomerPaymentMethods(@Nullable String selectPaymentMethodId) {
         setCommunicatingProgress(true);
-        mCustomerSession.getPaymentMethods(PaymentMethod.Type.Card,
-                new PaymentMethodsRetrievalListener(this, selectPaymentMethodId));
+        mPaymentMethodsListener = new PaymentMethodsPageRetrievalListener(this,
+                selectPaymentMethodId);
+        mCustomerSession.getPaymentMethods(PaymentMethod.Type.Card, PAGE_SIZE,
+                mPaymentMethodsListener);
     }
 
-    private void updatePaymentMethods(@NonNull List<PaymentMethod> paymentMethods,
-                                      @Nullable String selectPaymentMethodId) {
+    /**
+     * Replace the shown payment methods with the first page of a listing.
+     *
+     * @return {@code true} if {@code selectPaymentMethodId} is {@code null} or was selected
+     */
+    private boolean updatePaymentMethods(@NonNull List<PaymentMethod> paymentMethods,
+                                         @Nullable String selectPaymentMethodId) {
         mAdapter.setPaymentMethods(paymentMethods);
-        if (selectPaymentMethodId != null) {
-            mAdapter.setSelectedPaymentMethod(selectPaymentMethodId);
-        }
+        return selectPaymentMethodId == null ||
+                mAdapter.setSelectedPaymentMethod(selectPaymentMethodId);
+    }
+
+    /**
+     * Append a subsequent page of a listing to the shown payment methods.
+     *
+     * @return {@code true} if {@code selectPaymentMethodId} is {@code null} or was selected
+     */
+    private boolean addPaymentMethods(@NonNull List<PaymentMethod> paymentMethods,
+                                      @Nullable String selectPaymentMethodId) {
+        mAdapter.addPaymentMethods(paymentMethods);
+        return selectPaymentMethodId == null ||
+                mAdapter.updateSelectedPaymentMethod(selectPaymentMethodId);
     }
 
     private void initLoggingTokens() {
@@ -235,26 +256,41 @@ public class PaymentMethodsActivity extends AppCompatActivity {
         }
     }
 
-    private static final class PaymentMethodsRetrievalListener extends
-            CustomerSession.ActivityPaymentMethodsRetrievalListener<PaymentMethodsActivity> {
+    private static final class PaymentMethodsPageRetrievalListener extends
+            CustomerSession.ActivityPaymentMethodsPageRetrievalListener<PaymentMethodsActivity> {
 
-        @Nullable final String mSelectPaymentMethodId;
+        @Nullable private String mSelectPaymentMethodId;
+        private boolean mIsFirstPage = true;
 
-        private PaymentMethodsRetrievalListener(@NonNull PaymentMethodsActivity activity,
-                                                @Nullable String selectPaymentMethodId) {
+        private PaymentMethodsPageRetrievalListener(@NonNull PaymentMethodsActivity activity,
+                                                    @Nullable String selectPaymentMethodId) {
             super(activity);
             mSelectPaymentMethodId = selectPaymentMethodId;
         }
 
         @Override
-        public void onPaymentMethodsRetrieved(@NonNull List<PaymentMethod> paymentMethods) {
+        public void onPaymentMethodsPageRetrieved(@NonNull List<PaymentMethod> paymentMethods,
+                                                  boolean hasMore) {
             final PaymentMethodsActivity activity = getActivity();
-            if (activity == null) {
+            // ignore pages of a listing that has since been restarted
+            if (activity == null || activity.mPaymentMethodsListener != this) {
                 return;
             }
 
-            activity.updatePaymentMethods(paymentMethods, mSelectPaymentMethodId);
-            activity.setCommunicatingProgress(false);
+            final boolean isSelected;
+            if (mIsFirstPage) {
+                mIsFirstPage = false;
+                isSelected = activity.updatePaymentMethods(paymentMethods,
+                        mSelectPaymentMethodId);
+                activity.setCommunicatingProgress(false);
+            } else {
+                isSelected = activity.addPaymentMethods(paymentMethods, mSelectPaymentMethodId);
+            }
+
+            // once selected, don't override a selection the customer makes on a later page
+            if (isSelected) {
+                mSelectPaymentMethodId = null;
+            }
         }
 
         @Override
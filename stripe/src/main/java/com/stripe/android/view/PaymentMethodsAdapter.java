@@ -3,6 +3,9 @@ package com.stripe.android.view;
 import android.support.annotation.LayoutRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.recyclerview.extensions.AsyncDifferConfig;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -10,10 +13,11 @@ import android.view.ViewGroup;
 
 import com.stripe.android.R;
 import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.utils.ObjectUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * A {@link RecyclerView.Adapter} that holds a set of {@link MaskedCardView} items for a given set
@@ -24,35 +28,83 @@ final class PaymentMethodsAdapter extends RecyclerView.Adapter<PaymentMethodsAda
     private static final int TYPE_CARD = 0;
 
     private static final int NO_SELECTION = -1;
-    @NonNull private final List<PaymentMethod> mPaymentMethods = new ArrayList<>();
-    private int mSelectedIndex = NO_SELECTION;
+
+    private static final DiffUtil.ItemCallback<PaymentMethod> ITEM_CALLBACK =
+            new DiffUtil.ItemCallback<PaymentMethod>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull PaymentMethod oldItem,
+                                               @NonNull PaymentMethod newItem) {
+                    return ObjectUtils.equals(oldItem.id, newItem.id);
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull PaymentMethod oldItem,
+                                                  @NonNull PaymentMethod newItem) {
+                    return oldItem.equals(newItem);
+                }
+            };
+
+    @NonNull private final AdapterListDiffer<PaymentMethod> mDiffer;
+    @Nullable private String mSelectedPaymentMethodId;
 
     PaymentMethodsAdapter() {
         setHasStableIds(true);
+        mDiffer = new AdapterListDiffer<>(this, ITEM_CALLBACK);
+    }
+
+    @VisibleForTesting
+    PaymentMethodsAdapter(@NonNull Executor backgroundExecutor,
+                          @NonNull Executor mainThreadExecutor) {
+        setHasStableIds(true);
+        mDiffer = new AdapterListDiffer<>(this,
+                new AsyncDifferConfig.Builder<>(ITEM_CALLBACK)
+                        .setBackgroundThreadExecutor(backgroundExecutor)
+                        .build(),
+                mainThreadExecutor);
     }
 
+    /**
+     * Replace the payment methods. The difference with the shown payment methods is computed on
+     * a background thread, then only the rows that changed are bound again.
+     */
     void setPaymentMethods(@NonNull List<PaymentMethod> paymentMethods) {
-        final PaymentMethod selectedPaymentMethod = getSelectedPaymentMethod();
-        final String selectedPaymentMethodId =
-                selectedPaymentMethod != null ? selectedPaymentMethod.id : null;
+        // if there were no selected payment methods, or the previously selected payment method
+        // was not found, select the newest payment method. This happens before the rows are
+        // replaced, so that a row which stays is only rebound if its selection changed.
+        if (indexOf(paymentMethods, mSelectedPaymentMethodId) == NO_SELECTION) {
+            final int newestIndex = getNewestPaymentMethodIndex(paymentMethods);
+            selectPaymentMethod(newestIndex != NO_SELECTION ?
+                    paymentMethods.get(newestIndex).id : null);
+        }
 
-        mPaymentMethods.clear();
-        mPaymentMethods.addAll(paymentMethods);
+        mDiffer.submitList(paymentMethods);
+    }
 
-        // if there were no selected payment methods, or the previously selected payment method
-        // was not found and set selected, select the newest payment method
-        if (selectedPaymentMethodId == null || !setSelectedPaymentMethod(selectedPaymentMethodId)) {
-            setSelectedIndex(getNewestPaymentMethodIndex());
+    /**
+     * Append a page of {@link PaymentMethod} objects, e.g. one delivered by
+     * {@link com.stripe.android.CustomerSession.PaymentMethodsPageRetrievalListener}. Only the
+     * new rows are bound; existing rows and the current selection are left as they are.
+     */
+    void addPaymentMethods(@NonNull List<PaymentMethod> paymentMethods) {
+        if (paymentMethods.isEmpty()) {
+            return;
         }
 
-        notifyDataSetChanged();
+        mDiffer.addAll(paymentMethods);
+
+        // rows that were already shown had no creation time if nothing is selected, so the
+        // newest payment method, if any, is in the new page
+        if (mSelectedPaymentMethodId == null) {
+            setSelectedIndex(getNewestPaymentMethodIndex(mDiffer.getLatestList()));
+        }
     }
 
-    private int getNewestPaymentMethodIndex() {
+    private static int getNewestPaymentMethodIndex(
+            @NonNull List<PaymentMethod> paymentMethods) {
         int index = NO_SELECTION;
         long created = 0L;
-        for (int i = 0; i < mPaymentMethods.size(); i++) {
-            final PaymentMethod paymentMethod = mPaymentMethods.get(i);
+        for (int i = 0; i < paymentMethods.size(); i++) {
+            final PaymentMethod paymentMethod = paymentMethods.get(i);
             if (paymentMethod.created != null && paymentMethod.created > created) {
                 created = paymentMethod.created;
                 index = i;
@@ -64,12 +116,12 @@ final class PaymentMethodsAdapter extends RecyclerView.Adapter<PaymentMethodsAda
 
     @Override
     public int getItemCount() {
-        return mPaymentMethods.size();
+        return mDiffer.getCurrentList().size();
     }
 
     @Override
     public int getItemViewType(int position) {
-        final String type = mPaymentMethods.get(position).type;
+        final String type = mDiffer.getCurrentList().get(position).type;
         if (PaymentMethod.Type.Card.code.equals(type)) {
             return TYPE_CARD;
         } else {
@@ -79,27 +131,26 @@ final class PaymentMethodsAdapter extends RecyclerView.Adapter<PaymentMethodsAda
 
     @Override
     public long getItemId(int position) {
-        return Objects.requireNonNull(mPaymentMethods.get(position).id).hashCode();
+        return Objects.requireNonNull(mDiffer.getCurrentList().get(position).id).hashCode();
     }
 
     @Override
-    public void onBindViewHolder(@NonNull final ViewHolder holder, int position) {
-        holder.setPaymentMethod(mPaymentMethods.get(position));
-        holder.setSelected(position == mSelectedIndex);
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                final int currentPosition = holder.getAdapterPosition();
-                if (currentPosition != mSelectedIndex) {
-                    final int prevSelectedIndex = mSelectedIndex;
-                    holder.toggleSelected();
-                    setSelectedIndex(currentPosition);
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        final PaymentMethod paymentMethod = mDiffer.getCurrentList().get(position);
+        holder.setPaymentMethod(paymentMethod);
+        holder.setSelected(isSelected(paymentMethod));
+    }
 
-                    notifyItemChanged(prevSelectedIndex);
-                    notifyItemChanged(currentPosition);
-                }
-            }
-        });
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        // the only payload is AdapterListDiffer.PAYLOAD_SELECTION, and there is none if the row
+        // must be bound from scratch
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.setSelected(isSelected(mDiffer.getCurrentList().get(position)));
+        }
     }
 
     @NonNull
@@ -113,36 +164,96 @@ final class PaymentMethodsAdapter extends RecyclerView.Adapter<PaymentMethodsAda
         }
         final View itemView = LayoutInflater.from(parent.getContext())
                 .inflate(layoutRes, parent, false);
-        return new ViewHolder(itemView);
+        final ViewHolder holder = new ViewHolder(itemView);
+        itemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                final int currentPosition = holder.getAdapterPosition();
+                if (currentPosition != RecyclerView.NO_POSITION) {
+                    selectPaymentMethod(mDiffer.getCurrentList().get(currentPosition).id);
+                }
+            }
+        });
+        return holder;
     }
 
     /**
-     * Sets the selected payment method based on ID.
+     * Sets the selected payment method based on ID, and rebinds the selection state of the rows
+     * whose selection changed.
      *
      * @param paymentMethodId the ID of the {@link PaymentMethod} to select
      * @return {@code true} if the value was found, {@code false} if not
      */
     boolean setSelectedPaymentMethod(@NonNull String paymentMethodId) {
-        for (int i = 0; i < mPaymentMethods.size(); i++) {
-            if (paymentMethodId.equals(mPaymentMethods.get(i).id)) {
-                setSelectedIndex(i);
-                return true;
-            }
+        if (indexOf(mDiffer.getLatestList(), paymentMethodId) == NO_SELECTION) {
+            return false;
         }
-        return false;
+
+        selectPaymentMethod(paymentMethodId);
+        return true;
+    }
+
+    /**
+     * Like {@link #setSelectedPaymentMethod(String)}. Use this once the rows are already shown.
+     *
+     * @param paymentMethodId the ID of the {@link PaymentMethod} to select
+     * @return {@code true} if the value was found, {@code false} if not
+     */
+    boolean updateSelectedPaymentMethod(@NonNull String paymentMethodId) {
+        return setSelectedPaymentMethod(paymentMethodId);
     }
 
     @Nullable
     PaymentMethod getSelectedPaymentMethod() {
-        if (mSelectedIndex == NO_SELECTION) {
-            return null;
+        final List<PaymentMethod> paymentMethods = mDiffer.getLatestList();
+        final int selectedIndex = indexOf(paymentMethods, mSelectedPaymentMethodId);
+        return selectedIndex != NO_SELECTION ? paymentMethods.get(selectedIndex) : null;
+    }
+
+    void setSelectedIndex(int selectedIndex) {
+        selectPaymentMethod(selectedIndex != NO_SELECTION ?
+                mDiffer.getLatestList().get(selectedIndex).id : null);
+    }
+
+    private boolean isSelected(@NonNull PaymentMethod paymentMethod) {
+        return mSelectedPaymentMethodId != null &&
+                mSelectedPaymentMethodId.equals(paymentMethod.id);
+    }
+
+    /**
+     * Select the payment method with the given ID, and rebind the selection state of the rows
+     * that are shown for the previously and the newly selected payment methods.
+     */
+    private void selectPaymentMethod(@Nullable String paymentMethodId) {
+        final String prevSelectedPaymentMethodId = mSelectedPaymentMethodId;
+        if (ObjectUtils.equals(prevSelectedPaymentMethodId, paymentMethodId)) {
+            return;
         }
 
-        return mPaymentMethods.get(mSelectedIndex);
+        mSelectedPaymentMethodId = paymentMethodId;
+        notifySelectionChanged(prevSelectedPaymentMethodId);
+        notifySelectionChanged(paymentMethodId);
     }
 
-    void setSelectedIndex(int selectedIndex) {
-        mSelectedIndex = selectedIndex;
+    private void notifySelectionChanged(@Nullable String paymentMethodId) {
+        final int position = indexOf(mDiffer.getCurrentList(), paymentMethodId);
+        if (position != NO_SELECTION) {
+            notifyItemChanged(position, AdapterListDiffer.PAYLOAD_SELECTION);
+        }
+    }
+
+    private static int indexOf(@NonNull List<PaymentMethod> paymentMethods,
+                               @Nullable String paymentMethodId) {
+        if (paymentMethodId == null) {
+            return NO_SELECTION;
+        }
+
+        for (int i = 0; i < paymentMethods.size(); i++) {
+            if (paymentMethodId.equals(paymentMethods.get(i).id)) {
+                return i;
+            }
+        }
+        return NO_SELECTION;
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -160,9 +271,5 @@ final class PaymentMethodsAdapter extends RecyclerView.Adapter<PaymentMethodsAda
         private void setSelected(boolean selected) {
             mCardView.setSelected(selected);
         }
-
-        private void toggleSelected() {
-            mCardView.toggleSelected();
-        }
     }
 }
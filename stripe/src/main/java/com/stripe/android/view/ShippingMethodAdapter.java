@@ -2,28 +2,59 @@ package com.stripe.android.view;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.recyclerview.extensions.AsyncDifferConfig;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.stripe.android.model.ShippingMethod;
+import com.stripe.android.utils.ObjectUtils;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Adapter that populates a list with shipping methods
  */
 final class ShippingMethodAdapter extends RecyclerView.Adapter<ShippingMethodAdapter.ViewHolder> {
 
-    @NonNull private List<ShippingMethod> mShippingMethods = new ArrayList<>();
-    private int mSelectedIndex = 0;
+    private static final DiffUtil.ItemCallback<ShippingMethod> ITEM_CALLBACK =
+            new DiffUtil.ItemCallback<ShippingMethod>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull ShippingMethod oldItem,
+                                               @NonNull ShippingMethod newItem) {
+                    return oldItem.getIdentifier().equals(newItem.getIdentifier());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull ShippingMethod oldItem,
+                                                  @NonNull ShippingMethod newItem) {
+                    return oldItem.equals(newItem);
+                }
+            };
 
-    ShippingMethodAdapter() {}
+    @NonNull private final AdapterListDiffer<ShippingMethod> mDiffer;
+    @Nullable private ShippingMethod mSelectedShippingMethod;
+
+    ShippingMethodAdapter() {
+        mDiffer = new AdapterListDiffer<>(this, ITEM_CALLBACK);
+    }
+
+    @VisibleForTesting
+    ShippingMethodAdapter(@NonNull Executor backgroundExecutor,
+                          @NonNull Executor mainThreadExecutor) {
+        mDiffer = new AdapterListDiffer<>(this,
+                new AsyncDifferConfig.Builder<>(ITEM_CALLBACK)
+                        .setBackgroundThreadExecutor(backgroundExecutor)
+                        .build(),
+                mainThreadExecutor);
+    }
 
     @Override
     public int getItemCount() {
-        return mShippingMethods.size();
+        return mDiffer.getCurrentList().size();
     }
 
     @Override
@@ -40,31 +71,76 @@ final class ShippingMethodAdapter extends RecyclerView.Adapter<ShippingMethodAda
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int i) {
-        holder.setShippingMethod(mShippingMethods.get(i));
-        holder.setSelected(i == mSelectedIndex);
+        final ShippingMethod shippingMethod = mDiffer.getCurrentList().get(i);
+        holder.setShippingMethod(shippingMethod);
+        holder.setSelected(shippingMethod.equals(mSelectedShippingMethod));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int i,
+                                 @NonNull List<Object> payloads) {
+        // the only payload is AdapterListDiffer.PAYLOAD_SELECTION, and there is none if the row
+        // must be bound from scratch
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, i);
+        } else {
+            holder.setSelected(mDiffer.getCurrentList().get(i).equals(mSelectedShippingMethod));
+        }
     }
 
     @Nullable
     ShippingMethod getSelectedShippingMethod() {
-        return mShippingMethods.get(mSelectedIndex);
+        return mSelectedShippingMethod;
     }
 
+    /**
+     * Replace the shipping methods. The difference with the shown shipping methods is computed
+     * on a background thread, then only the rows that changed are bound again.
+     *
+     * @param shippingMethods the shipping methods to show, or {@code null} to keep the shown ones
+     * @param defaultShippingMethod the shipping method to select, or {@code null} to select the
+     *                              first one
+     */
     void setShippingMethods(@Nullable List<ShippingMethod> shippingMethods,
                             @Nullable ShippingMethod defaultShippingMethod) {
         if (shippingMethods != null) {
-            mShippingMethods = shippingMethods;
+            mDiffer.submitList(shippingMethods);
         }
-        if (defaultShippingMethod == null) {
-            mSelectedIndex = 0;
+
+        final List<ShippingMethod> latestShippingMethods = mDiffer.getLatestList();
+        if (defaultShippingMethod != null &&
+                latestShippingMethods.contains(defaultShippingMethod)) {
+            selectShippingMethod(defaultShippingMethod);
         } else {
-            mSelectedIndex = mShippingMethods.indexOf(defaultShippingMethod);
+            selectShippingMethod(latestShippingMethods.isEmpty() ?
+                    null : latestShippingMethods.get(0));
         }
-        notifyDataSetChanged();
     }
 
     void onShippingMethodSelected(int selectedIndex) {
-        mSelectedIndex = selectedIndex;
-        notifyDataSetChanged();
+        selectShippingMethod(mDiffer.getCurrentList().get(selectedIndex));
+    }
+
+    /**
+     * Select {@code shippingMethod}, and rebind the selection state of the rows that are shown
+     * for the previously and the newly selected shipping methods.
+     */
+    private void selectShippingMethod(@Nullable ShippingMethod shippingMethod) {
+        final ShippingMethod prevSelectedShippingMethod = mSelectedShippingMethod;
+        if (ObjectUtils.equals(prevSelectedShippingMethod, shippingMethod)) {
+            return;
+        }
+
+        mSelectedShippingMethod = shippingMethod;
+        notifySelectionChanged(prevSelectedShippingMethod);
+        notifySelectionChanged(shippingMethod);
+    }
+
+    private void notifySelectionChanged(@Nullable ShippingMethod shippingMethod) {
+        final int position = mDiffer.getCurrentList().indexOf(shippingMethod);
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position, AdapterListDiffer.PAYLOAD_SELECTION);
+        }
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
@@ -78,7 +154,10 @@ final class ShippingMethodAdapter extends RecyclerView.Adapter<ShippingMethodAda
             shippingMethodView.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View view) {
-                    adapter.onShippingMethodSelected(getAdapterPosition());
+                    final int position = getAdapterPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        adapter.onShippingMethodSelected(position);
+                    }
                 }
             });
         }
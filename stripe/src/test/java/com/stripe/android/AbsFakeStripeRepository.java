@@ -3,13 +3,16 @@ package com.stripe.android;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.stripe.android.exception.APIConnectionException;
 import com.stripe.android.exception.APIException;
+import com.stripe.android.exception.AuthenticationException;
 import com.stripe.android.model.ConfirmPaymentIntentParams;
 import com.stripe.android.model.ConfirmSetupIntentParams;
 import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentIntent;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.model.PaymentMethodCreateParams;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.SetupIntent;
 import com.stripe.android.model.ShippingInformation;
 import com.stripe.android.model.Source;
@@ -35,7 +38,8 @@ abstract class AbsFakeStripeRepository implements StripeRepository {
     @Override
     public PaymentIntent retrievePaymentIntent(
             @NonNull String clientSecret,
-            @NonNull ApiRequest.Options options) {
+            @NonNull ApiRequest.Options options)
+            throws APIConnectionException, AuthenticationException {
         return null;
     }
 
@@ -129,6 +133,16 @@ abstract class AbsFakeStripeRepository implements StripeRepository {
         return Collections.emptyList();
     }
 
+    @NonNull
+    @Override
+    public PaymentMethodsPage getPaymentMethodsPage(
+            @NonNull String customerId, @NonNull String paymentMethodType, int limit,
+            @Nullable String startingAfter, @NonNull String publishableKey,
+            @NonNull List<String> productUsageTokens,
+            @NonNull ApiRequest.Options requestOptions) {
+        return new PaymentMethodsPage(Collections.<PaymentMethod>emptyList(), false);
+    }
+
     @Nullable
     @Override
     public Customer setDefaultCustomerSource(
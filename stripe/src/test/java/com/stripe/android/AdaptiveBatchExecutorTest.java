@@ -0,0 +1,258 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.APIException;
+import com.stripe.android.exception.RateLimitException;
+import com.stripe.android.exception.StripeException;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveBatchExecutorTest {
+    @NonNull private final List<Long> mSleeps = new CopyOnWriteArrayList<>();
+    @NonNull private final RetryingApiRequestExecutor.Sleeper mSleeper =
+            new RetryingApiRequestExecutor.Sleeper() {
+                @Override
+                public void sleep(long millis) {
+                    mSleeps.add(millis);
+                }
+            };
+
+    @Test
+    public void execute_shouldReturnResultsInInputOrder() {
+        final List<AdaptiveBatchExecutor.Operation<Integer>> operations = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int value = i;
+            operations.add(new AdaptiveBatchExecutor.Operation<Integer>() {
+                @NonNull
+                @Override
+                public Integer run() {
+                    // later items finish first
+                    sleep(20 - value);
+                    return value;
+                }
+            });
+        }
+
+        final List<BatchResult<Integer>> results = new AdaptiveBatchExecutor().execute(operations);
+        assertEquals(20, results.size());
+        for (int i = 0; i < 20; i++) {
+            assertTrue(results.get(i).isSuccessful());
+            assertEquals(Integer.valueOf(i), results.get(i).getResult());
+        }
+    }
+
+    @Test
+    public void execute_withFailedItem_shouldReportFailureAndContinue() {
+        final APIException apiException =
+                new APIException("Internal server error", "req_123", 500, null, null);
+        final List<AdaptiveBatchExecutor.Operation<String>> operations = new ArrayList<>();
+        operations.add(createOperation("first"));
+        operations.add(new AdaptiveBatchExecutor.Operation<String>() {
+            @Nullable
+            @Override
+            public String run() throws StripeException {
+                throw apiException;
+            }
+        });
+        operations.add(createOperation("third"));
+        operations.add(createOperation(null));
+
+        final List<BatchResult<String>> results = new AdaptiveBatchExecutor().execute(operations);
+        assertEquals("first", results.get(0).getResult());
+        assertFalse(results.get(1).isSuccessful());
+        assertNull(results.get(1).getResult());
+        assertEquals(apiException, results.get(1).getError());
+        assertEquals("third", results.get(2).getResult());
+        assertFalse(results.get(3).isSuccessful());
+    }
+
+    @Test
+    public void execute_shouldNotExceedMaxConcurrency() {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final List<AdaptiveBatchExecutor.Operation<Integer>> operations = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            operations.add(new AdaptiveBatchExecutor.Operation<Integer>() {
+                @NonNull
+                @Override
+                public Integer run() {
+                    final int current = active.incrementAndGet();
+                    int max;
+                    do {
+                        max = maxActive.get();
+                    } while (current > max && !maxActive.compareAndSet(max, current));
+                    sleep(2);
+                    active.decrementAndGet();
+                    return current;
+                }
+            });
+        }
+
+        final List<BatchResult<Integer>> results = new AdaptiveBatchExecutor(3).execute(operations);
+        assertEquals(50, results.size());
+        assertTrue(maxActive.get() <= 3);
+    }
+
+    @Test
+    public void execute_withRateLimitedItem_shouldRetryAndReduceConcurrency() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final AdaptiveBatchExecutor batchExecutor = createBatchExecutor(4);
+        final List<BatchResult<String>> results = batchExecutor.execute(
+                Collections.singletonList(new AdaptiveBatchExecutor.Operation<String>() {
+                    @NonNull
+                    @Override
+                    public String run() throws StripeException {
+                        if (attempts.incrementAndGet() == 1) {
+                            throw createRateLimitException();
+                        }
+                        return "ok";
+                    }
+                }));
+
+        assertEquals(2, attempts.get());
+        assertEquals("ok", results.get(0).getResult());
+        assertEquals(2, batchExecutor.getConcurrencyLimit());
+
+        // the retry waits between half of and the full backoff
+        assertEquals(1, mSleeps.size());
+        assertTrue(mSleeps.get(0) >= AdaptiveBatchExecutor.RATE_LIMIT_BACKOFF_MILLIS / 2);
+        assertTrue(mSleeps.get(0) <= AdaptiveBatchExecutor.RATE_LIMIT_BACKOFF_MILLIS);
+    }
+
+    @Test
+    public void execute_whenAlwaysRateLimited_shouldGiveUpAfterMaxRetries() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<AdaptiveBatchExecutor.Operation<String>> operations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            operations.add(new AdaptiveBatchExecutor.Operation<String>() {
+                @NonNull
+                @Override
+                public String run() throws StripeException {
+                    attempts.incrementAndGet();
+                    throw createRateLimitException();
+                }
+            });
+        }
+
+        final AdaptiveBatchExecutor batchExecutor = createBatchExecutor(4);
+        final List<BatchResult<String>> results = batchExecutor.execute(operations);
+
+        assertEquals(4 * (AdaptiveBatchExecutor.MAX_RATE_LIMIT_RETRIES + 1), attempts.get());
+        for (BatchResult<String> result : results) {
+            assertTrue(result.getError() instanceof RateLimitException);
+        }
+        assertEquals(1, batchExecutor.getConcurrencyLimit());
+    }
+
+    @Test
+    public void maxRateLimitRetries_shouldCountRetriesOfRequestExecutor() {
+        assertEquals(AdaptiveBatchExecutor.MAX_RATE_LIMITED_REQUESTS,
+                (AdaptiveBatchExecutor.MAX_RATE_LIMIT_RETRIES + 1) *
+                        (RetryingApiRequestExecutor.DEFAULT_MAX_RETRIES + 1));
+    }
+
+    @Test
+    public void execute_afterRateLimitedBatch_shouldStartWithReducedConcurrency() {
+        final AdaptiveBatchExecutor batchExecutor = createBatchExecutor(4);
+        batchExecutor.execute(
+                Collections.singletonList(new AdaptiveBatchExecutor.Operation<String>() {
+                    @NonNull
+                    @Override
+                    public String run() throws StripeException {
+                        throw createRateLimitException();
+                    }
+                }));
+        assertEquals(1, batchExecutor.getConcurrencyLimit());
+
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final List<AdaptiveBatchExecutor.Operation<Integer>> operations = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            operations.add(new AdaptiveBatchExecutor.Operation<Integer>() {
+                @NonNull
+                @Override
+                public Integer run() {
+                    final int current = active.incrementAndGet();
+                    maxActive.set(Math.max(maxActive.get(), current));
+                    sleep(10);
+                    active.decrementAndGet();
+                    return current;
+                }
+            });
+        }
+        batchExecutor.execute(operations);
+
+        // the first operation runs alone, and its success lets the second one start
+        assertEquals(1, maxActive.get());
+        assertEquals(2, batchExecutor.getConcurrencyLimit());
+    }
+
+    @Test
+    public void execute_withConnectionError_shouldNotRetry() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<BatchResult<String>> results = new AdaptiveBatchExecutor().execute(
+                Collections.singletonList(new AdaptiveBatchExecutor.Operation<String>() {
+                    @NonNull
+                    @Override
+                    public String run() throws StripeException {
+                        attempts.incrementAndGet();
+                        throw new APIConnectionException("offline", null);
+                    }
+                }));
+
+        assertEquals(1, attempts.get());
+        assertTrue(results.get(0).getError() instanceof APIConnectionException);
+    }
+
+    @Test
+    public void execute_withEmptyList_shouldReturnEmptyList() {
+        assertTrue(new AdaptiveBatchExecutor()
+                .execute(Collections.<AdaptiveBatchExecutor.Operation<String>>emptyList())
+                .isEmpty());
+    }
+
+    @NonNull
+    private AdaptiveBatchExecutor createBatchExecutor(int maxConcurrency) {
+        return new AdaptiveBatchExecutor(maxConcurrency, new Random(), mSleeper);
+    }
+
+    @NonNull
+    private static AdaptiveBatchExecutor.Operation<String> createOperation(
+            @Nullable final String result) {
+        return new AdaptiveBatchExecutor.Operation<String>() {
+            @Nullable
+            @Override
+            public String run() {
+                return result;
+            }
+        };
+    }
+
+    @NonNull
+    private static RateLimitException createRateLimitException() {
+        return new RateLimitException("Too many requests", null, "req_123", null);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
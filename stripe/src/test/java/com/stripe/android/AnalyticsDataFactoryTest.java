@@ -7,6 +7,7 @@ import android.support.annotation.NonNull;
 
 import androidx.test.core.app.ApplicationProvider;
 
+import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.model.Source;
 import com.stripe.android.model.Token;
 
@@ -14,14 +15,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,6 +39,8 @@ import static org.mockito.Mockito.when;
 public class AnalyticsDataFactoryTest {
 
     private static final String API_KEY = "pk_abc123";
+    // The 3DS2 durations are only sent with 3DS2 fingerprint events
+    private static final int THREE_DS2_FIELD_COUNT = 2;
     private static final List<String> EXPECTED_SINGLE_TOKEN_LIST =
             Collections.singletonList("CardInputView");
 
@@ -50,7 +60,8 @@ public class AnalyticsDataFactoryTest {
                 API_KEY,
                 Token.TokenType.PII);
         // Size is SIZE-1 because tokens don't have a source_type field
-        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1, params.size());
+        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT,
+                params.size());
         assertEquals(expectedTokenName, params.get(AnalyticsDataFactory.FIELD_EVENT));
         assertEquals(Token.TokenType.PII, params.get(AnalyticsDataFactory.FIELD_TOKEN_TYPE));
     }
@@ -68,7 +79,8 @@ public class AnalyticsDataFactoryTest {
                 API_KEY,
                 Token.TokenType.CVC_UPDATE);
         // Size is SIZE-1 because tokens don't have a source_type field
-        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1, params.size());
+        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT,
+                params.size());
         assertEquals(expectedTokenName, params.get(AnalyticsDataFactory.FIELD_EVENT));
         assertEquals(Token.TokenType.CVC_UPDATE, params.get(AnalyticsDataFactory.FIELD_TOKEN_TYPE));
     }
@@ -76,7 +88,8 @@ public class AnalyticsDataFactoryTest {
     @Test
     public void getSourceCreationParams_withValidInput_createsCorrectMap() {
         // Size is SIZE-1 because tokens don't have a token_type field
-        final int expectedSize = AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1;
+        final int expectedSize =
+                AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT;
         List<String> tokenList = new ArrayList<>();
         tokenList.add("CardInputView");
         final Map<String, Object> loggingParams = mAnalyticsDataFactory.getSourceCreationParams(
@@ -112,7 +125,8 @@ public class AnalyticsDataFactoryTest {
 
     @Test
     public void getPaymentIntentConfirmationParams_withValidInput_createsCorrectMap() {
-        final int expectedSize = AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1;
+        final int expectedSize =
+                AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT;
         List<String> tokenList = new ArrayList<>();
         tokenList.add("CardInputView");
         Map<String, Object> loggingParams = mAnalyticsDataFactory.getPaymentIntentConfirmationParams(
@@ -129,7 +143,8 @@ public class AnalyticsDataFactoryTest {
 
     @Test
     public void getPaymentIntentRetrieveParams_withValidInput_createsCorrectMap() {
-        final int expectedSize = AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1;
+        final int expectedSize =
+                AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT;
         List<String> tokenList = new ArrayList<>();
         tokenList.add("CardInputView");
         Map<String, Object> loggingParams = mAnalyticsDataFactory.getPaymentIntentRetrieveParams(
@@ -151,6 +166,24 @@ public class AnalyticsDataFactoryTest {
         assertEquals("card", params.get(AnalyticsDataFactory.FIELD_PAYMENT_METHOD_TYPE));
     }
 
+    @Test
+    public void create3ds2FingerprintParams_shouldOnlySendValidFieldsAndIntentId() {
+        final Map<String, Object> params = mAnalyticsDataFactory
+                .create3ds2FingerprintParams("pi_12345", 1500L, 2500L, API_KEY);
+
+        // 3DS2 events have no product_usage or source_type field
+        final Set<String> expectedFields =
+                new HashSet<>(AnalyticsDataFactory.VALID_PARAM_FIELDS);
+        expectedFields.remove(AnalyticsDataFactory.FIELD_PRODUCT_USAGE);
+        expectedFields.remove(AnalyticsDataFactory.FIELD_SOURCE_TYPE);
+        expectedFields.add(AnalyticsDataFactory.FIELD_INTENT_ID);
+        assertEquals(expectedFields, params.keySet());
+        assertEquals(1500L,
+                params.get(AnalyticsDataFactory.FIELD_3DS2_FINGERPRINT_DURATION));
+        assertEquals(2500L,
+                params.get(AnalyticsDataFactory.FIELD_3DS2_TRANSACTION_DURATION));
+    }
+
     @Test
     public void getEventLoggingParams_withProductUsage_createsAllFields()
             throws PackageManager.NameNotFoundException {
@@ -172,7 +205,8 @@ public class AnalyticsDataFactoryTest {
 
         final Map<String, Object> params = new AnalyticsDataFactory(packageManager, packageName)
                 .getTokenCreationParams(tokensList, API_KEY, Token.TokenType.CARD);
-        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1, params.size());
+        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 1 - THREE_DS2_FIELD_COUNT,
+                params.size());
         assertEquals(API_KEY, params.get(AnalyticsDataFactory.FIELD_PUBLISHABLE_KEY));
         assertEquals(EXPECTED_SINGLE_TOKEN_LIST, params.get(AnalyticsDataFactory.FIELD_PRODUCT_USAGE));
         assertEquals(Token.TokenType.CARD, params.get(AnalyticsDataFactory.FIELD_TOKEN_TYPE));
@@ -200,7 +234,8 @@ public class AnalyticsDataFactoryTest {
 
         final Map<String, Object> params = mAnalyticsDataFactory.getSourceCreationParams(
                 null, API_KEY, Token.TokenType.BANK_ACCOUNT);
-        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 2, params.size());
+        assertEquals(AnalyticsDataFactory.VALID_PARAM_FIELDS.size() - 2 - THREE_DS2_FIELD_COUNT,
+                params.size());
         assertEquals(API_KEY, params.get(AnalyticsDataFactory.FIELD_PUBLISHABLE_KEY));
         assertEquals(Token.TokenType.BANK_ACCOUNT, params.get(AnalyticsDataFactory.FIELD_SOURCE_TYPE));
 
@@ -216,6 +251,54 @@ public class AnalyticsDataFactoryTest {
         assertEquals("unknown_Android_robolectric", params.get(AnalyticsDataFactory.FIELD_DEVICE_TYPE));
     }
 
+    @Test
+    public void getEventLoggingParams_readsPackageInfoOnce()
+            throws PackageManager.NameNotFoundException {
+        final String packageName = BuildConfig.APPLICATION_ID;
+        final PackageManager packageManager = mock(PackageManager.class);
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.versionCode = 20;
+        packageInfo.packageName = packageName;
+        when(packageManager.getPackageInfo(packageName, 0))
+                .thenReturn(packageInfo);
+
+        final AnalyticsDataFactory analyticsDataFactory =
+                new AnalyticsDataFactory(packageManager, packageName);
+        analyticsDataFactory.getPaymentIntentRetrieveParams(null, API_KEY);
+        final Map<String, Object> params =
+                analyticsDataFactory.getSetupIntentRetrieveParams(API_KEY);
+
+        verify(packageManager, times(1)).getPackageInfo(packageName, 0);
+        assertEquals(20, params.get(AnalyticsDataFactory.FIELD_APP_VERSION));
+        assertEquals(AnalyticsDataFactory.getEventParamName(
+                AnalyticsDataFactory.EventName.RETRIEVE_SETUP_INTENT),
+                params.get(AnalyticsDataFactory.FIELD_EVENT));
+    }
+
+    @Test
+    public void getEventLoggingParams_createsSameQueryAsMap()
+            throws InvalidRequestException, UnsupportedEncodingException {
+        final Map<String, Object> params = mAnalyticsDataFactory.getTokenCreationParams(
+                EXPECTED_SINGLE_TOKEN_LIST, API_KEY, Token.TokenType.CARD);
+        params.put(AnalyticsDataFactory.FIELD_INTENT_ID, "pi_123");
+        params.put(AnalyticsDataFactory.FIELD_SOURCE_TYPE, null);
+
+        final ApiRequest.Options options = ApiRequest.Options.create(API_KEY);
+        final ApiRequest request = AnalyticsRequest.create(params, options);
+        final ApiRequest mapRequest =
+                AnalyticsRequest.create(new HashMap<>(params), options);
+
+        assertEquals(mapRequest, request);
+        assertEquals(new HashSet<>(Arrays.asList(mapRequest.createQuery().split("&"))),
+                new HashSet<>(Arrays.asList(request.createQuery().split("&"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getEventLoggingParams_whenEnvelopeFieldIsPut_throwsException() {
+        mAnalyticsDataFactory.getSetupIntentRetrieveParams(API_KEY)
+                .put(AnalyticsDataFactory.FIELD_OS_VERSION, 1);
+    }
+
     @Test
     public void addNameAndVersion_whenApplicationContextIsNull_addsNoContextValues() {
         final Map<String, Object> paramsMap = new AnalyticsDataFactory(null, null)
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
@@ -97,6 +98,7 @@ public class ApiRequestTest {
         assertEquals(expectedUserAgent, headerMap.get(StripeRequest.HEADER_USER_AGENT));
         assertEquals("application/json", headerMap.get("Accept"));
         assertEquals("UTF-8", headerMap.get("Accept-Charset"));
+        assertEquals("gzip", headerMap.get("Accept-Encoding"));
     }
 
     @Test
@@ -166,6 +168,25 @@ public class ApiRequestTest {
         );
     }
 
+    @Test
+    public void getIdempotencyKey_isOnlySetForPostAndIsUniquePerRequest() {
+        final ApiRequest post = createPaymentMethodPost();
+        assertNotNull(post.getIdempotencyKey());
+        assertEquals(post.getIdempotencyKey(),
+                post.getHeaders().get(ApiRequest.HEADER_IDEMPOTENCY_KEY));
+        // a retried request sends the same key
+        assertEquals(post.getIdempotencyKey(),
+                post.getHeaders().get(ApiRequest.HEADER_IDEMPOTENCY_KEY));
+        assertNotNull(createPaymentMethodPost().getIdempotencyKey());
+        assertEquals(post, createPaymentMethodPost());
+        assertNotEquals(post.getIdempotencyKey(), createPaymentMethodPost().getIdempotencyKey());
+
+        final ApiRequest get = ApiRequest.createGet(StripeApiRepository.getSourcesUrl(),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY), null);
+        assertNull(get.getIdempotencyKey());
+        assertFalse(get.getHeaders().containsKey(ApiRequest.HEADER_IDEMPOTENCY_KEY));
+    }
+
     @Test
     public void getHeaders_withAppInfo() throws JSONException {
         final ApiRequest apiRequest = ApiRequest.createGet(
@@ -185,4 +206,12 @@ public class ApiRequestTest {
                         "\"url\":\"https:\\/\\/myawesomeplugin.info\"}",
                 userAgentData.getString("application"));
     }
+
+    @NonNull
+    private static ApiRequest createPaymentMethodPost() {
+        final Map<String, String> params = new HashMap<>();
+        params.put("type", "card");
+        return ApiRequest.createPost(StripeApiRepository.getPaymentMethodsUrl(), params,
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY), null);
+    }
 }
@@ -0,0 +1,218 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatchingFireAndForgetRequestExecutorTest {
+    private static final int BATCH_SIZE = 3;
+    private static final long FLUSH_DELAY_MILLIS = 1000L;
+
+    @NonNull private final FakeSender mSender = new FakeSender();
+    private File mQueueFile;
+    private int mQueueCreationCount;
+
+    @Before
+    public void setup() {
+        ShadowLooper.pauseMainLooper();
+        mQueueFile = new File(ApplicationProvider.getApplicationContext().getCacheDir(),
+                "telemetry_queue_test");
+        assertTrue(!mQueueFile.exists() || mQueueFile.delete());
+    }
+
+    @Test
+    public void constructor_shouldCreateQueueOnWorkerThread() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        executor.executeAsync(createAnalyticsRequest("event_1"));
+        assertEquals(0, mQueueCreationCount);
+
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(1, mQueueCreationCount);
+        assertEquals(1, executor.getQueueDepth());
+    }
+
+    @Test
+    public void executeAsync_shouldWaitForFlushDelayBeforeSending() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        executor.executeAsync(createAnalyticsRequest("event_1"));
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, mSender.requests.size());
+        assertEquals(1, executor.getQueueDepth());
+
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, mSender.requests.size());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(1, executor.getSentCount());
+    }
+
+    @Test
+    public void executeAsync_whenBatchIsFull_shouldSendImmediately() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            executor.executeAsync(createAnalyticsRequest("event_" + i));
+        }
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(BATCH_SIZE, mSender.requests.size());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void executeAsync_withIdenticalFingerprintRequests_shouldCoalesce() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        final Map<String, Object> telemetry =
+                Collections.<String, Object>singletonMap("v2", 1);
+        executor.executeAsync(new FingerprintRequest(telemetry, "guid"));
+        executor.executeAsync(new FingerprintRequest(telemetry, "guid"));
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, mSender.requests.size());
+        assertEquals(1, executor.getCoalescedCount());
+    }
+
+    @Test
+    public void executeAsync_withIdenticalAnalyticsRequests_shouldSendAll() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        executor.executeAsync(createAnalyticsRequest("event"));
+        executor.executeAsync(createAnalyticsRequest("event"));
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, mSender.requests.size());
+        assertEquals(0, executor.getCoalescedCount());
+    }
+
+    @Test
+    public void flush_whenSendFails_shouldBackOffAndRetry() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        executor.executeAsync(createAnalyticsRequest("event"));
+        mSender.isOffline = true;
+        executor.flush();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, mSender.attemptCount);
+        assertEquals(1, executor.getQueueDepth());
+
+        // new requests do not trigger a flush while backing off
+        mSender.isOffline = false;
+        executor.executeAsync(createAnalyticsRequest("event_2"));
+        ShadowLooper.idleMainLooper(FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, mSender.attemptCount);
+        assertEquals(2, executor.getQueueDepth());
+
+        ShadowLooper.idleMainLooper(BatchingFireAndForgetRequestExecutor.getBackoffMillis(1),
+                TimeUnit.MILLISECONDS);
+        assertEquals(2, mSender.requests.size());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void flush_withRejectedRequest_shouldDropIt() {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        mSender.responseCode = 400;
+        executor.executeAsync(createAnalyticsRequest("event"));
+        executor.flush();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(1, executor.getDroppedCount());
+        assertEquals(0, executor.getSentCount());
+    }
+
+    @Test
+    public void queue_shouldSurviveRecreatingExecutor()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final BatchingFireAndForgetRequestExecutor executor = createExecutor();
+        executor.executeAsync(createAnalyticsRequest("event_1"));
+        executor.executeAsync(createAnalyticsRequest("event_2"));
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(0, mSender.requests.size());
+
+        final BatchingFireAndForgetRequestExecutor recreatedExecutor = createExecutor();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(2, recreatedExecutor.getQueueDepth());
+
+        recreatedExecutor.flush();
+        ShadowLooper.runUiThreadTasks();
+        assertEquals(2, mSender.requests.size());
+        assertEquals(createAnalyticsRequest("event_1").getUrl(),
+                mSender.requests.get(0).getUrl());
+    }
+
+    @Test
+    public void getBackoffMillis_shouldGrowExponentiallyUpToMax() {
+        assertEquals(TimeUnit.SECONDS.toMillis(30),
+                BatchingFireAndForgetRequestExecutor.getBackoffMillis(1));
+        assertEquals(TimeUnit.SECONDS.toMillis(60),
+                BatchingFireAndForgetRequestExecutor.getBackoffMillis(2));
+        assertEquals(TimeUnit.MINUTES.toMillis(15),
+                BatchingFireAndForgetRequestExecutor.getBackoffMillis(100));
+    }
+
+    @NonNull
+    private BatchingFireAndForgetRequestExecutor createExecutor() {
+        return new BatchingFireAndForgetRequestExecutor(
+                new Supplier<TelemetryQueue>() {
+                    @NonNull
+                    @Override
+                    public TelemetryQueue get() {
+                        mQueueCreationCount++;
+                        return new TelemetryQueue(mQueueFile, 10);
+                    }
+                },
+                mSender,
+                new Handler(Looper.getMainLooper()),
+                BATCH_SIZE,
+                FLUSH_DELAY_MILLIS
+        );
+    }
+
+    @NonNull
+    private static ApiRequest createAnalyticsRequest(@NonNull String event) {
+        return AnalyticsRequest.create(
+                Collections.<String, Object>singletonMap("event", event),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+    }
+
+    private static final class FakeSender implements BatchingFireAndForgetRequestExecutor.Sender {
+        @NonNull private final List<StripeRequest> requests = new ArrayList<>();
+        private int attemptCount;
+        private int responseCode = 200;
+        private boolean isOffline;
+
+        @Override
+        public int send(@NonNull StripeRequest request) throws APIConnectionException {
+            attemptCount++;
+            if (isOffline) {
+                throw APIConnectionException.create(request.getBaseUrl(),
+                        new IOException("offline"));
+            }
+            requests.add(request);
+            return responseCode;
+        }
+    }
+}
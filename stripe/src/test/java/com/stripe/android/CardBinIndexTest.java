@@ -0,0 +1,133 @@
+package com.stripe.android;
+
+import com.stripe.android.model.Card;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link CardBinIndex}.
+ */
+public class CardBinIndexTest {
+    private static final String[] VALID_NUMBERS = {
+            "4242424242424242",
+            "378282246310005",
+            "30569309025904",
+            "5555555555554444",
+            "2223003122003222",
+            "6011111111111117",
+            "3566002020360505",
+            "6200000000000005"
+    };
+
+    private final CardBinIndex mCardBinIndex = CardBinIndex.getInstance();
+
+    @Test
+    public void getBrand_matchesEveryPrefixInCard() {
+        assertPrefixesHaveBrand(Card.CardBrand.AMERICAN_EXPRESS, Card.PREFIXES_AMERICAN_EXPRESS);
+        assertPrefixesHaveBrand(Card.CardBrand.DISCOVER, Card.PREFIXES_DISCOVER);
+        assertPrefixesHaveBrand(Card.CardBrand.JCB, Card.PREFIXES_JCB);
+        assertPrefixesHaveBrand(Card.CardBrand.DINERS_CLUB, Card.PREFIXES_DINERS_CLUB);
+        assertPrefixesHaveBrand(Card.CardBrand.VISA, Card.PREFIXES_VISA);
+        assertPrefixesHaveBrand(Card.CardBrand.MASTERCARD, Card.PREFIXES_MASTERCARD);
+        assertPrefixesHaveBrand(Card.CardBrand.UNIONPAY, Card.PREFIXES_UNIONPAY);
+    }
+
+    @Test
+    public void getBrand_withTwoSeriesMastercardBounds_matchesOnlyInsideRange() {
+        assertEquals(Card.CardBrand.UNKNOWN, mCardBinIndex.getBrand("2220"));
+        assertEquals(Card.CardBrand.MASTERCARD, mCardBinIndex.getBrand("2221"));
+        assertEquals(Card.CardBrand.MASTERCARD, mCardBinIndex.getBrand("2720 99"));
+        assertEquals(Card.CardBrand.UNKNOWN, mCardBinIndex.getBrand("2721"));
+    }
+
+    @Test
+    public void getBrand_ignoresSeparatorsAndCharactersAfterPrefix() {
+        assertEquals(Card.CardBrand.AMERICAN_EXPRESS, mCardBinIndex.getBrand(" 3-7"));
+        assertEquals(Card.CardBrand.VISA, mCardBinIndex.getBrand("4abc"));
+        assertEquals(Card.CardBrand.UNKNOWN, mCardBinIndex.getBrand("a4"));
+    }
+
+    @Test
+    public void matcher_withValidNumbers_agreesWithCardUtils() {
+        final CardBinIndex.Matcher matcher = mCardBinIndex.newMatcher();
+        for (String number : VALID_NUMBERS) {
+            assertTrue(matcher.update(number));
+            assertTrue(number, matcher.isValid());
+            assertEquals(CardUtils.getPossibleCardType(number), matcher.getBrand());
+            assertEquals(number.length(), matcher.getExpectedLength());
+        }
+    }
+
+    @Test
+    public void matcher_whenTypingAndDeleting_tracksState() {
+        final CardBinIndex.Matcher matcher = mCardBinIndex.newMatcher();
+        final String number = "4242 4242 4242 4242";
+        for (int i = 0; i <= number.length(); i++) {
+            final String partialNumber = number.substring(0, i);
+            matcher.update(partialNumber);
+            assertEquals(CardUtils.getPossibleCardType(partialNumber), matcher.getBrand());
+            assertEquals(CardUtils.isValidLuhnNumber(
+                    StripeTextUtils.removeSpacesAndHyphens(partialNumber)) && i > 0,
+                    matcher.isLuhnValid());
+            assertEquals(i == number.length(), matcher.isValid());
+        }
+
+        matcher.update("4242 4242 4242 424");
+        assertEquals(15, matcher.getLength());
+        assertFalse(matcher.isValid());
+
+        // change the first digit, so every digit after it is reprocessed
+        matcher.update("3242 4242 4242 424");
+        assertEquals(Card.CardBrand.UNKNOWN, matcher.getBrand());
+        assertEquals(0, matcher.getExpectedLength());
+        assertFalse(matcher.isValid());
+
+        matcher.update("3782 822463 10005");
+        assertEquals(Card.CardBrand.AMERICAN_EXPRESS, matcher.getBrand());
+        assertTrue(matcher.isValid());
+    }
+
+    @Test
+    public void matcher_withInvalidInput_isNotValid() {
+        final CardBinIndex.Matcher matcher = mCardBinIndex.newMatcher();
+        assertFalse(matcher.update("4242 4242 4242 424a"));
+        assertFalse(matcher.isValid());
+        assertFalse(matcher.isLuhnValid());
+
+        assertFalse(matcher.update("42424242424242424242"));
+        assertFalse(matcher.isValid());
+
+        assertTrue(matcher.update(null));
+        assertEquals(0, matcher.getLength());
+        assertFalse(matcher.isLuhnValid());
+
+        assertTrue(matcher.update("4242424242424241"));
+        assertFalse(matcher.isLuhnValid());
+    }
+
+    @Test
+    public void builder_withOverlappingPrefixes_usesShortestPrefix() {
+        final CardBinIndex cardBinIndex = new CardBinIndex.Builder()
+                .addPrefixes(Card.CardBrand.MASTERCARD, 16, "2221")
+                .addPrefixes(Card.CardBrand.VISA, 13, "22")
+                .addPrefixes(Card.CardBrand.JCB, 16, "22", "3")
+                .build();
+        assertEquals(Card.CardBrand.VISA, cardBinIndex.getBrand("2221"));
+        assertEquals(Card.CardBrand.JCB, cardBinIndex.getBrand("3"));
+
+        final CardBinIndex.Matcher matcher = cardBinIndex.newMatcher();
+        matcher.update("2221");
+        assertEquals(13, matcher.getExpectedLength());
+    }
+
+    private void assertPrefixesHaveBrand(@Card.CardBrand String brand, String... prefixes) {
+        for (String prefix : prefixes) {
+            assertEquals(prefix, brand, mCardBinIndex.getBrand(prefix));
+            assertEquals(prefix, brand, mCardBinIndex.getBrand(prefix + "0123"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.LoopbackHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConditionalApiRequestExecutorTest {
+    private static final String RESPONSE_BODY =
+            "{\"id\": \"pi_123\", \"object\": \"payment_intent\", \"status\": \"processing\"}";
+    private static final String ENTITY_TAG = "\"pi_123_v1\"";
+
+    private static final ApiRequest.Options OPTIONS =
+            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+    private LoopbackHttpServer mServer;
+    private ConditionalApiRequestExecutor.Cache mCache;
+    private ConditionalApiRequestExecutor mExecutor;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new LoopbackHttpServer(RESPONSE_BODY);
+        mServer.setEntityTag(ENTITY_TAG);
+        mCache = new ConditionalApiRequestExecutor.Cache(4);
+        mExecutor = new ConditionalApiRequestExecutor(new PooledApiRequestExecutor(), mCache);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void execute_whenPollingUnchangedResource_returnsCachedBody()
+            throws APIConnectionException, InvalidRequestException {
+        for (int i = 0; i < 3; i++) {
+            final StripeResponse response = mExecutor.execute(createRetrieve(OPTIONS));
+            assertEquals(200, response.getResponseCode());
+            assertEquals(RESPONSE_BODY, response.getResponseBody());
+            assertEquals("req_" + (i + 1), response.getRequestId());
+        }
+
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, mServer.getNotModifiedCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void execute_whenResourceChanged_replacesCachedBody()
+            throws APIConnectionException, InvalidRequestException {
+        mExecutor.execute(createRetrieve(OPTIONS));
+        mServer.setEntityTag("\"pi_123_v2\"");
+        mExecutor.execute(createRetrieve(OPTIONS));
+        mExecutor.execute(createRetrieve(OPTIONS));
+
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertEquals(1, mCache.size());
+    }
+
+    @Test
+    public void execute_withoutEntityTag_doesNotCache()
+            throws APIConnectionException, InvalidRequestException {
+        mServer.setEntityTag(null);
+        mExecutor.execute(createRetrieve(OPTIONS));
+
+        final ApiRequest request = createRetrieve(OPTIONS);
+        mExecutor.execute(request);
+        assertNull(request.getHeaders().get(ApiRequest.HEADER_IF_NONE_MATCH));
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void execute_withAnotherAccount_isNotConditional()
+            throws APIConnectionException, InvalidRequestException {
+        mExecutor.execute(createRetrieve(OPTIONS));
+
+        final ApiRequest request = createRetrieve(ApiRequest.Options.create(
+                ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_123"));
+        mExecutor.execute(request);
+        assertNull(request.getHeaders().get(ApiRequest.HEADER_IF_NONE_MATCH));
+        assertEquals(0, mServer.getNotModifiedCount());
+    }
+
+    @Test
+    public void execute_withPost_isNotConditional()
+            throws APIConnectionException, InvalidRequestException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("client_secret", "pi_123_secret_456");
+        final String url = mServer.getUrl() + "/v1/payment_intents/pi_123";
+        mExecutor.execute(ApiRequest.createPost(url, params, OPTIONS, null));
+        mExecutor.execute(ApiRequest.createPost(url, params, OPTIONS, null));
+
+        assertEquals(0, mServer.getNotModifiedCount());
+        assertEquals(0, mCache.size());
+    }
+
+    @NonNull
+    private ApiRequest createRetrieve(@NonNull ApiRequest.Options options) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("client_secret", "pi_123_secret_456");
+        return ApiRequest.createGet(mServer.getUrl() + "/v1/payment_intents/pi_123", params,
+                options, null);
+    }
+}
@@ -0,0 +1,204 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.Customer;
+import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodFixtures;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class CustomerCacheTest {
+    private static final String CUSTOMER_ID = "cus_AQsHpvKfKwJDrF";
+    private static final long MAX_AGE = 1000L;
+    private static final long STALE_WHILE_REVALIDATE = 5000L;
+
+    private static final Customer CUSTOMER = Objects.requireNonNull(
+            Customer.fromString(CustomerSessionTest.FIRST_TEST_CUSTOMER_OBJECT));
+    private static final List<PaymentMethod> PAYMENT_METHODS =
+            Collections.singletonList(PaymentMethodFixtures.CARD_PAYMENT_METHOD);
+
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final FakeStore mStore = new FakeStore();
+    @NonNull private final CustomerCacheConfig mConfig = new CustomerCacheConfig.Builder()
+            .setMaxAgeMillis(MAX_AGE)
+            .setStaleWhileRevalidateMillis(STALE_WHILE_REVALIDATE)
+            .build();
+
+    @Test
+    public void getCustomer_withinMaxAge_isFreshHit() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        mClock.now += MAX_AGE - 1;
+
+        final CustomerCache.Entry<Customer> entry = customerCache.getCustomer(CUSTOMER_ID);
+        assertNotNull(entry);
+        assertSame(CUSTOMER, entry.value);
+        assertTrue(customerCache.isFresh(entry));
+        assertEquals(1, customerCache.getStats(CUSTOMER_ID).getHitCount());
+    }
+
+    @Test
+    public void getCustomer_afterMaxAge_isStaleHit() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        mClock.now += MAX_AGE;
+
+        final CustomerCache.Entry<Customer> entry = customerCache.getCustomer(CUSTOMER_ID);
+        assertNotNull(entry);
+        assertFalse(customerCache.isFresh(entry));
+        assertEquals(1, customerCache.getStats(CUSTOMER_ID).getStaleHitCount());
+    }
+
+    @Test
+    public void getCustomer_afterStaleWhileRevalidateWindow_isMissAndIsEvicted() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        mClock.now += MAX_AGE + STALE_WHILE_REVALIDATE;
+
+        assertNull(customerCache.getCustomer(CUSTOMER_ID));
+        assertNull(customerCache.peekCustomer(CUSTOMER_ID));
+        assertEquals(1, customerCache.getStats(CUSTOMER_ID).getMissCount());
+    }
+
+    @Test
+    public void getPaymentMethods_afterProcessDeath_readsFromStore() {
+        createCustomerCache().putPaymentMethods(CUSTOMER_ID, "card", PAYMENT_METHODS);
+        mClock.now += 10L;
+
+        final CustomerCache customerCache = createCustomerCache();
+        final CustomerCache.Entry<List<PaymentMethod>> entry =
+                customerCache.getPaymentMethods(CUSTOMER_ID, "card");
+        assertNotNull(entry);
+        assertEquals(PAYMENT_METHODS, entry.value);
+        assertEquals(Long.valueOf(10L),
+                customerCache.getStats(CUSTOMER_ID)
+                        .getPaymentMethodsAgeMillis(PaymentMethod.Type.Card));
+    }
+
+    @Test
+    public void getPaymentMethods_withExpiredStoredValue_isMiss() {
+        createCustomerCache().putPaymentMethods(CUSTOMER_ID, "card", PAYMENT_METHODS);
+        mClock.now += MAX_AGE + STALE_WHILE_REVALIDATE;
+
+        assertNull(createCustomerCache().getPaymentMethods(CUSTOMER_ID, "card"));
+    }
+
+    @Test
+    public void getPaymentMethods_withCorruptStoredValue_isMiss() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putPaymentMethods(CUSTOMER_ID, "card", PAYMENT_METHODS);
+        for (String key : mStore.mValues.keySet()) {
+            mStore.mValues.put(key, new byte[] { 1, 2, 3 });
+        }
+
+        assertNull(createCustomerCache().getPaymentMethods(CUSTOMER_ID, "card"));
+    }
+
+    @Test
+    public void invalidatePaymentMethods_removesEveryTypeFromMemoryAndStore() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putPaymentMethods(CUSTOMER_ID, "card", PAYMENT_METHODS);
+        customerCache.putPaymentMethods(CUSTOMER_ID, "fpx",
+                Collections.<PaymentMethod>emptyList());
+        customerCache.putPaymentMethods("cus_other", "card", PAYMENT_METHODS);
+
+        customerCache.invalidatePaymentMethods(CUSTOMER_ID);
+
+        assertNull(customerCache.getPaymentMethods(CUSTOMER_ID, "card"));
+        assertNull(customerCache.getPaymentMethods(CUSTOMER_ID, "fpx"));
+        assertNotNull(customerCache.getPaymentMethods("cus_other", "card"));
+        assertEquals(1, mStore.mValues.size());
+    }
+
+    @Test
+    public void clear_removesEverything() {
+        final CustomerCache customerCache = createCustomerCache();
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        customerCache.putPaymentMethods(CUSTOMER_ID, "card", PAYMENT_METHODS);
+
+        customerCache.clear();
+
+        assertNull(customerCache.getCustomer(CUSTOMER_ID));
+        assertNull(customerCache.getPaymentMethods(CUSTOMER_ID, "card"));
+        assertTrue(mStore.mValues.isEmpty());
+    }
+
+    @Test
+    public void getStats_reportsHitRatioAndAge() {
+        final CustomerCache customerCache = createCustomerCache();
+        assertNull(customerCache.getCustomer(CUSTOMER_ID));
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        mClock.now += 100L;
+        assertNotNull(customerCache.getCustomer(CUSTOMER_ID));
+        assertNotNull(customerCache.getCustomer(CUSTOMER_ID));
+        mClock.now += MAX_AGE;
+        assertNotNull(customerCache.getCustomer(CUSTOMER_ID));
+
+        final CustomerCacheStats stats = customerCache.getStats(CUSTOMER_ID);
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getStaleHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0.75, stats.getHitRatio(), 0.0);
+        assertEquals(Long.valueOf(100L + MAX_AGE), stats.getCustomerAgeMillis());
+        assertNull(stats.getPaymentMethodsAgeMillis(PaymentMethod.Type.Card));
+    }
+
+    @Test
+    public void memoryCache_isBoundedByMaxMemoryEntries() {
+        final CustomerCache customerCache = new CustomerCache(
+                new CustomerCacheConfig.Builder().setMaxMemoryEntries(1).build(), null, mClock);
+        customerCache.putCustomer(CUSTOMER_ID, CUSTOMER);
+        customerCache.putCustomer("cus_other", CUSTOMER);
+
+        assertNull(customerCache.peekCustomer(CUSTOMER_ID));
+        assertNotNull(customerCache.peekCustomer("cus_other"));
+    }
+
+    @NonNull
+    private CustomerCache createCustomerCache() {
+        return new CustomerCache(mConfig, mStore, mClock);
+    }
+
+    private static final class FakeStore implements CustomerCache.Store {
+        @NonNull private final Map<String, byte[]> mValues = new HashMap<>();
+
+        @Nullable
+        @Override
+        public byte[] read(@NonNull String key) {
+            return mValues.get(key);
+        }
+
+        @Override
+        public void write(@NonNull String key, @NonNull byte[] value) {
+            mValues.put(key, value);
+        }
+
+        @Override
+        public void delete(@NonNull String key) {
+            mValues.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            mValues.clear();
+        }
+    }
+}
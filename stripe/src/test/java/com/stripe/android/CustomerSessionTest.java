@@ -18,6 +18,8 @@ import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.exception.StripeException;
 import com.stripe.android.model.Customer;
 import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodFixtures;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.ShippingInformation;
 import com.stripe.android.model.Source;
 import com.stripe.android.testharness.JsonTestUtils;
@@ -39,30 +41,37 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -542,6 +551,34 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
         assertEquals(mAddedSource.getId(), capturedSource.getId());
     }
 
+    @Test
+    public void attachPaymentMethod_whenTimedOut_cancelsTaskAndNotifiesListener() {
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        final CustomerSession customerSession = createCustomerSession(null);
+
+        // queue tasks instead of running them, as if the worker threads were busy
+        final List<Runnable> tasks = new ArrayList<>();
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                tasks.add(invocation.<Runnable>getArgument(0));
+                return null;
+            }
+        }).when(mThreadPoolExecutor).execute(any(Runnable.class));
+
+        final CustomerSession.PaymentMethodRetrievalListener mockListener =
+                mock(CustomerSession.PaymentMethodRetrievalListener.class);
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        customerSession.attachPaymentMethod("pm_abc123", mockListener);
+        final Future<?> task = (Future<?>) tasks.get(tasks.size() - 1);
+
+        ShadowLooper.idleMainLooper(RetryingApiRequestExecutor.DEFAULT_FIRST_RETRY_MILLIS,
+                TimeUnit.MILLISECONDS);
+        assertTrue(task.isCancelled());
+        verify(mockListener).onError(HttpURLConnection.HTTP_CLIENT_TIMEOUT,
+                "The operation timed out", null);
+    }
+
     @Test
     public void addSourceToCustomer_whenApiThrowsError_tellsListenerBroadcastsAndEmptiesLogs()
             throws StripeException, JSONException {
@@ -1088,6 +1125,156 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
         assertNotNull(paymentMethods);
     }
 
+    @Test
+    public void getPaymentMethods_withPageSize_deliversEachPageInOrder()
+            throws StripeException, JSONException {
+        final PaymentMethod secondPaymentMethod = PaymentMethodFixtures.CARD_PAYMENT_METHOD;
+        when(mStripeRepository.getPaymentMethodsPage(
+                anyString(),
+                eq("card"),
+                eq(1),
+                ArgumentMatchers.<String>isNull(),
+                eq(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                ArgumentMatchers.<String>anyList(),
+                ArgumentMatchers.<ApiRequest.Options>any()
+        ))
+                .thenReturn(new PaymentMethodsPage(
+                        Collections.singletonList(mPaymentMethod), true));
+        when(mStripeRepository.getPaymentMethodsPage(
+                anyString(),
+                eq("card"),
+                eq(1),
+                eq(mPaymentMethod.id),
+                eq(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                ArgumentMatchers.<String>anyList(),
+                ArgumentMatchers.<ApiRequest.Options>any()
+        ))
+                .thenReturn(new PaymentMethodsPage(
+                        Collections.singletonList(secondPaymentMethod), false));
+
+        final CustomerEphemeralKey firstKey = getCustomerEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        assertNotNull(firstKey);
+        final Calendar proxyCalendar = Calendar.getInstance();
+        proxyCalendar.setTimeInMillis(TimeUnit.SECONDS.toMillis(firstKey.getExpires()) +
+                TimeUnit.MINUTES.toMillis(2));
+
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        final CustomerSession customerSession = createCustomerSession(proxyCalendar);
+        final CustomerSession.PaymentMethodsPageRetrievalListener mockListener =
+                mock(CustomerSession.PaymentMethodsPageRetrievalListener.class);
+
+        customerSession.getPaymentMethods(PaymentMethod.Type.Card, 1, mockListener);
+
+        final InOrder inOrder = inOrder(mockListener);
+        inOrder.verify(mockListener)
+                .onPaymentMethodsPageRetrieved(Collections.singletonList(mPaymentMethod), true);
+        inOrder.verify(mockListener)
+                .onPaymentMethodsPageRetrieved(Collections.singletonList(secondPaymentMethod),
+                        false);
+        verifyNoMoreInteractions(mockListener);
+    }
+
+    @Test
+    public void getPaymentMethods_withPageSize_servesCachedListUntilPaymentMethodIsAttached()
+            throws StripeException, JSONException {
+        when(mStripeRepository.getPaymentMethodsPage(
+                anyString(),
+                eq("card"),
+                eq(20),
+                ArgumentMatchers.<String>isNull(),
+                eq(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                ArgumentMatchers.<String>anyList(),
+                ArgumentMatchers.<ApiRequest.Options>any()
+        ))
+                .thenReturn(new PaymentMethodsPage(
+                        Collections.singletonList(mPaymentMethod), false));
+
+        final CustomerEphemeralKey firstKey = getCustomerEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        assertNotNull(firstKey);
+        final Calendar proxyCalendar = Calendar.getInstance();
+        proxyCalendar.setTimeInMillis(TimeUnit.SECONDS.toMillis(firstKey.getExpires()) +
+                TimeUnit.MINUTES.toMillis(2));
+
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        final CustomerSession customerSession = createCustomerSession(proxyCalendar);
+
+        final CustomerSession.PaymentMethodsPageRetrievalListener firstListener =
+                mock(CustomerSession.PaymentMethodsPageRetrievalListener.class);
+        customerSession.getPaymentMethods(PaymentMethod.Type.Card, 20, firstListener);
+        verify(firstListener)
+                .onPaymentMethodsPageRetrieved(Collections.singletonList(mPaymentMethod), false);
+
+        final CustomerSession.PaymentMethodsPageRetrievalListener secondListener =
+                mock(CustomerSession.PaymentMethodsPageRetrievalListener.class);
+        customerSession.getPaymentMethods(PaymentMethod.Type.Card, 20, secondListener);
+        verify(secondListener)
+                .onPaymentMethodsPageRetrieved(Collections.singletonList(mPaymentMethod), false);
+        verify(mStripeRepository, times(1)).getPaymentMethodsPage(
+                anyString(),
+                eq("card"),
+                eq(20),
+                ArgumentMatchers.<String>isNull(),
+                eq(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                ArgumentMatchers.<String>anyList(),
+                ArgumentMatchers.<ApiRequest.Options>any()
+        );
+
+        customerSession.attachPaymentMethod("pm_abc123",
+                mock(CustomerSession.PaymentMethodRetrievalListener.class));
+        customerSession.getPaymentMethods(PaymentMethod.Type.Card, 20,
+                mock(CustomerSession.PaymentMethodsPageRetrievalListener.class));
+        verify(mStripeRepository, times(2)).getPaymentMethodsPage(
+                anyString(),
+                eq("card"),
+                eq(20),
+                ArgumentMatchers.<String>isNull(),
+                eq(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                ArgumentMatchers.<String>anyList(),
+                ArgumentMatchers.<ApiRequest.Options>any()
+        );
+
+        final CustomerCacheStats stats = customerSession.getCacheStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void retrieveCustomer_withStaleCache_returnsCachedCustomerAndRefreshesInBackground()
+            throws StripeException, JSONException {
+        final CustomerEphemeralKey firstKey = getCustomerEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        assertNotNull(firstKey);
+        final Calendar proxyCalendar = Calendar.getInstance();
+        proxyCalendar.setTimeInMillis(TimeUnit.SECONDS.toMillis(firstKey.getExpires()) +
+                TimeUnit.MINUTES.toMillis(2));
+
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        final CustomerSession customerSession = createCustomerSession(proxyCalendar,
+                new CustomerCacheConfig.Builder()
+                        .setStaleWhileRevalidateMillis(TimeUnit.MINUTES.toMillis(10))
+                        .build());
+        assertNotNull(FIRST_CUSTOMER);
+        assertNotNull(SECOND_CUSTOMER);
+        assertEquals(FIRST_CUSTOMER.getId(), customerSession.getCustomer().getId());
+
+        proxyCalendar.setTimeInMillis(customerSession.getCustomerCacheTime() +
+                TimeUnit.MINUTES.toMillis(2));
+        assertNull(customerSession.getCachedCustomer());
+
+        mEphemeralKeyProvider.setNextRawEphemeralKey(FIRST_SAMPLE_KEY_RAW);
+        final CustomerSession.CustomerRetrievalListener mockListener =
+                mock(CustomerSession.CustomerRetrievalListener.class);
+        customerSession.retrieveCurrentCustomer(mockListener);
+
+        verify(mockListener).onCustomerRetrieved(mCustomerArgumentCaptor.capture());
+        assertEquals(FIRST_CUSTOMER.getId(), mCustomerArgumentCaptor.getValue().getId());
+        verifyNoMoreInteractions(mockListener);
+
+        verify(mStripeRepository, times(2)).retrieveCustomer(eq(firstKey.getCustomerId()),
+                ArgumentMatchers.<ApiRequest.Options>any());
+        assertEquals(SECOND_CUSTOMER.getId(), customerSession.getCustomer().getId());
+        assertEquals(1, customerSession.getCacheStats().getStaleHitCount());
+    }
+
     private void setupErrorProxy()
             throws StripeException {
         when(mStripeRepository.addCustomerSource(
@@ -1154,4 +1341,13 @@ public class CustomerSessionTest extends BaseViewTest<PaymentFlowActivity> {
                 ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
                 "acct_abc123", true);
     }
+
+    @NonNull
+    private CustomerSession createCustomerSession(@Nullable Calendar calendar,
+                                                  @NonNull CustomerCacheConfig cacheConfig) {
+        return new CustomerSession(ApplicationProvider.getApplicationContext(),
+                mEphemeralKeyProvider, calendar, mThreadPoolExecutor, mStripeRepository,
+                ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
+                "acct_abc123", true, cacheConfig, null);
+    }
 }
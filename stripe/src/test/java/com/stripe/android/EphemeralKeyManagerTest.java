@@ -1,5 +1,7 @@
 package com.stripe.android;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
@@ -13,13 +15,16 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.net.HttpURLConnection;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -27,10 +32,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -61,6 +69,7 @@ public class EphemeralKeyManagerTest {
     @Captor private ArgumentCaptor<Map<String, Object>> mArgumentCaptor;
     @Captor private ArgumentCaptor<CustomerEphemeralKey> mEphemeralKeyArgumentCaptor;
     @Captor private ArgumentCaptor<String> mActionArgumentCaptor;
+    @Captor private ArgumentCaptor<EphemeralKeyUpdateListener> mKeyUpdateListenerArgumentCaptor;
 
     @NonNull private final OperationIdFactory mOperationIdFactory = new OperationIdFactory();
     @NonNull private final CustomerEphemeralKey.Factory mEphemeralKeyFactory =
@@ -300,6 +309,206 @@ public class EphemeralKeyManagerTest {
         verify(operationIdFactory, never()).create();
     }
 
+    @Test
+    public void retrieveEphemeralKey_whileKeyRequestInFlight_requestsKeyOnce() {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager =
+                createEphemeralKeyManager(keyProvider, Calendar.getInstance(), null);
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+        keyManager.retrieveEphemeralKey("op_3", "action_3", null);
+
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        verifyNoMoreInteractions(mKeyManagerListener);
+
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+
+        final InOrder inOrder = inOrder(mKeyManagerListener);
+        inOrder.verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_1"), eq("action_1"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        inOrder.verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_2"), eq("action_2"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        inOrder.verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_3"), eq("action_3"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+    }
+
+    @Test
+    public void retrieveEphemeralKey_whenSharedKeyRequestFails_notifiesEveryOperation() {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager =
+                createEphemeralKeyManager(keyProvider, Calendar.getInstance(), null);
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdateFailure(500, "error");
+
+        verify(mKeyManagerListener).onKeyError("op_1", 500, "error");
+        verify(mKeyManagerListener).onKeyError("op_2", 500, "error");
+        verifyNoMoreInteractions(mKeyManagerListener);
+    }
+
+    @Test
+    public void retrieveEphemeralKey_whenKeyRequestCompletesTwice_ignoresSecondCallback() {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager =
+                createEphemeralKeyManager(keyProvider, Calendar.getInstance(), null);
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+
+        final EphemeralKeyUpdateListener keyUpdateListener =
+                mKeyUpdateListenerArgumentCaptor.getValue();
+        keyUpdateListener.onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+        keyUpdateListener.onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+        keyUpdateListener.onKeyUpdateFailure(500, "error");
+
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_1"), eq("action_1"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        verifyNoMoreInteractions(mKeyManagerListener);
+    }
+
+    @Test
+    public void retrieveEphemeralKey_whenKeyRequestTimesOut_startsNewKeyRequest() {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final Calendar calendar = Calendar.getInstance();
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager =
+                createEphemeralKeyManager(keyProvider, calendar, null);
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        calendar.setTimeInMillis(calendar.getTimeInMillis() + TimeUnit.MINUTES.toMillis(1));
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+
+        verify(keyProvider, times(2)).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        final List<EphemeralKeyUpdateListener> keyUpdateListeners =
+                mKeyUpdateListenerArgumentCaptor.getAllValues();
+
+        // the lost request completing late is ignored
+        keyUpdateListeners.get(0).onKeyUpdateFailure(500, "error");
+        verifyNoMoreInteractions(mKeyManagerListener);
+
+        keyUpdateListeners.get(1).onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_1"), eq("action_1"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_2"), eq("action_2"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+    }
+
+    @Test
+    public void renewal_whenKeyIsUsed_requestsNewKeyBeforeExpiry() throws JSONException {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final Calendar calendar = Calendar.getInstance();
+        final long expires = TimeUnit.MILLISECONDS.toSeconds(calendar.getTimeInMillis()) + 100L;
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager = createEphemeralKeyManager(
+                keyProvider, calendar, new Handler(Looper.getMainLooper()));
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(createRawEphemeralKey(expires));
+
+        // renewal is scheduled one buffer period before the key would need to be refreshed
+        ShadowLooper.idleMainLooper(
+                TimeUnit.SECONDS.toMillis(100L - 2 * TEST_SECONDS_BUFFER) - 1000L,
+                TimeUnit.MILLISECONDS);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                ArgumentMatchers.<EphemeralKeyUpdateListener>any());
+
+        ShadowLooper.idleMainLooper(1000L, TimeUnit.MILLISECONDS);
+        verify(keyProvider, times(2)).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+
+        // a failed renewal doesn't affect operations while the current key is valid
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdateFailure(500, "error");
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_2"), eq("action_2"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        verify(mKeyManagerListener, never()).onKeyError(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    public void renewal_whenKeyIsOnlyPrefetched_doesNotRequestNewKey() throws JSONException {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final Calendar calendar = Calendar.getInstance();
+        final long expires = TimeUnit.MILLISECONDS.toSeconds(calendar.getTimeInMillis()) + 100L;
+        new EphemeralKeyManager<>(keyProvider, mKeyManagerListener, TEST_SECONDS_BUFFER,
+                calendar, mOperationIdFactory, mEphemeralKeyFactory, true,
+                new Handler(Looper.getMainLooper()));
+
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(createRawEphemeralKey(expires));
+
+        ShadowLooper.idleMainLooper(100L, TimeUnit.SECONDS);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                ArgumentMatchers.<EphemeralKeyUpdateListener>any());
+    }
+
+    @Test
+    public void cancelOperation_shouldNotRunOperationWhenKeyArrives() {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager =
+                createEphemeralKeyManager(keyProvider, Calendar.getInstance(), null);
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+
+        keyManager.cancelOperation("op_1");
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_2"), eq("action_2"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+        verifyNoMoreInteractions(mKeyManagerListener);
+    }
+
+    @Test
+    public void cancel_shouldStopRenewalAndDropPendingOperations() throws JSONException {
+        final EphemeralKeyProvider keyProvider = mock(EphemeralKeyProvider.class);
+        final Calendar calendar = Calendar.getInstance();
+        final long expires = TimeUnit.MILLISECONDS.toSeconds(calendar.getTimeInMillis()) + 100L;
+        final EphemeralKeyManager<CustomerEphemeralKey> keyManager = createEphemeralKeyManager(
+                keyProvider, calendar, new Handler(Looper.getMainLooper()));
+
+        keyManager.retrieveEphemeralKey("op_1", "action_1", null);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(createRawEphemeralKey(expires));
+        verify(mKeyManagerListener).onKeyUpdate(
+                ArgumentMatchers.<CustomerEphemeralKey>any(), eq("op_1"), eq("action_1"),
+                ArgumentMatchers.<Map<String, Object>>isNull());
+
+        keyManager.cancel();
+        ShadowLooper.idleMainLooper(100L, TimeUnit.SECONDS);
+        verify(keyProvider).createEphemeralKey(anyString(),
+                ArgumentMatchers.<EphemeralKeyUpdateListener>any());
+
+        // once the key has expired, the next operation waits for a key that arrives after
+        // cancel()
+        calendar.setTimeInMillis(calendar.getTimeInMillis() + TimeUnit.SECONDS.toMillis(100L));
+        keyManager.retrieveEphemeralKey("op_2", "action_2", null);
+        verify(keyProvider, times(2)).createEphemeralKey(anyString(),
+                mKeyUpdateListenerArgumentCaptor.capture());
+        keyManager.cancel();
+        mKeyUpdateListenerArgumentCaptor.getValue().onKeyUpdate(FIRST_SAMPLE_KEY_RAW);
+        verifyNoMoreInteractions(mKeyManagerListener);
+    }
+
     @NonNull
     private EphemeralKeyManager<CustomerEphemeralKey> createEphemeralKeyManager(
             @NonNull OperationIdFactory operationIdFactory,
@@ -316,6 +525,31 @@ public class EphemeralKeyManagerTest {
         );
     }
 
+    @NonNull
+    private EphemeralKeyManager<CustomerEphemeralKey> createEphemeralKeyManager(
+            @NonNull EphemeralKeyProvider keyProvider,
+            @NonNull Calendar calendar,
+            @Nullable Handler renewalHandler
+    ) {
+        return new EphemeralKeyManager<>(
+                keyProvider,
+                mKeyManagerListener,
+                TEST_SECONDS_BUFFER,
+                calendar,
+                mOperationIdFactory,
+                mEphemeralKeyFactory,
+                false,
+                renewalHandler
+        );
+    }
+
+    @NonNull
+    private static String createRawEphemeralKey(long expires) throws JSONException {
+        return new JSONObject(FIRST_SAMPLE_KEY_RAW)
+                .put("expires", expires)
+                .toString();
+    }
+
     @NonNull
     private CustomerEphemeralKey createEphemeralKey(long expires) {
         return mEphemeralKeyFactory.create(1501199335L, "cus_AQsHpvKfKwJDrF",
@@ -0,0 +1,17 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A clock for the classes that take the current time from a {@link Supplier}, which only moves
+ * when a test advances {@link #now}.
+ */
+final class FakeClock implements Supplier<Long> {
+    long now = 1000000L;
+
+    @NonNull
+    @Override
+    public Long get() {
+        return now;
+    }
+}
@@ -0,0 +1,67 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class FingerprintSessionTest {
+    private static final long WINDOW = 1000L;
+
+    @NonNull private final FingerprintRequestFactory mFingerprintRequestFactory =
+            new FingerprintRequestFactory(new TelemetryClientUtil(
+                    ApplicationProvider.getApplicationContext(), new FakeUidSupplier()));
+    @NonNull private final FakeClock mClock = new FakeClock();
+    @NonNull private final FingerprintSession mFingerprintSession =
+            new FingerprintSession(mFingerprintRequestFactory, mClock, WINDOW);
+
+    @Test
+    public void createIfDue_withinWindow_shouldSuppressRequest() {
+        assertNotNull(mFingerprintSession.createIfDue());
+
+        mClock.now += WINDOW - 1;
+        assertNull(mFingerprintSession.createIfDue());
+        assertNull(mFingerprintSession.createIfDue());
+        assertEquals(2, mFingerprintSession.getSuppressedCount());
+    }
+
+    @Test
+    public void createIfDue_afterWindow_shouldCreateRequest() {
+        assertNotNull(mFingerprintSession.createIfDue());
+
+        mClock.now += WINDOW;
+        assertNotNull(mFingerprintSession.createIfDue());
+        assertEquals(0, mFingerprintSession.getSuppressedCount());
+    }
+
+    @Test
+    public void createIfDue_withZeroWindow_shouldNeverSuppress() {
+        final FingerprintSession fingerprintSession =
+                new FingerprintSession(mFingerprintRequestFactory, mClock, 0);
+        assertNotNull(fingerprintSession.createIfDue());
+        assertNotNull(fingerprintSession.createIfDue());
+        assertEquals(0, fingerprintSession.getSuppressedCount());
+    }
+
+    @Test
+    public void create_shouldReuseTelemetryPayload() {
+        final FingerprintRequest first = mFingerprintRequestFactory.create();
+        final FingerprintRequest second = mFingerprintRequestFactory.create();
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void getInstance_shouldReturnSameInstance() {
+        assertSame(FingerprintSession.getInstance(ApplicationProvider.getApplicationContext()),
+                FingerprintSession.getInstance(ApplicationProvider.getApplicationContext()));
+    }
+}
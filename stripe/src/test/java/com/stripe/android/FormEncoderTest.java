@@ -0,0 +1,111 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(RobolectricTestRunner.class)
+public class FormEncoderTest {
+
+    @Test
+    public void encode_withNullParams_shouldWriteNothing() throws InvalidRequestException {
+        assertEquals("", encode(null));
+    }
+
+    @Test
+    public void encode_withNestedMapsAndLists_shouldUseBracketNotation()
+            throws InvalidRequestException {
+        final Map<String, Object> card = new LinkedHashMap<>();
+        card.put("number", "4242424242424242");
+        card.put("exp_month", 1);
+
+        final Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", "sku");
+        item.put("parent", "sku_123");
+
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("card", card);
+        params.put("expand", Arrays.asList("customer", "source"));
+        params.put("items", Collections.singletonList(item));
+
+        assertEquals("card%5Bnumber%5D=4242424242424242&card%5Bexp_month%5D=1" +
+                        "&expand%5B%5D=customer&expand%5B%5D=source" +
+                        "&items%5B%5D%5Btype%5D=sku&items%5B%5D%5Bparent%5D=sku_123",
+                encode(params));
+    }
+
+    @Test
+    public void encode_withEmptyListAndNullValue_shouldWriteEmptyValues()
+            throws InvalidRequestException {
+        final Map<String, Object> params = new LinkedHashMap<>();
+        params.put("expand", Collections.emptyList());
+        params.put("description", null);
+
+        assertEquals("expand=&description=", encode(params));
+    }
+
+    @Test
+    public void encode_shouldMatchUrlEncoder()
+            throws InvalidRequestException, UnsupportedEncodingException {
+        final String[] values = {
+                "Jenny Rosen",
+                "jenny+rosen@example.com",
+                "https://example.com/return?a=1&b=2",
+                "~!@#$%^&()={}|\\:;\"'<>,/`.-*_",
+                "Müller",
+                "東京都",
+                "💳 card",
+                "\uD83D lone high surrogate",
+                "lone low surrogate \uDCB3",
+                "\u0000\u007F\u0080\u07FF\u0800\uFFFF"
+        };
+
+        for (String value : values) {
+            assertEquals(value,
+                    URLEncoder.encode("metadata[" + value + "]", StripeRequest.CHARSET) +
+                            "=" + URLEncoder.encode(value, StripeRequest.CHARSET),
+                    encode(Collections.<String, Object>singletonMap("metadata",
+                            Collections.singletonMap(value, value))));
+        }
+    }
+
+    @Test
+    public void encode_withEmptyString_shouldThrowInvalidRequestException() {
+        final Map<String, Object> params = Collections.<String, Object>singletonMap("card",
+                Collections.singletonMap("cvc", ""));
+
+        final InvalidRequestException exception = assertThrows(InvalidRequestException.class,
+                new ThrowingRunnable() {
+                    @Override
+                    public void run() throws Throwable {
+                        encode(params);
+                    }
+                });
+        assertEquals("card[cvc]", exception.getParam());
+    }
+
+    @NonNull
+    private static String encode(@Nullable Map<String, ?> params)
+            throws InvalidRequestException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new FormEncoder(output).encode(params);
+        return new String(output.toByteArray());
+    }
+}
@@ -10,7 +10,7 @@ public class GooglePayConfigTest {
 
     @Test
     public void getTokenizationSpecification() throws JSONException {
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
         final JSONObject tokenizationSpec = new GooglePayConfig().getTokenizationSpecification();
         final JSONObject params = tokenizationSpec.getJSONObject("parameters");
         assertEquals("stripe",
@@ -0,0 +1,103 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class HeaderTemplateTest {
+    private static final String API_VERSION = ApiVersion.get().code;
+    private static final ApiRequest.Options OPTIONS =
+            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+    @After
+    public void tearDown() {
+        Stripe.setAppInfo(null);
+    }
+
+    @Test
+    public void get_withEqualKeys_returnsSameTemplate() {
+        assertSame(HeaderTemplate.get(OPTIONS, AppInfoTest.APP_INFO, API_VERSION),
+                HeaderTemplate.get(
+                        ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY),
+                        AppInfoTest.APP_INFO, API_VERSION));
+    }
+
+    @Test
+    public void get_withDifferentStripeAccounts_sharesClientUserAgent() {
+        final Map<String, String> headers1 = toMap(HeaderTemplate.get(
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_1"),
+                AppInfoTest.APP_INFO, API_VERSION));
+        final Map<String, String> headers2 = toMap(HeaderTemplate.get(
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_2"),
+                AppInfoTest.APP_INFO, API_VERSION));
+
+        assertEquals("acct_1", headers1.get("Stripe-Account"));
+        assertEquals("acct_2", headers2.get("Stripe-Account"));
+        assertSame(headers1.get(HeaderTemplate.HEADER_CLIENT_USER_AGENT),
+                headers2.get(HeaderTemplate.HEADER_CLIENT_USER_AGENT));
+    }
+
+    @Test
+    public void setAppInfo_clearsCache() {
+        final HeaderTemplate template = HeaderTemplate.get(OPTIONS, null, API_VERSION);
+        Stripe.setAppInfo(AppInfoTest.APP_INFO);
+        assertNotSame(template, HeaderTemplate.get(OPTIONS, null, API_VERSION));
+    }
+
+    @Test
+    public void cache_whenFull_removesLeastRecentlyUsedTemplate() {
+        final HeaderTemplate.Cache cache = new HeaderTemplate.Cache(2);
+        final HeaderTemplate template = cache.get(OPTIONS, null, API_VERSION);
+        cache.get(ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_1"),
+                null, API_VERSION);
+        // use the first template again, so that the second one is removed
+        assertSame(template, cache.get(OPTIONS, null, API_VERSION));
+        cache.get(ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_2"),
+                null, API_VERSION);
+
+        assertEquals(2, cache.size());
+        assertSame(template, cache.get(OPTIONS, null, API_VERSION));
+    }
+
+    @Test
+    public void applyTo_setsSameHeadersAsGetHeaders() throws Exception {
+        final ApiRequest request = ApiRequest.createPost(ApiRequest.API_HOST,
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_1"),
+                AppInfoTest.APP_INFO);
+        request.setIfNoneMatch("\"etag\"");
+        final HttpURLConnection conn =
+                (HttpURLConnection) new URL(request.getUrl()).openConnection();
+        request.applyHeaders(conn);
+
+        final Map<String, String> headers = request.getHeaders();
+        assertEquals(10, headers.size());
+        // the JDK's connection doesn't return the value of Authorization
+        headers.remove("Authorization");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            assertEquals(header.getKey(), header.getValue(),
+                    conn.getRequestProperty(header.getKey()));
+        }
+        assertNull(conn.getRequestProperty("Content-Type"));
+    }
+
+    @NonNull
+    private static Map<String, String> toMap(@NonNull HeaderTemplate template) {
+        final Map<String, String> headers = new HashMap<>();
+        template.copyTo(headers);
+        return headers;
+    }
+}
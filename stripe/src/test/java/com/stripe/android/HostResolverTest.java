@@ -0,0 +1,75 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.QueuedExecutor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class HostResolverTest {
+    @NonNull private final FakeLookup mLookup = new FakeLookup();
+    @NonNull private final QueuedExecutor mExecutor = new QueuedExecutor();
+    @NonNull private final HostResolver mHostResolver = new HostResolver(mLookup, mExecutor);
+
+    @Test
+    public void prefetch_shouldResolveStripeHostsInBackground() {
+        mHostResolver.prefetch();
+        assertEquals(0, mLookup.hosts.size());
+
+        mExecutor.runAll();
+        assertEquals(2, mLookup.hosts.size());
+        assertEquals("api.stripe.com", mLookup.hosts.get(0));
+        assertEquals("q.stripe.com", mLookup.hosts.get(1));
+    }
+
+    @Test
+    public void prefetch_afterPrefetch_shouldNotLookUpAgain() {
+        mHostResolver.prefetch();
+        mExecutor.runAll();
+
+        mHostResolver.prefetch();
+        assertEquals(0, mExecutor.getQueuedCount());
+        assertEquals(2, mLookup.hosts.size());
+    }
+
+    @Test
+    public void prefetch_whileLookingUp_shouldNotStartAnotherLookup() {
+        mHostResolver.prefetch();
+        mHostResolver.prefetch();
+        assertEquals(1, mExecutor.getQueuedCount());
+    }
+
+    @Test
+    public void prefetch_afterFailedLookup_shouldLookUpAgain() {
+        mLookup.shouldFail = true;
+        mHostResolver.prefetch();
+        mExecutor.runAll();
+
+        mLookup.shouldFail = false;
+        mHostResolver.prefetch();
+        mExecutor.runAll();
+        assertEquals(4, mLookup.hosts.size());
+    }
+
+    private static final class FakeLookup implements HostResolver.Lookup {
+        @NonNull private final List<String> hosts = new ArrayList<>();
+        private boolean shouldFail;
+
+        @Override
+        public void lookup(@NonNull String host) throws UnknownHostException {
+            hosts.add(host);
+            if (shouldFail) {
+                throw new UnknownHostException(host);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link Executor} that runs each task on the calling thread.
+ */
+final class ImmediateExecutor implements Executor {
+    @Override
+    public void execute(@NonNull Runnable runnable) {
+        runnable.run();
+    }
+}
@@ -0,0 +1,196 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class OperationRegistryTest {
+    private static final long TIMEOUT_MILLIS = 1000L;
+
+    @NonNull private final List<String> mTimedOutOperationIds = new ArrayList<>();
+    @NonNull private final OperationIdFactory mOperationIdFactory = new OperationIdFactory();
+
+    private OperationRegistry<Listener> mRegistry;
+
+    @Before
+    public void setup() {
+        mRegistry = new OperationRegistry<>(new Handler(Looper.getMainLooper()), TIMEOUT_MILLIS,
+                new OperationRegistry.TimeoutListener<Listener>() {
+                    @Override
+                    public void onTimeout(@NonNull String operationId,
+                                          @NonNull Listener listener) {
+                        mTimedOutOperationIds.add(operationId);
+                        listener.end();
+                    }
+                });
+    }
+
+    @Test
+    public void remove_returnsListenerOnlyOnce() {
+        final Listener listener = new Listener();
+        mRegistry.register("op_1", listener);
+
+        assertSame(listener, mRegistry.remove("op_1"));
+        assertNull(mRegistry.remove("op_1"));
+        assertEquals(0, mRegistry.size());
+    }
+
+    @Test
+    public void timeout_removesOperationAndNotifiesTimeoutListener() {
+        final Listener listener = new Listener();
+        mRegistry.register("op_1", listener);
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS - 1, TimeUnit.MILLISECONDS);
+        assertTrue(mTimedOutOperationIds.isEmpty());
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, mTimedOutOperationIds.size());
+        assertEquals("op_1", mTimedOutOperationIds.get(0));
+        assertEquals(1, listener.mEndCount.get());
+        assertNull(mRegistry.remove("op_1"));
+    }
+
+    @Test
+    public void remove_beforeTimeout_preventsTimeout() {
+        mRegistry.register("op_1", new Listener());
+        mRegistry.remove("op_1");
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(mTimedOutOperationIds.isEmpty());
+    }
+
+    @Test
+    public void get_restartsTimeout() {
+        final Listener listener = new Listener();
+        mRegistry.register("op_1", listener);
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertSame(listener, mRegistry.get("op_1"));
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertTrue(mTimedOutOperationIds.isEmpty());
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+        assertEquals(1, mTimedOutOperationIds.size());
+    }
+
+    @Test
+    public void cancelAll_removesOperationsWithoutNotifying() {
+        final Listener listener = new Listener();
+        mRegistry.register("op_1", listener);
+        mRegistry.register("op_2", listener);
+
+        mRegistry.cancelAll();
+
+        assertEquals(0, mRegistry.size());
+        assertNull(mRegistry.get("op_1"));
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertTrue(mTimedOutOperationIds.isEmpty());
+        assertEquals(0, listener.mEndCount.get());
+    }
+
+    @Test
+    public void create_returnsUniqueIds() {
+        final Set<String> operationIds = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(operationIds.add(mOperationIdFactory.create()));
+        }
+    }
+
+    @Test
+    public void interleavedOperations_eachEndExactlyOnce() throws InterruptedException {
+        final int threadCount = 8;
+        final int operationsPerThread = 500;
+        final ExecutorService registeringExecutor = Executors.newFixedThreadPool(threadCount);
+        final ExecutorService completingExecutor = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Set<String> operationIds = Collections.synchronizedSet(new HashSet<String>());
+        final List<Listener> listeners = Collections.synchronizedList(new ArrayList<Listener>());
+
+        for (int thread = 0; thread < threadCount; thread++) {
+            registeringExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        final String operationId = mOperationIdFactory.create();
+                        final Listener listener = new Listener();
+                        operationIds.add(operationId);
+                        listeners.add(listener);
+                        mRegistry.register(operationId, listener);
+
+                        // two threads race to complete most operations, and the rest
+                        // are left to time out
+                        if (i % 3 != 0) {
+                            final Runnable completion = new Runnable() {
+                                @Override
+                                public void run() {
+                                    final Listener removedListener =
+                                            mRegistry.remove(operationId);
+                                    if (removedListener != null) {
+                                        removedListener.end();
+                                    }
+                                }
+                            };
+                            completingExecutor.execute(completion);
+                            completingExecutor.execute(completion);
+                        }
+                    }
+                }
+            });
+        }
+
+        startLatch.countDown();
+        registeringExecutor.shutdown();
+        assertTrue(registeringExecutor.awaitTermination(30, TimeUnit.SECONDS));
+        completingExecutor.shutdown();
+        assertTrue(completingExecutor.awaitTermination(30, TimeUnit.SECONDS));
+
+        ShadowLooper.idleMainLooper(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(threadCount * operationsPerThread, operationIds.size());
+        assertEquals(0, mRegistry.size());
+        for (Listener listener : listeners) {
+            assertEquals(1, listener.mEndCount.get());
+        }
+        // one in three operations is never completed
+        assertEquals(threadCount * ((operationsPerThread + 2) / 3),
+                mTimedOutOperationIds.size());
+    }
+
+    private static final class Listener {
+        @NonNull private final AtomicInteger mEndCount = new AtomicInteger();
+
+        private void end() {
+            mEndCount.incrementAndGet();
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.stripe.android;
 
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.QueuedExecutor;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.function.ThrowingRunnable;
@@ -33,8 +37,22 @@ public class PaymentConfigurationTest {
 
     @Test
     public void getInstance_withPublicKey_returnsDefaultInstance() {
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
         assertEquals(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
                 PaymentConfiguration.getInstance().getPublishableKey());
     }
+
+    @Test
+    public void init_shouldPrefetchStripeHostsWithResolver() {
+        final QueuedExecutor executor = new QueuedExecutor();
+        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
+                new HostResolver(
+                        new HostResolver.Lookup() {
+                            @Override
+                            public void lookup(@NonNull String host) {
+                            }
+                        },
+                        executor));
+        assertEquals(1, executor.getQueuedCount());
+    }
 }
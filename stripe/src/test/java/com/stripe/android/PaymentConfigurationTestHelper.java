@@ -0,0 +1,28 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.testharness.QueuedExecutor;
+
+public class PaymentConfigurationTestHelper {
+    private PaymentConfigurationTestHelper() {
+    }
+
+    /**
+     * Same as {@link PaymentConfiguration#init(String)}, but never looks up the Stripe hosts.
+     */
+    public static void init(@NonNull String publishableKey) {
+        PaymentConfiguration.init(publishableKey, createHostResolver());
+    }
+
+    @NonNull
+    private static HostResolver createHostResolver() {
+        return new HostResolver(
+                new HostResolver.Lookup() {
+                    @Override
+                    public void lookup(@NonNull String host) {
+                    }
+                },
+                new QueuedExecutor());
+    }
+}
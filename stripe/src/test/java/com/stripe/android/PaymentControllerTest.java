@@ -21,6 +21,8 @@ import com.stripe.android.stripe3ds2.transaction.ErrorMessage;
 import com.stripe.android.stripe3ds2.transaction.MessageVersionRegistry;
 import com.stripe.android.stripe3ds2.transaction.ProtocolErrorEvent;
 import com.stripe.android.stripe3ds2.transaction.RuntimeErrorEvent;
+import com.stripe.android.stripe3ds2.transaction.StripeChallengeParameters;
+import com.stripe.android.stripe3ds2.transaction.StripeChallengeStatusReceiver;
 import com.stripe.android.stripe3ds2.transaction.Transaction;
 import com.stripe.android.stripe3ds2.views.ChallengeProgressDialogActivity;
 import com.stripe.android.view.AuthActivityStarter;
@@ -34,6 +36,8 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 
 import java.security.PublicKey;
@@ -42,12 +46,17 @@ import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -120,7 +129,8 @@ public class PaymentControllerTest {
                 CONFIG,
                 mFireAndForgetRequestExecutor,
                 mAnalyticsDataFactory,
-                mChallengeFlowStarter
+                mChallengeFlowStarter,
+                new StripeTaskEngine(new ImmediateExecutor(), new ImmediateExecutor())
         );
     }
 
@@ -166,6 +176,10 @@ public class PaymentControllerTest {
                 analyticsParams.get(AnalyticsDataFactory.FIELD_EVENT));
         assertEquals(PaymentIntentFixtures.PI_REQUIRES_MASTERCARD_3DS2.getId(),
                 analyticsParams.get(AnalyticsDataFactory.FIELD_INTENT_ID));
+        assertNotNull(
+                analyticsParams.get(AnalyticsDataFactory.FIELD_3DS2_FINGERPRINT_DURATION));
+        assertNotNull(
+                analyticsParams.get(AnalyticsDataFactory.FIELD_3DS2_TRANSACTION_DURATION));
     }
 
     @Test
@@ -250,6 +264,64 @@ public class PaymentControllerTest {
         assertFalse(mController.shouldHandleSetupResult(500, new Intent()));
     }
 
+    @Test
+    public void startConfirmAndAuth_with3ds2NextAction_preparesTransactionOnWorkerThread() {
+        final boolean[] isOnWorkerThread = new boolean[1];
+        final boolean[] wasTransactionCreatedOnWorkerThread = new boolean[1];
+        final Executor workerExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                isOnWorkerThread[0] = true;
+                runnable.run();
+                isOnWorkerThread[0] = false;
+            }
+        };
+        final Executor mainThreadExecutor = new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                final boolean wasOnWorkerThread = isOnWorkerThread[0];
+                isOnWorkerThread[0] = false;
+                runnable.run();
+                isOnWorkerThread[0] = wasOnWorkerThread;
+            }
+        };
+        when(mThreeDs2Service.createTransaction(
+                eq(Stripe3ds2Fingerprint.DirectoryServer.Mastercard.id),
+                eq(MESSAGE_VERSION),
+                ArgumentMatchers.anyBoolean(),
+                eq(Stripe3ds2Fingerprint.DirectoryServer.Mastercard.name),
+                ArgumentMatchers.<X509Certificate>anyList(),
+                any(PublicKey.class),
+                ArgumentMatchers.<String>any()))
+                .thenAnswer(new Answer<Transaction>() {
+                    @Override
+                    public Transaction answer(InvocationOnMock invocation) {
+                        wasTransactionCreatedOnWorkerThread[0] = isOnWorkerThread[0];
+                        return mTransaction;
+                    }
+                });
+        final PaymentController controller = new PaymentController(
+                ApplicationProvider.getApplicationContext(),
+                mThreeDs2Service,
+                new FakeStripeRepository(),
+                mMessageVersionRegistry,
+                CONFIG,
+                mFireAndForgetRequestExecutor,
+                mAnalyticsDataFactory,
+                mChallengeFlowStarter,
+                new StripeTaskEngine(workerExecutor, mainThreadExecutor)
+        );
+
+        controller.startConfirmAndAuth(mHost,
+                ConfirmPaymentIntentParams.createWithPaymentMethodId(
+                        "pm_123", "client_secret", ""),
+                REQUEST_OPTIONS);
+
+        assertTrue(wasTransactionCreatedOnWorkerThread[0]);
+        verify(mTransaction).getAuthenticationRequestParameters();
+        verify(mActivity).startActivity(ArgumentMatchers.<Intent>any());
+    }
+
     @Test
     public void getRequestCode_withIntents_correctCodeReturned() {
         assertEquals(PaymentController.PAYMENT_REQUEST_CODE,
@@ -608,9 +680,73 @@ public class PaymentControllerTest {
                         "Description: Data could not be decrypted by the receiving system due to technical or other reason., " +
                         "Component: D",
                 exception.getMessage());
+        verify(mTransaction).close();
+    }
+
+    @Test
+    public void handleNextAction_with3ds2WhenActivityIsGone_shouldCloseTransaction() {
+        when(mThreeDs2Service.createTransaction(
+                anyString(),
+                anyString(),
+                anyBoolean(),
+                anyString(),
+                ArgumentMatchers.<X509Certificate>anyList(),
+                any(PublicKey.class),
+                anyString()))
+                .thenReturn(mTransaction);
+        mController.handleNextAction(createHostWithoutActivity(),
+                PaymentIntentFixtures.PI_REQUIRES_MASTERCARD_3DS2, REQUEST_OPTIONS);
+        verify(mTransaction).close();
+        verify(mChallengeFlowStarter, never()).start(ArgumentMatchers.<Runnable>any());
+    }
+
+    @Test
+    public void authCallback_withChallengeFlowWhenActivityIsGone_shouldCloseTransaction() {
+        final PaymentController.Stripe3ds2AuthCallback authCallback =
+                new PaymentController.Stripe3ds2AuthCallback(
+                        createHostWithoutActivity(), new FakeStripeRepository(), mTransaction,
+                        MAX_TIMEOUT, PaymentIntentFixtures.PI_REQUIRES_MASTERCARD_3DS2,
+                        SOURCE_ID, REQUEST_OPTIONS, mPaymentRelayStarter,
+                        mFireAndForgetRequestExecutor, mAnalyticsDataFactory,
+                        new PaymentController.ChallengeFlowStarter() {
+                            @Override
+                            public void start(@NonNull Runnable runnable) {
+                                runnable.run();
+                            }
+                        }
+                );
+        authCallback.onSuccess(Stripe3ds2AuthResultFixtures.ARES_CHALLENGE_FLOW);
+        verify(mTransaction).close();
+        verify(mTransaction, never()).doChallenge(
+                any(Activity.class),
+                any(StripeChallengeParameters.class),
+                any(StripeChallengeStatusReceiver.class),
+                anyInt());
+    }
+
+    /**
+     * @return a {@link AuthActivityStarter.Host} whose {@link Activity} has been garbage
+     *         collected
+     */
+    @NonNull
+    private static AuthActivityStarter.Host createHostWithoutActivity() {
+        final AuthActivityStarter.Host host = AuthActivityStarter.Host.create(new Activity());
+        for (int i = 0; i < 10 && host.getActivity() != null; i++) {
+            System.gc();
+        }
+        assertNull(host.getActivity());
+        return host;
     }
 
     private static final class FakeStripeRepository extends AbsFakeStripeRepository {
+        @NonNull
+        @Override
+        public PaymentIntent confirmPaymentIntent(
+                @NonNull ConfirmPaymentIntentParams confirmPaymentIntentParams,
+                @NonNull ApiRequest.Options options) {
+            return PaymentIntentFixtures.PI_REQUIRES_MASTERCARD_3DS2;
+        }
+
         @NonNull
         @Override
         public SetupIntent retrieveSetupIntent(
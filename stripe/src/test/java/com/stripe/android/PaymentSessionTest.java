@@ -87,7 +87,7 @@ public class PaymentSessionTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
         doAnswer(new Answer() {
             @Override
             public Object answer(InvocationOnMock invocation) {
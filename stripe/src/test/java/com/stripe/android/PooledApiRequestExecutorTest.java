@@ -0,0 +1,127 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.LoopbackHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+public class PooledApiRequestExecutorTest {
+    private static final String RESPONSE_BODY = "{\"id\": \"pi_123\", \"object\": \"payment_intent\"}";
+
+    private static final ApiRequest.Options OPTIONS =
+            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+    private LoopbackHttpServer mServer;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new LoopbackHttpServer(RESPONSE_BODY);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.close();
+    }
+
+    @Test
+    public void execute_withConfirmAnd3ds2Flow_shouldReuseOneConnection()
+            throws APIConnectionException, InvalidRequestException {
+        final PooledApiRequestExecutor executor = new PooledApiRequestExecutor();
+        final List<ApiRequest> requests = createConfirmAnd3ds2Flow();
+        for (ApiRequest request : requests) {
+            final StripeResponse response = executor.execute(request);
+            assertEquals(200, response.getResponseCode());
+            assertEquals(RESPONSE_BODY, response.getResponseBody());
+        }
+
+        assertEquals(requests.size(), mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void execute_withStripeApiRequestExecutor_shouldHandshakeForEveryRequest()
+            throws APIConnectionException, InvalidRequestException {
+        final StripeApiRequestExecutor executor = new StripeApiRequestExecutor();
+        final List<ApiRequest> requests = createConfirmAnd3ds2Flow();
+        for (ApiRequest request : requests) {
+            executor.execute(request);
+        }
+
+        assertEquals(requests.size(), mServer.getRequestCount());
+        assertEquals(requests.size(), mServer.getConnectionCount());
+    }
+
+    @Test
+    public void execute_withKeepAliveDisabledByServer_shouldHandshakeForEveryRequest()
+            throws APIConnectionException, InvalidRequestException {
+        mServer.setKeepAliveEnabled(false);
+        final PooledApiRequestExecutor executor = new PooledApiRequestExecutor();
+        final List<ApiRequest> requests = createConfirmAnd3ds2Flow();
+        for (ApiRequest request : requests) {
+            final StripeResponse response = executor.execute(request);
+            assertEquals(200, response.getResponseCode());
+            assertEquals(RESPONSE_BODY, response.getResponseBody());
+        }
+
+        assertEquals(requests.size(), mServer.getConnectionCount());
+    }
+
+    @Test
+    public void execute_withGzippedResponses_shouldDecompressAndReuseConnection()
+            throws APIConnectionException, InvalidRequestException {
+        mServer.setGzipEnabled(true);
+        final PooledApiRequestExecutor executor = new PooledApiRequestExecutor();
+        final List<ApiRequest> requests = createConfirmAnd3ds2Flow();
+        for (ApiRequest request : requests) {
+            final StripeResponse response = executor.execute(request);
+            assertEquals(200, response.getResponseCode());
+            assertEquals(RESPONSE_BODY, response.getResponseBody());
+        }
+
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    /**
+     * The API calls made when confirming a PaymentIntent that requires 3DS2 authentication.
+     */
+    @NonNull
+    private List<ApiRequest> createConfirmAnd3ds2Flow() {
+        final String baseUrl = mServer.getUrl();
+        final Map<String, Object> confirmParams = new HashMap<>();
+        confirmParams.put("client_secret", "pi_123_secret_456");
+        confirmParams.put("payment_method", "pm_123");
+
+        final Map<String, Object> authParams = new HashMap<>();
+        authParams.put("source", "src_123");
+
+        final Map<String, Object> retrieveParams = new HashMap<>();
+        retrieveParams.put("client_secret", "pi_123_secret_456");
+
+        return Arrays.asList(
+                ApiRequest.createPost(baseUrl + "/v1/payment_intents/pi_123/confirm",
+                        confirmParams, OPTIONS, null),
+                ApiRequest.createPost(baseUrl + "/v1/3ds2/authenticate",
+                        authParams, OPTIONS, null),
+                ApiRequest.createPost(baseUrl + "/v1/3ds2/challenge_complete",
+                        authParams, OPTIONS, null),
+                ApiRequest.createGet(baseUrl + "/v1/payment_intents/pi_123",
+                        retrieveParams, OPTIONS, null)
+        );
+    }
+}
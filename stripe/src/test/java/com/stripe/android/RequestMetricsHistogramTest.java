@@ -0,0 +1,107 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for {@link RequestMetricsHistogram}.
+ */
+public class RequestMetricsHistogramTest {
+    private static final String CONFIRM_URL =
+            "https://api.stripe.com/v1/payment_intents/pi_1EZnUZ2eZvKYlo2C/confirm";
+    private static final String CONFIRM_ENDPOINT = "POST /v1/payment_intents/{id}/confirm";
+
+    private final RequestMetricsHistogram mHistogram = new RequestMetricsHistogram();
+
+    @Test
+    public void getEndpointKey_replacesObjectIds() {
+        assertEquals(CONFIRM_ENDPOINT,
+                RequestMetricsHistogram.getEndpointKey("POST", CONFIRM_URL));
+        assertEquals("DELETE /v1/customers/{id}/sources/{id}",
+                RequestMetricsHistogram.getEndpointKey("DELETE",
+                        "https://api.stripe.com/v1/customers/cus_123/sources/src_456"));
+        assertEquals("POST /v1/3ds2/challenge_complete",
+                RequestMetricsHistogram.getEndpointKey("POST",
+                        "https://api.stripe.com/v1/3ds2/challenge_complete"));
+        assertEquals("GET /", RequestMetricsHistogram.getEndpointKey("GET",
+                "https://q.stripe.com"));
+    }
+
+    @Test
+    public void getSummary_aggregatesMetricsPerEndpoint() {
+        for (int i = 1; i <= 10; i++) {
+            mHistogram.onRequestCompleted(createMetrics(CONFIRM_URL,
+                    RequestMetrics.Outcome.SUCCESS, i * 100L, 0));
+        }
+        mHistogram.onRequestCompleted(createMetrics(CONFIRM_URL,
+                RequestMetrics.Outcome.NETWORK_ERROR, 30000L, 2));
+        mHistogram.onRequestCompleted(createMetrics("https://q.stripe.com",
+                RequestMetrics.Outcome.HTTP_ERROR, 50L, 0));
+
+        assertEquals(Arrays.asList("GET /", CONFIRM_ENDPOINT),
+                new ArrayList<>(mHistogram.getEndpoints()));
+
+        final RequestMetricsHistogram.Summary summary = mHistogram.getSummary(CONFIRM_ENDPOINT);
+        assertNotNull(summary);
+        assertEquals(11, summary.getCount());
+        assertEquals(10, summary.getCount(RequestMetrics.Outcome.SUCCESS));
+        assertEquals(1, summary.getCount(RequestMetrics.Outcome.NETWORK_ERROR));
+        assertEquals(0, summary.getCount(RequestMetrics.Outcome.HTTP_ERROR));
+        assertEquals(2, summary.getRetryCount());
+        assertEquals(11 * 100L, summary.getBytesSent());
+        assertEquals(11 * 1000L, summary.getBytesReceived());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10),
+                summary.getMeanPhaseNanos(RequestMetrics.Phase.CONNECT));
+        assertEquals(30000L, summary.getMaxLatencyMillis());
+    }
+
+    @Test
+    public void getLatencyPercentileMillis_returnsUpperBoundOfBucket() {
+        for (int i = 1; i <= 10; i++) {
+            mHistogram.onRequestCompleted(createMetrics(CONFIRM_URL,
+                    RequestMetrics.Outcome.SUCCESS, i * 100L, 0));
+        }
+        mHistogram.onRequestCompleted(createMetrics(CONFIRM_URL,
+                RequestMetrics.Outcome.SUCCESS, 90000L, 0));
+
+        final RequestMetricsHistogram.Summary summary = mHistogram.getSummary(CONFIRM_ENDPOINT);
+        assertNotNull(summary);
+        assertEquals(100L, summary.getLatencyPercentileMillis(0));
+        // 100..500 ms fall in the buckets up to 500 ms
+        assertEquals(500L, summary.getLatencyPercentileMillis(0.45));
+        assertEquals(1000L, summary.getLatencyPercentileMillis(0.9));
+        // the overflow bucket is bounded by the slowest request
+        assertEquals(90000L, summary.getLatencyPercentileMillis(1));
+    }
+
+    @Test
+    public void clear_discardsMetrics() {
+        mHistogram.onRequestCompleted(createMetrics(CONFIRM_URL,
+                RequestMetrics.Outcome.SUCCESS, 100L, 0));
+        mHistogram.clear();
+
+        assertEquals(Collections.emptySet(), mHistogram.getEndpoints());
+        assertNull(mHistogram.getSummary(CONFIRM_ENDPOINT));
+    }
+
+    @NonNull
+    private static RequestMetrics createMetrics(@NonNull String url,
+                                                @NonNull RequestMetrics.Outcome outcome,
+                                                long totalMillis, int retryCount) {
+        final long[] phaseNanos = new long[RequestMetrics.Phase.values().length];
+        phaseNanos[RequestMetrics.Phase.CONNECT.ordinal()] = TimeUnit.MILLISECONDS.toNanos(10);
+        final String method = url.contains("q.stripe.com") ? "GET" : "POST";
+        return new RequestMetrics(url, method, outcome, 200, "req_123", retryCount, 0L, false,
+                TimeUnit.MILLISECONDS.toNanos(totalMillis), phaseNanos, 100L, 1000L);
+    }
+}
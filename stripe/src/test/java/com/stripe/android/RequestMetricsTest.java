@@ -0,0 +1,178 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+import com.stripe.android.testharness.LoopbackHttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RequestMetricsTest {
+    private static final String RESPONSE_BODY = "{\"id\": \"pm_123\", \"object\": \"payment_method\"}";
+
+    private static final ApiRequest.Options OPTIONS =
+            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+    @NonNull private final List<RequestMetrics> mReportedMetrics = new ArrayList<>();
+
+    private LoopbackHttpServer mServer;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new LoopbackHttpServer(RESPONSE_BODY);
+        Stripe.setRequestMetricsListener(new RequestMetricsListener() {
+            @Override
+            public void onRequestCompleted(@NonNull RequestMetrics metrics) {
+                mReportedMetrics.add(metrics);
+            }
+        });
+    }
+
+    @After
+    public void teardown() throws IOException {
+        Stripe.setRequestMetricsListener(null);
+        mServer.close();
+    }
+
+    @Test
+    public void build_afterPost_recordsPhasesAndPayloadSizes()
+            throws APIConnectionException, InvalidRequestException {
+        final ApiRequest request = createPost();
+        final StripeResponse response = new PooledApiRequestExecutor().execute(request);
+
+        final RequestMetrics metrics = request.getMetricsRecorder().build(request, response,
+                false);
+        assertEquals(mServer.getUrl() + "/v1/payment_methods", metrics.getEndpoint());
+        assertEquals("POST", metrics.getMethod());
+        assertEquals(RequestMetrics.Outcome.SUCCESS, metrics.getOutcome());
+        assertEquals(200, metrics.getResponseCode());
+        assertEquals("req_1", metrics.getRequestId());
+        assertEquals(0, metrics.getRetryCount());
+        assertFalse(metrics.isFireAndForget());
+        assertEquals(request.getOutputBytes().length, metrics.getBytesSent());
+        assertEquals(RESPONSE_BODY.getBytes(StandardCharsets.UTF_8).length,
+                metrics.getBytesReceived());
+
+        long phasesNanos = 0;
+        for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+            phasesNanos += metrics.getPhaseNanos(phase);
+        }
+        assertTrue(metrics.getPhaseNanos(RequestMetrics.Phase.TIME_TO_FIRST_BYTE) > 0);
+        assertTrue(metrics.getTotalNanos() >= phasesNanos);
+    }
+
+    @Test
+    public void build_afterRetry_countsAttemptsAndKeepsLastAttempt()
+            throws APIConnectionException, InvalidRequestException {
+        final ApiRequest request = createPost();
+        final PooledApiRequestExecutor executor = new PooledApiRequestExecutor();
+        executor.execute(request);
+        final StripeResponse response = executor.execute(request);
+
+        final RequestMetrics metrics = request.getMetricsRecorder().build(request, response,
+                false);
+        assertEquals(1, metrics.getRetryCount());
+        assertEquals("req_2", metrics.getRequestId());
+        assertEquals(request.getOutputBytes().length, metrics.getBytesSent());
+    }
+
+    @Test
+    public void build_afterRateLimitedRequestThroughClientCore_recordsRetryDelay()
+            throws APIConnectionException, InvalidRequestException {
+        mServer.setRateLimitedRequestCount(1);
+        final ApiRequest request = createPost();
+        final StripeResponse response = StripeClientCore
+                .getInstance(ApplicationProvider.getApplicationContext())
+                .getApiRequestExecutor()
+                .execute(request);
+
+        final RequestMetrics metrics = request.getMetricsRecorder().build(request, response,
+                false);
+        assertEquals(200, metrics.getResponseCode());
+        assertEquals(1, metrics.getRetryCount());
+        assertTrue(metrics.getRetryDelayMillis() >=
+                RetryingApiRequestExecutor.DEFAULT_INITIAL_BACKOFF_MILLIS / 2);
+        assertTrue(metrics.getTotalNanos() >=
+                TimeUnit.MILLISECONDS.toNanos(metrics.getRetryDelayMillis()));
+    }
+
+    @Test
+    public void build_withoutResponse_isNetworkError() {
+        final ApiRequest request = createPost();
+        final RequestMetrics metrics = request.getMetricsRecorder().build(request, null,
+                false);
+        assertEquals(RequestMetrics.Outcome.NETWORK_ERROR, metrics.getOutcome());
+        assertEquals(0, metrics.getResponseCode());
+        assertNull(metrics.getRequestId());
+        assertEquals(0, metrics.getTotalNanos());
+    }
+
+    @Test
+    public void build_withErrorResponse_isHttpError() {
+        final ApiRequest request = createPost();
+        final RequestMetrics metrics = request.getMetricsRecorder().build(request,
+                new StripeResponse(402, "{}", null), false);
+        assertEquals(RequestMetrics.Outcome.HTTP_ERROR, metrics.getOutcome());
+        assertEquals(402, metrics.getResponseCode());
+    }
+
+    @Test
+    public void execute_withFireAndForgetRequest_reportsMetrics()
+            throws APIConnectionException, InvalidRequestException {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("event", "stripe_android.payment_method_creation");
+        new StripeFireAndForgetRequestExecutor().execute(
+                ApiRequest.createGet(mServer.getUrl(), params, OPTIONS, null));
+
+        assertEquals(1, mReportedMetrics.size());
+        final RequestMetrics metrics = mReportedMetrics.get(0);
+        assertTrue(metrics.isFireAndForget());
+        assertEquals("GET", metrics.getMethod());
+        assertEquals(RequestMetrics.Outcome.SUCCESS, metrics.getOutcome());
+        assertEquals("req_1", metrics.getRequestId());
+        assertEquals(0, metrics.getBytesSent());
+    }
+
+    @Test
+    public void report_whenListenerThrows_ignoresException() {
+        Stripe.setRequestMetricsListener(new RequestMetricsListener() {
+            @Override
+            public void onRequestCompleted(@NonNull RequestMetrics metrics) {
+                throw new IllegalStateException();
+            }
+        });
+
+        final ApiRequest request = createPost();
+        request.getMetricsRecorder().report(request, new StripeResponse(200, "{}", null),
+                false);
+    }
+
+    @NonNull
+    private ApiRequest createPost() {
+        final Map<String, String> params = new HashMap<>();
+        params.put("type", "card");
+        return ApiRequest.createPost(mServer.getUrl() + "/v1/payment_methods", params,
+                OPTIONS, null);
+    }
+}
@@ -0,0 +1,245 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class RetryingApiRequestExecutorTest {
+    private static final long INITIAL_BACKOFF_MILLIS = 100L;
+    private static final long MAX_BACKOFF_MILLIS = 1000L;
+
+    private static final ApiRequest.Options OPTIONS =
+            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+
+    @NonNull private final FakeApiRequestExecutor mDelegate = new FakeApiRequestExecutor();
+    @NonNull private final List<Long> mSleeps = new ArrayList<>();
+    @NonNull private final List<String> mCompletedRequests = new ArrayList<>();
+
+    private int mRetryCount;
+    private long mRetryDelayMillis;
+
+    @Test
+    public void execute_withPostAfterConnectionErrors_retriesWithSameIdempotencyKey()
+            throws APIConnectionException, InvalidRequestException {
+        final ApiRequest request = createPost();
+        mDelegate.enqueue(createConnectionException());
+        mDelegate.enqueue(createConnectionException());
+        mDelegate.enqueue(new StripeResponse(200, "{}", null));
+
+        final StripeResponse response = createExecutor(2).execute(request);
+
+        assertEquals(200, response.getResponseCode());
+        assertEquals(3, mDelegate.mIdempotencyKeys.size());
+        assertNotNull(mDelegate.mIdempotencyKeys.get(0));
+        assertEquals(Collections.singleton(request.getIdempotencyKey()),
+                new HashSet<>(mDelegate.mIdempotencyKeys));
+
+        // half of the exponential backoff, plus half of the remainder from the fixed jitter
+        assertEquals(2, mSleeps.size());
+        assertEquals(75L, (long) mSleeps.get(0));
+        assertEquals(150L, (long) mSleeps.get(1));
+        assertEquals(2, mRetryCount);
+        assertEquals(225L, mRetryDelayMillis);
+        assertEquals(1, mCompletedRequests.size());
+    }
+
+    @Test
+    public void execute_whenRetriesAreExhausted_throwsLastConnectionError()
+            throws InvalidRequestException {
+        final APIConnectionException lastException = createConnectionException();
+        mDelegate.enqueue(createConnectionException());
+        mDelegate.enqueue(createConnectionException());
+        mDelegate.enqueue(lastException);
+
+        try {
+            createExecutor(2).execute(createPost());
+            fail("Expected an APIConnectionException");
+        } catch (APIConnectionException e) {
+            assertSame(lastException, e);
+        }
+        assertEquals(2, mRetryCount);
+        assertEquals(1, mCompletedRequests.size());
+    }
+
+    @Test
+    public void execute_withDeleteAfterConnectionError_doesNotRetry()
+            throws InvalidRequestException {
+        final ApiRequest request = ApiRequest.createDelete(
+                StripeApiRepository.getDeleteCustomerSourceUrl("cus_123", "src_123"),
+                OPTIONS, null);
+        assertNull(request.getIdempotencyKey());
+        mDelegate.enqueue(createConnectionException());
+
+        try {
+            createExecutor(2).execute(request);
+            fail("Expected an APIConnectionException");
+        } catch (APIConnectionException expected) {
+        }
+        assertEquals(1, mDelegate.mIdempotencyKeys.size());
+        assertEquals(0, mRetryCount);
+        assertEquals(Collections.<Long>emptyList(), mSleeps);
+    }
+
+    @Test
+    public void execute_withRateLimitAndRetryAfter_waitsForRetryAfter()
+            throws APIConnectionException, InvalidRequestException {
+        mDelegate.enqueue(createRateLimitResponse("1"));
+        mDelegate.enqueue(new StripeResponse(200, "{}", null));
+
+        final StripeResponse response = createExecutor(2).execute(ApiRequest.createDelete(
+                StripeApiRepository.getDeleteCustomerSourceUrl("cus_123", "src_123"),
+                OPTIONS, null));
+
+        assertEquals(200, response.getResponseCode());
+        assertEquals(Collections.singletonList(MAX_BACKOFF_MILLIS), mSleeps);
+    }
+
+    @Test
+    public void execute_withRetryAfterLongerThanMaxBackoff_returnsRateLimitResponse()
+            throws APIConnectionException, InvalidRequestException {
+        final StripeResponse rateLimitResponse = createRateLimitResponse("30");
+        mDelegate.enqueue(rateLimitResponse);
+
+        assertSame(rateLimitResponse, createExecutor(2).execute(createPost()));
+        assertEquals(Collections.<Long>emptyList(), mSleeps);
+        assertEquals(0, mRetryCount);
+    }
+
+    @Test
+    public void execute_withRateLimitWithoutRetryAfter_usesBackoff()
+            throws APIConnectionException, InvalidRequestException {
+        mDelegate.enqueue(createRateLimitResponse(null));
+        mDelegate.enqueue(createRateLimitResponse("not a number"));
+        mDelegate.enqueue(createRateLimitResponse(null));
+
+        final StripeResponse response = createExecutor(2).execute(createPost());
+
+        assertEquals(429, response.getResponseCode());
+        assertEquals(2, mSleeps.size());
+        assertEquals(75L, (long) mSleeps.get(0));
+        assertEquals(150L, (long) mSleeps.get(1));
+    }
+
+    @Test
+    public void execute_withErrorResponse_doesNotRetry()
+            throws APIConnectionException, InvalidRequestException {
+        mDelegate.enqueue(new StripeResponse(402, "{}", null));
+
+        assertEquals(402, createExecutor(2).execute(createPost()).getResponseCode());
+        assertEquals(1, mDelegate.mIdempotencyKeys.size());
+        assertEquals(Collections.<Long>emptyList(), mSleeps);
+    }
+
+    @Test
+    public void execute_backoffIsCappedAtMaxBackoff()
+            throws APIConnectionException, InvalidRequestException {
+        for (int i = 0; i < 6; i++) {
+            mDelegate.enqueue(createConnectionException());
+        }
+        mDelegate.enqueue(new StripeResponse(200, "{}", null));
+
+        createExecutor(6).execute(createPost());
+
+        assertEquals(6, mSleeps.size());
+        assertEquals(750L, (long) mSleeps.get(5));
+    }
+
+    @NonNull
+    private RetryingApiRequestExecutor createExecutor(int maxRetries) {
+        return new RetryingApiRequestExecutor(mDelegate, maxRetries, INITIAL_BACKOFF_MILLIS,
+                MAX_BACKOFF_MILLIS, new FixedRandom(),
+                new RetryingApiRequestExecutor.Sleeper() {
+                    @Override
+                    public void sleep(long millis) {
+                        mSleeps.add(millis);
+                    }
+                },
+                new RetryingApiRequestExecutor.RetryListener() {
+                    @Override
+                    public void onRequestCompleted(@NonNull ApiRequest request, int retryCount,
+                                                   long retryDelayMillis) {
+                        mCompletedRequests.add(request.getBaseUrl());
+                        mRetryCount = retryCount;
+                        mRetryDelayMillis = retryDelayMillis;
+                    }
+                });
+    }
+
+    @NonNull
+    private static ApiRequest createPost() {
+        final Map<String, String> params = new HashMap<>();
+        params.put("type", "card");
+        return ApiRequest.createPost(StripeApiRepository.getPaymentMethodsUrl(), params,
+                OPTIONS, null);
+    }
+
+    @NonNull
+    private static APIConnectionException createConnectionException() {
+        return APIConnectionException.create(ApiRequest.API_HOST,
+                new IOException("Connection reset"));
+    }
+
+    @NonNull
+    private static StripeResponse createRateLimitResponse(@Nullable String retryAfter) {
+        final Map<String, List<String>> headers = new HashMap<>();
+        if (retryAfter != null) {
+            headers.put("retry-after", Collections.singletonList(retryAfter));
+        }
+        return new StripeResponse(429, "{}", headers);
+    }
+
+    /**
+     * Always picks the middle of the jitter range.
+     */
+    private static final class FixedRandom extends Random {
+        @Override
+        public double nextDouble() {
+            return 0.5;
+        }
+    }
+
+    private static final class FakeApiRequestExecutor implements ApiRequestExecutor {
+        @NonNull private final Queue<Object> mResults = new LinkedList<>();
+        @NonNull private final List<String> mIdempotencyKeys = new ArrayList<>();
+
+        private void enqueue(@NonNull Object result) {
+            mResults.add(result);
+        }
+
+        @NonNull
+        @Override
+        public StripeResponse execute(@NonNull ApiRequest request)
+                throws APIConnectionException {
+            mIdempotencyKeys.add(request.getHeaders().get(ApiRequest.HEADER_IDEMPOTENCY_KEY));
+            final Object result = mResults.remove();
+            if (result instanceof APIConnectionException) {
+                throw (APIConnectionException) result;
+            }
+            return (StripeResponse) result;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import com.stripe.android.model.Card;
 import com.stripe.android.model.ConfirmPaymentIntentParams;
 import com.stripe.android.model.PaymentIntent;
 import com.stripe.android.model.PaymentMethod;
+import com.stripe.android.model.PaymentMethodsPage;
 import com.stripe.android.model.Source;
 import com.stripe.android.model.SourceParams;
 
@@ -551,6 +552,55 @@ public class StripeApiRepositoryTest {
         assertTrue(paymentMethods.isEmpty());
     }
 
+    @Test
+    public void getPaymentMethodsPage_withCursor_sendsPaginationParams()
+            throws StripeException, UnsupportedEncodingException {
+        final String responseBody =
+                "{\n" +
+                        "    \"object\": \"list\",\n" +
+                        "    \"data\": [\n" +
+                        "        {\n" +
+                        "            \"id\": \"pm_1EVNYJCRMbs6FrXfG8n52JaK\",\n" +
+                        "            \"object\": \"payment_method\",\n" +
+                        "            \"type\": \"card\"\n" +
+                        "        }\n" +
+                        "    ],\n" +
+                        "    \"has_more\": true,\n" +
+                        "    \"url\": \"/v1/payment_methods\"\n" +
+                        "}";
+        final StripeResponse stripeResponse =
+                new StripeResponse(200, responseBody, null);
+        final Map<String, String> queryParams = new HashMap<>();
+        queryParams.put("customer", "cus_123");
+        queryParams.put("type", PaymentMethod.Type.Card.code);
+        queryParams.put("limit", "1");
+        queryParams.put("starting_after", "pm_123");
+
+        final ApiRequest.Options options = ApiRequest.Options
+                .create(ApiKeyFixtures.FAKE_EPHEMERAL_KEY);
+        final String url = ApiRequest.createGet(
+                StripeApiRepository.getPaymentMethodsUrl(),
+                queryParams,
+                options,
+                null)
+                .getUrl();
+
+        when(mStripeApiRequestExecutor.execute(argThat(
+                new ApiRequestMatcher(
+                        StripeRequest.Method.GET,
+                        url,
+                        options,
+                        queryParams))))
+                .thenReturn(stripeResponse);
+        final PaymentMethodsPage page = create()
+                .getPaymentMethodsPage("cus_123", PaymentMethod.Type.Card.code, 1, "pm_123",
+                        ApiKeyFixtures.DEFAULT_PUBLISHABLE_KEY, new ArrayList<String>(),
+                        ApiRequest.Options.create(ApiKeyFixtures.FAKE_EPHEMERAL_KEY));
+        assertEquals(1, page.paymentMethods.size());
+        assertTrue(page.hasMore);
+        assertEquals("pm_1EVNYJCRMbs6FrXfG8n52JaK", page.getLastId());
+    }
+
     @NonNull
     private StripeApiRepository create() {
         return new StripeApiRepository(
@@ -0,0 +1,92 @@
+package com.stripe.android;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+@RunWith(RobolectricTestRunner.class)
+public class StripeClientCoreTest {
+    private static final int FACADE_COUNT = 5000;
+
+    @NonNull private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Test
+    public void createStripe_forManyAccounts_doesNotStartThreads() {
+        // the first instance creates the core, which may start threads
+        new Stripe(mContext, ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_0");
+        final int threadCount = Thread.getAllStackTraces().size();
+
+        final List<Stripe> facades = new ArrayList<>(FACADE_COUNT);
+        for (int i = 1; i <= FACADE_COUNT; i++) {
+            facades.add(new Stripe(mContext, ApiKeyFixtures.FAKE_PUBLISHABLE_KEY, "acct_" + i));
+        }
+
+        assertEquals(FACADE_COUNT, facades.size());
+        assertEquals(threadCount, Thread.getAllStackTraces().size());
+    }
+
+    @Test
+    public void getStripeRepository_withSameAppInfo_returnsSameRepository() {
+        final StripeClientCore core = createCore();
+        final StripeRepository stripeRepository = core.getStripeRepository(AppInfoTest.APP_INFO);
+        assertSame(stripeRepository, core.getStripeRepository(AppInfoTest.APP_INFO));
+        assertSame(core.getPaymentController(AppInfoTest.APP_INFO),
+                core.getPaymentController(AppInfoTest.APP_INFO));
+    }
+
+    @Test
+    public void getStripeRepository_withDifferentAppInfo_createsRepository() {
+        final StripeClientCore core = createCore();
+        final StripeRepository stripeRepository = core.getStripeRepository(null);
+        final PaymentController paymentController = core.getPaymentController(null);
+
+        assertNotSame(stripeRepository, core.getStripeRepository(AppInfoTest.APP_INFO));
+        assertNotSame(paymentController, core.getPaymentController(AppInfoTest.APP_INFO));
+    }
+
+    @Test
+    public void getPaymentController_withAlternatingAppInfo_keepsControllerOfEachAppInfo() {
+        final StripeClientCore core = createCore();
+        final StripeRepository stripeRepository = core.getStripeRepository(null);
+        final PaymentController paymentController = core.getPaymentController(null);
+        final PaymentController appInfoPaymentController =
+                core.getPaymentController(AppInfoTest.APP_INFO);
+
+        assertSame(stripeRepository, core.getStripeRepository(null));
+        assertSame(paymentController, core.getPaymentController(null));
+        assertSame(appInfoPaymentController, core.getPaymentController(AppInfoTest.APP_INFO));
+    }
+
+    @Test
+    public void getComponents_returnsRepositoryAndControllerForSameAppInfo() {
+        final StripeClientCore core = createCore();
+        final StripeClientCore.Components components = core.getComponents(AppInfoTest.APP_INFO);
+        assertSame(components.stripeRepository, core.getStripeRepository(AppInfoTest.APP_INFO));
+        assertSame(components.paymentController,
+                core.getPaymentController(AppInfoTest.APP_INFO));
+    }
+
+    @Test
+    public void getInstance_returnsSameCore() {
+        assertSame(StripeClientCore.getInstance(mContext),
+                StripeClientCore.getInstance(mContext));
+    }
+
+    @NonNull
+    private StripeClientCore createCore() {
+        return new StripeClientCore(mContext, mock(ApiRequestExecutor.class));
+    }
+}
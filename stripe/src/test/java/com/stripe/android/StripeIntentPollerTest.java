@@ -0,0 +1,254 @@
+package com.stripe.android;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.exception.APIConnectionException;
+import com.stripe.android.exception.AuthenticationException;
+import com.stripe.android.model.PaymentIntent;
+import com.stripe.android.model.StripeIntent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StripeIntentPollerTest {
+    private static final String CLIENT_SECRET = "pi_123_secret_456";
+
+    private static final StripeIntentPollerConfig CONFIG = new StripeIntentPollerConfig.Builder()
+            .setInitialIntervalMillis(1000L)
+            .setMaxIntervalMillis(2000L)
+            .setBackoffMultiplier(2)
+            .setTimeoutMillis(10000L)
+            .build();
+
+    @NonNull private final FakeStripeRepository mStripeRepository = new FakeStripeRepository();
+    private long mNow;
+    private StripeIntentPoller mPoller;
+
+    @Before
+    public void setup() {
+        ShadowLooper.pauseMainLooper();
+        mPoller = createPoller(CONFIG);
+    }
+
+    @Test
+    public void watch_untilSucceeded_reportsTransitionsAndBacksOff() {
+        mStripeRepository.enqueue(createPaymentIntent("processing"));
+        mStripeRepository.enqueue(createPaymentIntent("processing"));
+        mStripeRepository.enqueue(createPaymentIntent("processing"));
+        mStripeRepository.enqueue(createPaymentIntent("succeeded"));
+        final RecordingListener listener = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener);
+        assertEquals(1, mStripeRepository.mRetrieveCount);
+
+        advance(999L);
+        assertEquals(1, mStripeRepository.mRetrieveCount);
+        advance(1L);
+        assertEquals(2, mStripeRepository.mRetrieveCount);
+
+        // the status did not change, so the interval doubled
+        advance(1999L);
+        assertEquals(2, mStripeRepository.mRetrieveCount);
+        advance(1L);
+        assertEquals(3, mStripeRepository.mRetrieveCount);
+
+        // capped at the max interval
+        advance(2000L);
+        assertEquals(4, mStripeRepository.mRetrieveCount);
+
+        assertEquals(Arrays.asList("changed:processing", "changed:succeeded",
+                "completed:succeeded"), listener.mEvents);
+        assertEquals(0, mPoller.getWatchCount());
+    }
+
+    @Test
+    public void watch_withSameClientSecret_sharesRetrievals() {
+        mStripeRepository.enqueue(createPaymentIntent("processing"));
+        mStripeRepository.enqueue(createPaymentIntent("succeeded"));
+        final RecordingListener listener1 = new RecordingListener();
+        final RecordingListener listener2 = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener1);
+        mPoller.watch(CLIENT_SECRET, listener2);
+        assertEquals(1, mStripeRepository.mRetrieveCount);
+        assertEquals(Arrays.asList("changed:processing"), listener2.mEvents);
+
+        advance(1000L);
+        assertEquals(2, mStripeRepository.mRetrieveCount);
+        assertEquals(listener1.mEvents, listener2.mEvents);
+        assertEquals("completed:succeeded", listener2.mEvents.get(2));
+    }
+
+    @Test
+    public void watch_whenStatusNeverChanges_timesOut() {
+        for (int i = 0; i < 10; i++) {
+            mStripeRepository.enqueue(createPaymentIntent("processing"));
+        }
+        final RecordingListener listener = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener);
+        advance(9999L);
+        assertEquals(Arrays.asList("changed:processing"), listener.mEvents);
+        advance(1L);
+
+        assertEquals(Arrays.asList("changed:processing", "timeout:processing"),
+                listener.mEvents);
+        assertEquals(0, mPoller.getWatchCount());
+        final int retrieveCount = mStripeRepository.mRetrieveCount;
+        advance(10000L);
+        assertEquals(retrieveCount, mStripeRepository.mRetrieveCount);
+    }
+
+    @Test
+    public void watch_afterConnectionError_retries() {
+        mStripeRepository.enqueue(APIConnectionException.create(ApiRequest.API_HOST,
+                new IOException("Connection reset")));
+        mStripeRepository.enqueue(createPaymentIntent("requires_payment_method"));
+        final RecordingListener listener = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener);
+        assertTrue(listener.mEvents.isEmpty());
+        advance(1000L);
+
+        assertEquals(Arrays.asList("changed:requires_payment_method",
+                "completed:requires_payment_method"), listener.mEvents);
+    }
+
+    @Test
+    public void watch_afterAuthenticationError_stops() {
+        final AuthenticationException exception =
+                new AuthenticationException("Invalid API Key provided", null, null);
+        mStripeRepository.enqueue(exception);
+        final RecordingListener listener = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener);
+
+        assertSame(exception, listener.mError);
+        assertEquals(0, mPoller.getWatchCount());
+    }
+
+    @Test
+    public void cancel_whenLastSubscription_stopsRetrievals() {
+        mStripeRepository.enqueue(createPaymentIntent("processing"));
+        final RecordingListener listener = new RecordingListener();
+
+        mPoller.watch(CLIENT_SECRET, listener).cancel();
+        advance(10000L);
+
+        assertEquals(1, mStripeRepository.mRetrieveCount);
+        assertEquals(0, mPoller.getWatchCount());
+    }
+
+    @Test
+    public void isFinal_onlyKeepsWatchingChangingStatuses() {
+        assertFalse(StripeIntentPoller.isFinal(StripeIntent.Status.Processing));
+        assertFalse(StripeIntentPoller.isFinal(StripeIntent.Status.RequiresAction));
+        assertFalse(StripeIntentPoller.isFinal(null));
+        assertTrue(StripeIntentPoller.isFinal(StripeIntent.Status.Succeeded));
+        assertTrue(StripeIntentPoller.isFinal(StripeIntent.Status.Canceled));
+        assertTrue(StripeIntentPoller.isFinal(StripeIntent.Status.RequiresCapture));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void watch_withInvalidClientSecret_throws() {
+        mPoller.watch("src_123_secret_456", new RecordingListener());
+    }
+
+    @NonNull
+    private StripeIntentPoller createPoller(@NonNull StripeIntentPollerConfig config) {
+        return new StripeIntentPoller(mStripeRepository,
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY), config,
+                new StripeTaskEngine(new ImmediateExecutor(), new ImmediateExecutor()),
+                new Handler(Looper.getMainLooper()),
+                new Supplier<Long>() {
+                    @NonNull
+                    @Override
+                    public Long get() {
+                        return mNow;
+                    }
+                });
+    }
+
+    private void advance(long millis) {
+        mNow += millis;
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @NonNull
+    private static PaymentIntent createPaymentIntent(@NonNull String status) {
+        return Objects.requireNonNull(PaymentIntent.fromString(
+                "{\"id\": \"pi_123\", \"object\": \"payment_intent\", " +
+                        "\"client_secret\": \"" + CLIENT_SECRET + "\", " +
+                        "\"status\": \"" + status + "\"}"));
+    }
+
+    private static final class RecordingListener implements StripeIntentPoller.Listener {
+        @NonNull private final List<String> mEvents = new ArrayList<>();
+        @Nullable private Exception mError;
+
+        @Override
+        public void onStatusChanged(@NonNull StripeIntent intent) {
+            mEvents.add("changed:" + intent.getStatus());
+        }
+
+        @Override
+        public void onCompleted(@NonNull StripeIntent intent) {
+            mEvents.add("completed:" + intent.getStatus());
+        }
+
+        @Override
+        public void onTimeout(@Nullable StripeIntent lastIntent) {
+            mEvents.add("timeout:" + (lastIntent != null ? lastIntent.getStatus() : null));
+        }
+
+        @Override
+        public void onError(@NonNull Exception e) {
+            mError = e;
+        }
+    }
+
+    private static final class FakeStripeRepository extends AbsFakeStripeRepository {
+        @NonNull private final Queue<Object> mResults = new LinkedList<>();
+        private int mRetrieveCount;
+
+        private void enqueue(@NonNull Object result) {
+            mResults.add(result);
+        }
+
+        @Nullable
+        @Override
+        public PaymentIntent retrievePaymentIntent(@NonNull String clientSecret,
+                                                   @NonNull ApiRequest.Options options)
+                throws APIConnectionException, AuthenticationException {
+            mRetrieveCount++;
+            final Object result = mResults.remove();
+            if (result instanceof APIConnectionException) {
+                throw (APIConnectionException) result;
+            } else if (result instanceof AuthenticationException) {
+                throw (AuthenticationException) result;
+            }
+            return (PaymentIntent) result;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.stripe.android.model.PaymentIntent;
+import com.stripe.android.model.PaymentIntentFixtures;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class StripeTaskEngineTest {
+
+    @Test
+    public void execute_whenWorkersAreBusy_shouldRunQueuedOperationsInPriorityOrder()
+            throws InterruptedException {
+        final StripeTaskEngine taskEngine = new StripeTaskEngine(1, new ImmediateExecutor());
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlocker = new CountDownLatch(1);
+        final CountDownLatch allDone = new CountDownLatch(4);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        taskEngine.execute(new FakeOperation(StripeTaskEngine.Priority.LOW, "blocker",
+                order, allDone) {
+            @Nullable
+            @Override
+            String getResult() {
+                blockerStarted.countDown();
+                try {
+                    releaseBlocker.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getResult();
+            }
+        });
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        taskEngine.execute(
+                new FakeOperation(StripeTaskEngine.Priority.LOW, "low", order, allDone));
+        taskEngine.execute(
+                new FakeOperation(StripeTaskEngine.Priority.NORMAL, "normal", order, allDone));
+        taskEngine.execute(
+                new FakeOperation(StripeTaskEngine.Priority.HIGH, "high", order, allDone));
+        releaseBlocker.countDown();
+
+        assertTrue(allDone.await(5, TimeUnit.SECONDS));
+        assertEquals(
+                Arrays.asList("blocker", "high", "normal", "low"),
+                order
+        );
+    }
+
+    @Test
+    public void executeInBackground_shouldRunAfterOperationsWithoutPostingToMainThread()
+            throws InterruptedException {
+        final AtomicInteger mainThreadPostCount = new AtomicInteger();
+        final StripeTaskEngine taskEngine = new StripeTaskEngine(1, new Executor() {
+            @Override
+            public void execute(@NonNull Runnable runnable) {
+                mainThreadPostCount.incrementAndGet();
+                runnable.run();
+            }
+        });
+        final CountDownLatch blockerStarted = new CountDownLatch(1);
+        final CountDownLatch releaseBlocker = new CountDownLatch(1);
+        final CountDownLatch allDone = new CountDownLatch(3);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        taskEngine.execute(new FakeOperation(StripeTaskEngine.Priority.HIGH, "blocker",
+                order, allDone) {
+            @Nullable
+            @Override
+            String getResult() {
+                blockerStarted.countDown();
+                try {
+                    releaseBlocker.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getResult();
+            }
+        });
+        assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+        taskEngine.executeInBackground(new Runnable() {
+            @Override
+            public void run() {
+                order.add("background");
+                allDone.countDown();
+            }
+        });
+        taskEngine.execute(
+                new FakeOperation(StripeTaskEngine.Priority.NORMAL, "normal", order, allDone));
+        releaseBlocker.countDown();
+
+        assertTrue(allDone.await(5, TimeUnit.SECONDS));
+        assertEquals(
+                Arrays.asList("blocker", "normal", "background"),
+                order
+        );
+        assertEquals(2, mainThreadPostCount.get());
+    }
+
+    @Test
+    public void cancel_beforeOperationRuns_shouldNotRunOrDeliver() {
+        final List<Runnable> queuedWork = new ArrayList<>();
+        final StripeTaskEngine taskEngine = new StripeTaskEngine(
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        queuedWork.add(runnable);
+                    }
+                },
+                new ImmediateExecutor()
+        );
+        final List<String> order = new ArrayList<>();
+        final FakeOperation operation = new FakeOperation(StripeTaskEngine.Priority.NORMAL,
+                "cancelled", order, new CountDownLatch(1));
+
+        final Cancellable cancellable = taskEngine.execute(operation);
+        cancellable.cancel();
+        assertTrue(cancellable.isCancelled());
+
+        queuedWork.get(0).run();
+        assertEquals(0, operation.mRunCount.get());
+        assertTrue(order.isEmpty());
+    }
+
+    @Test
+    public void cancel_afterOperationRuns_shouldNotDeliver() {
+        final List<Runnable> mainThreadWork = new ArrayList<>();
+        final StripeTaskEngine taskEngine = new StripeTaskEngine(
+                new ImmediateExecutor(),
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        mainThreadWork.add(runnable);
+                    }
+                }
+        );
+        final List<String> order = new ArrayList<>();
+        final FakeOperation operation = new FakeOperation(StripeTaskEngine.Priority.NORMAL,
+                "cancelled", order, new CountDownLatch(1));
+
+        final Cancellable cancellable = taskEngine.execute(operation);
+        assertEquals(1, operation.mRunCount.get());
+        cancellable.cancel();
+
+        mainThreadWork.get(0).run();
+        assertTrue(order.isEmpty());
+    }
+
+    @Test
+    public void execute_withCustomExecutor_shouldRunOnThatExecutor() {
+        final AtomicInteger executed = new AtomicInteger();
+        final StripeTaskEngine taskEngine =
+                new StripeTaskEngine(1, new ImmediateExecutor());
+        final List<String> order = new ArrayList<>();
+
+        final Cancellable cancellable = taskEngine.execute(
+                new FakeOperation(StripeTaskEngine.Priority.NORMAL, "custom", order,
+                        new CountDownLatch(1)),
+                new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable runnable) {
+                        executed.incrementAndGet();
+                        runnable.run();
+                    }
+                });
+
+        assertFalse(cancellable.isCancelled());
+        assertEquals(1, executed.get());
+        assertEquals(Collections.singletonList("custom"), order);
+    }
+
+    @Test
+    public void execute_withManyConcurrentOperations_shouldDeliverEachResultOnce()
+            throws InterruptedException {
+        final int poolSize = 4;
+        final int operationCount = 500;
+        final StripeTaskEngine taskEngine =
+                new StripeTaskEngine(poolSize, new ImmediateExecutor());
+        final ConcurrencyTrackingStripeRepository stripeRepository =
+                new ConcurrencyTrackingStripeRepository();
+        final CountDownLatch allDone = new CountDownLatch(operationCount);
+        final ConcurrentHashMap<Integer, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+        final AtomicInteger errorCount = new AtomicInteger();
+        final StripeTaskEngine.Priority[] priorities = StripeTaskEngine.Priority.values();
+
+        for (int i = 0; i < operationCount; i++) {
+            final AtomicInteger deliveryCount = new AtomicInteger();
+            deliveries.put(i, deliveryCount);
+            taskEngine.execute(new ApiOperation<PaymentIntent>(
+                    priorities[i % priorities.length],
+                    new ApiResultCallback<PaymentIntent>() {
+                        @Override
+                        public void onSuccess(@NonNull PaymentIntent result) {
+                            deliveryCount.incrementAndGet();
+                            allDone.countDown();
+                        }
+
+                        @Override
+                        public void onError(@NonNull Exception e) {
+                            errorCount.incrementAndGet();
+                            allDone.countDown();
+                        }
+                    }) {
+                @Nullable
+                @Override
+                PaymentIntent getResult() {
+                    return stripeRepository.retrievePaymentIntent("client_secret",
+                            ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+                }
+            });
+        }
+
+        assertTrue(allDone.await(30, TimeUnit.SECONDS));
+        assertEquals(0, errorCount.get());
+        for (AtomicInteger deliveryCount : deliveries.values()) {
+            assertEquals(1, deliveryCount.get());
+        }
+        assertEquals(operationCount, stripeRepository.mCallCount.get());
+        assertTrue(stripeRepository.mMaxConcurrentCalls.get() <= poolSize);
+    }
+
+    private static class FakeOperation extends ApiOperation<String> {
+        @NonNull private final String mName;
+        @NonNull final AtomicInteger mRunCount = new AtomicInteger();
+
+        FakeOperation(@NonNull StripeTaskEngine.Priority priority,
+                      @NonNull final String name,
+                      @NonNull final List<String> order,
+                      @NonNull final CountDownLatch latch) {
+            super(priority, new ApiResultCallback<String>() {
+                @Override
+                public void onSuccess(@NonNull String result) {
+                    order.add(result);
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(@NonNull Exception e) {
+                    latch.countDown();
+                }
+            });
+            mName = name;
+        }
+
+        @Nullable
+        @Override
+        String getResult() {
+            mRunCount.incrementAndGet();
+            return mName;
+        }
+    }
+
+    private static final class ConcurrencyTrackingStripeRepository
+            extends AbsFakeStripeRepository {
+        @NonNull private final AtomicInteger mActiveCalls = new AtomicInteger();
+        @NonNull private final AtomicInteger mMaxConcurrentCalls = new AtomicInteger();
+        @NonNull private final AtomicInteger mCallCount = new AtomicInteger();
+
+        @NonNull
+        @Override
+        public PaymentIntent retrievePaymentIntent(@NonNull String clientSecret,
+                                                   @NonNull ApiRequest.Options options) {
+            final int active = mActiveCalls.incrementAndGet();
+            int max;
+            do {
+                max = mMaxConcurrentCalls.get();
+            } while (active > max && !mMaxConcurrentCalls.compareAndSet(max, active));
+
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            mCallCount.incrementAndGet();
+            mActiveCalls.decrementAndGet();
+            return PaymentIntentFixtures.PI_REQUIRES_MASTERCARD_3DS2;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import androidx.test.core.app.ApplicationProvider;
 
 import com.stripe.android.exception.AuthenticationException;
 import com.stripe.android.exception.CardException;
+import com.stripe.android.exception.InvalidRequestException;
 import com.stripe.android.exception.StripeException;
 import com.stripe.android.model.AccountParams;
 import com.stripe.android.model.Address;
@@ -22,6 +23,7 @@ import com.stripe.android.model.SourceParams;
 import com.stripe.android.model.SourceSepaDebitData;
 import com.stripe.android.model.Token;
 import com.stripe.android.testharness.JsonTestUtils;
+import com.stripe.android.testharness.QueuedExecutor;
 import com.stripe.android.view.CardInputTestActivity;
 
 import org.junit.Before;
@@ -34,6 +36,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
@@ -45,11 +48,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 /**
  * Run integration tests on Stripe. Fires real API requests but does not make logging requests.
@@ -231,13 +236,15 @@ public class StripeTest {
         final boolean[] tokenCreatorCalled = { false };
         final Stripe stripe = createStripe(
                 new Stripe.TokenCreator() {
+                    @NonNull
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull ApiResultCallback<Token> callback) {
+                    public Cancellable create(@NonNull Map<String, Object> tokenParams,
+                                              @NonNull ApiRequest.Options requestOptions,
+                                              @NonNull @Token.TokenType String tokenType,
+                                              @Nullable Executor executor,
+                                              @NonNull ApiResultCallback<Token> callback) {
                         tokenCreatorCalled[0] = true;
+                        return mock(Cancellable.class);
                     }
                 });
         stripe.createToken(CARD, DEFAULT_TOKEN_CALLBACK);
@@ -253,15 +260,17 @@ public class StripeTest {
         };
         final Stripe stripe = createStripe(
                 new Stripe.TokenCreator() {
+                    @NonNull
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull ApiResultCallback<Token> callback) {
+                    public Cancellable create(@NonNull Map<String, Object> tokenParams,
+                                              @NonNull ApiRequest.Options requestOptions,
+                                              @NonNull @Token.TokenType String tokenType,
+                                              @Nullable Executor executor,
+                                              @NonNull ApiResultCallback<Token> callback) {
                         assertEquals(expectedExecutor, executor);
                         assertEquals(NON_LOGGING_PK, requestOptions.apiKey);
                         assertEquals(DEFAULT_TOKEN_CALLBACK, callback);
+                        return mock(Cancellable.class);
                     }
                 });
         stripe.createToken(CARD, expectedExecutor, DEFAULT_TOKEN_CALLBACK);
@@ -271,15 +280,17 @@ public class StripeTest {
     public void createTokenShouldUseProvidedKey() {
         final Stripe stripe = createStripe(
                 new Stripe.TokenCreator() {
+                    @NonNull
                     @Override
-                    public void create(@NonNull Map<String, Object> tokenParams,
-                                       @NonNull ApiRequest.Options requestOptions,
-                                       @NonNull @Token.TokenType String tokenType,
-                                       @Nullable Executor executor,
-                                       @NonNull ApiResultCallback<Token> callback) {
+                    public Cancellable create(@NonNull Map<String, Object> tokenParams,
+                                              @NonNull ApiRequest.Options requestOptions,
+                                              @NonNull @Token.TokenType String tokenType,
+                                              @Nullable Executor executor,
+                                              @NonNull ApiResultCallback<Token> callback) {
                         assertEquals(NON_LOGGING_PK, requestOptions.apiKey);
                         assertNull(executor);
                         assertEquals(DEFAULT_TOKEN_CALLBACK, callback);
+                        return mock(Cancellable.class);
                     }
                 });
         stripe.createToken(CARD, DEFAULT_TOKEN_CALLBACK);
@@ -406,6 +417,41 @@ public class StripeTest {
                 });
     }
 
+    @Test
+    public void createSource_whenCancelled_shouldNotRunNorCallCallback() {
+        final QueuedExecutor executor = new QueuedExecutor();
+        @SuppressWarnings("unchecked")
+        final ApiResultCallback<Source> callback = mock(ApiResultCallback.class);
+        final Cancellable cancellable = createStripe().createSourceCancellable(
+                CARD_SOURCE_PARAMS, callback, NON_LOGGING_PK, executor);
+        assertFalse(cancellable.isCancelled());
+
+        cancellable.cancel();
+        executor.runAll();
+
+        assertTrue(cancellable.isCancelled());
+        verifyNoMoreInteractions(callback);
+    }
+
+    @Test
+    public void createTokenCancellableShouldReturnCancellableOfTokenCreator() {
+        final Cancellable expectedCancellable = mock(Cancellable.class);
+        final Stripe stripe = createStripe(
+                new Stripe.TokenCreator() {
+                    @NonNull
+                    @Override
+                    public Cancellable create(@NonNull Map<String, Object> tokenParams,
+                                              @NonNull ApiRequest.Options requestOptions,
+                                              @NonNull @Token.TokenType String tokenType,
+                                              @Nullable Executor executor,
+                                              @NonNull ApiResultCallback<Token> callback) {
+                        return expectedCancellable;
+                    }
+                });
+        assertSame(expectedCancellable,
+                stripe.createTokenCancellable(CARD, DEFAULT_TOKEN_CALLBACK));
+    }
+
     @Test
     public void createCvcUpdateToken() {
         createStripe().createCvcUpdateToken("123",
@@ -1207,6 +1253,28 @@ public class StripeTest {
         assertEquals(expectedCard, createdPaymentMethod.card);
     }
 
+    @Test
+    public void createPaymentMethodsSynchronous_withCards_returnsResultsInOrder() {
+        final PaymentMethodCreateParams invalidParams = PaymentMethodCreateParams.create(
+                PaymentMethodCreateParams.Card.create("tok_invalid"), null);
+        final List<BatchResult<PaymentMethod>> results =
+                createStripe().createPaymentMethodsSynchronous(Arrays.asList(
+                        PaymentMethodCreateParamsFixtures.DEFAULT,
+                        invalidParams,
+                        PaymentMethodCreateParamsFixtures.DEFAULT
+                ));
+
+        assertEquals(3, results.size());
+        for (int i : new int[] { 0, 2 }) {
+            final PaymentMethod paymentMethod = results.get(i).getResult();
+            assertNotNull(paymentMethod);
+            assertEquals(PaymentMethodCreateParamsFixtures.BILLING_DETAILS,
+                    paymentMethod.billingDetails);
+        }
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(1).getError() instanceof InvalidRequestException);
+    }
+
     @Test
     public void createPaymentMethod_withCardToken()
             throws StripeException {
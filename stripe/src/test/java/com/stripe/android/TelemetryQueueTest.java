@@ -0,0 +1,122 @@
+package com.stripe.android;
+
+import android.support.annotation.NonNull;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.exception.InvalidRequestException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class TelemetryQueueTest {
+    private File mFile;
+
+    @Before
+    public void setup() {
+        mFile = new File(ApplicationProvider.getApplicationContext().getCacheDir(),
+                "telemetry_queue_test");
+        assertTrue(!mFile.exists() || mFile.delete());
+    }
+
+    @Test
+    public void add_whenFull_shouldDropOldest()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final TelemetryQueue queue = new TelemetryQueue(mFile, 2);
+        queue.add(createAnalyticsRequest("event_1"));
+        queue.add(createAnalyticsRequest("event_2"));
+        queue.add(createAnalyticsRequest("event_3"));
+
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(createAnalyticsRequest("event_2"), queue.peek());
+    }
+
+    @Test
+    public void add_withIdenticalFingerprintRequest_shouldCoalesce()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final TelemetryQueue queue = new TelemetryQueue(mFile, 10);
+        assertTrue(queue.add(createFingerprintRequest()));
+        assertFalse(queue.add(createFingerprintRequest()));
+        assertEquals(1, queue.size());
+
+        queue.remove();
+        assertTrue(queue.add(createFingerprintRequest()));
+    }
+
+    @Test
+    public void queue_shouldBeRestoredFromFile()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final TelemetryQueue queue = new TelemetryQueue(mFile, 10);
+        queue.add(createAnalyticsRequest("event_1"));
+        queue.add(createFingerprintRequest());
+        queue.add(createAnalyticsRequest("event_2"));
+        queue.remove();
+        queue.persist();
+
+        final TelemetryQueue restoredQueue = new TelemetryQueue(mFile, 10);
+        assertEquals(2, restoredQueue.size());
+        assertEquals(createFingerprintRequest(), restoredQueue.peek());
+        assertFalse(restoredQueue.add(createFingerprintRequest()));
+
+        restoredQueue.remove();
+        assertEquals(createAnalyticsRequest("event_2"), restoredQueue.peek());
+    }
+
+    @Test
+    public void add_shouldNotPersistCredentials()
+            throws IOException, InvalidRequestException {
+        final TelemetryQueue queue = new TelemetryQueue(mFile, 10);
+        queue.add(QueuedRequest.create(AnalyticsRequest.create(
+                Collections.<String, Object>singletonMap("event", "event_1"),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY,
+                        "acct_123"))));
+
+        final String contents = new String(Files.readAllBytes(mFile.toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(contents.contains("event_1"));
+        assertFalse(contents.contains(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY));
+        assertFalse(contents.contains("acct_123"));
+    }
+
+    @Test
+    public void persist_whenEmpty_shouldDeleteFile()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        final TelemetryQueue queue = new TelemetryQueue(mFile, 10);
+        queue.add(createAnalyticsRequest("event"));
+        assertTrue(mFile.exists());
+
+        queue.remove();
+        queue.persist();
+        assertFalse(mFile.exists());
+    }
+
+    @NonNull
+    private static QueuedRequest createAnalyticsRequest(@NonNull String event)
+            throws UnsupportedEncodingException, InvalidRequestException {
+        return QueuedRequest.create(AnalyticsRequest.create(
+                Collections.<String, Object>singletonMap("event", event),
+                ApiRequest.Options.create(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY)));
+    }
+
+    @NonNull
+    private static QueuedRequest createFingerprintRequest()
+            throws UnsupportedEncodingException, InvalidRequestException {
+        return QueuedRequest.create(new FingerprintRequest(
+                Collections.<String, Object>singletonMap("v2", 1), "guid"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.stripe.android.model;
+
+import org.junit.Test;
+import org.junit.function.ThrowingRunnable;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(RobolectricTestRunner.class)
+public class DirectoryServerCertificateCacheTest {
+
+    @Test
+    public void get_withSameCertificateData_parsesOnce() throws CertificateException {
+        final DirectoryServerCertificateCache certificateCache =
+                new DirectoryServerCertificateCache();
+        final X509Certificate certificate =
+                certificateCache.get(Stripe3ds2FingerprintTest.DS_CERT_DATA_RSA);
+
+        // an equal String that isn't the same instance, as when parsed from another response
+        assertSame(certificate, certificateCache.get(
+                new String(Stripe3ds2FingerprintTest.DS_CERT_DATA_RSA.toCharArray())));
+        assertEquals(Stripe3ds2FingerprintTest.DS_RSA_PUBLIC_KEY, certificate.getPublicKey());
+        assertEquals(1, certificateCache.getMissCount());
+        assertEquals(1, certificateCache.getHitCount());
+    }
+
+    @Test
+    public void get_withInvalidCertificateData_throwsAndDoesNotCache() {
+        final DirectoryServerCertificateCache certificateCache =
+                new DirectoryServerCertificateCache();
+        final ThrowingRunnable getInvalidCertificate = new ThrowingRunnable() {
+            @Override
+            public void run() throws CertificateException {
+                certificateCache.get("not a certificate");
+            }
+        };
+
+        assertThrows(CertificateException.class, getInvalidCertificate);
+        assertThrows(CertificateException.class, getInvalidCertificate);
+        assertEquals(2, certificateCache.getMissCount());
+    }
+}
@@ -0,0 +1,154 @@
+package com.stripe.android.model;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class PaymentMethodJsonParserTest {
+    private static final String PM_FPX_JSON = "{\n" +
+            "\t\"id\": \"pm_1F5GlnH8dsfnfKo3gtixzcq0\",\n" +
+            "\t\"object\": \"payment_method\",\n" +
+            "\t\"billing_details\": {\n" +
+            "\t\t\"address\": {\n" +
+            "\t\t\t\"city\": \"San Francisco\",\n" +
+            "\t\t\t\"country\": \"USA\",\n" +
+            "\t\t\t\"line1\": \"510 Townsend St\",\n" +
+            "\t\t\t\"line2\": null,\n" +
+            "\t\t\t\"postal_code\": \"94103\",\n" +
+            "\t\t\t\"state\": \"CA\"\n" +
+            "\t\t},\n" +
+            "\t\t\"email\": \"patrick@example.com\",\n" +
+            "\t\t\"name\": null,\n" +
+            "\t\t\"phone\": \"123-456-7890\"\n" +
+            "\t},\n" +
+            "\t\"created\": 1565290527,\n" +
+            "\t\"customer\": null,\n" +
+            "\t\"fpx\": {\n" +
+            "\t\t\"account_holder_type\": \"individual\",\n" +
+            "\t\t\"bank\": \"hsbc\"\n" +
+            "\t},\n" +
+            "\t\"livemode\": true,\n" +
+            "\t\"metadata\": {},\n" +
+            "\t\"type\": \"fpx\"\n" +
+            "}";
+
+    private static final String PM_CARD_WITH_WALLET_JSON = "{\n" +
+            "\t\"id\": \"pm_123\",\n" +
+            "\t\"card\": {\n" +
+            "\t\t\"brand\": \"visa\",\n" +
+            "\t\t\"checks\": {\n" +
+            "\t\t\t\"address_line1_check\": null,\n" +
+            "\t\t\t\"address_postal_code_check\": \"pass\",\n" +
+            "\t\t\t\"cvc_check\": \"pass\"\n" +
+            "\t\t},\n" +
+            "\t\t\"exp_month\": 12,\n" +
+            "\t\t\"exp_year\": 2030,\n" +
+            "\t\t\"last4\": \"4242\",\n" +
+            "\t\t\"three_d_secure_usage\": {\n" +
+            "\t\t\t\"supported\": false\n" +
+            "\t\t},\n" +
+            "\t\t\"wallet\": {\n" +
+            "\t\t\t\"dynamic_last4\": \"1234\",\n" +
+            "\t\t\t\"google_pay\": {},\n" +
+            "\t\t\t\"type\": \"google_pay\"\n" +
+            "\t\t}\n" +
+            "\t},\n" +
+            "\t\"metadata\": {\n" +
+            "\t\t\"order_id\": 123,\n" +
+            "\t\t\"note\": null\n" +
+            "\t},\n" +
+            "\t\"type\": \"card\"\n" +
+            "}";
+
+    @Test
+    public void parse_withCard_shouldMatchFromJson() throws JSONException {
+        assertParsedEqualsFromJson(PaymentMethodTest.PM_CARD_JSON);
+        assertEquals(PaymentMethodFixtures.CARD_PAYMENT_METHOD,
+                PaymentMethodJsonParser.parse(new StringReader(PaymentMethodTest.PM_CARD_JSON)));
+    }
+
+    @Test
+    public void parse_withCardAndWallet_shouldMatchFromJson() throws JSONException {
+        assertParsedEqualsFromJson(PM_CARD_WITH_WALLET_JSON);
+    }
+
+    @Test
+    public void parse_withFpxAndNullFields_shouldMatchFromJson() throws JSONException {
+        assertParsedEqualsFromJson(PM_FPX_JSON);
+    }
+
+    @Test
+    public void parse_withMalformedJson_shouldReturnNull() {
+        assertNull(PaymentMethodJsonParser.parse(new StringReader("{\"id\": ")));
+        assertNull(PaymentMethodJsonParser.parse(new StringReader("[]")));
+    }
+
+    @Test
+    public void parseList_shouldReturnPaymentMethodsInData() throws JSONException {
+        final String listJson = "{\n" +
+                "\t\"object\": \"list\",\n" +
+                "\t\"data\": [" + PaymentMethodTest.PM_CARD_JSON + ", " + PM_FPX_JSON + "],\n" +
+                "\t\"has_more\": false,\n" +
+                "\t\"url\": \"/v1/payment_methods\"\n" +
+                "}";
+
+        final List<PaymentMethod> paymentMethods =
+                PaymentMethodJsonParser.parseList(new StringReader(listJson));
+        assertEquals(2, paymentMethods.size());
+        assertEquals(PaymentMethod.fromJson(new JSONObject(PaymentMethodTest.PM_CARD_JSON)),
+                paymentMethods.get(0));
+        assertEquals(PaymentMethod.fromJson(new JSONObject(PM_FPX_JSON)),
+                paymentMethods.get(1));
+    }
+
+    @Test
+    public void parseList_withMalformedJson_shouldReturnEmptyList() {
+        assertTrue(PaymentMethodJsonParser.parseList(new StringReader("{\"data\": [")).isEmpty());
+        assertTrue(PaymentMethodJsonParser.parseList(new StringReader("{}")).isEmpty());
+    }
+
+    @Test
+    public void parsePage_withHasMore_shouldReturnCursor() {
+        final String listJson = "{\n" +
+                "\t\"object\": \"list\",\n" +
+                "\t\"has_more\": true,\n" +
+                "\t\"data\": [" + PaymentMethodTest.PM_CARD_JSON + "],\n" +
+                "\t\"url\": \"/v1/payment_methods\"\n" +
+                "}";
+
+        final PaymentMethodsPage page =
+                PaymentMethodJsonParser.parsePage(new StringReader(listJson));
+        assertEquals(1, page.paymentMethods.size());
+        assertTrue(page.hasMore);
+        assertEquals(page.paymentMethods.get(0).id, page.getLastId());
+    }
+
+    @Test
+    public void parsePage_withHasMoreAndEmptyData_shouldNotHaveMore() {
+        final PaymentMethodsPage page = PaymentMethodJsonParser.parsePage(
+                new StringReader("{\"has_more\": true, \"data\": []}"));
+        assertTrue(page.paymentMethods.isEmpty());
+        assertFalse(page.hasMore);
+        assertNull(page.getLastId());
+    }
+
+    private static void assertParsedEqualsFromJson(String json) throws JSONException {
+        final PaymentMethod expected = PaymentMethod.fromJson(new JSONObject(json));
+        final PaymentMethod actual = PaymentMethodJsonParser.parse(new StringReader(json));
+        assertEquals(expected, actual);
+        assertEquals(expected.metadata, actual.metadata);
+        assertEquals(expected.card != null ? expected.card.wallet : null,
+                actual.card != null ? actual.card.wallet : null);
+    }
+}
@@ -16,6 +16,7 @@ import java.util.Objects;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 
 @RunWith(RobolectricTestRunner.class)
@@ -100,6 +101,19 @@ public class Stripe3ds2FingerprintTest {
                 stripe3ds2Fingerprint.directoryServerEncryption.keyId);
     }
 
+    @Test
+    public void create_withSameDirectoryServerCertificate_reusesParsedCertificate()
+            throws CertificateException {
+        final PaymentIntent.SdkData sdkData = PaymentIntentFixtures.PI_REQUIRES_AMEX_3DS2
+                .getStripeSdkData();
+        assertNotNull(sdkData);
+
+        final Stripe3ds2Fingerprint first = Stripe3ds2Fingerprint.create(sdkData);
+        final Stripe3ds2Fingerprint second = Stripe3ds2Fingerprint.create(sdkData);
+        assertSame(first.directoryServerEncryption.directoryServerPublicKey,
+                second.directoryServerEncryption.directoryServerPublicKey);
+    }
+
     @Test
     public void create_with3ds1SdkData_shouldThrowException() {
         final PaymentIntent.SdkData sdkData = PaymentIntentFixtures.PI_REQUIRES_3DS1
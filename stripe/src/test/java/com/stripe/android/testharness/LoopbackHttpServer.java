@@ -0,0 +1,258 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A minimal HTTP/1.1 server bound to the loopback interface that answers every request with a
+ * fixed JSON body and keeps connections alive. It counts accepted connections, which is the
+ * number of handshakes a client had to perform, and the number of requests served.
+ *
+ * If an entity tag is set, it is sent as the <code>ETag</code> of the body, and a request with
+ * a matching <code>If-None-Match</code> header is answered with HTTP 304. If gzip is enabled,
+ * the body is compressed for requests that accept it. If keep-alive is disabled, every response
+ * is sent with <code>Connection: close</code> and its connection is closed. A number of requests
+ * can be answered with HTTP 429 before the server starts answering normally.
+ */
+public final class LoopbackHttpServer implements Closeable {
+    @NonNull private final ServerSocket mServerSocket;
+    @NonNull private final byte[] mResponseBody;
+    @NonNull private final AtomicInteger mConnectionCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mRequestCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mNotModifiedCount = new AtomicInteger();
+    @NonNull private final AtomicInteger mRateLimitedRequestCount = new AtomicInteger();
+
+    @Nullable private volatile String mEntityTag;
+    private volatile boolean mIsGzipEnabled;
+    private volatile boolean mIsKeepAliveEnabled = true;
+
+    public LoopbackHttpServer(@NonNull String responseBody) throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        mResponseBody = responseBody.getBytes(StandardCharsets.UTF_8);
+
+        final Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "LoopbackHttpServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * @return the base URL of the server, e.g. <code>http://127.0.0.1:51234</code>
+     */
+    @NonNull
+    public String getUrl() {
+        return String.format(Locale.ROOT, "http://%s:%d",
+                mServerSocket.getInetAddress().getHostAddress(), mServerSocket.getLocalPort());
+    }
+
+    public int getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    public int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * @return the number of requests answered with HTTP 304
+     */
+    public int getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    public void setEntityTag(@Nullable String entityTag) {
+        mEntityTag = entityTag;
+    }
+
+    public void setGzipEnabled(boolean isGzipEnabled) {
+        mIsGzipEnabled = isGzipEnabled;
+    }
+
+    /**
+     * Answer the next {@code requestCount} requests with HTTP 429.
+     */
+    public void setRateLimitedRequestCount(int requestCount) {
+        mRateLimitedRequestCount.set(requestCount);
+    }
+
+    public void setKeepAliveEnabled(boolean isKeepAliveEnabled) {
+        mIsKeepAliveEnabled = isKeepAliveEnabled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mServerSocket.close();
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+
+            mConnectionCount.incrementAndGet();
+            final Thread connectionThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serveConnection(socket);
+                }
+            }, "LoopbackHttpServer-connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serveConnection(@NonNull Socket socket) {
+        try {
+            final InputStream input = new BufferedInputStream(socket.getInputStream());
+            final OutputStream output = socket.getOutputStream();
+            Map<String, String> requestHeaders;
+            boolean isKeepAlive = true;
+            while (isKeepAlive && (requestHeaders = readRequest(input)) != null) {
+                mRequestCount.incrementAndGet();
+                isKeepAlive = mIsKeepAliveEnabled;
+                writeResponse(output, requestHeaders, isKeepAlive);
+            }
+        } catch (IOException ignore) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private void writeResponse(@NonNull OutputStream output,
+                               @NonNull Map<String, String> requestHeaders,
+                               boolean isKeepAlive)
+            throws IOException {
+        final String entityTag = mEntityTag;
+        final StringBuilder headers = new StringBuilder();
+        final byte[] body;
+        if (mRateLimitedRequestCount.getAndDecrement() > 0) {
+            headers.append("HTTP/1.1 429 Too Many Requests\r\n")
+                    .append("Content-Type: application/json\r\n");
+            body = "{}".getBytes(StandardCharsets.UTF_8);
+        } else if (entityTag != null &&
+                entityTag.equals(requestHeaders.get("if-none-match"))) {
+            mNotModifiedCount.incrementAndGet();
+            headers.append("HTTP/1.1 304 Not Modified\r\n");
+            body = new byte[0];
+        } else {
+            headers.append("HTTP/1.1 200 OK\r\n")
+                    .append("Content-Type: application/json\r\n");
+            final String acceptEncoding = requestHeaders.get("accept-encoding");
+            if (mIsGzipEnabled && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                headers.append("Content-Encoding: gzip\r\n");
+                body = gzip(mResponseBody);
+            } else {
+                body = mResponseBody;
+            }
+        }
+        if (entityTag != null) {
+            headers.append("ETag: ").append(entityTag).append("\r\n");
+        }
+        if (!isKeepAlive) {
+            headers.append("Connection: close\r\n");
+        }
+        headers.append(String.format(Locale.ROOT,
+                "Content-Length: %d\r\n" +
+                        "Request-Id: req_%d\r\n" +
+                        "\r\n",
+                body.length, mRequestCount.get()));
+
+        output.write(headers.toString().getBytes(StandardCharsets.UTF_8));
+        output.write(body);
+        output.flush();
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull byte[] bytes) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Read a request's header block and body.
+     *
+     * @return the request's headers, with lower case names, or null if the client closed the
+     *         connection
+     */
+    @Nullable
+    private static Map<String, String> readRequest(@NonNull InputStream input)
+            throws IOException {
+        final Map<String, String> headers = new HashMap<>();
+        String line;
+        boolean isFirstLine = true;
+        while ((line = readLine(input)) != null) {
+            if (line.isEmpty()) {
+                if (!isFirstLine) {
+                    final String contentLength = headers.get("content-length");
+                    skip(input, contentLength != null ? Integer.parseInt(contentLength) : 0);
+                    return headers;
+                }
+                // tolerate stray line breaks between requests
+                continue;
+            }
+
+            if (!isFirstLine) {
+                final int separator = line.indexOf(':');
+                if (separator != -1) {
+                    headers.put(line.substring(0, separator).trim().toLowerCase(Locale.ROOT),
+                            line.substring(separator + 1).trim());
+                }
+            }
+            isFirstLine = false;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String readLine(@NonNull InputStream input) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = input.read()) != -1) {
+            if (c == '\n') {
+                return line.toString(StandardCharsets.UTF_8.name()).trim();
+            }
+            line.write(c);
+        }
+        return null;
+    }
+
+    private static void skip(@NonNull InputStream input, int byteCount) throws IOException {
+        int remaining = byteCount;
+        while (remaining > 0) {
+            if (input.read() == -1) {
+                return;
+            }
+            remaining--;
+        }
+    }
+}
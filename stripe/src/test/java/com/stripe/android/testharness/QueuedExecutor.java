@@ -0,0 +1,45 @@
+package com.stripe.android.testharness;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link Executor} that queues tasks until a test runs them on its own thread, e.g. to check
+ * what happens before a background task completes.
+ */
+public final class QueuedExecutor implements Executor {
+    @NonNull private final List<Runnable> mTasks = new ArrayList<>();
+
+    @Override
+    public void execute(@NonNull Runnable runnable) {
+        mTasks.add(runnable);
+    }
+
+    /**
+     * @return the number of tasks that were queued and not run yet
+     */
+    public int getQueuedCount() {
+        return mTasks.size();
+    }
+
+    /**
+     * Run the first queued task.
+     */
+    public void runNext() {
+        mTasks.remove(0).run();
+    }
+
+    /**
+     * Run the tasks that are queued. Tasks that they queue are not run.
+     */
+    public void runAll() {
+        final List<Runnable> tasks = new ArrayList<>(mTasks);
+        mTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.stripe.android.ApiResultCallback;
 import com.stripe.android.CustomerSession;
 import com.stripe.android.CustomerSessionTestHelper;
 import com.stripe.android.PaymentConfiguration;
+import com.stripe.android.PaymentConfigurationTestHelper;
 import com.stripe.android.R;
 import com.stripe.android.Stripe;
 import com.stripe.android.exception.StripeException;
@@ -84,7 +85,7 @@ public class AddPaymentMethodActivityTest extends BaseViewTest<AddPaymentMethodA
     public void setup() {
         // The input in this test class will be invalid after 2050. Please update the test.
         assertTrue(Calendar.getInstance().get(Calendar.YEAR) < 2050);
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
         MockitoAnnotations.initMocks(this);
         CustomerSessionTestHelper.setInstance(mCustomerSession);
     }
@@ -0,0 +1,67 @@
+package com.stripe.android.view;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for {@link CountryIndex}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CountryIndexTest {
+
+    @Test
+    public void getInstance_isSharedPerLocale() {
+        assertSame(CountryIndex.getInstance(Locale.US), CountryIndex.getInstance(Locale.US));
+        assertEquals("Germany", CountryIndex.getInstance(Locale.US).getName("DE"));
+        assertEquals("Allemagne", CountryIndex.getInstance(Locale.FRANCE).getName("DE"));
+    }
+
+    @Test
+    public void getCodeAndGetName_areInverse() {
+        final CountryIndex countryIndex = new CountryIndex(Locale.US);
+        assertEquals(Locale.getISOCountries().length, countryIndex.getNames().size());
+        for (String countryCode : Locale.getISOCountries()) {
+            final String name = countryIndex.getName(countryCode);
+            assertEquals(new Locale("", countryCode).getDisplayCountry(Locale.US), name);
+            assertEquals(countryCode, countryIndex.getCode(name));
+        }
+        assertNull(countryIndex.getName("FAKE COUNTRY CODE"));
+    }
+
+    @Test
+    public void findByPrefix_matchesLinearScanIgnoringCase() {
+        final CountryIndex countryIndex = new CountryIndex(Locale.US);
+        for (String prefix : new String[] {"", "b", "U", "uni", "united s", "z", "xyz"}) {
+            final List<String> expected = new ArrayList<>();
+            for (String name : countryIndex.getNames()) {
+                if (name.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT))) {
+                    expected.add(name);
+                }
+            }
+            assertEquals(prefix, expected, countryIndex.findByPrefix(prefix));
+        }
+    }
+
+    @Test
+    public void findByPrefix_ignoresAccents() {
+        final CountryIndex countryIndex = new CountryIndex(Locale.US);
+        final String alandIslands = countryIndex.getName("AX");
+        assertEquals("Åland Islands", alandIslands);
+        assertTrue(countryIndex.findByPrefix("aland").contains(alandIslands));
+        assertTrue(countryIndex.findByPrefix("Åla").contains(alandIslands));
+
+        final CountryIndex frenchCountryIndex = new CountryIndex(Locale.FRANCE);
+        assertTrue(frenchCountryIndex.findByPrefix("equateur")
+                .contains(frenchCountryIndex.getName("EC")));
+    }
+}
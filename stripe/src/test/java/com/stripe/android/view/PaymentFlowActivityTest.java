@@ -15,7 +15,7 @@ import androidx.test.core.app.ApplicationProvider;
 import com.stripe.android.ApiKeyFixtures;
 import com.stripe.android.CustomerSession;
 import com.stripe.android.EphemeralKeyProvider;
-import com.stripe.android.PaymentConfiguration;
+import com.stripe.android.PaymentConfigurationTestHelper;
 import com.stripe.android.PaymentSessionConfig;
 import com.stripe.android.PaymentSessionData;
 import com.stripe.android.R;
@@ -78,7 +78,7 @@ public class PaymentFlowActivityTest extends BaseViewTest<PaymentFlowActivity> {
                 .getInstance(ApplicationProvider.getApplicationContext());
         mLocalBroadcastManager.registerReceiver(mBroadcastReceiver,
                 new IntentFilter(PaymentFlowExtras.EVENT_SHIPPING_INFO_SUBMITTED));
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
         CustomerSession.initCustomerSession(ApplicationProvider.getApplicationContext(),
                 mEphemeralKeyProvider);
     }
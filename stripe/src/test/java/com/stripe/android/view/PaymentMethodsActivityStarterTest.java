@@ -2,6 +2,7 @@ package com.stripe.android.view;
 
 import com.stripe.android.ApiKeyFixtures;
 import com.stripe.android.PaymentConfiguration;
+import com.stripe.android.PaymentConfigurationTestHelper;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.utils.ParcelUtils;
 
@@ -22,7 +23,7 @@ public class PaymentMethodsActivityStarterTest {
 
     @Test
     public void testParceling() {
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
 
         final Set<PaymentMethod.Type> paymentMethodTypes = new HashSet<>(
                 Arrays.asList(PaymentMethod.Type.Card, PaymentMethod.Type.Fpx)
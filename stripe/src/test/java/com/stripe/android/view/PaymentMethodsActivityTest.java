@@ -10,6 +10,7 @@ import com.stripe.android.ApiKeyFixtures;
 import com.stripe.android.CustomerSession;
 import com.stripe.android.CustomerSessionTestHelper;
 import com.stripe.android.PaymentConfiguration;
+import com.stripe.android.PaymentConfigurationTestHelper;
 import com.stripe.android.R;
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.model.PaymentMethodTest;
@@ -53,7 +54,7 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
     @Mock private CustomerSession mCustomerSession;
 
     private List<PaymentMethod> mPaymentMethods;
-    @Captor private ArgumentCaptor<CustomerSession.PaymentMethodsRetrievalListener> mListenerArgumentCaptor;
+    @Captor private ArgumentCaptor<CustomerSession.PaymentMethodsPageRetrievalListener> mListenerArgumentCaptor;
 
     private PaymentMethodsActivity mPaymentMethodsActivity;
     private ProgressBar mProgressBar;
@@ -69,7 +70,7 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
     public void setup() {
         MockitoAnnotations.initMocks(this);
         CustomerSessionTestHelper.setInstance(mCustomerSession);
-        PaymentConfiguration.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
+        PaymentConfigurationTestHelper.init(ApiKeyFixtures.FAKE_PUBLISHABLE_KEY);
 
         mPaymentMethods = Arrays.asList(PaymentMethod.fromString(PaymentMethodTest.PM_CARD_JSON),
                 PaymentMethod.fromString(PaymentMethodsAdapterTest.PAYMENT_METHOD_JSON));
@@ -100,21 +101,62 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
         assertNotNull(mAddCardView);
 
         verify(mCustomerSession).getPaymentMethods(eq(PaymentMethod.Type.Card),
-                mListenerArgumentCaptor.capture());
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
 
         assertEquals(View.VISIBLE, mProgressBar.getVisibility());
         assertEquals(View.VISIBLE, mAddCardView.getVisibility());
         assertEquals(View.VISIBLE, mRecyclerView.getVisibility());
 
-        final CustomerSession.PaymentMethodsRetrievalListener listener =
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
                 mListenerArgumentCaptor.getValue();
         assertNotNull(listener);
 
-        listener.onPaymentMethodsRetrieved(mPaymentMethods);
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods, false);
 
         assertEquals(View.GONE, mProgressBar.getVisibility());
     }
 
+    @Test
+    public void onCreate_withMultiplePages_showsFirstPageAndAppendsRest() {
+        verify(mCustomerSession).getPaymentMethods(eq(PaymentMethod.Type.Card),
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
+                mListenerArgumentCaptor.getValue();
+        final RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        assertNotNull(adapter);
+
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods.subList(0, 1), true);
+        assertEquals(View.GONE, mProgressBar.getVisibility());
+        assertEquals(1, adapter.getItemCount());
+
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods.subList(1, 2), false);
+        assertEquals(2, adapter.getItemCount());
+    }
+
+    @Test
+    public void onCreate_initialGivenPaymentMethodOnLaterPage_isSelected() {
+        // reset the mock because the activity is being re-created again
+        reset(mCustomerSession);
+        final PaymentMethod paymentMethod = mPaymentMethods.get(1);
+        mPaymentMethodsActivity = createActivity(new PaymentMethodsActivityStarter.Args.Builder()
+                .setInitialPaymentMethodId(paymentMethod.id)
+                .build());
+        mRecyclerView = mPaymentMethodsActivity.findViewById(R.id.payment_methods_recycler);
+
+        verify(mCustomerSession).getPaymentMethods(eq(PaymentMethod.Type.Card),
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
+                mListenerArgumentCaptor.getValue();
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods.subList(0, 1), true);
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods.subList(1, 2), false);
+
+        final PaymentMethodsAdapter paymentMethodsAdapter =
+                (PaymentMethodsAdapter) mRecyclerView.getAdapter();
+        assertNotNull(paymentMethodsAdapter);
+        assertNotNull(paymentMethodsAdapter.getSelectedPaymentMethod());
+        assertEquals(paymentMethod.id, paymentMethodsAdapter.getSelectedPaymentMethod().id);
+    }
+
     @Test
     public void onCreate_initialGivenPaymentMethodIsSelected() {
         // reset the mock because the activity is being re-created again
@@ -128,13 +170,13 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
         mRecyclerView = mPaymentMethodsActivity.findViewById(R.id.payment_methods_recycler);
 
         verify(mCustomerSession).getPaymentMethods(eq(PaymentMethod.Type.Card),
-                mListenerArgumentCaptor.capture());
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
 
-        final CustomerSession.PaymentMethodsRetrievalListener listener =
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
                 mListenerArgumentCaptor.getValue();
         assertNotNull(listener);
 
-        listener.onPaymentMethodsRetrieved(mPaymentMethods);
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods, false);
 
         final PaymentMethodsAdapter paymentMethodsAdapter = (PaymentMethodsAdapter) mRecyclerView.getAdapter();
         assertNotNull(paymentMethodsAdapter);
@@ -185,14 +227,14 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
 
         mPaymentMethodsActivity.onActivityResult(REQUEST_CODE_ADD_CARD, RESULT_OK, resultIntent);
         assertEquals(View.VISIBLE, mProgressBar.getVisibility());
-        verify(mCustomerSession, times(2)).getPaymentMethods(
-                eq(PaymentMethod.Type.Card), mListenerArgumentCaptor.capture());
+        verify(mCustomerSession, times(2)).getPaymentMethods(eq(PaymentMethod.Type.Card),
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
 
-        final CustomerSession.PaymentMethodsRetrievalListener listener =
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
                 mListenerArgumentCaptor.getValue();
         assertNotNull(listener);
 
-        listener.onPaymentMethodsRetrieved(mPaymentMethods);
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods, false);
         assertEquals(View.GONE, mProgressBar.getVisibility());
         assertNotNull(mRecyclerView.getAdapter());
         assertEquals(2, mRecyclerView.getAdapter().getItemCount());
@@ -208,17 +250,17 @@ public class PaymentMethodsActivityTest extends BaseViewTest<PaymentMethodsActiv
     public void onSaveMenuItem_finishedWithExpectedResult() {
 
         verify(mCustomerSession).getPaymentMethods(eq(PaymentMethod.Type.Card),
-                mListenerArgumentCaptor.capture());
+                eq(PaymentMethodsActivity.PAGE_SIZE), mListenerArgumentCaptor.capture());
 
         assertEquals(View.VISIBLE, mProgressBar.getVisibility());
         assertEquals(View.VISIBLE, mAddCardView.getVisibility());
         assertEquals(View.VISIBLE, mRecyclerView.getVisibility());
 
-        final CustomerSession.PaymentMethodsRetrievalListener listener =
+        final CustomerSession.PaymentMethodsPageRetrievalListener listener =
                 mListenerArgumentCaptor.getValue();
         assertNotNull(listener);
 
-        listener.onPaymentMethodsRetrieved(mPaymentMethods);
+        listener.onPaymentMethodsPageRetrieved(mPaymentMethods, false);
         final PaymentMethodsAdapter paymentMethodsAdapter = (PaymentMethodsAdapter) mRecyclerView.getAdapter();
         assertNotNull(paymentMethodsAdapter);
         paymentMethodsAdapter.setSelectedIndex(0);
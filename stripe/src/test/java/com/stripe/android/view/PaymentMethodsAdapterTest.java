@@ -1,9 +1,11 @@
 package com.stripe.android.view;
 
+import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 
 import com.stripe.android.model.PaymentMethod;
 import com.stripe.android.model.PaymentMethodTest;
+import com.stripe.android.testharness.QueuedExecutor;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -17,7 +19,12 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -67,12 +74,15 @@ public class PaymentMethodsAdapterTest {
 
 
     @Mock RecyclerView.AdapterDataObserver mAdapterDataObserver;
+    @NonNull private final QueuedExecutor mBackgroundExecutor = new QueuedExecutor();
+    @NonNull private final QueuedExecutor mMainThreadExecutor = new QueuedExecutor();
     private PaymentMethodsAdapter mPaymentMethodsAdapter;
 
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        mPaymentMethodsAdapter = new PaymentMethodsAdapter();
+        mPaymentMethodsAdapter =
+                new PaymentMethodsAdapter(mBackgroundExecutor, mMainThreadExecutor);
         mPaymentMethodsAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
@@ -122,10 +132,15 @@ public class PaymentMethodsAdapterTest {
         assertEquals(paymentMethod1.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
 
         mPaymentMethodsAdapter.setPaymentMethods(paymentMethods);
+        // the difference is applied once it is computed
+        assertEquals(1, mPaymentMethodsAdapter.getItemCount());
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
         assertEquals(2, mPaymentMethodsAdapter.getItemCount());
         assertNotNull(mPaymentMethodsAdapter.getSelectedPaymentMethod());
         assertEquals(paymentMethod1.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
-        verify(mAdapterDataObserver, times(2)).onChanged();
+        verify(mAdapterDataObserver, times(1)).onChanged();
+        verify(mAdapterDataObserver).onItemRangeInserted(1, 1);
     }
 
     @Test
@@ -144,8 +159,93 @@ public class PaymentMethodsAdapterTest {
         assertNotNull(mPaymentMethodsAdapter.getSelectedPaymentMethod());
 
         mPaymentMethodsAdapter.setPaymentMethods(paymentMethods);
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
         assertEquals(2, mPaymentMethodsAdapter.getItemCount());
         assertNotNull(mPaymentMethodsAdapter.getSelectedPaymentMethod());
         assertEquals(paymentMethod2.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
     }
+
+    @Test
+    public void addPaymentMethods_appendsWithoutFullRefreshAndKeepsSelection() {
+        final PaymentMethod paymentMethod1 =
+                PaymentMethod.fromString(PaymentMethodTest.PM_CARD_JSON);
+        final PaymentMethod paymentMethod2 = PaymentMethod.fromString(PAYMENT_METHOD_JSON);
+        assertNotNull(paymentMethod1);
+        assertNotNull(paymentMethod2);
+
+        mPaymentMethodsAdapter.setPaymentMethods(Collections.singletonList(paymentMethod1));
+        assertNotNull(mPaymentMethodsAdapter.getSelectedPaymentMethod());
+
+        mPaymentMethodsAdapter.addPaymentMethods(Collections.singletonList(paymentMethod2));
+        assertEquals(2, mPaymentMethodsAdapter.getItemCount());
+        verify(mAdapterDataObserver, times(1)).onChanged();
+        verify(mAdapterDataObserver).onItemRangeInserted(1, 1);
+        assertEquals(paymentMethod1.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
+    }
+
+    @Test
+    public void updateSelectedPaymentMethod_shouldRebindOnlyChangedRows() {
+        final PaymentMethod paymentMethod1 =
+                PaymentMethod.fromString(PaymentMethodTest.PM_CARD_JSON);
+        final PaymentMethod paymentMethod2 = PaymentMethod.fromString(PAYMENT_METHOD_JSON);
+        assertNotNull(paymentMethod1);
+        assertNotNull(paymentMethod2);
+        assertNotNull(paymentMethod1.id);
+
+        mPaymentMethodsAdapter.setPaymentMethods(Arrays.asList(paymentMethod1, paymentMethod2));
+        assertEquals(paymentMethod2.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
+
+        assertTrue(mPaymentMethodsAdapter.updateSelectedPaymentMethod(paymentMethod1.id));
+        assertEquals(paymentMethod1.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
+        verify(mAdapterDataObserver)
+                .onItemRangeChanged(1, 1, AdapterListDiffer.PAYLOAD_SELECTION);
+        verify(mAdapterDataObserver)
+                .onItemRangeChanged(0, 1, AdapterListDiffer.PAYLOAD_SELECTION);
+        assertFalse(mPaymentMethodsAdapter.updateSelectedPaymentMethod("pm_unknown"));
+    }
+
+    @Test
+    public void setPaymentMethods_withSameIds_onlyRebindsChangedRows() {
+        final PaymentMethod paymentMethod1 =
+                PaymentMethod.fromString(PaymentMethodTest.PM_CARD_JSON);
+        final PaymentMethod paymentMethod2 = PaymentMethod.fromString(PAYMENT_METHOD_JSON);
+        assertNotNull(paymentMethod1);
+        assertNotNull(paymentMethod2);
+
+        mPaymentMethodsAdapter.setPaymentMethods(Arrays.asList(paymentMethod1, paymentMethod2));
+        mPaymentMethodsAdapter.setPaymentMethods(Collections.singletonList(paymentMethod2));
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
+
+        assertEquals(1, mPaymentMethodsAdapter.getItemCount());
+        verify(mAdapterDataObserver, times(1)).onChanged();
+        verify(mAdapterDataObserver).onItemRangeRemoved(0, 1);
+        verify(mAdapterDataObserver, never()).onItemRangeChanged(anyInt(), anyInt(), isNull());
+        assertEquals(paymentMethod2.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
+    }
+
+    @Test
+    public void setPaymentMethods_whenReplacedBeforeDiffIsApplied_showsLatestList() {
+        final PaymentMethod paymentMethod1 =
+                PaymentMethod.fromString(PaymentMethodTest.PM_CARD_JSON);
+        final PaymentMethod paymentMethod2 = PaymentMethod.fromString(PAYMENT_METHOD_JSON);
+        assertNotNull(paymentMethod1);
+        assertNotNull(paymentMethod2);
+
+        mPaymentMethodsAdapter.setPaymentMethods(Collections.singletonList(paymentMethod1));
+        mPaymentMethodsAdapter.setPaymentMethods(Arrays.asList(paymentMethod1, paymentMethod2));
+        mPaymentMethodsAdapter.setPaymentMethods(Collections.singletonList(paymentMethod2));
+        // the selection follows the latest list before it is shown
+        assertEquals(paymentMethod2.id, mPaymentMethodsAdapter.getSelectedPaymentMethod().id);
+
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
+
+        assertEquals(1, mPaymentMethodsAdapter.getItemCount());
+        assertEquals(paymentMethod2.id.hashCode(), mPaymentMethodsAdapter.getItemId(0));
+        // the difference with the list that was replaced is never applied
+        verify(mAdapterDataObserver, never()).onItemRangeInserted(1, 1);
+    }
+
 }
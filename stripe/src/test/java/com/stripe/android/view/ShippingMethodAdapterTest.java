@@ -0,0 +1,164 @@
+package com.stripe.android.view;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.stripe.android.R;
+import com.stripe.android.model.ShippingMethod;
+import com.stripe.android.testharness.QueuedExecutor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for {@link ShippingMethodAdapter}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ShippingMethodAdapterTest {
+    private static final ShippingMethod UPS = new ShippingMethod(
+            "UPS Ground",
+            "ups-ground",
+            "Arrives in 3-5 days",
+            0,
+            "USD"
+    );
+    private static final ShippingMethod FEDEX = new ShippingMethod(
+            "FedEx",
+            "fedex",
+            "Arrives tomorrow",
+            599,
+            "USD"
+    );
+    private static final ShippingMethod DHL = new ShippingMethod(
+            "DHL Express",
+            "dhl-express",
+            "Arrives in 2 days",
+            999,
+            "USD"
+    );
+
+    @Mock RecyclerView.AdapterDataObserver mAdapterDataObserver;
+    @NonNull private final QueuedExecutor mBackgroundExecutor = new QueuedExecutor();
+    @NonNull private final QueuedExecutor mMainThreadExecutor = new QueuedExecutor();
+    private ShippingMethodAdapter mShippingMethodAdapter;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        mShippingMethodAdapter =
+                new ShippingMethodAdapter(mBackgroundExecutor, mMainThreadExecutor);
+        mShippingMethodAdapter.registerAdapterDataObserver(mAdapterDataObserver);
+    }
+
+    @Test
+    public void setShippingMethods_withChangedList_onlyUpdatesChangedRowsOnceDiffIsApplied() {
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(UPS, FEDEX), null);
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(FEDEX, DHL), null);
+        // the selection follows the latest list before it is shown
+        assertEquals(FEDEX, mShippingMethodAdapter.getSelectedShippingMethod());
+        assertEquals(1, mBackgroundExecutor.getQueuedCount());
+
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
+
+        assertEquals(2, mShippingMethodAdapter.getItemCount());
+        verify(mAdapterDataObserver, times(1)).onChanged();
+        verify(mAdapterDataObserver).onItemRangeRemoved(0, 1);
+        verify(mAdapterDataObserver).onItemRangeInserted(anyInt(), eq(1));
+        verify(mAdapterDataObserver, never()).onItemRangeChanged(anyInt(), anyInt(), isNull());
+    }
+
+    @Test
+    public void setShippingMethods_withSameList_doesNotUpdateRows() {
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(UPS, FEDEX), null);
+        clearInvocations(mAdapterDataObserver);
+
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(UPS, FEDEX), null);
+        mBackgroundExecutor.runAll();
+        mMainThreadExecutor.runAll();
+
+        assertEquals(2, mShippingMethodAdapter.getItemCount());
+        verify(mAdapterDataObserver, never()).onChanged();
+        verify(mAdapterDataObserver, never()).onItemRangeChanged(anyInt(), anyInt());
+        verify(mAdapterDataObserver, never()).onItemRangeChanged(anyInt(), anyInt(), isNull());
+    }
+
+    @Test
+    public void onShippingMethodSelected_shouldRebindOnlySelectionOfChangedRows() {
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(UPS, FEDEX), UPS);
+        final ShippingMethodAdapter.ViewHolder upsHolder = createViewHolder();
+        final ShippingMethodAdapter.ViewHolder fedExHolder = createViewHolder();
+        mShippingMethodAdapter.onBindViewHolder(upsHolder, 0);
+        mShippingMethodAdapter.onBindViewHolder(fedExHolder, 1);
+        assertTrue(isChecked(upsHolder));
+        assertFalse(isChecked(fedExHolder));
+        clearInvocations(mAdapterDataObserver);
+
+        mShippingMethodAdapter.onShippingMethodSelected(1);
+        assertEquals(FEDEX, mShippingMethodAdapter.getSelectedShippingMethod());
+        verify(mAdapterDataObserver)
+                .onItemRangeChanged(0, 1, AdapterListDiffer.PAYLOAD_SELECTION);
+        verify(mAdapterDataObserver)
+                .onItemRangeChanged(1, 1, AdapterListDiffer.PAYLOAD_SELECTION);
+
+        mShippingMethodAdapter.onBindViewHolder(upsHolder, 0,
+                Collections.<Object>singletonList(AdapterListDiffer.PAYLOAD_SELECTION));
+        mShippingMethodAdapter.onBindViewHolder(fedExHolder, 1,
+                Collections.<Object>singletonList(AdapterListDiffer.PAYLOAD_SELECTION));
+        assertFalse(isChecked(upsHolder));
+        assertTrue(isChecked(fedExHolder));
+    }
+
+    @Test
+    public void onBindViewHolder_withSelectionPayload_doesNotBindShippingMethod() {
+        mShippingMethodAdapter.setShippingMethods(Arrays.asList(UPS, FEDEX), UPS);
+        final ShippingMethodAdapter.ViewHolder holder = createViewHolder();
+        mShippingMethodAdapter.onBindViewHolder(holder, 0);
+
+        // only the selection state of the row at position 1 is applied to the holder
+        mShippingMethodAdapter.onBindViewHolder(holder, 1,
+                Collections.<Object>singletonList(AdapterListDiffer.PAYLOAD_SELECTION));
+        assertFalse(isChecked(holder));
+        assertEquals("UPS Ground", getLabel(holder));
+    }
+
+    @NonNull
+    private ShippingMethodAdapter.ViewHolder createViewHolder() {
+        return mShippingMethodAdapter.onCreateViewHolder(
+                new FrameLayout(ApplicationProvider.getApplicationContext()), 0);
+    }
+
+    private static boolean isChecked(@NonNull ShippingMethodAdapter.ViewHolder holder) {
+        return holder.itemView.findViewById(R.id.iv_selected_icon).getVisibility() ==
+                View.VISIBLE;
+    }
+
+    @NonNull
+    private static String getLabel(@NonNull ShippingMethodAdapter.ViewHolder holder) {
+        final TextView label = holder.itemView.findViewById(R.id.tv_label_smv);
+        return label.getText().toString();
+    }
+}